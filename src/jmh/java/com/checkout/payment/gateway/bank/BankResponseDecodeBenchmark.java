@@ -0,0 +1,65 @@
+package com.checkout.payment.gateway.bank;
+
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.mapper.PaymentMapper;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Turns a bank response body into a payment. {@code jsonTree} is how bank responses used to be
+ * read: a new ObjectMapper per call, the body as a String, then a JsonNode tree walked by name.
+ * {@code typed} is the shared reader decoding the bytes into a {@link BankPaymentResponse}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BankResponseDecodeBenchmark {
+
+  private ObjectReader bankResponseReader;
+  private PostPaymentRequest paymentRequest;
+  private byte[] body;
+
+  @Setup
+  public void setUp() {
+    bankResponseReader = new ObjectMapper().readerFor(BankPaymentResponse.class);
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth(4);
+    paymentRequest.setExpiryYear(2030);
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(1050);
+    paymentRequest.setCvv("123");
+    body = ("{\"authorized\":true,\"authorization_code\":\"" + UUID.randomUUID() + "\"}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Payment jsonTree() throws IOException {
+    JsonNode bankResponse = new ObjectMapper().readTree(new String(body, StandardCharsets.UTF_8));
+    return PaymentMapper.MAPPER.mapToPayment(paymentRequest, new BankPaymentResponse(
+        bankResponse.path("authorized").asBoolean(),
+        UUID.fromString(bankResponse.path("authorization_code").asText())),
+        PaymentIdGenerator.RANDOM);
+  }
+
+  @Benchmark
+  public Payment typed() throws IOException {
+    BankPaymentResponse bankResponse = bankResponseReader.readValue(body);
+    return PaymentMapper.MAPPER.mapToPayment(paymentRequest, bankResponse,
+        PaymentIdGenerator.RANDOM);
+  }
+}
@@ -0,0 +1,71 @@
+package com.checkout.payment.gateway.cache;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.mapper.PaymentMapper;
+import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Produces the body of {@code GET /payment/{id}} for payments read at random: looked up, mapped
+ * and serialized on every read, against served from {@link PaymentResponseCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentReadBenchmark {
+
+  private static final int PAYMENTS = 10_000;
+
+  private PaymentsRepository paymentsRepository;
+  private PaymentResponseCache paymentResponseCache;
+  private ObjectWriter writer;
+  private UUID[] ids;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    paymentsRepository = new PaymentsRepository(new StripedPaymentStore());
+    paymentResponseCache = new PaymentResponseCache(objectMapper, PAYMENTS);
+    writer = objectMapper.writerFor(GetPaymentResponse.class);
+    ids = new UUID[PAYMENTS];
+    for (int i = 0; i < PAYMENTS; i++) {
+      ids[i] = UUID.randomUUID();
+      Payment payment = new Payment(ids[i], PaymentStatus.AUTHORIZED.getName(),
+          "************8877", 1 + i % 12, 2030, "GBP", 100 + i);
+      paymentsRepository.save(payment);
+      paymentResponseCache.put(ids[i],
+          PaymentMapper.MAPPER.mapToGetPaymentResponse(payment));
+    }
+  }
+
+  @Benchmark
+  public byte[] mapAndSerialize() throws JsonProcessingException {
+    Payment payment = paymentsRepository.findByPaymentId(nextId()).orElseThrow();
+    return writer.writeValueAsBytes(PaymentMapper.MAPPER.mapToGetPaymentResponse(payment));
+  }
+
+  @Benchmark
+  public byte[] cached() {
+    return paymentResponseCache.get(nextId()).getJson();
+  }
+
+  private UUID nextId() {
+    next = (next + 1) % PAYMENTS;
+    return ids[next];
+  }
+}
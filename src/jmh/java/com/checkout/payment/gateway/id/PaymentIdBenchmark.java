@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.id;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of payment id generation from several threads at once, time ordered ids against
+ * {@link UUID#randomUUID()}. Run with {@code -t} to compare other thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class PaymentIdBenchmark {
+
+  private final PaymentIdGenerator timeOrdered =
+      new TimeOrderedIdGenerator(System::currentTimeMillis);
+
+  @Benchmark
+  public UUID random() {
+    return PaymentIdGenerator.RANDOM.next();
+  }
+
+  @Benchmark
+  public UUID timeOrdered() {
+    return timeOrdered.next();
+  }
+}
@@ -0,0 +1,63 @@
+package com.checkout.payment.gateway.mapper;
+
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentMapperBenchmark {
+
+  private PostPaymentRequest paymentRequest;
+  private BankPaymentResponse bankResponse;
+  private Payment payment;
+  private int month;
+
+  @Setup
+  public void setUp() {
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth(4);
+    paymentRequest.setExpiryYear(2030);
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(1050);
+    paymentRequest.setCvv("123");
+    bankResponse = new BankPaymentResponse(true, UUID.randomUUID());
+    payment = PaymentMapper.MAPPER.mapToPayment(paymentRequest, bankResponse,
+        PaymentIdGenerator.RANDOM);
+    month = 4;
+  }
+
+  @Benchmark
+  public Payment mapToPayment() {
+    return PaymentMapper.MAPPER.mapToPayment(paymentRequest, bankResponse,
+        PaymentIdGenerator.RANDOM);
+  }
+
+  @Benchmark
+  public GetPaymentResponse mapToGetPaymentResponse() {
+    return PaymentMapper.MAPPER.mapToGetPaymentResponse(payment);
+  }
+
+  @Benchmark
+  public String maskCardNumber() {
+    return PaymentMapper.MAPPER.maskCardNumber(paymentRequest.getCardNumber());
+  }
+
+  @Benchmark
+  public String mapMonthToString() {
+    return PaymentMapper.MAPPER.mapMonthToString(month);
+  }
+}
@@ -0,0 +1,59 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Cost of recording a payment's metrics into the Prometheus registry, from several threads at
+ * once as under load: what {@link PaymentMetrics} records for one payment, against looking the
+ * same meters up by name and tags and timing with a {@link Timer.Sample}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class PaymentMetricsBenchmark {
+
+  private PrometheusMeterRegistry registry;
+  private PaymentMetrics paymentMetrics;
+
+  @Setup
+  public void setUp() {
+    registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    paymentMetrics = new PaymentMetrics(registry);
+  }
+
+  @Benchmark
+  public void recordPayment() {
+    paymentMetrics.recordValidation(800);
+    paymentMetrics.recordBankCall(40_000_000, true);
+    paymentMetrics.recordMapping(300);
+    paymentMetrics.recordSave(500);
+    paymentMetrics.recordOutcome(PaymentStatus.AUTHORIZED, "GBP");
+  }
+
+  @Benchmark
+  public void recordPaymentByLookup() {
+    Timer.Sample sample = Timer.start(registry);
+    sample.stop(registry.timer(PaymentMetrics.VALIDATION));
+    registry.timer(PaymentMetrics.BANK_CALL, "outcome", "success")
+        .record(40_000_000, TimeUnit.NANOSECONDS);
+    sample = Timer.start(registry);
+    sample.stop(registry.timer(PaymentMetrics.MAPPING));
+    sample = Timer.start(registry);
+    sample.stop(registry.timer(PaymentMetrics.REPOSITORY, "operation", "save"));
+    registry.counter(PaymentMetrics.OUTCOMES, "status", PaymentStatus.AUTHORIZED.getName(),
+        "currency", "GBP").increment();
+  }
+}
@@ -0,0 +1,107 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serialises and parses the request and response bodies of the payment endpoints. The request is
+ * read from the body a client sends, which differs from what the gateway writes when calling the
+ * bank. {@code streaming} uses the serializers declared on the models, {@code bean} ignores them
+ * and falls back to reflective bean serialization for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonRoundTripBenchmark {
+
+  private static final byte[] REQUEST_JSON = ("{\"card_number\":\"2222405343248877\","
+      + "\"expiry_month\":4,\"expiry_year\":2030,\"currency\":\"GBP\",\"amount\":1050,"
+      + "\"cvv\":\"123\"}").getBytes(StandardCharsets.UTF_8);
+
+  @Param({"streaming", "bean"})
+  public String mapping;
+
+  private ObjectReader requestReader;
+  private ObjectWriter requestWriter;
+  private ObjectReader responseReader;
+  private ObjectWriter responseWriter;
+  private PostPaymentRequest paymentRequest;
+  private GetPaymentResponse paymentResponse;
+  private byte[] responseJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    if ("bean".equals(mapping)) {
+      objectMapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+        @Override
+        public Object findSerializer(Annotated annotated) {
+          return annotated.getRawType() == PaymentStatus.class
+              ? super.findSerializer(annotated) : null;
+        }
+
+        @Override
+        public Object findDeserializer(Annotated annotated) {
+          return null;
+        }
+      });
+    }
+    requestReader = objectMapper.readerFor(PostPaymentRequest.class);
+    requestWriter = objectMapper.writerFor(PostPaymentRequest.class);
+    responseReader = objectMapper.readerFor(GetPaymentResponse.class);
+    responseWriter = objectMapper.writerFor(GetPaymentResponse.class);
+
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth(4);
+    paymentRequest.setExpiryYear(2030);
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(1050);
+    paymentRequest.setCvv("123");
+    paymentResponse = new GetPaymentResponse();
+    paymentResponse.setId(UUID.randomUUID());
+    paymentResponse.setStatus(PaymentStatus.AUTHORIZED);
+    paymentResponse.setCardNumberLastFour("8877");
+    paymentResponse.setExpiryMonth("04");
+    paymentResponse.setExpiryYear("2030");
+    paymentResponse.setCurrency("GBP");
+    paymentResponse.setAmount(1050);
+    responseJson = responseWriter.writeValueAsBytes(paymentResponse);
+  }
+
+  @Benchmark
+  public byte[] writeRequest() throws IOException {
+    return requestWriter.writeValueAsBytes(paymentRequest);
+  }
+
+  @Benchmark
+  public PostPaymentRequest readRequest() throws IOException {
+    return requestReader.readValue(REQUEST_JSON);
+  }
+
+  @Benchmark
+  public byte[] writeResponse() throws IOException {
+    return responseWriter.writeValueAsBytes(paymentResponse);
+  }
+
+  @Benchmark
+  public GetPaymentResponse readResponse() throws IOException {
+    return responseReader.readValue(responseJson);
+  }
+}
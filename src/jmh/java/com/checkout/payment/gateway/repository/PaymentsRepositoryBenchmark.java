@@ -0,0 +1,72 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.CompactPaymentStore;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Saves and reads payments concurrently, six readers per two writers, the mix of a gateway
+ * serving status lookups while taking payments. The repository is refilled for every iteration
+ * so that writers keep inserting rather than hitting existing ids.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentsRepositoryBenchmark {
+
+  private static final int PRELOADED = 100_000;
+
+  @Param({"striped", "compact"})
+  public String store;
+
+  private PaymentsRepository repository;
+  private UUID[] ids;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    PaymentStore paymentStore = "compact".equals(store)
+        ? new CompactPaymentStore() : new StripedPaymentStore();
+    repository = new PaymentsRepository(paymentStore);
+    ids = new UUID[PRELOADED];
+    for (int i = 0; i < PRELOADED; i++) {
+      ids[i] = UUID.randomUUID();
+      repository.save(payment(ids[i]));
+    }
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(2)
+  public Optional<Payment> save() {
+    return repository.save(payment(UUID.randomUUID()));
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(6)
+  public Optional<Payment> find() {
+    return repository.findByPaymentId(ids[ThreadLocalRandom.current().nextInt(PRELOADED)]);
+  }
+
+  private static Payment payment(UUID id) {
+    return new Payment(id, PaymentStatus.AUTHORIZED.getName(), "************8877", 4, 2030, "GBP",
+        1050);
+  }
+}
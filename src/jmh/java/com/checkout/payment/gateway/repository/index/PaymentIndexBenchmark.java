@@ -0,0 +1,120 @@
+package com.checkout.payment.gateway.repository.index;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Latency of a page of up to 20 results for typical support and reconciliation searches, over an
+ * index of millions of payments saved one per millisecond. Run with {@code -jvmArgs -Xmx3g}
+ * for the largest size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentIndexBenchmark {
+
+  private static final String[] CURRENCIES = {"GBP", "GBP", "GBP", "EUR", "EUR", "USD", "JPY",
+      "CHF"};
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+  private static final int QUERIES = 1024;
+
+  @Param({"1000000", "10000000"})
+  public int payments;
+
+  private PaymentIndex index;
+  private PaymentQuery[] byCard;
+  private PaymentQuery[] byAmount;
+  private PaymentQuery[] byMinute;
+  private PaymentQuery[] rejectedInCurrency;
+  private PaymentQuery[] broad;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(1);
+    index = new PaymentIndex();
+    Payment payment = new Payment(null, null, null, 0, 0, null, 0);
+    for (int i = 0; i < payments; i++) {
+      int status = random.nextInt(100);
+      payment.setId(new UUID(random.nextLong(), random.nextLong()));
+      payment.setPaymentStatus((status < 90 ? PaymentStatus.AUTHORIZED
+          : status < 99 ? PaymentStatus.DECLINED : PaymentStatus.REJECTED).getName());
+      payment.setCardNumber(String.format("************%04d", random.nextInt(10_000)));
+      payment.setExpiryMonth(1 + random.nextInt(12));
+      payment.setExpiryYear(2026 + random.nextInt(10));
+      payment.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+      payment.setAmount((int) Math.exp(4 + 3 * random.nextDouble() * random.nextDouble() * 3));
+      payment.setCreatedAt(START.plusMillis(i));
+      index.add(payment);
+    }
+    byCard = new PaymentQuery[QUERIES];
+    byAmount = new PaymentQuery[QUERIES];
+    byMinute = new PaymentQuery[QUERIES];
+    rejectedInCurrency = new PaymentQuery[QUERIES];
+    broad = new PaymentQuery[QUERIES];
+    for (int q = 0; q < QUERIES; q++) {
+      byCard[q] = new PaymentQuery();
+      byCard[q].setCardNumberLastFour(String.format("%04d", random.nextInt(10_000)));
+      byCard[q].setExpiryMonth(1 + random.nextInt(12));
+      byCard[q].setExpiryYear(2026 + random.nextInt(10));
+      int amount = (int) Math.exp(4 + 9 * random.nextDouble());
+      byAmount[q] = new PaymentQuery();
+      byAmount[q].setMinAmount(amount);
+      byAmount[q].setMaxAmount(amount);
+      Instant from = START.plusMillis(random.nextInt(payments - 60_000));
+      byMinute[q] = new PaymentQuery();
+      byMinute[q].setCreatedFrom(from);
+      byMinute[q].setCreatedTo(from.plusSeconds(60));
+      rejectedInCurrency[q] = new PaymentQuery();
+      rejectedInCurrency[q].setStatus(PaymentStatus.REJECTED);
+      rejectedInCurrency[q].setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+      rejectedInCurrency[q].setAfter(random.nextInt(payments));
+      broad[q] = new PaymentQuery();
+      broad[q].setCurrency("GBP");
+      broad[q].setMinAmount(1000);
+      broad[q].setAfter(random.nextInt(payments));
+    }
+  }
+
+  @Benchmark
+  public Page<UUID> cardAndExpiry() {
+    return index.search(byCard[nextQuery()]);
+  }
+
+  @Benchmark
+  public Page<UUID> exactAmount() {
+    return index.search(byAmount[nextQuery()]);
+  }
+
+  @Benchmark
+  public Page<UUID> createdWithinMinute() {
+    return index.search(byMinute[nextQuery()]);
+  }
+
+  @Benchmark
+  public Page<UUID> rejectedInCurrencyFromCursor() {
+    return index.search(rejectedInCurrency[nextQuery()]);
+  }
+
+  @Benchmark
+  public Page<UUID> currencyAndMinAmountFromCursor() {
+    return index.search(broad[nextQuery()]);
+  }
+
+  private int nextQuery() {
+    next = (next + 1) & (QUERIES - 1);
+    return next;
+  }
+}
@@ -0,0 +1,80 @@
+package com.checkout.payment.gateway.validation;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencyValidator;
+import com.checkout.payment.gateway.validation.date.ExpiryDateValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares validating a whole payment request with bean validation and with
+ * {@link PaymentRequestValidator}. The constraint validators are also called on their own,
+ * without the bean validation engine around them. Neither uses the constraint context on the
+ * paths measured, so it is passed as null.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidatorBenchmark {
+
+  private final IsoCurrencyValidator currencyValidator = new IsoCurrencyValidator();
+  private final ExpiryDateValidator expiryDateValidator = new ExpiryDateValidator();
+  private final PaymentRequestValidator paymentRequestValidator =
+      new PaymentRequestValidator(new PaymentMetrics(new SimpleMeterRegistry()));
+  private Validator beanValidator;
+  private PostPaymentRequest paymentRequest;
+
+  @Setup
+  public void setUp() {
+    beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth(4);
+    paymentRequest.setExpiryYear(2030);
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(1050);
+    paymentRequest.setCvv("123");
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<PostPaymentRequest>> beanValidation() {
+    return beanValidator.validate(paymentRequest);
+  }
+
+  @Benchmark
+  public Map<String, String> compiledValidation() {
+    return paymentRequestValidator.validate(paymentRequest);
+  }
+
+  @Benchmark
+  public boolean isoCurrency(CurrencyInput input) {
+    return currencyValidator.isValid(input.currency, null);
+  }
+
+  @Benchmark
+  public boolean expiryDate() {
+    return expiryDateValidator.isValid(paymentRequest, null);
+  }
+
+  @State(Scope.Benchmark)
+  public static class CurrencyInput {
+
+    // supported, supported in the wrong case and unknown
+    @Param({"GBP", "gbp", "XYZ"})
+    public String currency;
+  }
+}
@@ -0,0 +1,21 @@
+package com.checkout.payment.gateway.loadgen;
+
+/**
+ * What the bank simulator answers for a card, decided by the last digit of the card number,
+ * see imposters/bank_simulator.ejs.
+ */
+enum BankOutcome {
+  AUTHORIZED("13579"),
+  DECLINED("2468"),
+  UNAVAILABLE("0");
+
+  private final String lastDigits;
+
+  BankOutcome(String lastDigits) {
+    this.lastDigits = lastDigits;
+  }
+
+  char lastDigit(int variant) {
+    return lastDigits.charAt(variant % lastDigits.length());
+  }
+}
@@ -0,0 +1,129 @@
+package com.checkout.payment.gateway.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends payments to a running gateway at a constant rate and reports latency percentiles,
+ * throughput and outcomes, see {@link LoadOptions} for the arguments.
+ * <p>
+ * The load is open-loop: the n-th request is due at {@code start + n / rate} whether or not
+ * earlier requests have been answered, and its latency is measured from that time. Each
+ * connection takes the next due request, waits until it is due and sends it. When all
+ * connections are busy past a request's due time, the wait is part of its latency, so a stall
+ * of the gateway shows in the percentiles instead of silently lowering the rate sent
+ * (coordinated omission).
+ */
+public final class LoadGenerator {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private final LoadOptions options;
+  private final RequestSource requestSource;
+  private final LoadReport report;
+  private final HttpClient client;
+  private final AtomicLong sequence = new AtomicLong();
+
+  LoadGenerator(LoadOptions options, RequestSource requestSource, LoadReport report) {
+    this.options = options;
+    this.requestSource = requestSource;
+    this.report = report;
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadOptions options = LoadOptions.parse(args);
+    RequestSource requestSource = options.requests == null
+        ? RequestSource.generate(options.mix)
+        : RequestSource.replay(options.requests);
+    ObjectMapper objectMapper = new ObjectMapper();
+    LoadReport report = new LoadReport(objectMapper);
+
+    System.out.printf("Sending %s payments/s over %d connections to %s for %s after %s warm-up%n",
+        options.rate, options.connections, options.url, options.duration, options.warmup);
+    long sent = new LoadGenerator(options, requestSource, report).run();
+
+    ObjectNode json = report.toJson(options, requestSource.description(), sent,
+        options.duration.toNanos() / 1e9);
+    report.write(json, options.report);
+    System.out.println(objectMapper.writerWithDefaultPrettyPrinter()
+        .writeValueAsString(json.deepCopy().without("histogram")));
+    System.out.println("Report written to " + options.report.toAbsolutePath());
+  }
+
+  /**
+   * @return requests sent during the measured part of the run
+   */
+  long run() throws InterruptedException {
+    URI paymentsUrl = options.url.resolve("/payments");
+    double intervalNanos = 1e9 / options.rate;
+    long start = System.nanoTime();
+    long measureStart = start + options.warmup.toNanos();
+    long end = measureStart + options.duration.toNanos();
+    AtomicLong measuredSent = new AtomicLong();
+
+    List<Thread> connections = new ArrayList<>(options.connections);
+    for (int i = 0; i < options.connections; i++) {
+      Thread connection = new Thread(() -> {
+        while (true) {
+          long n = sequence.getAndIncrement();
+          long due = start + (long) (n * intervalNanos);
+          if (due - end >= 0) {
+            return;
+          }
+          waitUntil(due);
+          boolean measured = due - measureStart >= 0;
+          if (measured) {
+            measuredSent.incrementAndGet();
+          }
+          send(paymentsUrl, requestSource.body(n), due, measured);
+        }
+      }, "loadgen-connection-" + i);
+      connection.start();
+      connections.add(connection);
+    }
+    for (Thread connection : connections) {
+      connection.join();
+    }
+    return measuredSent.get();
+  }
+
+  private void send(URI url, byte[] body, long due, boolean measured) {
+    HttpRequest request = HttpRequest.newBuilder(url)
+        .timeout(REQUEST_TIMEOUT)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+        .build();
+    try {
+      HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+      if (measured) {
+        report.recordResponse(System.nanoTime() - due, response.statusCode(), response.body());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      if (measured) {
+        report.recordFailure(System.nanoTime() - due, e);
+      }
+    }
+  }
+
+  private static void waitUntil(long due) {
+    long remaining;
+    while ((remaining = due - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+}
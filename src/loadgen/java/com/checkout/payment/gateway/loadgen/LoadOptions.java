@@ -0,0 +1,89 @@
+package com.checkout.payment.gateway.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a load run, given as {@code --name=value} arguments.
+ *
+ * <pre>
+ * --url=http://localhost:8090   gateway to load
+ * --rate=200                    payments sent per second, whatever the gateway's latency
+ * --connections=16              connections, and so requests in flight at most
+ * --warmup=5s                   run before measuring, not reported
+ * --duration=30s                measured run
+ * --requests=payments.jsonl     replay payment request bodies, one JSON object per line
+ * --mix=authorized=80,declined=15,unavailable=5
+ *                               share of each bank outcome when requests are generated
+ * --label=build-1234            written to the report, to tell runs apart
+ * --report=build/reports/loadgen/report.json
+ * </pre>
+ */
+final class LoadOptions {
+
+  URI url = URI.create("http://localhost:8090");
+  double rate = 200;
+  int connections = 16;
+  Duration warmup = Duration.ofSeconds(5);
+  Duration duration = Duration.ofSeconds(30);
+  Path requests;
+  Map<BankOutcome, Integer> mix = parseMix("authorized=80,declined=15,unavailable=5");
+  String label = "";
+  Path report = Path.of("build", "reports", "loadgen", "report.json");
+
+  static LoadOptions parse(String[] args) {
+    LoadOptions options = new LoadOptions();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      String name = arg.substring(2, separator);
+      String value = arg.substring(separator + 1);
+      switch (name) {
+        case "url" -> options.url = URI.create(value);
+        case "rate" -> options.rate = Double.parseDouble(value);
+        case "connections" -> options.connections = Integer.parseInt(value);
+        case "warmup" -> options.warmup = parseDuration(value);
+        case "duration" -> options.duration = parseDuration(value);
+        case "requests" -> options.requests = Path.of(value);
+        case "mix" -> options.mix = parseMix(value);
+        case "label" -> options.label = value;
+        case "report" -> options.report = Path.of(value);
+        default -> throw new IllegalArgumentException("Unknown option --" + name);
+      }
+    }
+    if (options.rate <= 0 || options.connections < 1) {
+      throw new IllegalArgumentException("Rate and connections must be positive");
+    }
+    return options;
+  }
+
+  /**
+   * Reads durations such as {@code 500ms}, {@code 30s} or {@code 2m}.
+   */
+  static Duration parseDuration(String value) {
+    if (value.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    }
+    long amount = Long.parseLong(value.substring(0, value.length() - 1));
+    return switch (value.charAt(value.length() - 1)) {
+      case 's' -> Duration.ofSeconds(amount);
+      case 'm' -> Duration.ofMinutes(amount);
+      case 'h' -> Duration.ofHours(amount);
+      default -> throw new IllegalArgumentException("Unknown duration " + value);
+    };
+  }
+
+  static Map<BankOutcome, Integer> parseMix(String value) {
+    Map<BankOutcome, Integer> mix = new LinkedHashMap<>();
+    for (String share : value.split(",")) {
+      String[] parts = share.split("=");
+      mix.put(BankOutcome.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+    }
+    return mix;
+  }
+}
@@ -0,0 +1,131 @@
+package com.checkout.payment.gateway.loadgen;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latencies and outcomes of the measured requests of a run, written as a JSON report.
+ * <p>
+ * Latencies are kept in microseconds in an HdrHistogram, from when each request was due to be
+ * sent rather than from when it was sent, so time spent waiting behind a slow gateway is
+ * counted. The encoded histogram is part of the report, for runs to be merged or compared
+ * beyond the percentiles listed.
+ */
+final class LoadReport {
+
+  private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99_9", "p99_99"};
+
+  private final ObjectMapper objectMapper;
+  private final Recorder latencies = new Recorder(HIGHEST_MICROS, 3);
+  private final Map<PaymentStatus, LongAdder> outcomes = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+  private final LongAdder completed = new LongAdder();
+
+  LoadReport(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Records a response: a created payment by its status, a rejected payment as
+   * {@link PaymentStatus#REJECTED} and any other response as an error of its status code.
+   */
+  void recordResponse(long latencyNanos, int statusCode, byte[] body) {
+    recordLatency(latencyNanos);
+    if (statusCode == 201) {
+      count(outcomes, status(body));
+    } else if (statusCode == 400) {
+      count(outcomes, PaymentStatus.REJECTED);
+    } else {
+      count(errors, "http_" + statusCode);
+    }
+  }
+
+  /**
+   * Records a request that got no response, by the exception it failed with.
+   */
+  void recordFailure(long latencyNanos, Exception exception) {
+    recordLatency(latencyNanos);
+    count(errors, exception.getClass().getSimpleName());
+  }
+
+  private void recordLatency(long latencyNanos) {
+    latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_MICROS));
+    completed.increment();
+  }
+
+  private PaymentStatus status(byte[] body) {
+    try {
+      String name = objectMapper.readTree(body).path("status").asText();
+      for (PaymentStatus status : PaymentStatus.values()) {
+        if (status.getName().equals(name)) {
+          return status;
+        }
+      }
+    } catch (IOException e) {
+      // counted as rejected below, the gateway answered but not with a payment
+    }
+    return PaymentStatus.REJECTED;
+  }
+
+  private static <K> void count(Map<K, LongAdder> counts, K key) {
+    counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+  }
+
+  ObjectNode toJson(LoadOptions options, String source, long sent, double seconds) {
+    Histogram histogram = latencies.getIntervalHistogram();
+    ObjectNode report = objectMapper.createObjectNode();
+    report.put("label", options.label);
+    report.put("url", options.url.toString());
+    report.put("requests", source);
+    report.put("target_rate", options.rate);
+    report.put("connections", options.connections);
+    report.put("warmup_seconds", options.warmup.toMillis() / 1000.0);
+    report.put("duration_seconds", seconds);
+    report.put("sent", sent);
+    report.put("completed", completed.sum());
+    report.put("throughput", completed.sum() / seconds);
+
+    ObjectNode latency = report.putObject("latency_ms");
+    latency.put("mean", histogram.getMean() / 1000);
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      latency.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0);
+    }
+    latency.put("max", histogram.getMaxValue() / 1000.0);
+
+    ObjectNode statuses = report.putObject("outcomes");
+    for (PaymentStatus status : PaymentStatus.values()) {
+      LongAdder count = outcomes.get(status);
+      statuses.put(status.getName(), count == null ? 0 : count.sum());
+    }
+    ObjectNode failures = report.putObject("errors");
+    errors.forEach((error, count) -> failures.put(error, count.sum()));
+
+    ByteBuffer encoded = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    histogram.encodeIntoCompressedByteBuffer(encoded);
+    report.put("histogram", Base64.getEncoder().encodeToString(
+        Arrays.copyOf(encoded.array(), encoded.position())));
+    return report;
+  }
+
+  void write(ObjectNode report, Path file) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+  }
+}
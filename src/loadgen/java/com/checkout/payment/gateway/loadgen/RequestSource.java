@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.loadgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Bodies of the payment requests sent, encoded before the run so that building them does not
+ * delay sending. The bodies are reused in turn for as many requests as the run sends.
+ */
+final class RequestSource {
+
+  private static final int GENERATED = 1000;
+
+  private final List<byte[]> bodies;
+  private final String description;
+
+  private RequestSource(List<byte[]> bodies, String description) {
+    if (bodies.isEmpty()) {
+      throw new IllegalArgumentException("No payment requests in " + description);
+    }
+    this.bodies = bodies;
+    this.description = description;
+  }
+
+  /**
+   * Replays a file holding one payment request body per line, blank lines are skipped.
+   */
+  static RequestSource replay(Path file) throws IOException {
+    List<byte[]> bodies = new ArrayList<>();
+    for (String line : Files.readAllLines(file)) {
+      if (!line.isBlank()) {
+        bodies.add(line.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return new RequestSource(bodies, file.toString());
+  }
+
+  /**
+   * Generates valid payment requests whose card numbers make the bank simulator answer in the
+   * given shares, in a shuffled but repeatable order.
+   */
+  static RequestSource generate(Map<BankOutcome, Integer> mix) {
+    int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+    Random random = new Random(42);
+    List<byte[]> bodies = new ArrayList<>(GENERATED);
+    int expiryYear = Year.now().getValue() + 2;
+    for (Map.Entry<BankOutcome, Integer> share : mix.entrySet()) {
+      int count = GENERATED * share.getValue() / total;
+      for (int i = 0; i < count; i++) {
+        String cardNumber = "222240534324887" + share.getKey().lastDigit(i);
+        String body = "{\"card_number\":\"" + cardNumber + "\",\"expiry_month\":" + (1 + i % 12)
+            + ",\"expiry_year\":" + expiryYear + ",\"currency\":\"GBP\",\"amount\":"
+            + (1 + random.nextInt(100_000)) + ",\"cvv\":\"123\"}";
+        bodies.add(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    Collections.shuffle(bodies, random);
+    return new RequestSource(bodies, "generated " + mix);
+  }
+
+  byte[] body(long sequence) {
+    return bodies.get((int) (sequence % bodies.size()));
+  }
+
+  String description() {
+    return description;
+  }
+}
@@ -0,0 +1,86 @@
+package com.checkout.payment.gateway.bank;
+
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs bank calls through the circuit breaker and the bulkhead. A rejected call fails with
+ * {@link BankUnavailableException} without reaching the bank.
+ */
+public class BankCallGuard {
+
+  static final String CIRCUIT_OPEN_MESSAGE = "Bank circuit is open, payment not attempted";
+  static final String BULKHEAD_FULL_MESSAGE = "Too many payments in flight with the bank";
+
+  private final CircuitBreaker circuitBreaker;
+  private final Bulkhead bulkhead;
+
+  public BankCallGuard(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+    this.circuitBreaker = circuitBreaker;
+    this.bulkhead = bulkhead;
+  }
+
+  public <T> T execute(Supplier<T> call) {
+    long permission = acquire();
+    try {
+      T result = call.get();
+      circuitBreaker.onSuccess(permission);
+      return result;
+    } catch (RuntimeException e) {
+      circuitBreaker.onFailure(permission);
+      throw e;
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+    long permission;
+    try {
+      permission = acquire();
+    } catch (BankUnavailableException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      circuitBreaker.onFailure(permission);
+      bulkhead.release();
+      return CompletableFuture.failedFuture(e);
+    }
+    return future.whenComplete((result, failure) -> {
+      bulkhead.release();
+      if (failure == null) {
+        circuitBreaker.onSuccess(permission);
+      } else {
+        circuitBreaker.onFailure(permission);
+      }
+    });
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public Bulkhead getBulkhead() {
+    return bulkhead;
+  }
+
+  /**
+   * Takes the bulkhead permit first: a circuit permission, possibly one of the few half open
+   * probes, is only consumed by a call that is really going to be made.
+   */
+  private long acquire() {
+    if (!bulkhead.tryAcquire()) {
+      throw new BankUnavailableException(BULKHEAD_FULL_MESSAGE);
+    }
+    long permission = circuitBreaker.tryAcquirePermission();
+    if (permission == CircuitBreaker.NOT_PERMITTED) {
+      bulkhead.release();
+      throw new BankUnavailableException(CIRCUIT_OPEN_MESSAGE);
+    }
+    return permission;
+  }
+}
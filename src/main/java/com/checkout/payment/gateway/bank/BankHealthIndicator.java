@@ -0,0 +1,45 @@
+package com.checkout.payment.gateway.bank;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Publishes the bank circuit and bulkhead under {@code /actuator/health/bank}. The gateway stays
+ * UP while the circuit is open, it is still serving reads and failing payments fast. Recent bank
+ * latencies and the timeout derived from them are reported alongside.
+ */
+public class BankHealthIndicator implements HealthIndicator {
+
+  private final BankCallGuard guard;
+  private final BankLatencyTracker latencyTracker;
+
+  public BankHealthIndicator(BankCallGuard guard, BankLatencyTracker latencyTracker) {
+    this.guard = guard;
+    this.latencyTracker = latencyTracker;
+  }
+
+  @Override
+  public Health health() {
+    CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+    Bulkhead bulkhead = guard.getBulkhead();
+    LatencyHistogram histogram = latencyTracker.getHistogram();
+    return Health.up()
+        .withDetail("circuitState", circuitBreaker.getState())
+        .withDetail("failureRate", circuitBreaker.getFailureRate())
+        .withDetail("transitions", circuitBreaker.getTransitionCounts())
+        .withDetail("circuitRejectedCalls", circuitBreaker.getRejectedCalls())
+        .withDetail("activeCalls", bulkhead.getActiveCalls())
+        .withDetail("maxConcurrentCalls", bulkhead.getMaxConcurrentCalls())
+        .withDetail("bulkheadRejectedCalls", bulkhead.getRejectedCalls())
+        .withDetail("latencyP50Millis", millis(histogram.percentile(50)))
+        .withDetail("latencyP99Millis", millis(histogram.percentile(99)))
+        .withDetail("requestTimeoutMillis", latencyTracker.requestTimeout().toMillis())
+        .withDetail("hedgedCalls", latencyTracker.getHedgedCalls())
+        .withDetail("hedgeWins", latencyTracker.getHedgeWins())
+        .build();
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000d;
+  }
+}
@@ -0,0 +1,126 @@
+package com.checkout.payment.gateway.bank;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Derives bank timeouts and the hedging delay from the latencies the bank has recently shown.
+ * <p>
+ * Until enough calls have been observed the configured read timeout is used. After that the
+ * timeout is a multiple of a high percentile, kept between a floor and the configured read
+ * timeout, so a bank that normally answers in 80 ms is not given 10 seconds per call. Hedging
+ * sends a second request once the hedge percentile has elapsed, and is capped to a percentage of
+ * calls so that a slow bank is not sent twice the load.
+ */
+public class BankLatencyTracker {
+
+  private final LatencyHistogram histogram;
+  private final boolean adaptiveTimeout;
+  private final double timeoutPercentile;
+  private final double timeoutMultiplier;
+  private final long minTimeoutNanos;
+  private final long maxTimeoutNanos;
+  private final long minSamples;
+  private final boolean hedging;
+  private final double hedgePercentile;
+  private final int maxHedgePercent;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder hedgedCalls = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+
+  /**
+   * @param histogram         latencies of recent bank calls
+   * @param adaptiveTimeout   whether timeouts follow observed latencies
+   * @param timeoutPercentile percentile the timeout is derived from
+   * @param timeoutMultiplier headroom over that percentile
+   * @param minTimeout        lowest timeout ever applied
+   * @param maxTimeout        timeout until enough calls were observed, and the highest applied
+   * @param minSamples        calls needed in the window before percentiles are trusted
+   * @param hedging           whether slow calls are hedged
+   * @param hedgePercentile   percentile after which the hedge is sent
+   * @param maxHedgePercent   highest share of calls that may be hedged
+   */
+  public BankLatencyTracker(LatencyHistogram histogram, boolean adaptiveTimeout,
+      double timeoutPercentile, double timeoutMultiplier, Duration minTimeout, Duration maxTimeout,
+      long minSamples, boolean hedging, double hedgePercentile, int maxHedgePercent) {
+    this.histogram = histogram;
+    this.adaptiveTimeout = adaptiveTimeout;
+    this.timeoutPercentile = timeoutPercentile;
+    this.timeoutMultiplier = timeoutMultiplier;
+    this.minTimeoutNanos = minTimeout.toNanos();
+    this.maxTimeoutNanos = maxTimeout.toNanos();
+    this.minSamples = minSamples;
+    this.hedging = hedging;
+    this.hedgePercentile = hedgePercentile;
+    this.maxHedgePercent = maxHedgePercent;
+  }
+
+  /**
+   * Records the latency of one request to the bank. A request that timed out is recorded with
+   * the timeout it was given, so that a slowing bank pushes the timeout up rather than having
+   * its slowest calls go unseen.
+   */
+  public void record(long latencyNanos) {
+    histogram.record(latencyNanos);
+  }
+
+  /**
+   * Counts a bank call, once however many requests it took.
+   */
+  public void onCall() {
+    calls.increment();
+  }
+
+  public Duration requestTimeout() {
+    if (!adaptiveTimeout || histogram.count() < minSamples) {
+      return Duration.ofNanos(maxTimeoutNanos);
+    }
+    long derived = (long) (histogram.percentile(timeoutPercentile) * timeoutMultiplier);
+    return Duration.ofNanos(Math.min(maxTimeoutNanos, Math.max(minTimeoutNanos, derived)));
+  }
+
+  /**
+   * @return delay in nanoseconds after which a call should be hedged, or -1 when it should not
+   */
+  public long hedgeDelayNanos() {
+    if (!hedging || histogram.count() < minSamples) {
+      return -1;
+    }
+    return histogram.percentile(hedgePercentile);
+  }
+
+  /**
+   * @return whether a hedge may be sent now without exceeding the hedge budget
+   */
+  public boolean tryAcquireHedge() {
+    if (hedgedCalls.sum() * 100 >= calls.sum() * maxHedgePercent) {
+      return false;
+    }
+    hedgedCalls.increment();
+    return true;
+  }
+
+  public void onHedgeWin() {
+    hedgeWins.increment();
+  }
+
+  public LatencyHistogram getHistogram() {
+    return histogram;
+  }
+
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  public long getHedgedCalls() {
+    return hedgedCalls.sum();
+  }
+
+  /**
+   * @return hedged calls where the second request answered first
+   */
+  public long getHedgeWins() {
+    return hedgeWins.sum();
+  }
+}
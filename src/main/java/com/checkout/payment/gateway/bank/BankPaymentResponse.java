@@ -0,0 +1,96 @@
+package com.checkout.payment.gateway.bank;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * The bank's answer to a payment.
+ *
+ * @param authorized        whether the bank authorized the payment
+ * @param authorizationCode code the bank authorized the payment with, null when it sent none
+ */
+@JsonDeserialize(using = BankPaymentResponse.Deserializer.class)
+public record BankPaymentResponse(boolean authorized, UUID authorizationCode) {
+
+  static final String AUTHORIZED = "authorized";
+  static final String AUTHORIZATION_CODE = "authorization_code";
+
+  /**
+   * Reads the response token by token. The authorization code is parsed from the parser's own
+   * character buffer, so no string is created for it, and unknown fields are skipped.
+   */
+  static final class Deserializer extends JsonDeserializer<BankPaymentResponse> {
+
+    @Override
+    public BankPaymentResponse deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      if (!parser.isExpectedStartObjectToken()) {
+        return (BankPaymentResponse) context.handleUnexpectedToken(BankPaymentResponse.class,
+            parser);
+      }
+      boolean authorized = false;
+      UUID authorizationCode = null;
+      String field;
+      while ((field = parser.nextFieldName()) != null) {
+        JsonToken value = parser.nextToken();
+        if (AUTHORIZED.equals(field)) {
+          authorized = value == JsonToken.VALUE_TRUE;
+        } else if (AUTHORIZATION_CODE.equals(field) && value == JsonToken.VALUE_STRING) {
+          authorizationCode = parseUuid(parser, context);
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return new BankPaymentResponse(authorized, authorizationCode);
+    }
+
+    private static UUID parseUuid(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      int length = parser.getTextLength();
+      if (length == 0) {
+        return null;
+      }
+      char[] chars = parser.getTextCharacters();
+      int offset = parser.getTextOffset();
+      if (length == 36 && chars[offset + 8] == '-' && chars[offset + 13] == '-'
+          && chars[offset + 18] == '-' && chars[offset + 23] == '-') {
+        long timeLow = hex(chars, offset, 8);
+        long timeMid = hex(chars, offset + 9, 4);
+        long timeHigh = hex(chars, offset + 14, 4);
+        long clockSeq = hex(chars, offset + 19, 4);
+        long node = hex(chars, offset + 24, 12);
+        if ((timeLow | timeMid | timeHigh | clockSeq | node) >= 0) {
+          return new UUID(timeLow << 32 | timeMid << 16 | timeHigh, clockSeq << 48 | node);
+        }
+      }
+      throw context.weirdStringException(parser.getText(), UUID.class, "not a UUID");
+    }
+
+    /**
+     * @return the value of the hexadecimal digits, or -1 if one of them is not a hex digit
+     */
+    private static long hex(char[] chars, int from, int digits) {
+      long value = 0;
+      for (int i = from; i < from + digits; i++) {
+        char c = chars[i];
+        int digit;
+        if (c >= '0' && c <= '9') {
+          digit = c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+          digit = c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+          digit = c - 'A' + 10;
+        } else {
+          return -1;
+        }
+        value = value << 4 | digit;
+      }
+      return value;
+    }
+  }
+}
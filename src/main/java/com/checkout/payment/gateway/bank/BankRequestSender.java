@@ -0,0 +1,128 @@
+package com.checkout.payment.gateway.bank;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Posts payments to the bank with a timeout derived from recent bank latencies, hedging slow
+ * calls when enabled.
+ * <p>
+ * A hedged call sends the same request a second time once the hedge delay has elapsed and
+ * completes with whichever response arrives first. Both requests carry the same idempotency key
+ * so the bank can recognise the duplicate. The slower request is left to finish: its latency is
+ * still recorded, otherwise hedging would hide the very tail it reacts to.
+ */
+public class BankRequestSender {
+
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+  private final HttpClient httpClient;
+  private final BankLatencyTracker latencyTracker;
+
+  public BankRequestSender(HttpClient httpClient, BankLatencyTracker latencyTracker) {
+    this.httpClient = httpClient;
+    this.latencyTracker = latencyTracker;
+  }
+
+  public CompletableFuture<HttpResponse<byte[]>> send(URI url, byte[] body) {
+    latencyTracker.onCall();
+    Duration timeout = latencyTracker.requestTimeout();
+    HttpRequest request = HttpRequest.newBuilder(url)
+        .timeout(timeout)
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+        .build();
+    long hedgeDelay = latencyTracker.hedgeDelayNanos();
+    return hedgeDelay < 0 ? attempt(request, timeout) : hedged(request, timeout, hedgeDelay);
+  }
+
+  /**
+   * Records the latency of a blocking bank call made outside of this sender.
+   */
+  public void recordBlockingCall(long latencyNanos) {
+    latencyTracker.onCall();
+    latencyTracker.record(latencyNanos);
+  }
+
+  public BankLatencyTracker getLatencyTracker() {
+    return latencyTracker;
+  }
+
+  private CompletableFuture<HttpResponse<byte[]>> hedged(HttpRequest request, Duration timeout,
+      long hedgeDelayNanos) {
+    CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+    // attempts that may still answer, the call fails only once every attempt has failed
+    AtomicInteger outstanding = new AtomicInteger(1);
+    // decided before completing, so the hedge win is counted by the time callers see the result
+    AtomicBoolean answered = new AtomicBoolean();
+    // set before the first attempt gives up its count, for a hedge that is then not sent
+    AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    attempt(request, timeout).whenComplete((response, failure) -> {
+      if (failure == null) {
+        if (answered.compareAndSet(false, true)) {
+          result.complete(response);
+        }
+      } else {
+        firstFailure.set(failure);
+        if (outstanding.decrementAndGet() == 0) {
+          result.completeExceptionally(failure);
+        }
+      }
+    });
+    CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+      if (result.isDone() || outstanding.getAndIncrement() == 0) {
+        // answered, or the first attempt failed meanwhile and already completed the call
+        return;
+      }
+      // the budget is only spent on a hedge that is sent
+      if (!latencyTracker.tryAcquireHedge()) {
+        if (outstanding.decrementAndGet() == 0) {
+          result.completeExceptionally(firstFailure.get());
+        }
+        return;
+      }
+      attempt(request, timeout).whenComplete((response, failure) -> {
+        if (failure == null) {
+          if (answered.compareAndSet(false, true)) {
+            latencyTracker.onHedgeWin();
+            result.complete(response);
+          }
+        } else if (outstanding.decrementAndGet() == 0) {
+          result.completeExceptionally(failure);
+        }
+      });
+    });
+    return result;
+  }
+
+  private CompletableFuture<HttpResponse<byte[]>> attempt(HttpRequest request, Duration timeout) {
+    long start = System.nanoTime();
+    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+        .whenComplete((response, failure) -> {
+          if (failure == null) {
+            latencyTracker.record(System.nanoTime() - start);
+          } else if (unwrap(failure) instanceof HttpTimeoutException) {
+            latencyTracker.record(timeout.toNanos());
+          }
+        });
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+  }
+}
@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.bank;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of concurrent calls. A call over the limit is rejected straight away rather
+ * than queued, so a slow dependency cannot absorb every request thread.
+ */
+public class Bulkhead {
+
+  private final int maxConcurrentCalls;
+  private final Semaphore permits;
+  private final LongAdder rejectedCalls = new LongAdder();
+
+  public Bulkhead(int maxConcurrentCalls) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.permits = new Semaphore(maxConcurrentCalls);
+  }
+
+  public boolean tryAcquire() {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    rejectedCalls.increment();
+    return false;
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public int getActiveCalls() {
+    return maxConcurrentCalls - permits.availablePermits();
+  }
+
+  public long getRejectedCalls() {
+    return rejectedCalls.sum();
+  }
+}
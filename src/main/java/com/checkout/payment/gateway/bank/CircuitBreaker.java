@@ -0,0 +1,227 @@
+package com.checkout.payment.gateway.bank;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker over a count based sliding window of call outcomes.
+ * <p>
+ * While closed every call is permitted and its outcome recorded. Once the window holds at least
+ * the minimum number of calls and the failure rate reaches the threshold the circuit opens and
+ * calls are rejected without being attempted. After the open duration a limited number of probe
+ * calls are let through: if they all succeed the circuit closes with an empty window, a single
+ * failure opens it again.
+ * <p>
+ * Every transition starts a new generation and a permission carries the generation it was
+ * granted in. An outcome is only recorded in the generation of its permission: a slow call let
+ * through while closed that ends after the circuit opened and went half open is not taken for a
+ * probe.
+ * <p>
+ * Permission checks while closed only read volatile fields; outcomes and transitions are
+ * recorded under a lock.
+ */
+public class CircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * Returned by {@link #tryAcquirePermission()} when the call is rejected.
+   */
+  public static final long NOT_PERMITTED = -1;
+
+  private final String name;
+  private final int failureRateThreshold;
+  private final int minimumCalls;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier nanoClock;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile State state = State.CLOSED;
+  // incremented on every transition before the state changes
+  private volatile long generation;
+  // sliding window of outcomes, true for a failure, guarded by lock
+  private final boolean[] window;
+  private int windowIndex;
+  private int windowCalls;
+  private int windowFailures;
+  // guarded by lock
+  private long openUntilNanos;
+  private int halfOpenPermits;
+  private int halfOpenSuccesses;
+
+  private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+  private final LongAdder rejectedCalls = new LongAdder();
+
+  /**
+   * @param failureRateThreshold failure percentage of the window that opens the circuit
+   * @param slidingWindowSize    number of most recent calls considered
+   * @param minimumCalls         calls needed in the window before the rate is evaluated
+   * @param openDuration         time rejecting calls before probing the bank again
+   * @param halfOpenCalls        successful probes needed to close the circuit
+   */
+  public CircuitBreaker(String name, int failureRateThreshold, int slidingWindowSize,
+      int minimumCalls, Duration openDuration, int halfOpenCalls, LongSupplier nanoClock) {
+    if (slidingWindowSize < 1 || halfOpenCalls < 1) {
+      throw new IllegalArgumentException("Window size and half open calls must be positive");
+    }
+    this.name = name;
+    this.failureRateThreshold = failureRateThreshold;
+    this.minimumCalls = Math.min(Math.max(1, minimumCalls), slidingWindowSize);
+    this.openDurationNanos = openDuration.toNanos();
+    this.halfOpenCalls = halfOpenCalls;
+    this.nanoClock = nanoClock;
+    this.window = new boolean[slidingWindowSize];
+    for (State s : State.values()) {
+      transitions.put(s, new AtomicLong());
+    }
+  }
+
+  /**
+   * @return the permission for a call to go ahead, or {@link #NOT_PERMITTED}. The caller must
+   * report the outcome of a permitted call with {@link #onSuccess(long)} or
+   * {@link #onFailure(long)}.
+   */
+  public long tryAcquirePermission() {
+    // read before the state, a transition in between makes the permission stale rather than new
+    long current = generation;
+    if (state == State.CLOSED) {
+      return current;
+    }
+    lock.lock();
+    try {
+      if (state == State.OPEN && nanoClock.getAsLong() - openUntilNanos >= 0) {
+        transitionTo(State.HALF_OPEN);
+      }
+      if (state == State.CLOSED) {
+        return generation;
+      }
+      if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+        halfOpenPermits--;
+        return generation;
+      }
+    } finally {
+      lock.unlock();
+    }
+    rejectedCalls.increment();
+    return NOT_PERMITTED;
+  }
+
+  public void onSuccess(long permission) {
+    record(permission, false);
+  }
+
+  public void onFailure(long permission) {
+    record(permission, true);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * @return how many times the circuit moved into each state
+   */
+  public Map<State, Long> getTransitionCounts() {
+    Map<State, Long> counts = new EnumMap<>(State.class);
+    transitions.forEach((s, count) -> counts.put(s, count.get()));
+    return counts;
+  }
+
+  public long getRejectedCalls() {
+    return rejectedCalls.sum();
+  }
+
+  /**
+   * @return failure percentage of the current window, or -1 while it holds fewer than the
+   * minimum number of calls
+   */
+  public float getFailureRate() {
+    lock.lock();
+    try {
+      return windowCalls < minimumCalls ? -1 : windowFailures * 100f / windowCalls;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void record(long permission, boolean failure) {
+    lock.lock();
+    try {
+      if (permission != generation) {
+        // late outcome of a call permitted before the last transition
+        return;
+      }
+      switch (state) {
+        case CLOSED -> {
+          if (windowCalls == window.length) {
+            if (window[windowIndex]) {
+              windowFailures--;
+            }
+          } else {
+            windowCalls++;
+          }
+          window[windowIndex] = failure;
+          windowIndex = (windowIndex + 1) % window.length;
+          if (failure) {
+            windowFailures++;
+          }
+          if (windowCalls >= minimumCalls
+              && windowFailures * 100L >= (long) failureRateThreshold * windowCalls) {
+            transitionTo(State.OPEN);
+          }
+        }
+        case HALF_OPEN -> {
+          if (failure) {
+            transitionTo(State.OPEN);
+          } else if (++halfOpenSuccesses >= halfOpenCalls) {
+            transitionTo(State.CLOSED);
+          }
+        }
+        default -> {
+          // calls are not permitted while open
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Called with the lock held.
+   */
+  private void transitionTo(State target) {
+    State previous = state;
+    generation++;
+    switch (target) {
+      case OPEN -> openUntilNanos = nanoClock.getAsLong() + openDurationNanos;
+      case HALF_OPEN -> {
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSuccesses = 0;
+      }
+      case CLOSED -> {
+        windowIndex = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+      }
+    }
+    state = target;
+    transitions.get(target).incrementAndGet();
+    if (target == State.OPEN) {
+      LOG.warn("Circuit {} changed from {} to {}", name, previous, target);
+    } else {
+      LOG.info("Circuit {} changed from {} to {}", name, previous, target);
+    }
+  }
+}
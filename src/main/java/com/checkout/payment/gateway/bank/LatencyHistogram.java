@@ -0,0 +1,118 @@
+package com.checkout.payment.gateway.bank;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free latency histogram over a rolling time window.
+ * <p>
+ * Latencies are kept in microseconds in log-linear buckets: eight sub-buckets per power of two,
+ * so a percentile is reported with at most 12.5% error, from 1 us up to about 18 minutes. The
+ * window is made of two intervals, the current one and the one before it, so percentiles always
+ * reflect between one and two windows of recent calls and forget an old slow period.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_MAGNITUDE = 30;
+  private static final long MAX_MICROS = (1L << MAX_MAGNITUDE) - 1;
+  private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final long intervalNanos;
+  private final LongSupplier nanoClock;
+  private volatile Interval current;
+  private volatile Interval previous;
+
+  public LatencyHistogram(long windowNanos, LongSupplier nanoClock) {
+    this.intervalNanos = windowNanos;
+    this.nanoClock = nanoClock;
+    this.current = new Interval(nanoClock.getAsLong());
+    this.previous = new Interval(current.start - windowNanos);
+  }
+
+  public void record(long latencyNanos) {
+    long micros = Math.min(MAX_MICROS, Math.max(0, latencyNanos / 1000));
+    Interval interval = currentInterval();
+    interval.counts.incrementAndGet(bucketOf(micros));
+    interval.total.increment();
+  }
+
+  /**
+   * @return number of latencies in the window
+   */
+  public long count() {
+    currentInterval();
+    return previous.total.sum() + current.total.sum();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket holding the given percentile, in nanoseconds, or 0 when
+   * nothing was recorded in the window
+   */
+  public long percentile(double percentile) {
+    Interval latest = currentInterval();
+    Interval older = previous;
+    long total = latest.total.sum() + older.total.sum();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += latest.counts.get(bucket) + older.counts.get(bucket);
+      if (seen >= rank) {
+        return upperBoundOf(bucket) * 1000;
+      }
+    }
+    return MAX_MICROS * 1000;
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  private Interval currentInterval() {
+    Interval interval = current;
+    long now = nanoClock.getAsLong();
+    if (now - interval.start < intervalNanos) {
+      return interval;
+    }
+    synchronized (this) {
+      interval = current;
+      if (now - interval.start >= intervalNanos) {
+        // after a quiet period longer than the whole window both intervals are stale
+        previous = now - interval.start < 2 * intervalNanos ? interval : new Interval(now);
+        interval = new Interval(now);
+        current = interval;
+      }
+      return interval;
+    }
+  }
+
+  private static final class Interval {
+
+    private final long start;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+
+    private Interval(long start) {
+      this.start = start;
+    }
+  }
+}
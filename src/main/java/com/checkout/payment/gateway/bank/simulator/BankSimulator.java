@@ -0,0 +1,141 @@
+package com.checkout.payment.gateway.bank.simulator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process stand-in for the bank simulator of imposters/bank_simulator.ejs, for running and
+ * benchmarking the gateway without the mountebank container.
+ * <p>
+ * The answers follow the same rules: a card number ending in an odd digit is authorized with a
+ * new authorization code, one ending in 2, 4, 6 or 8 is declined, one ending in 0 gets a 503,
+ * and a request missing a field gets a 400. Unlike the container, each answer is delayed by a
+ * {@link LatencyProfile}, a share of the requests can be failed with a 503 whatever the card,
+ * and at most {@code maxConnections} requests are handled at once, the others waiting their
+ * turn as they would at a saturated bank.
+ */
+public class BankSimulator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BankSimulator.class);
+
+  private static final String[] REQUIRED_FIELDS = {"card_number", "expiry_date", "currency",
+      "amount", "cvv"};
+  private static final byte[] MISSING_FIELDS = ("{\"error_message\": \"Not all required "
+      + "properties were sent in the request\"}").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NOT_SUPPORTED = ("{\"errorMessage\": \"The request supplied is "
+      + "not supported by the simulator\"}").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DECLINED = "{\"authorized\": false, \"authorization_code\": \"\"}"
+      .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] UNAVAILABLE = "{}".getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final LatencyProfile latencyProfile;
+  private final double failureRate;
+
+  /**
+   * @param port           port to listen on, 0 for any free port
+   * @param maxConnections requests handled at once, further requests wait
+   * @param failureRate    share of requests answered with a 503 whatever the card, 0 to 1
+   */
+  public BankSimulator(int port, int maxConnections, LatencyProfile latencyProfile,
+      double failureRate) throws IOException {
+    this.latencyProfile = latencyProfile;
+    this.failureRate = failureRate;
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "bank-simulator-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    this.executor = Executors.newFixedThreadPool(maxConnections, threadFactory);
+    this.server = HttpServer.create(new InetSocketAddress("localhost", port), 4096);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  public void start() {
+    server.start();
+    LOG.info("Bank simulator listening on port {}", getPort());
+  }
+
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      byte[] request = exchange.getRequestBody().readAllBytes();
+      if (!"POST".equals(exchange.getRequestMethod())
+          || !"/payments".equals(exchange.getRequestURI().getPath())) {
+        respond(exchange, 400, NOT_SUPPORTED);
+        return;
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      TimeUnit.NANOSECONDS.sleep(latencyProfile.nextNanos(random));
+      if (failureRate > 0 && random.nextDouble() < failureRate) {
+        respond(exchange, 503, UNAVAILABLE);
+        return;
+      }
+      answer(exchange, objectMapper.readTree(request));
+    } catch (JsonProcessingException e) {
+      respond(exchange, 400, NOT_SUPPORTED);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void answer(HttpExchange exchange, JsonNode request) throws IOException {
+    for (String field : REQUIRED_FIELDS) {
+      if (request == null || !request.hasNonNull(field)) {
+        respond(exchange, 400, MISSING_FIELDS);
+        return;
+      }
+    }
+    String cardNumber = request.get("card_number").asText();
+    char lastDigit = cardNumber.isEmpty() ? ' ' : cardNumber.charAt(cardNumber.length() - 1);
+    if (lastDigit == '0') {
+      respond(exchange, 503, UNAVAILABLE);
+    } else if (lastDigit == '2' || lastDigit == '4' || lastDigit == '6' || lastDigit == '8') {
+      respond(exchange, 200, DECLINED);
+    } else if (lastDigit == '1' || lastDigit == '3' || lastDigit == '5' || lastDigit == '7'
+        || lastDigit == '9') {
+      respond(exchange, 200, ("{\"authorized\": true, \"authorization_code\": \""
+          + UUID.randomUUID() + "\"}").getBytes(StandardCharsets.UTF_8));
+    } else {
+      respond(exchange, 400, NOT_SUPPORTED);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.checkout.payment.gateway.bank.simulator;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * How long the simulated bank takes to answer, drawn anew for each request.
+ */
+@FunctionalInterface
+public interface LatencyProfile {
+
+  long nextNanos(Random random);
+
+  /**
+   * Always the same latency.
+   */
+  static LatencyProfile fixed(Duration latency) {
+    long nanos = latency.toNanos();
+    return random -> nanos;
+  }
+
+  /**
+   * Latencies spread around a median with a long right tail, as network and service times
+   * usually are. A sigma of 0.5 puts the 99th percentile at about 3.2 times the median.
+   */
+  static LatencyProfile lognormal(Duration median, double sigma) {
+    double logMedian = Math.log(median.toNanos());
+    return random -> (long) Math.exp(logMedian + sigma * random.nextGaussian());
+  }
+
+  /**
+   * Mostly fast answers with a share of slow ones, both lognormal, as a bank whose requests
+   * sometimes miss a cache or queue behind a batch job.
+   */
+  static LatencyProfile bimodal(Duration fastMedian, Duration slowMedian, double slowFraction,
+      double sigma) {
+    LatencyProfile fast = lognormal(fastMedian, sigma);
+    LatencyProfile slow = lognormal(slowMedian, sigma);
+    return random -> random.nextDouble() < slowFraction
+        ? slow.nextNanos(random) : fast.nextNanos(random);
+  }
+}
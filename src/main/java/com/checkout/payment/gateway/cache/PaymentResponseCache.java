@@ -0,0 +1,104 @@
+package com.checkout.payment.gateway.cache;
+
+import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Payments serialized once for {@code GET /payment/{id}}, so repeated reads of a payment are
+ * answered with the same bytes without mapping or serializing it again.
+ * <p>
+ * A saved payment never changes, so an entry never goes stale and only has to go to bound the
+ * memory held: once more than the maximum number of payments are cached the longest cached
+ * are evicted first, as the most recent payments are the ones merchants poll.
+ */
+public class PaymentResponseCache {
+
+  private final ConcurrentHashMap<UUID, SerializedPayment> entries = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<UUID> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final ObjectWriter writer;
+  private final int maxEntries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public PaymentResponseCache(ObjectMapper objectMapper, int maxEntries) {
+    this.writer = objectMapper.writerFor(GetPaymentResponse.class);
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * @return the cached payment, null if it is not cached
+   */
+  public SerializedPayment get(UUID id) {
+    SerializedPayment payment = entries.get(id);
+    if (payment == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return payment;
+  }
+
+  /**
+   * Serializes the payment and caches it, unless a concurrent read cached it first.
+   *
+   * @return the cached payment
+   */
+  public SerializedPayment put(UUID id, GetPaymentResponse response) {
+    SerializedPayment serialized;
+    try {
+      serialized = new SerializedPayment(writer.writeValueAsBytes(response));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize payment " + id, e);
+    }
+    if (maxEntries <= 0) {
+      return serialized;
+    }
+    SerializedPayment existing = entries.putIfAbsent(id, serialized);
+    if (existing != null) {
+      return existing;
+    }
+    insertionOrder.add(id);
+    if (queued.incrementAndGet() > maxEntries) {
+      evictOverflow();
+    }
+    return serialized;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  private void evictOverflow() {
+    while (queued.get() > maxEntries) {
+      UUID oldest = insertionOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      entries.remove(oldest);
+      evictions.increment();
+    }
+  }
+}
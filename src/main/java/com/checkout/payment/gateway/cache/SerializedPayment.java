@@ -0,0 +1,51 @@
+package com.checkout.payment.gateway.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The JSON of a payment as served by {@code GET /payment/{id}}, with its entity tag.
+ * <p>
+ * The bytes are written to responses as they are and must not be modified.
+ */
+public final class SerializedPayment {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final byte[] json;
+  private final String etag;
+
+  SerializedPayment(byte[] json) {
+    this.json = json;
+    this.etag = etag(json);
+  }
+
+  public byte[] getJson() {
+    return json;
+  }
+
+  /**
+   * @return a strong entity tag, quoted, that changes whenever the bytes do
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  // 64 bit FNV-1a of the bytes, enough to tell apart the representations of one payment
+  private static String etag(byte[] json) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : json) {
+      hash ^= b & 0xff;
+      hash *= FNV_PRIME;
+    }
+    byte[] quoted = new byte[18];
+    quoted[0] = '"';
+    for (int i = 16; i >= 1; i--) {
+      quoted[i] = HEX[(int) (hash & 0xf)];
+      hash >>>= 4;
+    }
+    quoted[17] = '"';
+    return new String(quoted, StandardCharsets.US_ASCII);
+  }
+}
@@ -1,19 +1,162 @@
 package com.checkout.payment.gateway.configuration;
 
-import java.time.Duration;
+import com.checkout.payment.gateway.bank.BankCallGuard;
+import com.checkout.payment.gateway.bank.BankHealthIndicator;
+import com.checkout.payment.gateway.bank.BankLatencyTracker;
+import com.checkout.payment.gateway.bank.BankRequestSender;
+import com.checkout.payment.gateway.bank.Bulkhead;
+import com.checkout.payment.gateway.bank.CircuitBreaker;
+import com.checkout.payment.gateway.bank.LatencyHistogram;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.id.TimeOrderedIdGenerator;
+import com.checkout.payment.gateway.idempotency.IdempotencyCache;
+import com.checkout.payment.gateway.metrics.ServerTimingFilter;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableConfigurationProperties({BankProperties.class, BatchProperties.class,
+    IdempotencyProperties.class, ServerTimingProperties.class})
 public class ApplicationConfiguration {
 
   @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
+  public RestTemplate restTemplate(RestTemplateBuilder builder, BankProperties properties) {
     return builder
-        .setConnectTimeout(Duration.ofMillis(10000))
-        .setReadTimeout(Duration.ofMillis(10000))
+        .setConnectTimeout(properties.getConnectTimeout())
+        .setReadTimeout(properties.getReadTimeout())
         .build();
   }
+
+  /**
+   * Non-blocking client for the bank. Connections are pooled and kept alive, no thread waits
+   * while a request is in flight.
+   */
+  @Bean
+  public HttpClient bankHttpClient(BankProperties properties) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "bank-client-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(properties.getConnectTimeout())
+        .executor(Executors.newFixedThreadPool(properties.getClientThreads(), threadFactory))
+        .build();
+  }
+
+  @Bean
+  public BankCallGuard bankCallGuard(BankProperties properties) {
+    BankProperties.CircuitBreaker circuit = properties.getCircuitBreaker();
+    return new BankCallGuard(
+        new CircuitBreaker("bank", circuit.getFailureRateThreshold(), circuit.getSlidingWindowSize(),
+            circuit.getMinimumCalls(), circuit.getOpenDuration(), circuit.getHalfOpenCalls(),
+            System::nanoTime),
+        new Bulkhead(properties.getMaxConcurrentCalls()));
+  }
+
+  @Bean
+  public BankLatencyTracker bankLatencyTracker(BankProperties properties) {
+    BankProperties.Latency latency = properties.getLatency();
+    return new BankLatencyTracker(
+        new LatencyHistogram(latency.getWindow().toNanos(), System::nanoTime),
+        latency.isAdaptiveTimeout(), latency.getTimeoutPercentile(), latency.getTimeoutMultiplier(),
+        latency.getMinTimeout(), properties.getReadTimeout(), latency.getMinSamples(),
+        latency.isHedging(), latency.getHedgePercentile(), latency.getMaxHedgePercent());
+  }
+
+  @Bean
+  public BankRequestSender bankRequestSender(HttpClient bankHttpClient,
+      BankLatencyTracker bankLatencyTracker) {
+    return new BankRequestSender(bankHttpClient, bankLatencyTracker);
+  }
+
+  @Bean
+  public BankHealthIndicator bankHealthIndicator(BankCallGuard bankCallGuard,
+      BankLatencyTracker bankLatencyTracker) {
+    return new BankHealthIndicator(bankCallGuard, bankLatencyTracker);
+  }
+
+  @Bean
+  public IdempotencyCache<PostPaymentResponse> idempotencyCache(IdempotencyProperties properties) {
+    return new IdempotencyCache<>(properties.getTtl().toNanos(), properties.getMaxEntries(),
+        System::nanoTime);
+  }
+
+  @Bean
+  public MeterBinder idempotencyCacheMetrics(
+      IdempotencyCache<PostPaymentResponse> idempotencyCache) {
+    return registry -> {
+      Gauge.builder("payment.idempotency.cache.size", idempotencyCache, IdempotencyCache::size)
+          .description("Idempotency keys remembered")
+          .register(registry);
+      FunctionCounter.builder("payment.idempotency.cache.requests", idempotencyCache,
+              IdempotencyCache::getHits)
+          .description("Requests with an idempotency key, by whether it was remembered")
+          .tag("result", "hit")
+          .register(registry);
+      FunctionCounter.builder("payment.idempotency.cache.requests", idempotencyCache,
+              IdempotencyCache::getMisses)
+          .description("Requests with an idempotency key, by whether it was remembered")
+          .tag("result", "miss")
+          .register(registry);
+      FunctionCounter.builder("payment.idempotency.cache.evictions", idempotencyCache,
+              IdempotencyCache::getEvictions)
+          .description("Idempotency keys dropped on expiry or to make room for newer ones")
+          .register(registry);
+    };
+  }
+
+  /**
+   * Time ordered ids for payments the bank gave no authorization code for, unless random ones
+   * are configured.
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "payment.id", name = "generator", havingValue = "time-ordered",
+      matchIfMissing = true)
+  public PaymentIdGenerator timeOrderedPaymentIds() {
+    return new TimeOrderedIdGenerator(System::currentTimeMillis);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "payment.id", name = "generator", havingValue = "random")
+  public PaymentIdGenerator randomPaymentIds() {
+    return PaymentIdGenerator.RANDOM;
+  }
+
+  /**
+   * Rolling totals of processed payments, in buckets aligned on wall clock time.
+   */
+  @Bean
+  public PaymentStatistics paymentStatistics() {
+    return new PaymentStatistics(System::currentTimeMillis);
+  }
+
+  /**
+   * Times the stages of single payment requests, for the Server-Timing header.
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "payment.server-timing", name = "enabled", havingValue = "true")
+  public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+      ServerTimingProperties properties) {
+    FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(
+        new ServerTimingFilter(properties.getSampleRate(), properties.isLog()));
+    registration.addUrlPatterns("/payments", "/payment/*");
+    return registration;
+  }
 }
@@ -0,0 +1,258 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.net.URI;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment.bank")
+public class BankProperties {
+
+  /**
+   * Payments endpoint of the acquiring bank.
+   */
+  private URI url = URI.create("http://localhost:8080/payments");
+
+  private Duration connectTimeout = Duration.ofMillis(10000);
+
+  private Duration readTimeout = Duration.ofMillis(10000);
+
+  /**
+   * Threads completing asynchronous bank calls. They only decode responses and store payments,
+   * the connections themselves are driven by the HTTP client's selector.
+   */
+  private int clientThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+  private final Latency latency = new Latency();
+
+  /**
+   * Bank calls allowed in flight at once, further payments are rejected.
+   */
+  private int maxConcurrentCalls = 200;
+
+  public URI getUrl() {
+    return url;
+  }
+
+  public void setUrl(URI url) {
+    this.url = url;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public int getClientThreads() {
+    return clientThreads;
+  }
+
+  public void setClientThreads(int clientThreads) {
+    this.clientThreads = clientThreads;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public Latency getLatency() {
+    return latency;
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+  }
+
+  public static class CircuitBreaker {
+
+    /**
+     * Failure percentage of the sliding window that opens the circuit.
+     */
+    private int failureRateThreshold = 50;
+
+    private int slidingWindowSize = 100;
+
+    /**
+     * Calls needed in the window before the failure rate is evaluated.
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * How long payments are rejected before the bank is probed again.
+     */
+    private Duration openDuration = Duration.ofSeconds(5);
+
+    /**
+     * Successful probes needed to close the circuit again.
+     */
+    private int halfOpenCalls = 5;
+
+    public int getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+      return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+      this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public Duration getOpenDuration() {
+      return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+      this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+      return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+      this.halfOpenCalls = halfOpenCalls;
+    }
+  }
+
+  /**
+   * Timeouts and hedging derived from observed bank latencies. The read timeout stays the
+   * timeout used until enough calls were seen, and the highest ever applied.
+   */
+  public static class Latency {
+
+    private boolean adaptiveTimeout = true;
+
+    private double timeoutPercentile = 99;
+
+    /**
+     * Headroom over the timeout percentile.
+     */
+    private double timeoutMultiplier = 3;
+
+    private Duration minTimeout = Duration.ofMillis(250);
+
+    /**
+     * Calls needed in the window before percentiles are trusted.
+     */
+    private long minSamples = 100;
+
+    /**
+     * Latencies older than one to two windows are forgotten.
+     */
+    private Duration window = Duration.ofSeconds(60);
+
+    /**
+     * Whether a second request is sent when the bank is slower than the hedge percentile.
+     */
+    private boolean hedging = false;
+
+    private double hedgePercentile = 95;
+
+    /**
+     * Highest share of calls that may be hedged, bounding the extra load put on the bank.
+     */
+    private int maxHedgePercent = 10;
+
+    public boolean isAdaptiveTimeout() {
+      return adaptiveTimeout;
+    }
+
+    public void setAdaptiveTimeout(boolean adaptiveTimeout) {
+      this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    public double getTimeoutPercentile() {
+      return timeoutPercentile;
+    }
+
+    public void setTimeoutPercentile(double timeoutPercentile) {
+      this.timeoutPercentile = timeoutPercentile;
+    }
+
+    public double getTimeoutMultiplier() {
+      return timeoutMultiplier;
+    }
+
+    public void setTimeoutMultiplier(double timeoutMultiplier) {
+      this.timeoutMultiplier = timeoutMultiplier;
+    }
+
+    public Duration getMinTimeout() {
+      return minTimeout;
+    }
+
+    public void setMinTimeout(Duration minTimeout) {
+      this.minTimeout = minTimeout;
+    }
+
+    public long getMinSamples() {
+      return minSamples;
+    }
+
+    public void setMinSamples(long minSamples) {
+      this.minSamples = minSamples;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public boolean isHedging() {
+      return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+      this.hedging = hedging;
+    }
+
+    public double getHedgePercentile() {
+      return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+      this.hedgePercentile = hedgePercentile;
+    }
+
+    public int getMaxHedgePercent() {
+      return maxHedgePercent;
+    }
+
+    public void setMaxHedgePercent(int maxHedgePercent) {
+      this.maxHedgePercent = maxHedgePercent;
+    }
+  }
+}
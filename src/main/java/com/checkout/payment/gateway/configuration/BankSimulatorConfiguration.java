@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.bank.simulator.BankSimulator;
+import com.checkout.payment.gateway.bank.simulator.LatencyProfile;
+import java.io.IOException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Starts the in-process bank simulator, for running and benchmarking the gateway where the
+ * mountebank container is not available.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "payment.bank.simulator", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(BankSimulatorProperties.class)
+public class BankSimulatorConfiguration {
+
+  @Bean(destroyMethod = "stop")
+  public BankSimulator bankSimulator(BankSimulatorProperties properties) throws IOException {
+    BankSimulator simulator = new BankSimulator(properties.getPort(),
+        properties.getMaxConnections(), latencyProfile(properties.getLatency()),
+        properties.getFailureRate());
+    simulator.start();
+    return simulator;
+  }
+
+  private static LatencyProfile latencyProfile(BankSimulatorProperties.Latency latency) {
+    return switch (latency.getProfile()) {
+      case FIXED -> LatencyProfile.fixed(latency.getMedian());
+      case LOGNORMAL -> LatencyProfile.lognormal(latency.getMedian(), latency.getSigma());
+      case BIMODAL -> LatencyProfile.bimodal(latency.getMedian(), latency.getSlowMedian(),
+          latency.getSlowFraction(), latency.getSigma());
+    };
+  }
+}
@@ -0,0 +1,134 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment.bank.simulator")
+public class BankSimulatorProperties {
+
+  /**
+   * Whether to answer bank calls from a simulator started with the gateway, in place of the
+   * mountebank container. payment.bank.url must point at its port.
+   */
+  private boolean enabled = false;
+
+  private int port = 8080;
+
+  /**
+   * Requests the simulated bank handles at once, further requests wait.
+   */
+  private int maxConnections = 500;
+
+  /**
+   * Share of requests answered with a 503 whatever the card, between 0 and 1.
+   */
+  private double failureRate = 0;
+
+  private final Latency latency = new Latency();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  public void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  public Latency getLatency() {
+    return latency;
+  }
+
+  public enum Profile {
+    FIXED, LOGNORMAL, BIMODAL
+  }
+
+  public static class Latency {
+
+    private Profile profile = Profile.FIXED;
+
+    /**
+     * Latency of a fixed profile, median of a lognormal one and of the fast answers of a
+     * bimodal one.
+     */
+    private Duration median = Duration.ofMillis(50);
+
+    /**
+     * Spread of lognormal latencies, the standard deviation of their logarithm.
+     */
+    private double sigma = 0.5;
+
+    /**
+     * Median of the slow answers of a bimodal profile.
+     */
+    private Duration slowMedian = Duration.ofSeconds(1);
+
+    /**
+     * Share of slow answers of a bimodal profile.
+     */
+    private double slowFraction = 0.05;
+
+    public Profile getProfile() {
+      return profile;
+    }
+
+    public void setProfile(Profile profile) {
+      this.profile = profile;
+    }
+
+    public Duration getMedian() {
+      return median;
+    }
+
+    public void setMedian(Duration median) {
+      this.median = median;
+    }
+
+    public double getSigma() {
+      return sigma;
+    }
+
+    public void setSigma(double sigma) {
+      this.sigma = sigma;
+    }
+
+    public Duration getSlowMedian() {
+      return slowMedian;
+    }
+
+    public void setSlowMedian(Duration slowMedian) {
+      this.slowMedian = slowMedian;
+    }
+
+    public double getSlowFraction() {
+      return slowFraction;
+    }
+
+    public void setSlowFraction(double slowFraction) {
+      this.slowFraction = slowFraction;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment.batch")
+public class BatchProperties {
+
+  /**
+   * Most payments accepted in one batch.
+   */
+  private int maxSize = 1000;
+
+  /**
+   * Bank calls of one batch in flight at once. The bank bulkhead bounds all calls together.
+   */
+  private int maxConcurrency = 32;
+
+  /**
+   * Payments of one NDJSON stream in flight at once. Once reached, no further record is read
+   * from the upload until a result has been written back.
+   */
+  private int streamMaxInFlight = 64;
+
+  /**
+   * Time an NDJSON stream may take, the upload is answered asynchronously until it ends.
+   */
+  private Duration streamTimeout = Duration.ofHours(1);
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public int getStreamMaxInFlight() {
+    return streamMaxInFlight;
+  }
+
+  public void setStreamMaxInFlight(int streamMaxInFlight) {
+    this.streamMaxInFlight = streamMaxInFlight;
+  }
+
+  public Duration getStreamTimeout() {
+    return streamTimeout;
+  }
+
+  public void setStreamTimeout(Duration streamTimeout) {
+    this.streamTimeout = streamTimeout;
+  }
+}
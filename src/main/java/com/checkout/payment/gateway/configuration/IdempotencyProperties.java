@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment.idempotency")
+public class IdempotencyProperties {
+
+  /**
+   * How long the outcome of a payment is returned for retries with the same key.
+   */
+  private Duration ttl = Duration.ofHours(24);
+
+  /**
+   * Most keys remembered at once, the oldest are forgotten first.
+   */
+  private int maxEntries = 100_000;
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+}
@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event and reports virtual threads that were
+ * pinned to their carrier, typically by blocking inside a {@code synchronized} block. Pinning
+ * in gateway code is logged as a warning with the offending frames, pinning elsewhere is only
+ * counted.
+ */
+public class PinnedThreadMonitor implements SmartLifecycle {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final String OWN_PACKAGE = "com.checkout.payment.gateway.";
+
+  private final Duration threshold;
+  private final AtomicLong pinnedInGateway = new AtomicLong();
+  private final AtomicLong pinnedElsewhere = new AtomicLong();
+  private volatile RecordingStream stream;
+
+  public PinnedThreadMonitor(Duration threshold) {
+    this.threshold = threshold;
+  }
+
+  @Override
+  public void start() {
+    RecordingStream recording = new RecordingStream();
+    recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+    recording.onEvent(PINNED_EVENT, this::report);
+    recording.startAsync();
+    stream = recording;
+  }
+
+  @Override
+  public void stop() {
+    RecordingStream recording = stream;
+    stream = null;
+    if (recording != null) {
+      recording.close();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return stream != null;
+  }
+
+  public long getPinnedInGateway() {
+    return pinnedInGateway.get();
+  }
+
+  public long getPinnedElsewhere() {
+    return pinnedElsewhere.get();
+  }
+
+  private void report(RecordedEvent event) {
+    RecordedStackTrace stackTrace = event.getStackTrace();
+    List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+    List<RecordedFrame> ownFrames = frames.stream()
+        .filter(frame -> frame.isJavaFrame()
+            && frame.getMethod().getType().getName().startsWith(OWN_PACKAGE))
+        .toList();
+    if (ownFrames.isEmpty()) {
+      pinnedElsewhere.incrementAndGet();
+      LOG.debug("Virtual thread pinned for {} ms outside gateway code",
+          event.getDuration().toMillis());
+      return;
+    }
+    pinnedInGateway.incrementAndGet();
+    LOG.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(),
+        ownFrames.stream()
+            .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber())
+            .collect(Collectors.joining(" <- ")));
+  }
+}
@@ -0,0 +1,132 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.repository.jdbc.JdbcPaymentStore;
+import com.checkout.payment.gateway.repository.journal.JournaledPaymentStore;
+import com.checkout.payment.gateway.repository.journal.PaymentJournal;
+import com.checkout.payment.gateway.repository.snapshot.PaymentSnapshot;
+import com.checkout.payment.gateway.repository.snapshot.PaymentSnapshotter;
+import com.checkout.payment.gateway.repository.store.CompactPaymentStore;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import com.checkout.payment.gateway.repository.store.TieredPaymentStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RepositoryProperties.class)
+public class RepositoryConfiguration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryConfiguration.class);
+
+  @Bean
+  public PaymentStore paymentStore(RepositoryProperties properties) {
+    if (properties.getStore() == RepositoryProperties.StoreType.JDBC) {
+      return jdbcStore(properties);
+    }
+    RepositoryProperties.Tier tier = properties.getTier();
+    PaymentStore store = tier.isEnabled()
+        ? new TieredPaymentStore(() -> newStore(properties.getStore()), tier.getDirectory(),
+        tier.getHotPayments(), tier.getHotAge(), System::currentTimeMillis)
+        : newStore(properties.getStore());
+    long replayFrom = 0;
+    RepositoryProperties.Snapshot snapshot = properties.getSnapshot();
+    if (snapshot.isEnabled()) {
+      long start = System.nanoTime();
+      Optional<PaymentSnapshot.Loaded> loaded =
+          PaymentSnapshot.loadLatest(snapshot.getDirectory(), store);
+      if (loaded.isPresent()) {
+        replayFrom = loaded.get().journalPosition();
+        LOG.info("Loaded {} payments from {} in {} ms", loaded.get().payments(),
+            loaded.get().file(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+    }
+    RepositoryProperties.Journal journal = properties.getJournal();
+    if (!journal.isEnabled()) {
+      return store;
+    }
+    return new JournaledPaymentStore(store, PaymentJournal.open(journal.getDirectory(),
+        journal.getFsync(), journal.getFsyncInterval(), journal.getSegmentSize().toBytes()),
+        replayFrom);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "payment.repository.snapshot", name = "enabled",
+      havingValue = "true")
+  public PaymentSnapshotter paymentSnapshotter(PaymentStore paymentStore,
+      RepositoryProperties properties) {
+    LongSupplier journalPosition = paymentStore instanceof JournaledPaymentStore journaled
+        ? journaled::journalSize : () -> 0;
+    return new PaymentSnapshotter(properties.getSnapshot().getDirectory(), paymentStore,
+        journalPosition, properties.getSnapshot().getInterval(), System::currentTimeMillis);
+  }
+
+  @Bean
+  public MeterBinder paymentStoreMetrics(PaymentStore paymentStore) {
+    return registry -> Gauge.builder("payment.repository.size", paymentStore, PaymentStore::size)
+        .description("Payments held by the repository")
+        .register(registry);
+  }
+
+  @Bean
+  public PaymentResponseCache paymentResponseCache(ObjectMapper objectMapper,
+      RepositoryProperties properties) {
+    return new PaymentResponseCache(objectMapper, properties.getReadCacheEntries());
+  }
+
+  @Bean
+  public MeterBinder paymentResponseCacheMetrics(PaymentResponseCache paymentResponseCache) {
+    return registry -> {
+      Gauge.builder("payment.read.cache.size", paymentResponseCache, PaymentResponseCache::size)
+          .description("Payments held serialized for reads")
+          .register(registry);
+      FunctionCounter.builder("payment.read.cache.requests", paymentResponseCache,
+              PaymentResponseCache::getHits)
+          .description("Reads of payments from the read cache, by result")
+          .tag("result", "hit")
+          .register(registry);
+      FunctionCounter.builder("payment.read.cache.requests", paymentResponseCache,
+              PaymentResponseCache::getMisses)
+          .description("Reads of payments from the read cache, by result")
+          .tag("result", "miss")
+          .register(registry);
+    };
+  }
+
+  private static PaymentStore newStore(RepositoryProperties.StoreType type) {
+    return switch (type) {
+      case STRIPED -> new StripedPaymentStore();
+      case COMPACT -> new CompactPaymentStore();
+      case JDBC -> throw new IllegalArgumentException("Not an in-memory store: " + type);
+    };
+  }
+
+  private static PaymentStore jdbcStore(RepositoryProperties properties) {
+    if (properties.getTier().isEnabled() || properties.getJournal().isEnabled()
+        || properties.getSnapshot().isEnabled()) {
+      throw new IllegalStateException("The jdbc store is durable on its own, tiering, the journal"
+          + " and snapshots only apply to in-memory stores");
+    }
+    RepositoryProperties.Jdbc jdbc = properties.getJdbc();
+    HikariConfig pool = new HikariConfig();
+    pool.setPoolName("payments");
+    pool.setJdbcUrl(jdbc.getUrl());
+    pool.setUsername(jdbc.getUsername());
+    pool.setPassword(jdbc.getPassword());
+    pool.setMaximumPoolSize(jdbc.getPoolSize());
+    return new JdbcPaymentStore(new HikariDataSource(pool), jdbc.getMaxBatchSize());
+  }
+}
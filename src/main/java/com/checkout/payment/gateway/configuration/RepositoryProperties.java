@@ -0,0 +1,280 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.repository.journal.FsyncPolicy;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "payment.repository")
+public class RepositoryProperties {
+
+  /**
+   * Storage layout used by the payments repository.
+   */
+  private StoreType store = StoreType.STRIPED;
+
+  private final Journal journal = new Journal();
+
+  private final Snapshot snapshot = new Snapshot();
+
+  private final Tier tier = new Tier();
+
+  private final Jdbc jdbc = new Jdbc();
+
+  /**
+   * Payments kept serialized for GET /payment/{id}, 0 to serialize every read.
+   */
+  private int readCacheEntries = 50_000;
+
+  public StoreType getStore() {
+    return store;
+  }
+
+  public void setStore(StoreType store) {
+    this.store = store;
+  }
+
+  public Journal getJournal() {
+    return journal;
+  }
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public Tier getTier() {
+    return tier;
+  }
+
+  public Jdbc getJdbc() {
+    return jdbc;
+  }
+
+  public int getReadCacheEntries() {
+    return readCacheEntries;
+  }
+
+  public void setReadCacheEntries(int readCacheEntries) {
+    this.readCacheEntries = readCacheEntries;
+  }
+
+  public enum StoreType {
+    /**
+     * Payment objects in a striped concurrent hash table.
+     */
+    STRIPED,
+    /**
+     * Primitive encoded records, payments are rebuilt on read.
+     */
+    COMPACT,
+    /**
+     * Rows of a relational database over JDBC, durable on its own.
+     */
+    JDBC
+  }
+
+  public static class Journal {
+
+    /**
+     * Whether saved payments are appended to a journal and recovered from it on startup.
+     */
+    private boolean enabled;
+
+    private Path directory = Path.of("data", "journal");
+
+    private FsyncPolicy fsync = FsyncPolicy.PER_WRITE;
+
+    /**
+     * How often the journal is forced to disk with the interval fsync policy.
+     */
+    private Duration fsyncInterval = Duration.ofMillis(100);
+
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public FsyncPolicy getFsync() {
+      return fsync;
+    }
+
+    public void setFsync(FsyncPolicy fsync) {
+      this.fsync = fsync;
+    }
+
+    public Duration getFsyncInterval() {
+      return fsyncInterval;
+    }
+
+    public void setFsyncInterval(Duration fsyncInterval) {
+      this.fsyncInterval = fsyncInterval;
+    }
+
+    public DataSize getSegmentSize() {
+      return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+      this.segmentSize = segmentSize;
+    }
+  }
+
+  public static class Snapshot {
+
+    /**
+     * Whether the store is snapshotted in the background and restored from the latest snapshot
+     * on startup, before replaying the journal from where the snapshot was taken.
+     */
+    private boolean enabled;
+
+    private Path directory = Path.of("data", "snapshots");
+
+    private Duration interval = Duration.ofMinutes(5);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(Duration interval) {
+      this.interval = interval;
+    }
+  }
+
+  public static class Tier {
+
+    /**
+     * Whether payments beyond the hot bounds are moved from memory to segment files on disk.
+     */
+    private boolean enabled;
+
+    /**
+     * Working directory of the cold tier, cleared on startup and shutdown.
+     */
+    private Path directory = Path.of("data", "cold");
+
+    private int hotPayments = 4_000_000;
+
+    private Duration hotAge = Duration.ofHours(6);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public int getHotPayments() {
+      return hotPayments;
+    }
+
+    public void setHotPayments(int hotPayments) {
+      this.hotPayments = hotPayments;
+    }
+
+    public Duration getHotAge() {
+      return hotAge;
+    }
+
+    public void setHotAge(Duration hotAge) {
+      this.hotAge = hotAge;
+    }
+  }
+
+  public static class Jdbc {
+
+    private String url = "jdbc:h2:file:./data/payments";
+
+    private String username = "sa";
+
+    private String password = "";
+
+    /**
+     * Pooled connections, including the one kept for writes.
+     */
+    private int poolSize = 10;
+
+    /**
+     * Most concurrent saves sent to the database in a single batch.
+     */
+    private int maxBatchSize = 1_000;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public void setUrl(String url) {
+      this.url = url;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+    public String getPassword() {
+      return password;
+    }
+
+    public void setPassword(String password) {
+      this.password = password;
+    }
+
+    public int getPoolSize() {
+      return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+      this.poolSize = poolSize;
+    }
+
+    public int getMaxBatchSize() {
+      return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+    }
+  }
+}
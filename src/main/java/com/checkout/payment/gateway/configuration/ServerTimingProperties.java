@@ -0,0 +1,46 @@
+package com.checkout.payment.gateway.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment.server-timing")
+public class ServerTimingProperties {
+
+  /**
+   * Whether payment responses may carry a Server-Timing header with the time of each stage.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Fraction of payment requests timed, between 0 and 1.
+   */
+  private double sampleRate = 1.0;
+
+  /**
+   * Whether the timings of a sampled request are also logged, as one line.
+   */
+  private boolean log = false;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  public void setSampleRate(double sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  public boolean isLog() {
+    return log;
+  }
+
+  public void setLog(boolean log) {
+    this.log = log;
+  }
+}
@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.configuration;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Gives NDJSON uploads the stream timeout, they are answered asynchronously for as long as the
+ * upload lasts. Other asynchronous requests, single payments and batches waiting on the bank,
+ * keep the default timeout.
+ */
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class StreamTimeoutConfiguration implements WebMvcConfigurer {
+
+  static final String NDJSON = "application/x-ndjson";
+
+  private final BatchProperties properties;
+
+  public StreamTimeoutConfiguration(BatchProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+      @Override
+      public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        // the headers of a streamed response are written before its body is handled
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (request instanceof AsyncWebRequest asyncRequest && response != null
+            && response.getContentType() != null && response.getContentType().startsWith(NDJSON)) {
+          asyncRequest.setTimeout(properties.getStreamTimeout().toMillis());
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,42 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs Tomcat request handling on virtual threads, so a payment whose request thread blocks on
+ * the bank no longer holds a platform thread. Asynchronous bank calls go through the HTTP client
+ * as without virtual threads, with the same timeout and hedging. Requires Java 21 at runtime.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "payment.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService virtualThreadExecutor() {
+    LOG.info("Handling requests on virtual threads");
+    return VirtualThreads.newThreadPerTaskExecutor("payment-");
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(
+      @Qualifier("virtualThreadExecutor") ExecutorService virtualThreadExecutor) {
+    return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+  }
+
+  @Bean
+  public PinnedThreadMonitor pinnedThreadMonitor(
+      @Value("${payment.virtual-threads.pinned-threshold:20ms}") Duration threshold) {
+    return new PinnedThreadMonitor(threshold);
+  }
+}
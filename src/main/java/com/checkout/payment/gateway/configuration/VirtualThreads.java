@@ -0,0 +1,69 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads while the build still targets Java 17. The Java 21 API is looked up
+ * at runtime, on older JVMs {@link #isAvailable()} is false.
+ */
+public final class VirtualThreads {
+
+  private static final MethodHandle OF_VIRTUAL;
+  private static final MethodHandle NAME;
+  private static final MethodHandle FACTORY;
+  private static final MethodHandle THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    MethodHandle threadPerTaskExecutor = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+          MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+      name = lookup.findVirtual(builder, "name",
+          MethodType.methodType(builder, String.class, long.class));
+      factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+      threadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+          MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+    } catch (ReflectiveOperationException e) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    THREAD_PER_TASK_EXECUTOR = threadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * @return an executor starting a new virtual thread per task, named prefix followed by a
+   * counter
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+    if (!isAvailable()) {
+      throw new IllegalStateException("Virtual threads need Java 21 or later, running on "
+          + Runtime.version());
+    }
+    try {
+      Object builder = NAME.invoke(OF_VIRTUAL.invoke(), prefix, 0L);
+      ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+      return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(factory);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot create virtual thread executor", e);
+    }
+  }
+}
@@ -1,17 +1,34 @@
 package com.checkout.payment.gateway.controller;
 
+import com.checkout.payment.gateway.cache.SerializedPayment;
+import com.checkout.payment.gateway.model.BatchPaymentResponse;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
 import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.model.PaymentSearchRequest;
+import com.checkout.payment.gateway.model.PaymentSearchResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.PaymentBatchService;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import java.io.InputStream;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springdoc.core.annotations.ParameterObject;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -22,28 +39,97 @@ import jakarta.validation.Valid;
 @RestController("api")
 public class PaymentGatewayController {
 
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
   private final PaymentGatewayService paymentGatewayService;
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
+  private final PaymentBatchService paymentBatchService;
+
+  private final PaymentRequestValidator paymentRequestValidator;
+
+  public PaymentGatewayController(PaymentGatewayService paymentGatewayService,
+      PaymentBatchService paymentBatchService, PaymentRequestValidator paymentRequestValidator) {
     this.paymentGatewayService = paymentGatewayService;
+    this.paymentBatchService = paymentBatchService;
+    this.paymentRequestValidator = paymentRequestValidator;
+  }
+
+  @InitBinder("postPaymentRequest")
+  public void initPaymentRequestBinder(WebDataBinder binder) {
+    // replaces bean validation for payment requests, reporting the same field errors
+    binder.setValidator(paymentRequestValidator);
   }
 
   @GetMapping("/payment/{id}")
   @Operation(summary = "Get a new payment")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Success", content = {@Content(mediaType = "application/json",
-          schema = @Schema(implementation = PostPaymentResponse.class))}),
+          schema = @Schema(implementation = GetPaymentResponse.class))}),
+      @ApiResponse(responseCode = "304", description = "Not Modified since the ETag in If-None-Match", content = @Content),
       @ApiResponse(responseCode = "404", description = "Not Found", content = @Content)})
-  public ResponseEntity<GetPaymentResponse> getPostPaymentEventById(@PathVariable UUID id) {
-    return new ResponseEntity<>(paymentGatewayService.getPaymentById(id), HttpStatus.OK);
+  public ResponseEntity<byte[]> getPostPaymentEventById(@PathVariable UUID id) {
+    // the payment is serialized once, a request with its ETag in If-None-Match gets a 304
+    SerializedPayment payment = paymentGatewayService.getSerializedPaymentById(id);
+    return ResponseEntity.ok()
+        .eTag(payment.getEtag())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(payment.getJson());
+  }
+
+  @GetMapping("/payments")
+  @Operation(summary = "Search payments")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Page of matching payments, in the order they were saved", content = {@Content(mediaType = "application/json",
+          schema = @Schema(implementation = PaymentSearchResponse.class))}),
+      @ApiResponse(responseCode = "400", description = "Criteria or cursor are malformed", content = @Content)})
+  public ResponseEntity<PaymentSearchResponse> search(@ParameterObject PaymentSearchRequest searchRequest) {
+    // criteria are served from secondary indexes, the next page starts after nextCursor
+    return ResponseEntity.ok(paymentGatewayService.searchPayments(searchRequest));
+  }
+
+  @GetMapping("/payments/stats")
+  @Operation(summary = "Payment totals over the last minute, hour and day")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Counts, amounts and authorization rate by window and currency", content = {@Content(mediaType = "application/json",
+          schema = @Schema(implementation = PaymentStatsResponse.class))})})
+  public ResponseEntity<PaymentStatsResponse> stats() {
+    return ResponseEntity.ok(paymentGatewayService.getPaymentStats());
   }
 
   @PostMapping(value = "/payments")
   @Operation(summary = "Create a new payment")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "201", description = "Payment is created", content = {@Content(mediaType = "application/json",
-          schema = @Schema(implementation = PostPaymentResponse.class))})})
-  public ResponseEntity<PostPaymentResponse> create(@Valid @RequestBody PostPaymentRequest paymentRequest) {
-    return ResponseEntity.status(HttpStatus.CREATED).body(paymentGatewayService.processPayment(paymentRequest));
+          schema = @Schema(implementation = PostPaymentResponse.class))}),
+      @ApiResponse(responseCode = "422", description = "Idempotency key was used for a different payment", content = @Content)})
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> create(@Valid @RequestBody PostPaymentRequest paymentRequest,
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    // the request thread is released while the bank call is in flight
+    return paymentGatewayService.processPaymentAsync(paymentRequest, idempotencyKey)
+        .thenApply(payment -> ResponseEntity.status(HttpStatus.CREATED).body(payment));
+  }
+
+  @PostMapping(value = "/payments/batch")
+  @Operation(summary = "Create a batch of payments")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Batch is processed, see each result for its payment", content = {@Content(mediaType = "application/json",
+          schema = @Schema(implementation = BatchPaymentResponse.class))}),
+      @ApiResponse(responseCode = "400", description = "Batch is empty or too large", content = @Content)})
+  public CompletableFuture<ResponseEntity<BatchPaymentResponse>> createBatch(@RequestBody List<PostPaymentRequest> paymentRequests) {
+    // payments are validated one by one so that an invalid payment does not reject the batch
+    return paymentBatchService.processBatch(paymentRequests).thenApply(ResponseEntity::ok);
+  }
+
+  @PostMapping(value = "/payments/stream", consumes = NDJSON, produces = NDJSON)
+  @Operation(summary = "Create payments from an NDJSON stream")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "One result line per payment, written as each payment completes", content = {@Content(mediaType = NDJSON,
+          schema = @Schema(implementation = BatchPaymentResult.class))})})
+  public ResponseEntity<StreamingResponseBody> createStream(InputStream paymentRequests) {
+    // records are read while results are written back, the body is never held in memory
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(NDJSON))
+        .body(output -> paymentBatchService.processStream(paymentRequests, output));
   }
 }
@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Raised without calling the bank when the bank circuit is open or too many bank calls are
+ * already in flight. It carries no stack trace so that rejecting a payment stays cheap.
+ */
+public class BankUnavailableException extends RuntimeException {
+
+  public BankUnavailableException(String message) {
+    super(message, null, false, false);
+  }
+}
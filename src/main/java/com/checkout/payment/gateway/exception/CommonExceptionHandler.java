@@ -1,5 +1,6 @@
 package com.checkout.payment.gateway.exception;
 
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
 import com.checkout.payment.gateway.model.ErrorResponse;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,15 +17,48 @@ public class CommonExceptionHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(CommonExceptionHandler.class);
 
+  private final PaymentMetrics paymentMetrics;
+
+  public CommonExceptionHandler(PaymentMetrics paymentMetrics) {
+    this.paymentMetrics = paymentMetrics;
+  }
+
   @ExceptionHandler({EventProcessingException.class})
   public ResponseEntity<ErrorResponse> handleException(EventProcessingException ex) {
+    paymentMetrics.recordError(ex);
     LOG.error("Exception happened", ex);
     return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
         HttpStatus.NOT_FOUND);
   }
 
+  @ExceptionHandler({BankUnavailableException.class})
+  public ResponseEntity<ErrorResponse> handleBankUnavailable(BankUnavailableException ex) {
+    paymentMetrics.recordError(ex);
+    LOG.warn("Payment rejected: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler({InvalidBatchException.class})
+  public ResponseEntity<ErrorResponse> handleInvalidBatch(InvalidBatchException ex) {
+    paymentMetrics.recordError(ex);
+    return ResponseEntity.badRequest().body(new ErrorResponse(ex.getMessage()));
+  }
+
+  @ExceptionHandler({InvalidSearchException.class})
+  public ResponseEntity<ErrorResponse> handleInvalidSearch(InvalidSearchException ex) {
+    paymentMetrics.recordError(ex);
+    return ResponseEntity.badRequest().body(new ErrorResponse(ex.getMessage()));
+  }
+
+  @ExceptionHandler({IdempotencyKeyException.class})
+  public ResponseEntity<ErrorResponse> handleIdempotencyKey(IdempotencyKeyException ex) {
+    paymentMetrics.recordError(ex);
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Map<String, String>> handleValidation(MethodArgumentNotValidException ex) {
+    paymentMetrics.recordError(ex);
     Map<String, String> errors = new HashMap<>();
     ex.getBindingResult().getFieldErrors()
         .forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Thrown when an idempotency key cannot be used for a payment, because it is malformed or was
+ * already used for a different payment.
+ */
+public class IdempotencyKeyException extends RuntimeException {
+
+  public IdempotencyKeyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Thrown when a payment batch as a whole cannot be accepted, for instance because it is empty or
+ * larger than allowed. Problems with single payments are reported per item instead.
+ */
+public class InvalidBatchException extends RuntimeException {
+
+  public InvalidBatchException(String message) {
+    super(message);
+  }
+}
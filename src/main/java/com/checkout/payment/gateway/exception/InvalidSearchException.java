@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Thrown when the criteria of a payment search are malformed or inconsistent, for instance an
+ * unknown status or a card without its expiry.
+ */
+public class InvalidSearchException extends RuntimeException {
+
+  public InvalidSearchException(String message) {
+    super(message);
+  }
+}
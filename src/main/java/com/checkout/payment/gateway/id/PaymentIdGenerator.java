@@ -0,0 +1,18 @@
+package com.checkout.payment.gateway.id;
+
+import java.util.UUID;
+
+/**
+ * Source of ids for payments the bank gave no authorization code for.
+ */
+@FunctionalInterface
+public interface PaymentIdGenerator {
+
+  /**
+   * Random version 4 ids from {@link UUID#randomUUID()}, unpredictable but drawn from a shared
+   * {@link java.security.SecureRandom}.
+   */
+  PaymentIdGenerator RANDOM = UUID::randomUUID;
+
+  UUID next();
+}
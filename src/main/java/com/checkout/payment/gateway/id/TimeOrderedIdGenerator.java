@@ -0,0 +1,82 @@
+package com.checkout.payment.gateway.id;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 ids (RFC 9562): a 48 bit millisecond timestamp, then a 12 bit counter, then 62
+ * random bits. Ids sort in the order they were generated, to the millisecond across threads and
+ * exactly within a thread, so they land next to each other in anything sorted or scanned by id,
+ * and their creation time can be read back with {@link #timestampOf(UUID)}.
+ * <p>
+ * Each thread keeps its own counter, started at a random value every millisecond, and its own
+ * {@link SecureRandom} the random bits are drawn from: generating an id takes no lock shared
+ * with other threads. A thread generating more ids than its counter holds in one millisecond
+ * moves on to the next millisecond early rather than wrapping, and a clock going back does not
+ * take its ids back with it.
+ * <p>
+ * The 62 random bits are as unpredictable as those of a random id, so an id cannot be guessed
+ * from others, though it gives away when it was generated.
+ */
+public class TimeOrderedIdGenerator implements PaymentIdGenerator {
+
+  private static final int VERSION = 7;
+  private static final int SEQUENCE_BITS = 12;
+  private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+  // a counter starting at most half way leaves room for the ids of the millisecond
+  private static final int SEQUENCE_START_BOUND = 1 << (SEQUENCE_BITS - 1);
+  private static final long VARIANT = 0x8000_0000_0000_0000L;
+  private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+  private final LongSupplier clock;
+  private final ThreadLocal<Sequence> sequences = ThreadLocal.withInitial(Sequence::new);
+
+  /**
+   * @param clock current time in epoch milliseconds
+   */
+  public TimeOrderedIdGenerator(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public UUID next() {
+    Sequence sequence = sequences.get();
+    SecureRandom random = sequence.random;
+    long now = clock.getAsLong();
+    if (now > sequence.millis) {
+      sequence.millis = now;
+      sequence.counter = random.nextInt(SEQUENCE_START_BOUND);
+    } else if (++sequence.counter > MAX_SEQUENCE) {
+      sequence.millis++;
+      sequence.counter = 0;
+    }
+    long msb = sequence.millis << 16 | VERSION << SEQUENCE_BITS | sequence.counter;
+    return new UUID(msb, random.nextLong() & RANDOM_MASK | VARIANT);
+  }
+
+  /**
+   * @return the epoch millisecond a version 7 id was generated at, -1 for other ids
+   */
+  public static long timestampOf(UUID id) {
+    return id.variant() == 2 && id.version() == VERSION
+        ? id.getMostSignificantBits() >>> 16 : -1;
+  }
+
+  private static final class Sequence {
+
+    private final SecureRandom random;
+    private long millis = Long.MIN_VALUE;
+    private long counter;
+
+    private Sequence() {
+      try {
+        // a generator of its own, unlike the default one whose instances share a lock
+        random = SecureRandom.getInstance("DRBG");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("DRBG is not available", e);
+      }
+    }
+  }
+}
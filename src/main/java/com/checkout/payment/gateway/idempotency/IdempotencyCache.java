@@ -0,0 +1,166 @@
+package com.checkout.payment.gateway.idempotency;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyException;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of requests by idempotency key for a fixed time to live.
+ * <p>
+ * The first request for a key runs and every later request with the same key, including one
+ * arriving while the first is still in flight, is answered with the same result. A request that
+ * fails is not remembered once it has failed, so that it can be retried. All entries live for the
+ * same duration, so insertion order is also expiry order: a queue in insertion order is enough to
+ * expire entries and to evict the oldest ones once more than the maximum number are held.
+ *
+ * @param <V> result of the request
+ */
+public class IdempotencyCache<V> {
+
+  private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+  // entries in the queue, some may have been replaced in the map already
+  private final AtomicInteger queued = new AtomicInteger();
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final LongSupplier nanoClock;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public IdempotencyCache(long ttlNanos, int maxEntries, LongSupplier nanoClock) {
+    this.ttlNanos = ttlNanos;
+    this.maxEntries = maxEntries;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Returns the result for the key, running the request only if no live result or request in
+   * flight exists for it.
+   *
+   * @param fingerprint digest of the request content, such as SHA-256, a key reused for a request
+   *                    with a different digest is rejected
+   * @throws IdempotencyKeyException when the key was used for a different request
+   */
+  public CompletableFuture<V> computeIfAbsent(String key, byte[] fingerprint,
+      Supplier<CompletableFuture<V>> request) {
+    long now = nanoClock.getAsLong();
+    expire(now);
+    Entry<V> created = new Entry<>(key, fingerprint, now + ttlNanos);
+    Entry<V> entry = entries.compute(key, (k, existing) -> {
+      if (existing == null) {
+        return created;
+      }
+      if (now - existing.expiresAt >= 0 || existing.failed) {
+        evictions.increment();
+        return created;
+      }
+      return existing;
+    });
+    if (entry != created) {
+      if (!MessageDigest.isEqual(entry.fingerprint, fingerprint)) {
+        throw new IdempotencyKeyException(
+            "Idempotency key " + key + " was already used for a different payment");
+      }
+      hits.increment();
+      return entry.result.copy();
+    }
+    misses.increment();
+    insertionOrder.add(created);
+    queued.incrementAndGet();
+    evictOverflow();
+    CompletableFuture<V> result;
+    try {
+      result = request.get();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+    result.whenComplete((value, failure) -> {
+      if (failure == null) {
+        created.result.complete(value);
+      } else {
+        // marked rather than removed, its queue node is reclaimed on expiry or eviction
+        created.failed = true;
+        entries.remove(key, created);
+        created.result.completeExceptionally(failure);
+      }
+    });
+    return created.result.copy();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return entries removed because they expired or to make room for newer ones
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return share of requests answered from the cache, 0 when there was none
+   */
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private void expire(long now) {
+    Entry<V> oldest;
+    while ((oldest = insertionOrder.peek()) != null && now - oldest.expiresAt >= 0) {
+      remove(oldest);
+    }
+  }
+
+  private void evictOverflow() {
+    while (queued.get() > maxEntries) {
+      Entry<V> oldest = insertionOrder.peek();
+      if (oldest == null) {
+        return;
+      }
+      remove(oldest);
+    }
+  }
+
+  private void remove(Entry<V> oldest) {
+    if (insertionOrder.remove(oldest)) {
+      queued.decrementAndGet();
+      if (entries.remove(oldest.key, oldest)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  private static final class Entry<V> {
+
+    private final String key;
+    private final byte[] fingerprint;
+    private final long expiresAt;
+    private final CompletableFuture<V> result = new CompletableFuture<>();
+    private volatile boolean failed;
+
+    private Entry(String key, byte[] fingerprint, long expiresAt) {
+      this.key = key;
+      this.fingerprint = fingerprint;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
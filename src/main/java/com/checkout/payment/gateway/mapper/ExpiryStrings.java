@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.mapper;
+
+/**
+ * Month and year strings of card expiry dates, built once so that mapping a payment to a
+ * response does not format numbers. Values outside the cached ranges are formatted as before.
+ */
+final class ExpiryStrings {
+
+  private static final int FIRST_YEAR = 2000;
+  private static final String[] MONTHS = new String[100];
+  private static final String[] YEARS = new String[200];
+
+  static {
+    for (int i = 0; i < MONTHS.length; i++) {
+      MONTHS[i] = String.format("%02d", i);
+    }
+    for (int i = 0; i < YEARS.length; i++) {
+      YEARS[i] = String.valueOf(FIRST_YEAR + i);
+    }
+  }
+
+  private ExpiryStrings() {
+  }
+
+  /**
+   * @return the month as two digits
+   */
+  static String month(int month) {
+    return month >= 0 && month < MONTHS.length ? MONTHS[month] : String.format("%02d", month);
+  }
+
+  static String year(int year) {
+    int index = year - FIRST_YEAR;
+    return index >= 0 && index < YEARS.length ? YEARS[index] : String.valueOf(year);
+  }
+}
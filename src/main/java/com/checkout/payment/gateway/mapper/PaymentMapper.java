@@ -1,12 +1,14 @@
 package com.checkout.payment.gateway.mapper;
 
 import java.util.UUID;
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
 import com.checkout.payment.gateway.model.GetPaymentResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.entity.Payment;
-import com.fasterxml.jackson.databind.JsonNode;
+import org.mapstruct.Context;
 import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -33,27 +35,30 @@ public interface PaymentMapper {
 
   @Mapping(target = "cardNumber", source = "paymentRequest.cardNumber", qualifiedByName = "maskCardNumber")
   @Mapping(target = "paymentStatus", expression = "java(mapBooleanToStatus(paymentResponse))")
-  @Mapping(target = "id", expression = "java(mapAuthorizedId(paymentResponse))")
-  Payment mapToPayment(PostPaymentRequest paymentRequest, JsonNode paymentResponse);
+  @Mapping(target = "id", expression = "java(mapAuthorizedId(paymentResponse, paymentIds))")
+  @Mapping(target = "createdAt", ignore = true)
+  Payment mapToPayment(PostPaymentRequest paymentRequest, BankPaymentResponse paymentResponse,
+      @Context PaymentIdGenerator paymentIds);
 
-  default String mapBooleanToStatus(JsonNode paymentResponse) {
-    return paymentResponse.path("authorized").asBoolean() ? PaymentStatus.AUTHORIZED.getName()
+  default String mapBooleanToStatus(BankPaymentResponse paymentResponse) {
+    return paymentResponse.authorized() ? PaymentStatus.AUTHORIZED.getName()
         : PaymentStatus.DECLINED.getName();
   }
 
-  default UUID mapAuthorizedId(JsonNode paymentResponse) {
-    return !paymentResponse.path("authorization_code").isEmpty() ?
-        UUID.fromString(paymentResponse.path("authorization_code").asText()) : UUID.randomUUID();
+  default UUID mapAuthorizedId(BankPaymentResponse paymentResponse,
+      PaymentIdGenerator paymentIds) {
+    return paymentResponse.authorizationCode() != null ? paymentResponse.authorizationCode()
+        : paymentIds.next();
   }
 
   @Named("mapMonthToString")
   default String mapMonthToString(int month) {
-    return String.format("%02d", month);
+    return ExpiryStrings.month(month);
   }
 
   @Named("mapYearToString")
   default String mapYearToString(int year) {
-    return String.valueOf(year);
+    return ExpiryStrings.year(year);
   }
 
   @Named("mapToPaymentStatus")
@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timers and counters of each stage a payment goes through.
+ * <p>
+ * Meters are registered up front, or on first use and then kept, so recording on the request
+ * path is a few adder updates: it never looks a meter up by name and tags, and never allocates.
+ * Callers time a stage with {@link System#nanoTime()} and pass the elapsed nanoseconds, rather
+ * than with a {@link Timer.Sample} per call.
+ */
+@Component
+public class PaymentMetrics {
+
+  static final String VALIDATION = "payment.validation";
+  static final String BANK_CALL = "payment.bank.call";
+  static final String MAPPING = "payment.mapping";
+  static final String REPOSITORY = "payment.repository";
+  static final String OUTCOMES = "payment.outcomes";
+  static final String ERRORS = "payment.errors";
+
+  private final MeterRegistry registry;
+  private final Timer validation;
+  private final Timer bankCallSucceeded;
+  private final Timer bankCallFailed;
+  private final Timer mapping;
+  private final Timer save;
+  private final Timer find;
+  private final Timer saveAll;
+  private final Timer search;
+  // by status and currency index, created when a payment with that status and currency is seen
+  private final AtomicReferenceArray<Counter> outcomes;
+
+  public PaymentMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.validation = Timer.builder(VALIDATION)
+        .description("Time to validate a payment request")
+        .register(registry);
+    this.bankCallSucceeded = bankCallTimer(registry, "success");
+    this.bankCallFailed = bankCallTimer(registry, "failure");
+    this.mapping = Timer.builder(MAPPING)
+        .description("Time to map a bank response to a payment")
+        .register(registry);
+    this.save = repositoryTimer(registry, "save");
+    this.find = repositoryTimer(registry, "find");
+    this.saveAll = repositoryTimer(registry, "save_all");
+    this.search = repositoryTimer(registry, "search");
+    this.outcomes = new AtomicReferenceArray<>(
+        PaymentStatus.values().length * IsoCurrencies.size());
+  }
+
+  public void recordValidation(long nanos) {
+    validation.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param succeeded whether the bank answered, whatever the answer
+   */
+  public void recordBankCall(long nanos, boolean succeeded) {
+    (succeeded ? bankCallSucceeded : bankCallFailed).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordMapping(long nanos) {
+    mapping.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordSave(long nanos) {
+    save.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records one batch save, however many payments it stored.
+   */
+  public void recordSaveAll(long nanos) {
+    saveAll.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordFind(long nanos) {
+    find.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordSearch(long nanos) {
+    search.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Counts a processed payment by its status and currency.
+   */
+  public void recordOutcome(PaymentStatus status, String currency) {
+    int currencyIndex = IsoCurrencies.indexOf(currency);
+    if (status == null || currencyIndex < 0) {
+      return;
+    }
+    int slot = status.ordinal() * IsoCurrencies.size() + currencyIndex;
+    Counter counter = outcomes.get(slot);
+    if (counter == null) {
+      // registering twice returns the same counter, so racing threads agree
+      counter = Counter.builder(OUTCOMES)
+          .description("Payments processed, by status and currency")
+          .tag("status", status.getName())
+          .tag("currency", IsoCurrencies.codeAt(currencyIndex))
+          .register(registry);
+      outcomes.set(slot, counter);
+    }
+    counter.increment();
+  }
+
+  /**
+   * Counts an exception turned into an error response. Errors are off the hot path, so the
+   * counter is looked up each time.
+   */
+  public void recordError(Exception exception) {
+    registry.counter(ERRORS, "exception", exception.getClass().getSimpleName()).increment();
+  }
+
+  private static Timer bankCallTimer(MeterRegistry registry, String outcome) {
+    return Timer.builder(BANK_CALL)
+        .description("Time for the bank to answer a payment, including hedged requests")
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  private static Timer repositoryTimer(MeterRegistry registry, String operation) {
+    return Timer.builder(REPOSITORY)
+        .description("Time of payment repository operations")
+        .tag("operation", operation)
+        .register(registry);
+  }
+}
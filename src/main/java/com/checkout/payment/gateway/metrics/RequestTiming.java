@@ -0,0 +1,143 @@
+package com.checkout.payment.gateway.metrics;
+
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time spent in each stage of one sampled payment request, reported back to the client as a
+ * {@code Server-Timing} header and optionally logged as one line.
+ * <p>
+ * {@link ServerTimingFilter} opens a timing for the request thread, where the stages running
+ * on it find it with {@link #current()}, and finishes it on the response whatever its status. Stages completing on other threads, such as the bank
+ * call, are recorded on the instance captured before the hand off. Stages are recorded one
+ * after another, never concurrently. A timing allocates its array of durations once; recording
+ * a stage is an array update and requests that are not sampled share {@link #NONE}, which
+ * records nothing.
+ */
+public final class RequestTiming {
+
+  public static final String SERVER_TIMING = "Server-Timing";
+
+  public static final RequestTiming NONE = new RequestTiming(0, false, false);
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestTiming.class);
+  private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+  public enum Stage {
+    VALIDATION("validation"),
+    BANK("bank"),
+    MAPPING("mapping"),
+    REPOSITORY("repository");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+      this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+      return metricName;
+    }
+  }
+
+  private static final Stage[] STAGES = Stage.values();
+
+  private final long startNanos;
+  private final boolean sampled;
+  private final boolean logged;
+  // by stage ordinal, -1 until the stage is recorded
+  private final long[] stageNanos;
+  private boolean finished;
+
+  RequestTiming(long startNanos, boolean sampled, boolean logged) {
+    this.startNanos = startNanos;
+    this.sampled = sampled;
+    this.logged = logged;
+    if (sampled) {
+      this.stageNanos = new long[STAGES.length];
+      Arrays.fill(stageNanos, -1);
+    } else {
+      this.stageNanos = null;
+    }
+  }
+
+  /**
+   * @return the timing opened for the calling request thread, {@link #NONE} if there is none
+   */
+  public static RequestTiming current() {
+    RequestTiming timing = CURRENT.get();
+    return timing == null ? NONE : timing;
+  }
+
+  static void open(RequestTiming timing) {
+    CURRENT.set(timing);
+  }
+
+  static void close() {
+    CURRENT.remove();
+  }
+
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  /**
+   * Adds the time spent in a stage, a stage run several times for a request adds up.
+   */
+  public void record(Stage stage, long nanos) {
+    if (!sampled) {
+      return;
+    }
+    long recorded = stageNanos[stage.ordinal()];
+    stageNanos[stage.ordinal()] = recorded < 0 ? nanos : recorded + nanos;
+  }
+
+  boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Ends the request, logging its timings when enabled.
+   *
+   * @return the {@code Server-Timing} header value, durations in milliseconds
+   */
+  String finish(int status) {
+    finished = true;
+    long totalNanos = System.nanoTime() - startNanos;
+    String serverTiming = format(totalNanos, ";dur=", ", ");
+    if (logged && LOG.isInfoEnabled()) {
+      LOG.info("Payment request timing status={} {}", status, format(totalNanos, "_ms=", " "));
+    }
+    return serverTiming;
+  }
+
+  private String format(long totalNanos, String durationSeparator, String stageSeparator) {
+    StringBuilder builder = new StringBuilder(128);
+    for (Stage stage : STAGES) {
+      long nanos = stageNanos[stage.ordinal()];
+      if (nanos >= 0) {
+        builder.append(stage.metricName).append(durationSeparator);
+        appendMillis(builder, nanos);
+        builder.append(stageSeparator);
+      }
+    }
+    builder.append("total").append(durationSeparator);
+    appendMillis(builder, totalNanos);
+    return builder.toString();
+  }
+
+  // milliseconds with three decimals, without going through floating point formatting
+  private static void appendMillis(StringBuilder builder, long nanos) {
+    long micros = nanos / 1000;
+    long fraction = micros % 1000;
+    builder.append(micros / 1000).append('.');
+    if (fraction < 100) {
+      builder.append('0');
+    }
+    if (fraction < 10) {
+      builder.append('0');
+    }
+    builder.append(fraction);
+  }
+}
@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Opens a {@link RequestTiming} for a sampled share of the requests it filters, for as long as
+ * a request thread handles the request, and reports it on the response whatever its status.
+ * <p>
+ * The timing is finished when the response starts its body or an error, before the headers are
+ * committed, or once the request is handled when it has no body. A request handled
+ * asynchronously keeps its timing in a request attribute until the dispatch that writes the
+ * response.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+  private static final String TIMING_ATTRIBUTE = ServerTimingFilter.class.getName() + ".TIMING";
+
+  private final double sampleRate;
+  private final boolean log;
+
+  public ServerTimingFilter(double sampleRate, boolean log) {
+    this.sampleRate = sampleRate;
+    this.log = log;
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    RequestTiming timing;
+    if (request.getAttribute(TIMING_ATTRIBUTE) instanceof RequestTiming started) {
+      timing = started;
+    } else if (isAsyncDispatch(request)
+        || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      filterChain.doFilter(request, response);
+      return;
+    } else {
+      timing = new RequestTiming(System.nanoTime(), true, log);
+      request.setAttribute(TIMING_ATTRIBUTE, timing);
+    }
+    TimedResponse timedResponse = new TimedResponse(response, timing);
+    RequestTiming.open(timing);
+    try {
+      filterChain.doFilter(request, timedResponse);
+    } finally {
+      RequestTiming.close();
+      if (!request.isAsyncStarted()) {
+        timedResponse.report();
+      }
+    }
+  }
+
+  /**
+   * Adds the {@code Server-Timing} header before anything commits the response.
+   */
+  private static final class TimedResponse extends HttpServletResponseWrapper {
+
+    private final RequestTiming timing;
+
+    private TimedResponse(HttpServletResponse response, RequestTiming timing) {
+      super(response);
+      this.timing = timing;
+    }
+
+    void report() {
+      if (!isCommitted() && !timing.isFinished()) {
+        setHeader(RequestTiming.SERVER_TIMING, timing.finish(getStatus()));
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      report();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      report();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      report();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      setStatus(sc);
+      report();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      setStatus(sc);
+      report();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      setStatus(SC_FOUND);
+      report();
+      super.sendRedirect(location);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.List;
+
+public class BatchPaymentResponse {
+  private int succeeded;
+  private int failed;
+  private List<BatchPaymentResult> results;
+
+  public int getSucceeded() {
+    return succeeded;
+  }
+
+  public void setSucceeded(int succeeded) {
+    this.succeeded = succeeded;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public void setFailed(int failed) {
+    this.failed = failed;
+  }
+
+  public List<BatchPaymentResult> getResults() {
+    return results;
+  }
+
+  public void setResults(List<BatchPaymentResult> results) {
+    this.results = results;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchPaymentResponse{" +
+        "succeeded=" + succeeded +
+        ", failed=" + failed +
+        ", results=" + results +
+        '}';
+  }
+}
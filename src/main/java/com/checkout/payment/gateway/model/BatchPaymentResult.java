@@ -0,0 +1,68 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Map;
+
+/**
+ * Outcome of one payment of a batch. The status is the one a single {@code POST /payments} of
+ * the same payment would have answered with.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentResult {
+  private int index;
+  private int status;
+  private PostPaymentResponse payment;
+  private Map<String, String> errors;
+  private String message;
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public PostPaymentResponse getPayment() {
+    return payment;
+  }
+
+  public void setPayment(PostPaymentResponse payment) {
+    this.payment = payment;
+  }
+
+  public Map<String, String> getErrors() {
+    return errors;
+  }
+
+  public void setErrors(Map<String, String> errors) {
+    this.errors = errors;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchPaymentResult{" +
+        "index=" + index +
+        ", status=" + status +
+        ", payment=" + payment +
+        ", errors=" + errors +
+        ", message='" + message + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,58 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.Map;
+
+public class CurrencyStats {
+  private long count;
+  private long amount;
+  private Map<String, StatusTotals> statuses;
+  private Double authorizationRate;
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  /**
+   * @return summed amounts of payments of every status, in minor currency units
+   */
+  public long getAmount() {
+    return amount;
+  }
+
+  public void setAmount(long amount) {
+    this.amount = amount;
+  }
+
+  public Map<String, StatusTotals> getStatuses() {
+    return statuses;
+  }
+
+  public void setStatuses(Map<String, StatusTotals> statuses) {
+    this.statuses = statuses;
+  }
+
+  /**
+   * @return share of the payments answered by the bank that were authorized, null when none were
+   */
+  public Double getAuthorizationRate() {
+    return authorizationRate;
+  }
+
+  public void setAuthorizationRate(Double authorizationRate) {
+    this.authorizationRate = authorizationRate;
+  }
+
+  @Override
+  public String toString() {
+    return "CurrencyStats{" +
+        "count=" + count +
+        ", amount=" + amount +
+        ", statuses=" + statuses +
+        ", authorizationRate=" + authorizationRate +
+        '}';
+  }
+}
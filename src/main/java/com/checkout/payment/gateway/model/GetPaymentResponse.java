@@ -1,8 +1,14 @@
 package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
 import java.util.UUID;
 
+@JsonSerialize(using = GetPaymentResponse.Serializer.class)
 public class GetPaymentResponse {
   private UUID id;
   private PaymentStatus status;
@@ -80,4 +86,18 @@ public class GetPaymentResponse {
         ", amount=" + amount +
         '}';
   }
+
+  /**
+   * Writes the response without bean introspection, see {@link PaymentJsonWriter}.
+   */
+  static final class Serializer extends JsonSerializer<GetPaymentResponse> {
+
+    @Override
+    public void serialize(GetPaymentResponse response, JsonGenerator generator,
+        SerializerProvider provider) throws IOException {
+      PaymentJsonWriter.write(generator, response.id, response.status,
+          response.cardNumberLastFour, response.expiryMonth, response.expiryYear,
+          response.currency, response.amount);
+    }
+  }
 }
@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Writes the payment fields shared by {@link GetPaymentResponse} and {@link PostPaymentResponse}
+ * straight to a {@link JsonGenerator}.
+ * <p>
+ * Field names and statuses are encoded once, and the id is written from a character buffer
+ * rather than from {@link UUID#toString()}. The output is byte for byte what bean serialization
+ * of the responses produces: the same field order, and nulls written out.
+ */
+final class PaymentJsonWriter {
+
+  private static final SerializableString ID = new SerializedString("id");
+  private static final SerializableString STATUS = new SerializedString("status");
+  private static final SerializableString CARD_NUMBER_LAST_FOUR =
+      new SerializedString("cardNumberLastFour");
+  private static final SerializableString EXPIRY_MONTH = new SerializedString("expiryMonth");
+  private static final SerializableString EXPIRY_YEAR = new SerializedString("expiryYear");
+  private static final SerializableString CURRENCY = new SerializedString("currency");
+  private static final SerializableString AMOUNT = new SerializedString("amount");
+
+  private static final SerializableString[] STATUSES = new SerializableString[
+      PaymentStatus.values().length];
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  static {
+    for (PaymentStatus status : PaymentStatus.values()) {
+      STATUSES[status.ordinal()] = new SerializedString(status.getName());
+    }
+  }
+
+  private PaymentJsonWriter() {
+  }
+
+  static void write(JsonGenerator generator, UUID id, PaymentStatus status,
+      String cardNumberLastFour, String expiryMonth, String expiryYear, String currency,
+      int amount) throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName(ID);
+    if (id == null) {
+      generator.writeNull();
+    } else {
+      char[] chars = new char[36];
+      uuidChars(id, chars);
+      generator.writeString(chars, 0, chars.length);
+    }
+    generator.writeFieldName(STATUS);
+    if (status == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(STATUSES[status.ordinal()]);
+    }
+    writeString(generator, CARD_NUMBER_LAST_FOUR, cardNumberLastFour);
+    writeString(generator, EXPIRY_MONTH, expiryMonth);
+    writeString(generator, EXPIRY_YEAR, expiryYear);
+    writeString(generator, CURRENCY, currency);
+    generator.writeFieldName(AMOUNT);
+    generator.writeNumber(amount);
+    generator.writeEndObject();
+  }
+
+  private static void writeString(JsonGenerator generator, SerializableString name, String value)
+      throws IOException {
+    generator.writeFieldName(name);
+    if (value == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(value);
+    }
+  }
+
+  private static void uuidChars(UUID id, char[] chars) {
+    long high = id.getMostSignificantBits();
+    long low = id.getLeastSignificantBits();
+    hex(high >>> 32, chars, 0, 8);
+    chars[8] = '-';
+    hex(high >>> 16, chars, 9, 4);
+    chars[13] = '-';
+    hex(high, chars, 14, 4);
+    chars[18] = '-';
+    hex(low >>> 48, chars, 19, 4);
+    chars[23] = '-';
+    hex(low, chars, 24, 12);
+  }
+
+  private static void hex(long value, char[] chars, int offset, int digits) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = HEX[(int) (value & 0xf)];
+      value >>>= 4;
+    }
+  }
+}
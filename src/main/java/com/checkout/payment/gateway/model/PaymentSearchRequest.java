@@ -0,0 +1,125 @@
+package com.checkout.payment.gateway.model;
+
+import java.time.Instant;
+
+/**
+ * Query parameters of a payment search, named after the fields of {@link GetPaymentResponse}.
+ * Every parameter is optional.
+ */
+public class PaymentSearchRequest {
+  private String status;
+  private String currency;
+  private Integer minAmount;
+  private Integer maxAmount;
+  private String cardNumberLastFour;
+  private Integer expiryMonth;
+  private Integer expiryYear;
+  private Instant createdFrom;
+  private Instant createdTo;
+  private String cursor;
+  private Integer limit;
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public String getCurrency() {
+    return currency;
+  }
+
+  public void setCurrency(String currency) {
+    this.currency = currency;
+  }
+
+  public Integer getMinAmount() {
+    return minAmount;
+  }
+
+  public void setMinAmount(Integer minAmount) {
+    this.minAmount = minAmount;
+  }
+
+  public Integer getMaxAmount() {
+    return maxAmount;
+  }
+
+  public void setMaxAmount(Integer maxAmount) {
+    this.maxAmount = maxAmount;
+  }
+
+  public String getCardNumberLastFour() {
+    return cardNumberLastFour;
+  }
+
+  public void setCardNumberLastFour(String cardNumberLastFour) {
+    this.cardNumberLastFour = cardNumberLastFour;
+  }
+
+  public Integer getExpiryMonth() {
+    return expiryMonth;
+  }
+
+  public void setExpiryMonth(Integer expiryMonth) {
+    this.expiryMonth = expiryMonth;
+  }
+
+  public Integer getExpiryYear() {
+    return expiryYear;
+  }
+
+  public void setExpiryYear(Integer expiryYear) {
+    this.expiryYear = expiryYear;
+  }
+
+  public Instant getCreatedFrom() {
+    return createdFrom;
+  }
+
+  public void setCreatedFrom(Instant createdFrom) {
+    this.createdFrom = createdFrom;
+  }
+
+  public Instant getCreatedTo() {
+    return createdTo;
+  }
+
+  public void setCreatedTo(Instant createdTo) {
+    this.createdTo = createdTo;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentSearchRequest{" +
+        "status='" + status + '\'' +
+        ", currency='" + currency + '\'' +
+        ", minAmount=" + minAmount +
+        ", maxAmount=" + maxAmount +
+        ", expiryMonth=" + expiryMonth +
+        ", expiryYear=" + expiryYear +
+        ", createdFrom=" + createdFrom +
+        ", createdTo=" + createdTo +
+        ", cursor='" + cursor + '\'' +
+        ", limit=" + limit +
+        '}';
+  }
+}
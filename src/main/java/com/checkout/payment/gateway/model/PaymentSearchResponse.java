@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.List;
+
+public class PaymentSearchResponse {
+  private List<GetPaymentResponse> payments;
+  private String nextCursor;
+
+  public List<GetPaymentResponse> getPayments() {
+    return payments;
+  }
+
+  public void setPayments(List<GetPaymentResponse> payments) {
+    this.payments = payments;
+  }
+
+  /**
+   * @return cursor to pass for the next page, null when there are no more payments
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentSearchResponse{" +
+        "payments=" + payments +
+        ", nextCursor='" + nextCursor + '\'' +
+        '}';
+  }
+}
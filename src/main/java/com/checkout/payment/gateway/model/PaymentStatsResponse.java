@@ -0,0 +1,25 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.Map;
+
+public class PaymentStatsResponse {
+  private Map<String, Map<String, CurrencyStats>> windows;
+
+  /**
+   * @return by window, 1m, 1h and 24h, the stats of each currency with payments in it
+   */
+  public Map<String, Map<String, CurrencyStats>> getWindows() {
+    return windows;
+  }
+
+  public void setWindows(Map<String, Map<String, CurrencyStats>> windows) {
+    this.windows = windows;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentStatsResponse{" +
+        "windows=" + windows +
+        '}';
+  }
+}
@@ -3,15 +3,26 @@ package com.checkout.payment.gateway.model;
 import com.checkout.payment.gateway.validation.currency.IsoCurrency;
 import com.checkout.payment.gateway.validation.date.ValidExpiryDate;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
 
 @ValidExpiryDate
+@JsonDeserialize(using = PostPaymentRequest.Deserializer.class)
 public class PostPaymentRequest implements Serializable {
 
   @JsonProperty("card_number")
@@ -26,6 +37,8 @@ public class PostPaymentRequest implements Serializable {
   private int expiryMonth;
   @JsonProperty("expiry_year")
   @NotNull
+  // the latest year stored payments can hold, see PaymentEncoding
+  @Max(value = 4095, message = "Year must be at most 4095")
   private int expiryYear;
   @IsoCurrency
   private String currency;
@@ -100,4 +113,85 @@ public class PostPaymentRequest implements Serializable {
         ", cvv=" + cvv +
         '}';
   }
+
+  /**
+   * Reads a payment request token by token, without bean introspection. Numbers and strings in
+   * their usual form are read directly, anything else is left to the standard deserializers so
+   * that coercions, unknown properties and errors behave as with bean deserialization.
+   */
+  static final class Deserializer extends JsonDeserializer<PostPaymentRequest> {
+
+    private static final List<Object> PROPERTIES = List.of("card_number", "expiry_month",
+        "expiry_year", "currency", "amount", "cvv");
+
+    @Override
+    public PostPaymentRequest deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      String field;
+      if (parser.isExpectedStartObjectToken()) {
+        field = parser.nextFieldName();
+      } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+        field = parser.currentName();
+      } else {
+        return (PostPaymentRequest) context.handleUnexpectedToken(PostPaymentRequest.class,
+            parser);
+      }
+      PostPaymentRequest request = new PostPaymentRequest();
+      for (; field != null; field = parser.nextFieldName()) {
+        parser.nextToken();
+        boolean known;
+        try {
+          known = readProperty(request, field, parser, context);
+        } catch (JacksonException e) {
+          // as bean deserialization does, errors point at the field they were found in
+          throw JsonMappingException.wrapWithPath(e, request, field);
+        }
+        if (!known) {
+          context.handleUnknownProperty(parser, this, request, field);
+        }
+      }
+      return request;
+    }
+
+    @Override
+    public Collection<Object> getKnownPropertyNames() {
+      return PROPERTIES;
+    }
+
+    private static boolean readProperty(PostPaymentRequest request, String field,
+        JsonParser parser, DeserializationContext context) throws IOException {
+      switch (field) {
+        case "card_number" -> request.cardNumber = readString(parser, context);
+        case "expiry_month" -> request.expiryMonth = readInt(parser, context);
+        case "expiry_year" -> request.expiryYear = readInt(parser, context);
+        case "currency" -> request.currency = readString(parser, context);
+        case "amount" -> request.amount = readInt(parser, context);
+        case "cvv" -> request.cvv = readString(parser, context);
+        default -> {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      if (parser.hasToken(JsonToken.VALUE_STRING)) {
+        return parser.getText();
+      }
+      if (parser.hasToken(JsonToken.VALUE_NULL)) {
+        return null;
+      }
+      return context.readValue(parser, String.class);
+    }
+
+    private static int readInt(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)
+          && parser.getNumberType() == JsonParser.NumberType.INT) {
+        return parser.getIntValue();
+      }
+      return context.readValue(parser, Integer.TYPE);
+    }
+  }
 }
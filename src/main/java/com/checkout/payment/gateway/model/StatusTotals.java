@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.model;
+
+public class StatusTotals {
+  private long count;
+  private long amount;
+
+  public StatusTotals() {
+  }
+
+  public StatusTotals(long count, long amount) {
+    this.count = count;
+    this.amount = amount;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  /**
+   * @return summed amounts, in minor currency units
+   */
+  public long getAmount() {
+    return amount;
+  }
+
+  public void setAmount(long amount) {
+    this.amount = amount;
+  }
+
+  @Override
+  public String toString() {
+    return "StatusTotals{" +
+        "count=" + count +
+        ", amount=" + amount +
+        '}';
+  }
+}
@@ -1,23 +1,192 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.id.TimeOrderedIdGenerator;
 import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.index.Page;
+import com.checkout.payment.gateway.repository.index.PaymentIndex;
+import com.checkout.payment.gateway.repository.index.PaymentQuery;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Payments by id in a {@link PaymentStore}, searchable through a {@link PaymentIndex}.
+ * <p>
+ * Every save is stamped with its creation time and numbered in one step, then indexed in number
+ * order once stored, so that payments are indexed in creation order however their store writes
+ * interleave. A save whose write finishes before the saves numbered ahead of it is held back
+ * until they are indexed: it can be read by id at once, and is searchable once every payment
+ * created before it is.
+ */
 @Repository
 public class PaymentsRepository {
 
-  private final HashMap<UUID, Payment> payments = new HashMap<>();
+  private final PaymentStore payments;
+
+  private final PaymentIndex index = new PaymentIndex();
+
+  private final Clock clock;
+
+  private final ReentrantLock stampLock = new ReentrantLock();
+  // guarded by stampLock
+  private long nextSequence;
+  private Instant lastStamped = Instant.MIN;
+
+  private final ReentrantLock indexLock = new ReentrantLock();
+  // guarded by indexLock, payments inserted by saves stored ahead of their turn
+  private long nextIndexed;
+  private final Map<Long, List<Payment>> storedAhead = new HashMap<>();
+
+  @Autowired
+  public PaymentsRepository(PaymentStore payments) {
+    this(payments, Clock.systemUTC());
+  }
+
+  /**
+   * Indexes the payments already in the store, recovered from a journal for instance, oldest
+   * first so that the index is in creation order as it is for payments saved afterwards. The
+   * payments are read in one pass and only their indexed fields are kept, so a store holding
+   * most of them on disk is not loaded onto the heap. A payment stored without its creation
+   * time, by an older journal, is indexed at the time its id was generated when the id is time
+   * ordered.
+   */
+  PaymentsRepository(PaymentStore payments, Clock clock) {
+    this.payments = payments;
+    this.clock = clock;
+    index.addInCreationOrder(action -> payments.forEach(payment -> {
+      long generatedAt = TimeOrderedIdGenerator.timestampOf(payment.getId());
+      if (payment.getCreatedAt() == null && generatedAt >= 0) {
+        payment.setCreatedAt(Instant.ofEpochMilli(generatedAt));
+      }
+      action.accept(payment);
+    }));
+  }
 
   public Optional<Payment> findByPaymentId(UUID id) {
     return Optional.ofNullable(payments.get(id));
   }
 
+  /**
+   * Saves the payment unless one with the same id already exists. A payment without a creation
+   * time is given the current time.
+   *
+   * @return the stored payment, which is the existing one when the id was already taken
+   */
   public Optional<Payment> save(Payment paymentRequest) {
-    payments.putIfAbsent(paymentRequest.getId(), paymentRequest);
-    return Optional.ofNullable(payments.get(paymentRequest.getId()));
+    long sequence = stamp(List.of(paymentRequest));
+    List<Payment> inserted = List.of();
+    try {
+      Payment existing = payments.putIfAbsent(paymentRequest);
+      if (existing != null) {
+        return Optional.of(existing);
+      }
+      inserted = List.of(paymentRequest);
+      return Optional.of(paymentRequest);
+    } finally {
+      index(sequence, inserted);
+    }
   }
 
+  /**
+   * Saves the payments in one store operation, each unless one with the same id already exists.
+   *
+   * @return the stored payments in order, the existing one where an id was already taken
+   */
+  public List<Payment> saveAll(List<Payment> paymentRequests) {
+    long sequence = stamp(paymentRequests);
+    List<Payment> inserted = new ArrayList<>(paymentRequests.size());
+    try {
+      List<Payment> existing = payments.putAllIfAbsent(paymentRequests);
+      List<Payment> stored = new ArrayList<>(paymentRequests.size());
+      for (int i = 0; i < paymentRequests.size(); i++) {
+        if (existing.get(i) != null) {
+          stored.add(existing.get(i));
+        } else {
+          inserted.add(paymentRequests.get(i));
+          stored.add(paymentRequests.get(i));
+        }
+      }
+      return stored;
+    } finally {
+      index(sequence, inserted);
+    }
+  }
+
+  /**
+   * @return the next page of payments matching the query, in the order they were saved
+   */
+  public Page<Payment> search(PaymentQuery query) {
+    Page<UUID> ids = index.search(query);
+    List<Payment> found = new ArrayList<>(ids.items().size());
+    for (UUID id : ids.items()) {
+      Payment payment = payments.get(id);
+      if (payment != null) {
+        found.add(payment);
+      }
+    }
+    return new Page<>(found, ids.cursor());
+  }
+
+  private Instant now() {
+    // stores keep creation times to the millisecond
+    return clock.instant().truncatedTo(ChronoUnit.MILLIS);
+  }
+
+  /**
+   * Gives the payments without a creation time the current time, never earlier than the time
+   * given to the previous save should the clock step back.
+   *
+   * @return the number of the save, the order it is indexed in
+   */
+  private long stamp(List<Payment> paymentRequests) {
+    stampLock.lock();
+    try {
+      Instant now = now();
+      if (now.isBefore(lastStamped)) {
+        now = lastStamped;
+      }
+      lastStamped = now;
+      for (Payment payment : paymentRequests) {
+        if (payment.getCreatedAt() == null) {
+          payment.setCreatedAt(now);
+        }
+      }
+      return nextSequence++;
+    } finally {
+      stampLock.unlock();
+    }
+  }
+
+  /**
+   * Indexes the payments inserted by a save when its turn has come, along with those of the
+   * following saves already stored, or holds them back for the save that brings the turn to
+   * them. Called once per save, even when it fails, so that the saves after it are not held back
+   * for good.
+   */
+  private void index(long sequence, List<Payment> inserted) {
+    indexLock.lock();
+    try {
+      if (sequence != nextIndexed) {
+        storedAhead.put(sequence, inserted);
+        return;
+      }
+      List<Payment> next = inserted;
+      do {
+        next.forEach(index::add);
+        nextIndexed++;
+      } while ((next = storedAhead.remove(nextIndexed)) != null);
+    } finally {
+      indexLock.unlock();
+    }
+  }
 }
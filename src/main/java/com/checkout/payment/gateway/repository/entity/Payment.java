@@ -1,5 +1,6 @@
 package com.checkout.payment.gateway.repository.entity;
 
+import java.time.Instant;
 import java.util.UUID;
 
 public class Payment {
@@ -18,6 +19,12 @@ public class Payment {
 
   private int amount;
 
+  /**
+   * When the payment was first saved, at millisecond precision. Null for payments recovered from
+   * journals written before creation times were recorded.
+   */
+  private Instant createdAt;
+
   public Payment(UUID id, String paymentStatus, String cardNumber, int expiryMonth, int expiryYear,
                  String currency, int amount) {
     this.id = id;
@@ -84,4 +91,12 @@ public class Payment {
   public void setAmount(int amount) {
     this.amount = amount;
   }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
 }
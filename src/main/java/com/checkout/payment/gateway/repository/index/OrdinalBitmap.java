@@ -0,0 +1,58 @@
+package com.checkout.payment.gateway.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable bitmap of ordinals, set by the single writer of the index and read without locking,
+ * under the same publication rules as {@link PostingList}.
+ */
+final class OrdinalBitmap {
+
+  private volatile long[] words = new long[16];
+  private volatile int count;
+
+  void set(int ordinal) {
+    long[] current = words;
+    int word = ordinal >>> 6;
+    if (word >= current.length) {
+      current = Arrays.copyOf(current, Math.max(word + 1, current.length << 1));
+      words = current;
+    }
+    current[word] |= 1L << ordinal;
+    count = count + 1;
+  }
+
+  /**
+   * @return number of ordinals set
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * @return the first ordinal set at or after {@code from} and below {@code limit}, or -1
+   */
+  int next(int from, int limit) {
+    long[] current = words;
+    int end = Math.min(limit, current.length << 6);
+    if (from >= end) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = current[word] & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return ordinal < end ? ordinal : -1;
+      }
+      if (++word > (end - 1) >>> 6) {
+        return -1;
+      }
+      bits = current[word];
+    }
+  }
+
+  long bytes() {
+    return 16 + 8L * words.length;
+  }
+}
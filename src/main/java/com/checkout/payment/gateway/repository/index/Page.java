@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.repository.index;
+
+import java.util.List;
+
+/**
+ * One page of search results.
+ *
+ * @param cursor what to search after for the next page, or -1 when there are no more results
+ */
+public record Page<T>(List<T> items, int cursor) {
+
+}
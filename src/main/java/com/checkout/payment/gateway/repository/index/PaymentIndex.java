@@ -0,0 +1,563 @@
+package com.checkout.payment.gateway.repository.index;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.PaymentEncoding;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Secondary indexes over stored payments, so that payments can be searched by status, currency,
+ * amount, card and creation time without scanning them all.
+ * <p>
+ * Each indexed payment gets the next ordinal, and its searchable fields are copied into
+ * primitive columns at that ordinal. On top of the columns the index keeps a bitmap per status,
+ * a posting list of ordinals per currency, per amount bucket (64 per power of two) and per
+ * hash bucket of card last four and expiry, and the lowest and highest creation time of every
+ * block of ordinals.
+ * <p>
+ * Ordinals only grow, so posting lists are sorted by construction. A search walks the structure
+ * of its most selective criterion from the cursor on and checks every criterion against the
+ * columns. Results come in ordinal order, the order payments were indexed in, and the ordinal of
+ * the last result of a full page is the cursor of the next one. Cursors are only meaningful to
+ * the index that returned them.
+ * <p>
+ * Writers are serialized by a lock and searches never lock: everything about an ordinal is
+ * written before the size is published, and a search ignores ordinals at or above the size it
+ * read first.
+ */
+public class PaymentIndex {
+
+  private static final int CHUNK_BITS = 16;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int BLOCK_BITS = 10;
+  private static final int CARD_BUCKET_BITS = 16;
+  private static final int AMOUNT_SUB_BUCKET_BITS = 6;
+  private static final int SMALL_AMOUNTS = 2 << AMOUNT_SUB_BUCKET_BITS;
+  private static final int AMOUNT_BUCKETS = amountBucket(Integer.MAX_VALUE) + 1;
+  private static final int NONE = -1;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final OrdinalBitmap[] byStatus = new OrdinalBitmap[PaymentStatus.values().length];
+  private final PostingList[] byCurrency = new PostingList[IsoCurrencies.size()];
+  private final PostingList[] byAmount = new PostingList[AMOUNT_BUCKETS];
+  private final PostingList[] byCard = new PostingList[1 << CARD_BUCKET_BITS];
+  private volatile Chunk[] chunks = new Chunk[0];
+  // lowest and highest creation time of each block of ordinals
+  private volatile long[] minCreatedAt = new long[0];
+  private volatile long[] maxCreatedAt = new long[0];
+  private volatile int size;
+
+  public PaymentIndex() {
+    for (int i = 0; i < byStatus.length; i++) {
+      byStatus[i] = new OrdinalBitmap();
+    }
+    fill(byCurrency);
+    fill(byAmount);
+    fill(byCard);
+  }
+
+  public void add(Payment payment) {
+    int status = statusOf(payment);
+    int currency = IsoCurrencies.indexOf(payment.getCurrency());
+    int card = cardKey(payment.getCardNumber(), payment.getExpiryMonth(), payment.getExpiryYear());
+    long createdAt = PaymentEncoding.encodeCreatedAt(payment.getCreatedAt());
+    UUID id = payment.getId();
+    lock.lock();
+    try {
+      append(id.getMostSignificantBits(), id.getLeastSignificantBits(), status, currency, card,
+          payment.getAmount(), createdAt);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Indexes payments passed in any order, oldest first and in the order they were passed when
+   * created at the same time, as when loading the payments of a store. Only the indexed fields
+   * of each payment are kept until all are sorted, in columns like those of the index, so that
+   * payments read one at a time from disk are not all held on the heap at once.
+   *
+   * @param payments passes every payment to index to the action it is given
+   */
+  public void addInCreationOrder(Consumer<Consumer<Payment>> payments) {
+    List<Chunk> staged = new ArrayList<>();
+    int[] count = new int[1];
+    payments.accept(payment -> {
+      int ordinal = count[0];
+      if (ordinal == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Payment index is full");
+      }
+      if ((ordinal & (CHUNK_SIZE - 1)) == 0) {
+        staged.add(new Chunk());
+      }
+      Chunk chunk = staged.get(ordinal >>> CHUNK_BITS);
+      int i = ordinal & (CHUNK_SIZE - 1);
+      chunk.mostSignificantBits[i] = payment.getId().getMostSignificantBits();
+      chunk.leastSignificantBits[i] = payment.getId().getLeastSignificantBits();
+      chunk.status[i] = (byte) statusOf(payment);
+      chunk.currency[i] = (short) IsoCurrencies.indexOf(payment.getCurrency());
+      chunk.card[i] = cardKey(payment.getCardNumber(), payment.getExpiryMonth(),
+          payment.getExpiryYear());
+      chunk.amount[i] = payment.getAmount();
+      chunk.createdAt[i] = PaymentEncoding.encodeCreatedAt(payment.getCreatedAt());
+      count[0] = ordinal + 1;
+    });
+
+    int[] order = creationOrder(staged, count[0]);
+    lock.lock();
+    try {
+      for (int ordinal : order) {
+        Chunk chunk = staged.get(ordinal >>> CHUNK_BITS);
+        int i = ordinal & (CHUNK_SIZE - 1);
+        append(chunk.mostSignificantBits[i], chunk.leastSignificantBits[i], chunk.status[i],
+            chunk.currency[i], chunk.card[i], chunk.amount[i], chunk.createdAt[i]);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the ids of the next payments matching the query, at most its limit
+   */
+  public Page<UUID> search(PaymentQuery query) {
+    int end = size;
+    Criteria criteria = new Criteria(query);
+    Chunk[] columns = chunks;
+    List<UUID> ids = new ArrayList<>(Math.min(query.getLimit(), 1024));
+    int last = NONE;
+    if (!criteria.empty) {
+      Source source = cheapestSource(criteria, query.getLimit(), end);
+      for (int ordinal = source.next(Math.max(query.getAfter(), NONE)); ordinal >= 0;
+          ordinal = source.next(ordinal)) {
+        Chunk chunk = columns[ordinal >>> CHUNK_BITS];
+        int i = ordinal & (CHUNK_SIZE - 1);
+        if (criteria.matches(chunk, i)) {
+          ids.add(new UUID(chunk.mostSignificantBits[i], chunk.leastSignificantBits[i]));
+          last = ordinal;
+          if (ids.size() == query.getLimit()) {
+            return new Page<>(ids, last);
+          }
+        }
+      }
+    }
+    return new Page<>(ids, NONE);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return approximate heap taken by the index, excluding the payments themselves
+   */
+  public long memoryBytes() {
+    long bytes = (long) chunks.length * Chunk.BYTES + 16L * minCreatedAt.length;
+    for (OrdinalBitmap bitmap : byStatus) {
+      bytes += bitmap.bytes();
+    }
+    for (PostingList[] lists : List.of(byCurrency, byAmount, byCard)) {
+      for (PostingList list : lists) {
+        bytes += list.bytes();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Indexes a payment at the next ordinal. Called with the lock held.
+   */
+  private void append(long mostSignificantBits, long leastSignificantBits, int status,
+      int currency, int card, int amount, long createdAt) {
+    int ordinal = size;
+    if (ordinal == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Payment index is full");
+    }
+    Chunk chunk = chunkFor(ordinal);
+    int i = ordinal & (CHUNK_SIZE - 1);
+    chunk.mostSignificantBits[i] = mostSignificantBits;
+    chunk.leastSignificantBits[i] = leastSignificantBits;
+    chunk.status[i] = (byte) status;
+    chunk.currency[i] = (short) currency;
+    chunk.card[i] = card;
+    chunk.amount[i] = amount;
+    chunk.createdAt[i] = createdAt;
+    if (status != NONE) {
+      byStatus[status].set(ordinal);
+    }
+    if (currency != NONE) {
+      byCurrency[currency].add(ordinal);
+    }
+    if (card != NONE) {
+      byCard[cardBucket(card)].add(ordinal);
+    }
+    byAmount[amountBucket(amount)].add(ordinal);
+    extendBlock(ordinal, createdAt);
+    size = ordinal + 1;
+  }
+
+  /**
+   * Sorts the staged ordinals by creation time with a bottom up merge sort, which keeps the
+   * order of payments created at the same time and sorts primitives without boxing them.
+   */
+  private static int[] creationOrder(List<Chunk> staged, int count) {
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    int[] merged = new int[count];
+    for (int width = 1; width < count; width <<= 1) {
+      for (int from = 0; from < count; from += width << 1) {
+        int middle = Math.min(from + width, count);
+        int to = Math.min(from + (width << 1), count);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+          if (left < middle && (right >= to
+              || createdAt(staged, order[left]) <= createdAt(staged, order[right]))) {
+            merged[i] = order[left++];
+          } else {
+            merged[i] = order[right++];
+          }
+        }
+      }
+      int[] sorted = merged;
+      merged = order;
+      order = sorted;
+    }
+    return order;
+  }
+
+  private static long createdAt(List<Chunk> staged, int ordinal) {
+    return staged.get(ordinal >>> CHUNK_BITS).createdAt[ordinal & (CHUNK_SIZE - 1)];
+  }
+
+  /**
+   * Amounts below 128 have a bucket each, larger ones are bucketed by power of two split in 64,
+   * so a bucket spans at most 1/64 of its lowest amount. Buckets follow the order of amounts,
+   * negative amounts share the first one.
+   */
+  static int amountBucket(int amount) {
+    if (amount < SMALL_AMOUNTS) {
+      return Math.max(amount, 0);
+    }
+    int exponent = 31 - Integer.numberOfLeadingZeros(amount);
+    return SMALL_AMOUNTS + ((exponent - AMOUNT_SUB_BUCKET_BITS - 1) << AMOUNT_SUB_BUCKET_BITS)
+        + ((amount >>> (exponent - AMOUNT_SUB_BUCKET_BITS)) & ((1 << AMOUNT_SUB_BUCKET_BITS) - 1));
+  }
+
+  /**
+   * @return the last four digits and expiry packed in an int, or -1 when they cannot be encoded
+   */
+  static int cardKey(String cardNumber, int expiryMonth, int expiryYear) {
+    try {
+      return (PaymentEncoding.encodeCard(cardNumber) & 0xFFFF) << 16
+          | PaymentEncoding.encodeExpiry(expiryMonth, expiryYear);
+    } catch (IllegalArgumentException e) {
+      return NONE;
+    }
+  }
+
+  private static int cardBucket(int card) {
+    return (card * 0x9E3779B9) >>> (32 - CARD_BUCKET_BITS);
+  }
+
+  private static int statusOf(Payment payment) {
+    for (PaymentStatus status : PaymentStatus.values()) {
+      if (status.getName().equals(payment.getPaymentStatus())) {
+        return status.ordinal();
+      }
+    }
+    return NONE;
+  }
+
+  private Chunk chunkFor(int ordinal) {
+    int index = ordinal >>> CHUNK_BITS;
+    Chunk[] current = chunks;
+    if (index == current.length) {
+      current = Arrays.copyOf(current, index + 1);
+      current[index] = new Chunk();
+      chunks = current;
+    }
+    return current[index];
+  }
+
+  private void extendBlock(int ordinal, long createdAt) {
+    int block = ordinal >>> BLOCK_BITS;
+    long[] min = minCreatedAt;
+    long[] max = maxCreatedAt;
+    if (block == min.length) {
+      int length = Math.max(16, min.length << 1);
+      min = Arrays.copyOf(min, length);
+      max = Arrays.copyOf(max, length);
+      min[block] = createdAt;
+      max[block] = createdAt;
+      minCreatedAt = min;
+      maxCreatedAt = max;
+    } else if ((ordinal & ((1 << BLOCK_BITS) - 1)) == 0) {
+      min[block] = createdAt;
+      max[block] = createdAt;
+    } else {
+      min[block] = Math.min(min[block], createdAt);
+      max[block] = Math.max(max[block], createdAt);
+    }
+  }
+
+  /**
+   * Picks the structure expected to fill the page with the least work. A page stops after its
+   * limit, so each structure only scans its share of candidates up to the last match; criteria
+   * are assumed independent to estimate how many payments match overall.
+   */
+  private Source cheapestSource(Criteria criteria, int limit, int end) {
+    List<Plan> plans = new ArrayList<>();
+    plans.add(new Plan(() -> new AllOrdinals(end), end, 0, 1));
+    if (criteria.status != NONE) {
+      OrdinalBitmap bitmap = byStatus[criteria.status];
+      long count = bitmap.count();
+      // sparse bitmaps skip whole words between candidates
+      plans.add(new Plan(() -> new BitmapSource(bitmap, end), count, 0,
+          1 + (double) end / Long.SIZE / Math.max(count, 1)));
+    }
+    if (criteria.currency != NONE) {
+      plans.add(postingPlan(List.of(byCurrency[criteria.currency]), end));
+    }
+    if (criteria.card != NONE) {
+      plans.add(postingPlan(List.of(byCard[cardBucket(criteria.card)]), end));
+    }
+    if (criteria.minAmount > Integer.MIN_VALUE || criteria.maxAmount < Integer.MAX_VALUE) {
+      plans.add(postingPlan(Arrays.asList(byAmount).subList(
+          amountBucket(criteria.minAmount), amountBucket(criteria.maxAmount) + 1), end));
+    }
+    if (criteria.createdFrom > Long.MIN_VALUE || criteria.createdTo < Long.MAX_VALUE) {
+      BlockSource blocks = new BlockSource(criteria, minCreatedAt, maxCreatedAt, end);
+      plans.add(new Plan(() -> blocks, blocks.candidates(), 0, 1));
+    }
+
+    double matches = end;
+    for (Plan plan : plans) {
+      matches *= (double) plan.candidates / Math.max(end, 1);
+    }
+    double scanned = Math.min(1, limit / Math.max(matches, 1));
+    Plan cheapest = plans.get(0);
+    for (Plan plan : plans) {
+      if (plan.cost(scanned) < cheapest.cost(scanned)) {
+        cheapest = plan;
+      }
+    }
+    return cheapest.source.get();
+  }
+
+  /**
+   * Merging k lists costs a binary search per list to start and k comparisons per candidate.
+   */
+  private static Plan postingPlan(List<PostingList> postings, int end) {
+    long count = 0;
+    for (PostingList posting : postings) {
+      count += posting.size();
+    }
+    int lists = postings.size();
+    return new Plan(() -> new PostingSource(postings, end), count,
+        lists * (33.0 - Integer.numberOfLeadingZeros(end)), lists);
+  }
+
+  /**
+   * A candidate structure with the number of ordinals it yields and what producing them costs.
+   */
+  private record Plan(Supplier<Source> source, long candidates, double setup,
+                      double perCandidate) {
+
+    double cost(double scanned) {
+      return setup + candidates * scanned * perCandidate;
+    }
+  }
+
+  private static void fill(PostingList[] lists) {
+    for (int i = 0; i < lists.length; i++) {
+      lists[i] = new PostingList();
+    }
+  }
+
+  /**
+   * Query criteria in column form. Unset bounds are the extremes of their type.
+   */
+  private static final class Criteria {
+
+    final int status;
+    final int currency;
+    final int card;
+    final int minAmount;
+    final int maxAmount;
+    final long createdFrom;
+    final long createdTo;
+    // no payment can match, for instance an unknown currency or a reversed range
+    final boolean empty;
+
+    Criteria(PaymentQuery query) {
+      status = query.getStatus() == null ? NONE : query.getStatus().ordinal();
+      currency = query.getCurrency() == null ? NONE : IsoCurrencies.indexOf(query.getCurrency());
+      card = query.getCardNumberLastFour() == null || query.getExpiryMonth() == null
+          || query.getExpiryYear() == null ? NONE
+          : cardKey(query.getCardNumberLastFour(), query.getExpiryMonth(), query.getExpiryYear());
+      minAmount = query.getMinAmount() == null ? Integer.MIN_VALUE : query.getMinAmount();
+      maxAmount = query.getMaxAmount() == null ? Integer.MAX_VALUE : query.getMaxAmount();
+      createdFrom = query.getCreatedFrom() == null ? Long.MIN_VALUE
+          : query.getCreatedFrom().toEpochMilli();
+      createdTo = query.getCreatedTo() == null ? Long.MAX_VALUE
+          : query.getCreatedTo().toEpochMilli();
+      empty = query.getCurrency() != null && currency == NONE
+          || query.getCardNumberLastFour() != null && card == NONE
+          || minAmount > maxAmount || createdFrom >= createdTo || query.getLimit() <= 0;
+    }
+
+    boolean matches(Chunk chunk, int i) {
+      int amount = chunk.amount[i];
+      long createdAt = chunk.createdAt[i];
+      return (status == NONE || chunk.status[i] == status)
+          && (currency == NONE || chunk.currency[i] == currency)
+          && (card == NONE || chunk.card[i] == card)
+          && amount >= minAmount && amount <= maxAmount
+          && createdAt >= createdFrom && createdAt < createdTo;
+    }
+  }
+
+  /**
+   * Candidate ordinals of a search, in increasing order and below the size read when it started.
+   */
+  private interface Source {
+
+    /**
+     * @return the next candidate after the ordinal, or -1 when there are no more
+     */
+    int next(int after);
+  }
+
+  private record AllOrdinals(int end) implements Source {
+
+    @Override
+    public int next(int after) {
+      return after + 1 < end ? after + 1 : NONE;
+    }
+  }
+
+  private record BitmapSource(OrdinalBitmap bitmap, int end) implements Source {
+
+    @Override
+    public int next(int after) {
+      return bitmap.next(after + 1, end);
+    }
+  }
+
+  /**
+   * Merges posting lists, each list walked once from the first ordinal after the cursor.
+   */
+  private static final class PostingSource implements Source {
+
+    private final int[][] lists;
+    private final int[] sizes;
+    private final int[] positions;
+    private final int end;
+    private boolean positioned;
+
+    PostingSource(List<PostingList> postings, int end) {
+      this.end = end;
+      lists = new int[postings.size()][];
+      sizes = new int[postings.size()];
+      positions = new int[postings.size()];
+      for (int i = 0; i < lists.length; i++) {
+        sizes[i] = postings.get(i).size();
+        lists[i] = postings.get(i).ordinals();
+      }
+    }
+
+    @Override
+    public int next(int after) {
+      int next = NONE;
+      for (int i = 0; i < lists.length; i++) {
+        int[] list = lists[i];
+        int position = positioned ? positions[i] : firstAfter(list, sizes[i], after);
+        while (position < sizes[i] && list[position] <= after) {
+          position++;
+        }
+        positions[i] = position;
+        if (position < sizes[i] && list[position] < end
+            && (next == NONE || list[position] < next)) {
+          next = list[position];
+        }
+      }
+      positioned = true;
+      return next;
+    }
+
+    private static int firstAfter(int[] list, int size, int after) {
+      int index = Arrays.binarySearch(list, 0, size, after);
+      return index >= 0 ? index + 1 : -index - 1;
+    }
+  }
+
+  /**
+   * Every ordinal of the blocks whose creation times overlap the queried range.
+   */
+  private static final class BlockSource implements Source {
+
+    private final long createdFrom;
+    private final long createdTo;
+    private final long[] min;
+    private final long[] max;
+    private final int end;
+
+    BlockSource(Criteria criteria, long[] min, long[] max, int end) {
+      this.createdFrom = criteria.createdFrom;
+      this.createdTo = criteria.createdTo;
+      this.min = min;
+      this.max = max;
+      this.end = end;
+    }
+
+    long candidates() {
+      long candidates = 0;
+      for (int block = 0; block << BLOCK_BITS < end; block++) {
+        if (overlaps(block)) {
+          candidates += 1 << BLOCK_BITS;
+        }
+      }
+      return candidates;
+    }
+
+    @Override
+    public int next(int after) {
+      int ordinal = after + 1;
+      while (ordinal < end) {
+        int block = ordinal >>> BLOCK_BITS;
+        if (overlaps(block)) {
+          return ordinal;
+        }
+        ordinal = (block + 1) << BLOCK_BITS;
+      }
+      return NONE;
+    }
+
+    private boolean overlaps(int block) {
+      return max[block] >= createdFrom && min[block] < createdTo;
+    }
+  }
+
+  private static final class Chunk {
+
+    static final long BYTES = 7L * 16 + (8 + 8 + 8 + 4 + 4 + 2 + 1) * (long) CHUNK_SIZE;
+
+    final long[] mostSignificantBits = new long[CHUNK_SIZE];
+    final long[] leastSignificantBits = new long[CHUNK_SIZE];
+    final long[] createdAt = new long[CHUNK_SIZE];
+    final int[] amount = new int[CHUNK_SIZE];
+    final int[] card = new int[CHUNK_SIZE];
+    final short[] currency = new short[CHUNK_SIZE];
+    final byte[] status = new byte[CHUNK_SIZE];
+  }
+}
@@ -0,0 +1,132 @@
+package com.checkout.payment.gateway.repository.index;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.time.Instant;
+
+/**
+ * Criteria of a payment search. Unset criteria match every payment, set ones must all match.
+ */
+public class PaymentQuery {
+
+  private PaymentStatus status;
+
+  private String currency;
+
+  /**
+   * Inclusive bounds of the amount in minor units.
+   */
+  private Integer minAmount;
+
+  private Integer maxAmount;
+
+  /**
+   * Last four digits of the card, searched together with the expiry month and year.
+   */
+  private String cardNumberLastFour;
+
+  private Integer expiryMonth;
+
+  private Integer expiryYear;
+
+  /**
+   * Creation time from, inclusive, and to, exclusive.
+   */
+  private Instant createdFrom;
+
+  private Instant createdTo;
+
+  /**
+   * Cursor of the page to return, as given with the previous page, or -1 for the first page.
+   */
+  private int after = -1;
+
+  private int limit = 20;
+
+  public PaymentStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(PaymentStatus status) {
+    this.status = status;
+  }
+
+  public String getCurrency() {
+    return currency;
+  }
+
+  public void setCurrency(String currency) {
+    this.currency = currency;
+  }
+
+  public Integer getMinAmount() {
+    return minAmount;
+  }
+
+  public void setMinAmount(Integer minAmount) {
+    this.minAmount = minAmount;
+  }
+
+  public Integer getMaxAmount() {
+    return maxAmount;
+  }
+
+  public void setMaxAmount(Integer maxAmount) {
+    this.maxAmount = maxAmount;
+  }
+
+  public String getCardNumberLastFour() {
+    return cardNumberLastFour;
+  }
+
+  public void setCardNumberLastFour(String cardNumberLastFour) {
+    this.cardNumberLastFour = cardNumberLastFour;
+  }
+
+  public Integer getExpiryMonth() {
+    return expiryMonth;
+  }
+
+  public void setExpiryMonth(Integer expiryMonth) {
+    this.expiryMonth = expiryMonth;
+  }
+
+  public Integer getExpiryYear() {
+    return expiryYear;
+  }
+
+  public void setExpiryYear(Integer expiryYear) {
+    this.expiryYear = expiryYear;
+  }
+
+  public Instant getCreatedFrom() {
+    return createdFrom;
+  }
+
+  public void setCreatedFrom(Instant createdFrom) {
+    this.createdFrom = createdFrom;
+  }
+
+  public Instant getCreatedTo() {
+    return createdTo;
+  }
+
+  public void setCreatedTo(Instant createdTo) {
+    this.createdTo = createdTo;
+  }
+
+  public int getAfter() {
+    return after;
+  }
+
+  public void setAfter(int after) {
+    this.after = after;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+}
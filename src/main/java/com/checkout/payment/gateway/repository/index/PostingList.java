@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ordinals, appended in increasing order by the single writer of the index and
+ * read without locking.
+ * <p>
+ * The writer publishes a grown array before the element and the element before the size, so a
+ * reader that reads the size first and the array second sees every element below that size.
+ */
+final class PostingList {
+
+  private static final int[] EMPTY = new int[0];
+
+  private volatile int[] ordinals = EMPTY;
+  private volatile int size;
+
+  void add(int ordinal) {
+    int[] current = ordinals;
+    int n = size;
+    if (n == current.length) {
+      current = Arrays.copyOf(current, Math.max(4, n + (n >>> 1)));
+      ordinals = current;
+    }
+    current[n] = ordinal;
+    size = n + 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the ordinals, valid up to a size read before calling this
+   */
+  int[] ordinals() {
+    return ordinals;
+  }
+
+  long bytes() {
+    return 16 + 4L * ordinals.length;
+  }
+}
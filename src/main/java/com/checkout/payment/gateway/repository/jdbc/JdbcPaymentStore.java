@@ -0,0 +1,362 @@
+package com.checkout.payment.gateway.repository.jdbc;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Payment store in a relational database reached over JDBC, embedded H2 unless configured
+ * otherwise. Payments are rows of a table keyed on the payment id.
+ * <p>
+ * Inserts are group committed the way the journal forces its records: every save queues its
+ * payment, and the first saver to reach the write lock sends everything queued so far as one
+ * JDBC batch in one transaction. The savers queued behind it find their payment already written,
+ * so concurrent saves cost one round trip between them. Writes go through a connection kept for
+ * them along with its prepared statements, reads borrow a connection from the pool and rely on
+ * the driver to reuse the statement it prepared on it before.
+ * <p>
+ * An id that is taken fails its own insert only, the driver carrying on with the rest of the
+ * batch as H2 does, and the saver is answered with the stored payment.
+ */
+public class JdbcPaymentStore implements PaymentStore, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcPaymentStore.class);
+
+  private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS payments ("
+      + "id UUID NOT NULL PRIMARY KEY, "
+      + "status VARCHAR(16), "
+      + "card_number VARCHAR(19), "
+      + "expiry_month INT NOT NULL, "
+      + "expiry_year INT NOT NULL, "
+      + "currency CHAR(3), "
+      + "amount INT NOT NULL, "
+      + "created_at TIMESTAMP(3) WITH TIME ZONE)";
+  private static final String COLUMNS =
+      "id, status, card_number, expiry_month, expiry_year, currency, amount, created_at";
+  private static final String INSERT =
+      "INSERT INTO payments (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM payments WHERE id = ?";
+  private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM payments";
+  private static final String COUNT = "SELECT COUNT(*) FROM payments";
+  private static final int FETCH_SIZE = 1_000;
+
+  private final DataSource dataSource;
+  private final int maxBatchSize;
+  private final Queue<Insert> queued = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final AtomicLong batches = new AtomicLong();
+  // the write connection and its statements, guarded by writeLock
+  private Connection writer;
+  private PreparedStatement insert;
+  private PreparedStatement selectById;
+  private boolean closed;
+
+  /**
+   * Creates the payments table if it does not exist yet.
+   *
+   * @param dataSource   pool of at least two connections, one of which is kept for writes
+   * @param maxBatchSize most payments sent in a single batch
+   */
+  public JdbcPaymentStore(DataSource dataSource, int maxBatchSize) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive, was " + maxBatchSize);
+    }
+    this.dataSource = dataSource;
+    this.maxBatchSize = maxBatchSize;
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute(CREATE_TABLE);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot create the payments table", e);
+    }
+  }
+
+  @Override
+  public Payment get(UUID id) {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement select = connection.prepareStatement(SELECT_BY_ID)) {
+      return select(select, id);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot read payment " + id, e);
+    }
+  }
+
+  @Override
+  public Payment putIfAbsent(Payment payment) {
+    Insert pending = queue(payment);
+    awaitWritten(pending);
+    return pending.result();
+  }
+
+  /**
+   * The payments are queued together, so they are sent in the same batch as far as the batch
+   * size allows.
+   */
+  @Override
+  public List<Payment> putAllIfAbsent(List<Payment> payments) {
+    if (payments.isEmpty()) {
+      return List.of();
+    }
+    List<Insert> pending = new ArrayList<>(payments.size());
+    for (Payment payment : payments) {
+      pending.add(queue(payment));
+    }
+    // batches are sent in queue order, once the last is written so are the others
+    awaitWritten(pending.get(pending.size() - 1));
+    List<Payment> existing = new ArrayList<>(payments.size());
+    for (Insert insert : pending) {
+      existing.add(insert.result());
+    }
+    return existing;
+  }
+
+  @Override
+  public int size() {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet count = statement.executeQuery(COUNT)) {
+      count.next();
+      return Math.toIntExact(count.getLong(1));
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot count payments", e);
+    }
+  }
+
+  @Override
+  public void forEach(Consumer<Payment> action) {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.setFetchSize(FETCH_SIZE);
+      try (ResultSet rows = statement.executeQuery(SELECT_ALL)) {
+        while (rows.next()) {
+          action.accept(read(rows));
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot read payments", e);
+    }
+  }
+
+  /**
+   * @return number of batches sent, lower than the number of payments inserted when concurrent
+   * saves are coalesced
+   */
+  public long batchCount() {
+    return batches.get();
+  }
+
+  /**
+   * Closes the write connection, then the data source when it holds a pool of its own.
+   */
+  @Override
+  public void close() {
+    writeLock.lock();
+    try {
+      closed = true;
+      closeWriter();
+    } finally {
+      writeLock.unlock();
+    }
+    if (dataSource instanceof Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        LOG.warn("Cannot close the payments data source", e);
+      }
+    }
+  }
+
+  private Insert queue(Payment payment) {
+    if (payment.getId() == null) {
+      throw new IllegalArgumentException("Payment id must not be null");
+    }
+    Insert pending = new Insert(payment);
+    queued.add(pending);
+    return pending;
+  }
+
+  private void awaitWritten(Insert pending) {
+    writeLock.lock();
+    try {
+      // a batch sent while we queued for the lock may already hold the payment
+      while (!pending.written) {
+        writeBatch();
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Sends the oldest queued payments as one batch and records the outcome of each. Called with
+   * the write lock held.
+   */
+  private void writeBatch() {
+    List<Insert> batch = new ArrayList<>(Math.min(maxBatchSize, queued.size()));
+    Insert next;
+    while (batch.size() < maxBatchSize && (next = queued.poll()) != null) {
+      batch.add(next);
+    }
+    try {
+      if (closed) {
+        throw new IllegalStateException("Payment store is closed");
+      }
+      if (writer == null) {
+        openWriter();
+      }
+      for (Insert pending : batch) {
+        bind(insert, pending.payment);
+        insert.addBatch();
+      }
+      int[] counts;
+      SQLException failure = null;
+      try {
+        counts = insert.executeBatch();
+      } catch (BatchUpdateException e) {
+        counts = e.getUpdateCounts();
+        failure = e;
+      }
+      writer.commit();
+      batches.incrementAndGet();
+      for (int i = 0; i < batch.size(); i++) {
+        if (i < counts.length && counts[i] != Statement.EXECUTE_FAILED) {
+          continue;
+        }
+        // most likely taken by a payment saved earlier, or earlier in this batch
+        Insert pending = batch.get(i);
+        pending.existing = select(selectById, pending.payment.getId());
+        if (pending.existing == null) {
+          pending.failure = new IllegalStateException(
+              "Cannot save payment " + pending.payment.getId(), failure);
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      RuntimeException failure = e instanceof RuntimeException runtime ? runtime
+          : new IllegalStateException("Cannot save payments", e);
+      for (Insert pending : batch) {
+        pending.failure = failure;
+      }
+      discardWriter();
+    } finally {
+      for (Insert pending : batch) {
+        pending.written = true;
+      }
+    }
+  }
+
+  private void openWriter() throws SQLException {
+    writer = dataSource.getConnection();
+    writer.setAutoCommit(false);
+    insert = writer.prepareStatement(INSERT);
+    selectById = writer.prepareStatement(SELECT_BY_ID);
+  }
+
+  /**
+   * Rolls back what the failed batch left and reopens the write connection on the next batch
+   * unless it is still usable.
+   */
+  private void discardWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      insert.clearBatch();
+      writer.rollback();
+      if (writer.isValid(1)) {
+        return;
+      }
+    } catch (SQLException e) {
+      LOG.warn("Discarding the payments write connection", e);
+    }
+    closeWriter();
+  }
+
+  private void closeWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (SQLException e) {
+      LOG.warn("Cannot close the payments write connection", e);
+    }
+    writer = null;
+    insert = null;
+    selectById = null;
+  }
+
+  private static Payment select(PreparedStatement select, UUID id) throws SQLException {
+    select.setObject(1, id);
+    try (ResultSet row = select.executeQuery()) {
+      return row.next() ? read(row) : null;
+    }
+  }
+
+  private static void bind(PreparedStatement statement, Payment payment) throws SQLException {
+    statement.setObject(1, payment.getId());
+    statement.setString(2, payment.getPaymentStatus());
+    statement.setString(3, payment.getCardNumber());
+    statement.setInt(4, payment.getExpiryMonth());
+    statement.setInt(5, payment.getExpiryYear());
+    statement.setString(6, payment.getCurrency());
+    statement.setInt(7, payment.getAmount());
+    if (payment.getCreatedAt() == null) {
+      statement.setNull(8, Types.TIMESTAMP_WITH_TIMEZONE);
+    } else {
+      statement.setObject(8, payment.getCreatedAt().atOffset(ZoneOffset.UTC));
+    }
+  }
+
+  private static Payment read(ResultSet row) throws SQLException {
+    Payment payment = new Payment(row.getObject(1, UUID.class), row.getString(2),
+        row.getString(3), row.getInt(4), row.getInt(5), row.getString(6), row.getInt(7));
+    OffsetDateTime createdAt = row.getObject(8, OffsetDateTime.class);
+    if (createdAt != null) {
+      payment.setCreatedAt(createdAt.toInstant());
+    }
+    return payment;
+  }
+
+  /**
+   * A queued payment, its outcome is set under the write lock and read after taking it.
+   */
+  private static final class Insert {
+
+    private final Payment payment;
+    private boolean written;
+    private Payment existing;
+    private RuntimeException failure;
+
+    private Insert(Payment payment) {
+      this.payment = payment;
+    }
+
+    Payment result() {
+      if (failure != null) {
+        throw failure;
+      }
+      return existing;
+    }
+  }
+}
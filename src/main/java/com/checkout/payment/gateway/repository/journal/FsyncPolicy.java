@@ -0,0 +1,21 @@
+package com.checkout.payment.gateway.repository.journal;
+
+/**
+ * When appended payments are forced to disk.
+ */
+public enum FsyncPolicy {
+  /**
+   * Every append waits until it is on disk. Concurrent appends are group committed, one force
+   * covers every record appended before it started.
+   */
+  PER_WRITE,
+  /**
+   * A background thread forces the journal at a fixed interval, appends never wait.
+   */
+  INTERVAL,
+  /**
+   * The operating system writes dirty pages back on its own schedule. The journal is only forced
+   * when it is closed.
+   */
+  OS
+}
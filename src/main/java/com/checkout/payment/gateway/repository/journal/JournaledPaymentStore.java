@@ -0,0 +1,205 @@
+package com.checkout.payment.gateway.repository.journal;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes an in-memory store durable: newly inserted payments are appended to a
+ * {@link PaymentJournal}, which is replayed into the store when it is created.
+ * <p>
+ * A payment is journaled before it is inserted into the delegate, so that it is never seen by
+ * readers unless it is durable, and a failed append leaves it out of the store altogether.
+ * Inserts of the same id are serialized by a lock striped by id, held from the lookup to the
+ * insert, so that only the payment that wins is journaled. Journal records are inserted in no
+ * particular order across threads: {@link #journalSize()} only counts the records up to the
+ * first one whose payment is not inserted yet.
+ */
+public class JournaledPaymentStore implements PaymentStore, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JournaledPaymentStore.class);
+  private static final int STRIPES = 1024;
+
+  private final PaymentStore delegate;
+  private final PaymentJournal journal;
+  private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+  private final ReentrantLock insertedLock = new ReentrantLock();
+  // journal records whose payments are all in the delegate, guarded by insertedLock
+  private long inserted;
+  // end of each run of records inserted past one that is not, by the start of the run
+  private final Map<Long, Long> insertedAhead = new HashMap<>();
+
+  public JournaledPaymentStore(PaymentStore delegate, PaymentJournal journal) {
+    this(delegate, journal, 0);
+  }
+
+  /**
+   * @param replayFrom sequence of the first journal record to recover, the delegate already
+   *                   holds the payments of the records before it
+   */
+  public JournaledPaymentStore(PaymentStore delegate, PaymentJournal journal, long replayFrom) {
+    this.delegate = delegate;
+    this.journal = journal;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    if (replayFrom > journal.size()) {
+      LOG.warn("Journal holds {} records, fewer than the {} already restored", journal.size(),
+          replayFrom);
+    }
+    long start = System.nanoTime();
+    long recovered = journal.replay(replayFrom, delegate::putIfAbsent);
+    LOG.info("Recovered {} payments from the journal in {} ms", recovered,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    inserted = journal.size();
+  }
+
+  @Override
+  public Payment get(UUID id) {
+    return delegate.get(id);
+  }
+
+  /**
+   * Only the payment that wins the insert is journaled, so the journal never holds two records
+   * for the same id.
+   */
+  @Override
+  public Payment putIfAbsent(Payment payment) {
+    ReentrantLock stripe = stripeOf(payment.getId());
+    stripe.lock();
+    try {
+      Payment existing = delegate.get(payment.getId());
+      if (existing != null) {
+        return existing;
+      }
+      return insert(List.of(payment), List.of(payment)).get(0);
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Inserted payments are journaled together, costing one force for the whole batch when every
+   * write is synced. The stripes of the batch are locked in increasing order, so that batches
+   * sharing stripes do not deadlock.
+   */
+  @Override
+  public List<Payment> putAllIfAbsent(List<Payment> payments) {
+    int[] locked = payments.stream().mapToInt(payment -> stripeIndex(payment.getId()))
+        .sorted().distinct().toArray();
+    for (int stripe : locked) {
+      stripes[stripe].lock();
+    }
+    try {
+      List<Payment> absent = new ArrayList<>(payments.size());
+      Set<UUID> ids = new HashSet<>();
+      for (Payment payment : payments) {
+        if (ids.add(payment.getId()) && delegate.get(payment.getId()) == null) {
+          absent.add(payment);
+        }
+      }
+      return absent.isEmpty() ? delegate.putAllIfAbsent(payments) : insert(payments, absent);
+    } finally {
+      for (int stripe : locked) {
+        stripes[stripe].unlock();
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  /**
+   * @return number of records at the start of the journal whose payments are all visible in the
+   * delegate store
+   */
+  public long journalSize() {
+    insertedLock.lock();
+    try {
+      return inserted;
+    } finally {
+      insertedLock.unlock();
+    }
+  }
+
+  @Override
+  public void ensureCapacity(int payments) {
+    delegate.ensureCapacity(payments);
+  }
+
+  @Override
+  public void forEach(Consumer<Payment> action) {
+    delegate.forEach(action);
+  }
+
+  /**
+   * Closes the journal, then the delegate when it holds resources of its own.
+   */
+  @Override
+  public void close() {
+    journal.close();
+    if (delegate instanceof Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Journals the absent payments, then inserts the payments into the delegate once they are
+   * durable. Called with the stripes of the payments locked, so that the absent ones are still
+   * absent.
+   */
+  private List<Payment> insert(List<Payment> payments, List<Payment> absent) {
+    long end = journal.write(absent);
+    try {
+      journal.awaitDurable(end);
+      return delegate.putAllIfAbsent(payments);
+    } finally {
+      // counted even when they could not be made durable, so that later records still count
+      markInserted(end - absent.size(), end);
+    }
+  }
+
+  private void markInserted(long start, long end) {
+    insertedLock.lock();
+    try {
+      if (start != inserted) {
+        insertedAhead.put(start, end);
+        return;
+      }
+      Long next = end;
+      do {
+        inserted = next;
+      } while ((next = insertedAhead.remove(inserted)) != null);
+    } finally {
+      insertedLock.unlock();
+    }
+  }
+
+  private ReentrantLock stripeOf(UUID id) {
+    return stripes[stripeIndex(id)];
+  }
+
+  private static int stripeIndex(UUID id) {
+    return id.hashCode() & (STRIPES - 1);
+  }
+}
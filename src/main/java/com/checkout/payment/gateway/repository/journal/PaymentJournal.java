@@ -0,0 +1,465 @@
+package com.checkout.payment.gateway.repository.journal;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.PaymentEncoding;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of saved payments in memory-mapped segment files.
+ * <p>
+ * Records have a fixed size, so record {@code n} lives in segment {@code n / recordsPerSegment}
+ * at a computed offset and segments can be replayed independently and in parallel. Each record
+ * carries a CRC32C so a torn write at the tail is detected on replay and overwritten by the next
+ * append.
+ * <p>
+ * Segments written before creation times were journaled (version 1) are still replayed, their
+ * payments come back without a creation time. Appends that land in such a segment are written in
+ * its format, new segments always use the current one.
+ * <p>
+ * Appends are copied into the mapping under a short lock. Durability then depends on the
+ * {@link FsyncPolicy}: with {@link FsyncPolicy#PER_WRITE} the first writer to reach the flush
+ * lock forces everything appended so far and the writers queued behind it find their records
+ * already durable, so one force covers a whole group of concurrent payments.
+ */
+public class PaymentJournal implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentJournal.class);
+
+  static final int HEADER_SIZE = 64;
+  static final int RECORD_SIZE = 44;
+  // version 1 records end with the checksum right after the amount
+  static final int V1_RECORD_SIZE = 36;
+  private static final int CREATED_AT_OFFSET = 32;
+  private static final int MAGIC = 0x50474a4c;
+  private static final int VERSION = 2;
+  private static final String SEGMENT_PREFIX = "payments-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private final Path directory;
+  private final FsyncPolicy fsyncPolicy;
+  private final int recordsPerSegment;
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  // scratch record and checksum, guarded by appendLock
+  private final byte[] record = new byte[RECORD_SIZE];
+  private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+  private final CRC32C checksum = new CRC32C();
+  private final ScheduledExecutorService flusher;
+  private final AtomicLong forces = new AtomicLong();
+  // number of records appended, and how many of them are known to be on disk
+  private volatile long appended;
+  private volatile long durable;
+  private volatile boolean closed;
+
+  private PaymentJournal(Path directory, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+      int recordsPerSegment) {
+    this.directory = directory;
+    this.fsyncPolicy = fsyncPolicy;
+    this.recordsPerSegment = recordsPerSegment;
+    if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long interval = Math.max(1, fsyncInterval.toMillis());
+      flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  /**
+   * Opens the journal in the directory, creating it if needed, and positions the next append
+   * after the last intact record. Existing segments keep the record count they were created
+   * with, the segment size only applies to new journals.
+   */
+  public static PaymentJournal open(Path directory, FsyncPolicy fsyncPolicy,
+      Duration fsyncInterval, long segmentSize) {
+    try {
+      Files.createDirectories(directory);
+      List<Path> files;
+      try (Stream<Path> listing = Files.list(directory)) {
+        files = listing.filter(PaymentJournal::isSegment).sorted().toList();
+      }
+      int recordsPerSegment = files.isEmpty()
+          ? (int) Math.min((Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE,
+              (segmentSize - HEADER_SIZE) / RECORD_SIZE)
+          : readHeader(files.get(0)).getInt(12);
+      if (recordsPerSegment <= 0) {
+        throw new IllegalArgumentException("Journal segment size " + segmentSize + " is too small");
+      }
+      if ((long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE - HEADER_SIZE) {
+        throw new IllegalStateException("Journal segments in " + directory
+            + " are too large to be continued in the current format");
+      }
+      PaymentJournal journal = new PaymentJournal(directory, fsyncPolicy, fsyncInterval,
+          recordsPerSegment);
+      for (int i = 0; i < files.size(); i++) {
+        Path expected = directory.resolve(segmentName((long) i * recordsPerSegment));
+        ByteBuffer header = readHeader(files.get(i));
+        if (!files.get(i).equals(expected) || header.getInt(12) != recordsPerSegment) {
+          throw new IllegalStateException("Journal segment " + files.get(i) + " is out of sequence");
+        }
+        int recordSize = header.getInt(8);
+        journal.segments.add(new Segment(map(files.get(i), journal.segmentBytes(recordSize)),
+            recordSize));
+      }
+      journal.appended = journal.findTail();
+      journal.durable = journal.appended;
+      return journal;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open payment journal in " + directory, e);
+    }
+  }
+
+  /**
+   * Decodes every intact record, segments in parallel. The consumer must be thread-safe.
+   *
+   * @return number of payments replayed
+   */
+  public long replay(Consumer<Payment> consumer) {
+    return replay(0, consumer);
+  }
+
+  /**
+   * Same as {@link #replay(Consumer)}, skipping the records before a sequence, those already
+   * restored from a snapshot for instance.
+   *
+   * @param from sequence of the first record to replay, past the tail to replay nothing
+   */
+  public long replay(long from, Consumer<Payment> consumer) {
+    long tail = appended;
+    if (from >= tail) {
+      return 0;
+    }
+    int firstSegment = (int) (from / recordsPerSegment);
+    int segmentCount = (int) ((tail + recordsPerSegment - 1) / recordsPerSegment);
+    return IntStream.range(firstSegment, segmentCount).parallel().mapToLong(index -> {
+      Segment segment = segments.get(index);
+      long first = (long) index * recordsPerSegment;
+      int start = (int) (Math.max(from, first) - first);
+      int count = (int) Math.min(recordsPerSegment, tail - first);
+      byte[] bytes = new byte[segment.recordSize()];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      CRC32C crc = new CRC32C();
+      for (int i = start; i < count; i++) {
+        segment.buffer().get(segment.offset(i), bytes);
+        if (!isIntact(buffer, crc)) {
+          throw new IllegalStateException("Corrupt payment journal record " + (first + i));
+        }
+        consumer.accept(decode(buffer));
+      }
+      return count - start;
+    }).sum();
+  }
+
+  public void append(Payment payment) {
+    awaitDurable(write(List.of(payment)));
+  }
+
+  /**
+   * Appends the payments as one contiguous run, made durable with a single force under
+   * {@link FsyncPolicy#PER_WRITE}.
+   */
+  public void appendAll(List<Payment> payments) {
+    if (!payments.isEmpty()) {
+      awaitDurable(write(payments));
+    }
+  }
+
+  /**
+   * Appends the payments as one contiguous run without waiting for them to be durable. Nothing
+   * is appended when one of them cannot be encoded or written.
+   *
+   * @return number of records in the journal once the payments are appended
+   */
+  public long write(List<Payment> payments) {
+    for (Payment payment : payments) {
+      checkEncodable(payment);
+    }
+    appendLock.lock();
+    long start = appended;
+    try {
+      for (Payment payment : payments) {
+        writeRecord(payment);
+      }
+      return appended;
+    } catch (RuntimeException e) {
+      // records of the run already written are left torn, for the next append to overwrite
+      for (long sequence = start; sequence < appended; sequence++) {
+        Segment segment = segments.get((int) (sequence / recordsPerSegment));
+        segment.buffer().put(segment.offset((int) (sequence % recordsPerSegment)) + 16,
+            (byte) 0);
+      }
+      appended = start;
+      throw e;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the first records are on disk when every write is synced, returns at once
+   * otherwise.
+   *
+   * @param count number of records from the start of the journal
+   */
+  public void awaitDurable(long count) {
+    if (fsyncPolicy != FsyncPolicy.PER_WRITE || durable >= count) {
+      return;
+    }
+    flushLock.lock();
+    try {
+      // a force that ran while we queued for the lock may already cover these records
+      if (durable < count) {
+        forceTo(appended);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Forces every record appended so far to disk.
+   */
+  public void flush() {
+    flushLock.lock();
+    try {
+      forceTo(appended);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  public long size() {
+    return appended;
+  }
+
+  /**
+   * @return number of times the journal was forced to disk, lower than the number of appends
+   * when writes are group committed
+   */
+  public long forceCount() {
+    return forces.get();
+  }
+
+  @Override
+  public void close() {
+    appendLock.lock();
+    try {
+      closed = true;
+    } finally {
+      appendLock.unlock();
+    }
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    flush();
+  }
+
+  /**
+   * Writes the payment as the next record. Called with the append lock held.
+   */
+  private void writeRecord(Payment payment) {
+    if (closed) {
+      throw new IllegalStateException("Payment journal is closed");
+    }
+    UUID id = payment.getId();
+    long sequence = appended;
+    Segment segment = segmentFor(sequence);
+    int recordSize = segment.recordSize();
+    recordBuffer.putLong(0, id.getMostSignificantBits())
+        .putLong(8, id.getLeastSignificantBits())
+        .put(16, PaymentEncoding.encodeStatus(payment.getPaymentStatus()))
+        .putShort(17, PaymentEncoding.encodeCurrency(payment.getCurrency()))
+        .putInt(19, PaymentEncoding.encodeCard(payment.getCardNumber()))
+        .putChar(23, PaymentEncoding.encodeExpiry(payment.getExpiryMonth(), payment.getExpiryYear()))
+        .putInt(25, payment.getAmount());
+    if (recordSize == RECORD_SIZE) {
+      recordBuffer.putLong(CREATED_AT_OFFSET, PaymentEncoding.encodeCreatedAt(payment.getCreatedAt()));
+    }
+    checksum.reset();
+    checksum.update(record, 0, recordSize - 4);
+    recordBuffer.putInt(recordSize - 4, (int) checksum.getValue());
+    segment.buffer().put(segment.offset((int) (sequence % recordsPerSegment)), record, 0,
+        recordSize);
+    appended = sequence + 1;
+  }
+
+  /**
+   * Runs the encodings of a record, so that a batch is rejected before any of it is written.
+   */
+  private static void checkEncodable(Payment payment) {
+    PaymentEncoding.encodeStatus(payment.getPaymentStatus());
+    PaymentEncoding.encodeCurrency(payment.getCurrency());
+    PaymentEncoding.encodeCard(payment.getCardNumber());
+    PaymentEncoding.encodeExpiry(payment.getExpiryMonth(), payment.getExpiryYear());
+  }
+
+  /**
+   * Forces the records between the durable mark and the target. Called with the flush lock held.
+   */
+  private void forceTo(long target) {
+    long from = durable;
+    if (from >= target) {
+      return;
+    }
+    int first = (int) (from / recordsPerSegment);
+    int last = (int) ((target - 1) / recordsPerSegment);
+    for (int index = first; index <= last; index++) {
+      long segmentStart = (long) index * recordsPerSegment;
+      int start = (int) (Math.max(from, segmentStart) - segmentStart);
+      int end = (int) (Math.min(target, segmentStart + recordsPerSegment) - segmentStart);
+      Segment segment = segments.get(index);
+      segment.buffer().force(segment.offset(start), (end - start) * segment.recordSize());
+    }
+    forces.incrementAndGet();
+    durable = target;
+  }
+
+  /**
+   * Returns the segment for the sequence, creating it when the previous one is full. Called with
+   * the append lock held.
+   */
+  private Segment segmentFor(long sequence) {
+    int index = (int) (sequence / recordsPerSegment);
+    if (index < segments.size()) {
+      return segments.get(index);
+    }
+    Path path = directory.resolve(segmentName(sequence));
+    try {
+      MappedByteBuffer buffer = map(path, segmentBytes(RECORD_SIZE));
+      buffer.putInt(0, MAGIC)
+          .putInt(4, VERSION)
+          .putInt(8, RECORD_SIZE)
+          .putInt(12, recordsPerSegment)
+          .putLong(16, sequence);
+      buffer.force(0, HEADER_SIZE);
+      try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+        dir.force(true);
+      } catch (IOException e) {
+        LOG.debug("Cannot force journal directory {}", directory, e);
+      }
+      Segment segment = new Segment(buffer, RECORD_SIZE);
+      segments.add(segment);
+      return segment;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create journal segment " + path, e);
+    }
+  }
+
+  /**
+   * Finds the first record of the last segment that is missing or torn.
+   */
+  private long findTail() {
+    if (segments.isEmpty()) {
+      return 0;
+    }
+    int index = segments.size() - 1;
+    Segment segment = segments.get(index);
+    byte[] bytes = new byte[segment.recordSize()];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32C crc = new CRC32C();
+    int count = 0;
+    while (count < recordsPerSegment) {
+      segment.buffer().get(segment.offset(count), bytes);
+      if (!isIntact(buffer, crc)) {
+        break;
+      }
+      count++;
+    }
+    return (long) index * recordsPerSegment + count;
+  }
+
+  private long segmentBytes(int recordSize) {
+    return HEADER_SIZE + (long) recordsPerSegment * recordSize;
+  }
+
+  /**
+   * The buffer holds exactly one record, its size tells the version.
+   */
+  private static boolean isIntact(ByteBuffer buffer, CRC32C crc) {
+    if (buffer.get(16) == 0) {
+      return false;
+    }
+    int checksumOffset = buffer.capacity() - 4;
+    crc.reset();
+    crc.update(buffer.array(), 0, checksumOffset);
+    return (int) crc.getValue() == buffer.getInt(checksumOffset);
+  }
+
+  private static Payment decode(ByteBuffer buffer) {
+    long createdAt = buffer.capacity() == RECORD_SIZE
+        ? buffer.getLong(CREATED_AT_OFFSET) : PaymentEncoding.encodeCreatedAt(null);
+    return PaymentEncoding.decode(new UUID(buffer.getLong(0), buffer.getLong(8)), buffer.get(16),
+        buffer.getShort(17), buffer.getInt(19), buffer.getChar(23), buffer.getInt(25), createdAt);
+  }
+
+  private static MappedByteBuffer map(Path path, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  /**
+   * @return the segment header, checked to be of a known version
+   */
+  private static ByteBuffer readHeader(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // read the whole header
+      }
+      int version = header.getInt(4);
+      int recordSize = header.getInt(8);
+      if (header.getInt(0) != MAGIC || !(version == VERSION && recordSize == RECORD_SIZE
+          || version == 1 && recordSize == V1_RECORD_SIZE)) {
+        throw new IllegalStateException("Unsupported payment journal segment " + path);
+      }
+      return header;
+    }
+  }
+
+  private static boolean isSegment(Path path) {
+    String name = path.getFileName().toString();
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static String segmentName(long firstSequence) {
+    return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+  }
+
+  private record Segment(MappedByteBuffer buffer, int recordSize) {
+
+    int offset(int record) {
+      return HEADER_SIZE + record * recordSize;
+    }
+  }
+}
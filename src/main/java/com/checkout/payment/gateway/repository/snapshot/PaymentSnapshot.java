@@ -0,0 +1,481 @@
+package com.checkout.payment.gateway.repository.snapshot;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.PaymentEncoding;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compressed, columnar image of the payments of a store, loaded on startup in parallel chunks
+ * rather than payment by payment.
+ * <p>
+ * Payments are written in chunks of up to {@value #CHUNK_SIZE}, encoded a column at a time: ids
+ * as two raw longs, amounts as zig-zag varints, and statuses and currencies as codes into
+ * dictionaries kept in the file. Codes, masked cards and expiries in their {@link PaymentEncoding}
+ * form, and creation times are bit-packed as offsets from the smallest value of the chunk, to the
+ * width its largest offset needs. A footer holds the dictionaries and the offset, length and
+ * CRC32C of every chunk, so that chunks are mapped and decoded independently of each other.
+ * <p>
+ * Payments are kept in the order the store hands them over rather than sorted, which costs a
+ * little on creation times: the compact store scans its tables slot by slot, and loading them
+ * back in that order into a store of the same layout fills its tables front to back instead of
+ * missing the cache on every insert.
+ * <p>
+ * The image is read with {@link PaymentStore#forEach}, which never holds up writers: it has every
+ * payment stored before the snapshot started, and possibly some stored while it was written.
+ * The journal position taken before the scan is kept with it, replaying the journal from there
+ * onto the snapshot brings back exactly the journaled payments, those already in the snapshot
+ * being ignored by {@link PaymentStore#putIfAbsent}.
+ * <p>
+ * A snapshot is written to a temporary file and moved in place once forced to disk, then the
+ * snapshots it replaces are deleted, so the directory always holds a complete snapshot.
+ */
+public final class PaymentSnapshot {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentSnapshot.class);
+
+  static final int CHUNK_SIZE = 1 << 16;
+  static final int HEADER_SIZE = 64;
+  private static final int MAGIC = 0x50475350;
+  private static final int VERSION = 1;
+  // id, longest amount varint and the five packed columns at full width
+  private static final int MAX_RECORD_BYTES = 16 + 5 + 5 * Long.BYTES;
+  // base varint and width of a packed column
+  private static final int MAX_COLUMN_HEADER_BYTES = 10 + 1;
+  private static final int PACKED_COLUMNS = 5;
+  // creation time offset of payments without one
+  private static final long NO_CREATION_TIME = 0;
+  private static final String PREFIX = "payments-";
+  private static final String SUFFIX = ".snapshot";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  // offset, length, count and checksum
+  private static final int CHUNK_ENTRY_BYTES = 8 + 4 + 4 + 4;
+
+  private PaymentSnapshot() {
+  }
+
+  /**
+   * What a snapshot brought back.
+   *
+   * @param journalPosition journal sequence to resume replaying from
+   */
+  public record Loaded(Path file, long payments, long journalPosition) {
+
+  }
+
+  /**
+   * Writes a snapshot of the store and deletes the ones it replaces.
+   *
+   * @param journalPosition journal records whose payments are all in the store when the scan
+   *                        starts, 0 without a journal
+   * @param clock           current time in epoch milliseconds, which names the snapshot
+   * @return the snapshot file
+   */
+  public static Path write(Path directory, PaymentStore store, long journalPosition,
+      LongSupplier clock) {
+    long takenAt = clock.getAsLong();
+    Path file = directory.resolve(String.format("%s%020d%s", PREFIX, takenAt, SUFFIX));
+    Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+    try {
+      Files.createDirectories(directory);
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        Writer writer = new Writer(channel);
+        try {
+          store.forEach(writer::add);
+        } catch (UncheckedIOException e) {
+          throw e.getCause();
+        }
+        writer.finish(journalPosition, takenAt);
+        channel.force(true);
+      }
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      forceDirectory(directory);
+      for (Path previous : list(directory)) {
+        if (!previous.equals(file)) {
+          Files.deleteIfExists(previous);
+        }
+      }
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write payment snapshot " + file, e);
+    } finally {
+      // left behind only when the snapshot failed, whatever failed it
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException e) {
+        LOG.warn("Cannot delete unfinished payment snapshot {}", temporary, e);
+      }
+    }
+  }
+
+  /**
+   * Loads the most recent snapshot of the directory into the store, chunks in parallel. The
+   * store must be thread-safe.
+   *
+   * @return what was loaded, empty when there is no snapshot
+   */
+  public static Optional<Loaded> loadLatest(Path directory, PaymentStore store) {
+    if (!Files.isDirectory(directory)) {
+      return Optional.empty();
+    }
+    try {
+      List<Path> snapshots = list(directory);
+      if (snapshots.isEmpty()) {
+        return Optional.empty();
+      }
+      return Optional.of(load(snapshots.get(snapshots.size() - 1), store));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot list payment snapshots in " + directory, e);
+    }
+  }
+
+  static Loaded load(Path file, PaymentStore store) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = read(channel, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IllegalStateException("Unsupported payment snapshot " + file);
+      }
+      long payments = header.getLong(8);
+      long journalPosition = header.getLong(16);
+      ByteBuffer footer = read(channel, header.getLong(32), header.getInt(40));
+      CRC32C crc = new CRC32C();
+      crc.update(footer.duplicate());
+      if ((int) crc.getValue() != header.getInt(44)) {
+        throw new IllegalStateException("Corrupt payment snapshot footer in " + file);
+      }
+      byte[] statuses = new byte[footer.getShort()];
+      for (int i = 0; i < statuses.length; i++) {
+        statuses[i] = PaymentEncoding.encodeStatus(readString(footer));
+      }
+      short[] currencies = new short[footer.getShort()];
+      for (int i = 0; i < currencies.length; i++) {
+        currencies[i] = PaymentEncoding.encodeCurrency(readString(footer));
+      }
+      int chunks = footer.getInt();
+      long[] offsets = new long[chunks];
+      int[] lengths = new int[chunks];
+      int[] counts = new int[chunks];
+      int[] checksums = new int[chunks];
+      for (int i = 0; i < chunks; i++) {
+        offsets[i] = footer.getLong();
+        lengths[i] = footer.getInt();
+        counts[i] = footer.getInt();
+        checksums[i] = footer.getInt();
+      }
+
+      store.ensureCapacity((int) Math.min(Integer.MAX_VALUE, store.size() + payments));
+      long loaded = IntStream.range(0, chunks).parallel().mapToLong(i -> {
+        try {
+          MappedByteBuffer chunk = channel.map(MapMode.READ_ONLY, offsets[i], lengths[i]);
+          CRC32C chunkCrc = new CRC32C();
+          chunkCrc.update(chunk.duplicate());
+          if ((int) chunkCrc.getValue() != checksums[i]) {
+            throw new IllegalStateException("Corrupt payment snapshot chunk " + i + " in " + file);
+          }
+          return decodeChunk(chunk, counts[i], statuses, currencies, store);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Cannot read payment snapshot " + file, e);
+        }
+      }).sum();
+      if (loaded != payments) {
+        throw new IllegalStateException("Payment snapshot " + file + " holds " + loaded
+            + " payments instead of " + payments);
+      }
+      return new Loaded(file, payments, journalPosition);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read payment snapshot " + file, e);
+    }
+  }
+
+  private static int decodeChunk(ByteBuffer chunk, int count, byte[] statusCodes,
+      short[] currencyCodes, PaymentStore store) {
+    long[] mostSignificantBits = new long[count];
+    long[] leastSignificantBits = new long[count];
+    chunk.asLongBuffer().get(mostSignificantBits);
+    chunk.position(chunk.position() + count * Long.BYTES);
+    chunk.asLongBuffer().get(leastSignificantBits);
+    chunk.position(chunk.position() + count * Long.BYTES);
+    int[] amounts = new int[count];
+    for (int i = 0; i < count; i++) {
+      amounts[i] = (int) Varints.readSigned(chunk);
+    }
+    long[] statuses = unpack(chunk, count);
+    long[] currencies = unpack(chunk, count);
+    long[] cards = unpack(chunk, count);
+    long[] expiries = unpack(chunk, count);
+    long createdAtBase = Varints.readSigned(chunk);
+    long[] createdAt = unpack(chunk, count);
+    for (int i = 0; i < count; i++) {
+      store.putIfAbsent(PaymentEncoding.decode(
+          new UUID(mostSignificantBits[i], leastSignificantBits[i]),
+          statusCodes[(int) statuses[i]], currencyCodes[(int) currencies[i]], (int) cards[i],
+          (char) expiries[i], amounts[i], createdAt[i] == NO_CREATION_TIME
+              ? PaymentEncoding.encodeCreatedAt(null) : createdAtBase + createdAt[i]));
+    }
+    return count;
+  }
+
+  /**
+   * Encodes payments a chunk at a time as the store is scanned.
+   */
+  private static final class Writer {
+
+    private final FileChannel channel;
+    private final Payment[] pending = new Payment[CHUNK_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.allocate(
+        CHUNK_SIZE * MAX_RECORD_BYTES + (PACKED_COLUMNS + 1) * MAX_COLUMN_HEADER_BYTES);
+    private final Map<String, Integer> statuses = new LinkedHashMap<>();
+    private final Map<String, Integer> currencies = new LinkedHashMap<>();
+    private final List<long[]> chunks = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+    private final long[] column = new long[CHUNK_SIZE];
+    private int count;
+    private long payments;
+    private long position = HEADER_SIZE;
+
+    Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void add(Payment payment) {
+      pending[count++] = payment;
+      if (count == CHUNK_SIZE) {
+        flushChunk();
+      }
+    }
+
+    void finish(long journalPosition, long takenAt) throws IOException {
+      flushChunk();
+      // dictionary entries are a length byte and up to 255 bytes
+      ByteBuffer footer = ByteBuffer.allocate(2 + 2 + (statuses.size() + currencies.size()) * 256
+          + 4 + chunks.size() * CHUNK_ENTRY_BYTES);
+      footer.putShort((short) statuses.size());
+      statuses.keySet().forEach(status -> writeString(footer, status));
+      footer.putShort((short) currencies.size());
+      currencies.keySet().forEach(currency -> writeString(footer, currency));
+      footer.putInt(chunks.size());
+      for (long[] chunk : chunks) {
+        footer.putLong(chunk[0]).putInt((int) chunk[1]).putInt((int) chunk[2])
+            .putInt((int) chunk[3]);
+      }
+      footer.flip();
+      crc.reset();
+      crc.update(footer.duplicate());
+      int footerLength = footer.remaining();
+      writeFully(footer, position);
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(0, MAGIC)
+          .putInt(4, VERSION)
+          .putLong(8, payments)
+          .putLong(16, journalPosition)
+          .putLong(24, takenAt)
+          .putLong(32, position)
+          .putInt(40, footerLength)
+          .putInt(44, (int) crc.getValue());
+      writeFully(header, 0);
+    }
+
+    private void flushChunk() {
+      if (count == 0) {
+        return;
+      }
+      buffer.clear();
+      for (int i = 0; i < count; i++) {
+        buffer.putLong(pending[i].getId().getMostSignificantBits());
+      }
+      for (int i = 0; i < count; i++) {
+        buffer.putLong(pending[i].getId().getLeastSignificantBits());
+      }
+      for (int i = 0; i < count; i++) {
+        Varints.writeSigned(buffer, pending[i].getAmount());
+      }
+      for (int i = 0; i < count; i++) {
+        column[i] = code(statuses, pending[i].getPaymentStatus());
+      }
+      pack(buffer, column, count);
+      for (int i = 0; i < count; i++) {
+        column[i] = code(currencies, pending[i].getCurrency());
+      }
+      pack(buffer, column, count);
+      for (int i = 0; i < count; i++) {
+        column[i] = PaymentEncoding.encodeCard(pending[i].getCardNumber());
+      }
+      pack(buffer, column, count);
+      for (int i = 0; i < count; i++) {
+        column[i] = PaymentEncoding.encodeExpiry(pending[i].getExpiryMonth(),
+            pending[i].getExpiryYear());
+      }
+      pack(buffer, column, count);
+      // offsets start at 1 from just below the earliest creation time, 0 is kept for none
+      long createdAtBase = Long.MAX_VALUE;
+      for (int i = 0; i < count; i++) {
+        if (pending[i].getCreatedAt() != null) {
+          createdAtBase = Math.min(createdAtBase, pending[i].getCreatedAt().toEpochMilli() - 1);
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        column[i] = pending[i].getCreatedAt() == null ? NO_CREATION_TIME
+            : pending[i].getCreatedAt().toEpochMilli() - createdAtBase;
+      }
+      Varints.writeSigned(buffer, createdAtBase);
+      pack(buffer, column, count);
+      buffer.flip();
+      crc.reset();
+      crc.update(buffer.duplicate());
+      int length = buffer.remaining();
+      try {
+        writeFully(buffer, position);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      chunks.add(new long[] {position, length, count, (int) crc.getValue()});
+      position += length;
+      payments += count;
+      Arrays.fill(pending, 0, count, null);
+      count = 0;
+    }
+
+    private void writeFully(ByteBuffer source, long at) throws IOException {
+      while (source.hasRemaining()) {
+        at += channel.write(source, at);
+      }
+    }
+
+    private static int code(Map<String, Integer> dictionary, String value) {
+      Integer code = dictionary.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.put(value, code);
+      }
+      return code;
+    }
+  }
+
+  /**
+   * Writes the values as offsets from the smallest of them, each in as many bits as the largest
+   * offset needs, least significant bits first.
+   */
+  static void pack(ByteBuffer buffer, long[] values, int count) {
+    long base = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      base = Math.min(base, values[i]);
+      max = Math.max(max, values[i]);
+    }
+    int bits = Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(max - base));
+    Varints.writeSigned(buffer, base);
+    buffer.put((byte) bits);
+    int pending = 0;
+    int pendingBits = 0;
+    for (int i = 0; i < count; i++) {
+      long value = values[i] - base;
+      for (int remaining = bits; remaining > 0; ) {
+        int taken = Math.min(remaining, Byte.SIZE - pendingBits);
+        pending |= (int) (value & ((1 << taken) - 1)) << pendingBits;
+        value >>>= taken;
+        remaining -= taken;
+        pendingBits += taken;
+        if (pendingBits == Byte.SIZE) {
+          buffer.put((byte) pending);
+          pending = 0;
+          pendingBits = 0;
+        }
+      }
+    }
+    if (pendingBits > 0) {
+      buffer.put((byte) pending);
+    }
+  }
+
+  static long[] unpack(ByteBuffer buffer, int count) {
+    long base = Varints.readSigned(buffer);
+    int bits = buffer.get();
+    long[] values = new long[count];
+    int pending = 0;
+    int pendingBits = 0;
+    for (int i = 0; i < count; i++) {
+      long value = 0;
+      for (int filled = 0; filled < bits; ) {
+        if (pendingBits == 0) {
+          pending = buffer.get() & 0xFF;
+          pendingBits = Byte.SIZE;
+        }
+        int taken = Math.min(bits - filled, pendingBits);
+        value |= (long) (pending & ((1 << taken) - 1)) << filled;
+        pending >>>= taken;
+        pendingBits -= taken;
+        filled += taken;
+      }
+      values[i] = base + value;
+    }
+    return values;
+  }
+
+  private static void writeString(ByteBuffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.put((byte) bytes.length).put(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.get() & 0xFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IllegalStateException("Truncated payment snapshot");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * @return the snapshots of the directory, oldest first
+   */
+  private static List<Path> list(Path directory) throws IOException {
+    try (Stream<Path> listing = Files.list(directory)) {
+      return listing.filter(path -> {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+      }).sorted().toList();
+    }
+  }
+
+  private static void forceDirectory(Path directory) {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException e) {
+      LOG.debug("Cannot force snapshot directory {}", directory, e);
+    }
+  }
+}
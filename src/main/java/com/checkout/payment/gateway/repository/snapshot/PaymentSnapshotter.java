@@ -0,0 +1,90 @@
+package com.checkout.payment.gateway.repository.snapshot;
+
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a {@link PaymentSnapshot} of the store at a fixed interval from a background thread,
+ * skipping intervals in which nothing was saved, and a last one on close.
+ */
+public class PaymentSnapshotter implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentSnapshotter.class);
+
+  private final Path directory;
+  private final PaymentStore store;
+  private final LongSupplier journalPosition;
+  private final LongSupplier clock;
+  private final ScheduledExecutorService scheduler;
+  private long snapshotSize = -1;
+  private long snapshotPosition = -1;
+
+  /**
+   * @param journalPosition journal records whose payments are all in the store, 0 without a
+   *                        journal
+   * @param clock           current time in epoch milliseconds
+   */
+  public PaymentSnapshotter(Path directory, PaymentStore store, LongSupplier journalPosition,
+      Duration interval, LongSupplier clock) {
+    this.directory = directory;
+    this.store = store;
+    this.journalPosition = journalPosition;
+    this.clock = clock;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "payment-snapshotter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long millis = Math.max(1, interval.toMillis());
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        snapshot();
+      } catch (RuntimeException e) {
+        LOG.error("Cannot snapshot payments to {}", directory, e);
+      }
+    }, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Writes a snapshot unless the store and journal are as they were at the last one.
+   *
+   * @return whether a snapshot was written
+   */
+  public synchronized boolean snapshot() {
+    // taken before the scan, every payment journaled up to here is in the store
+    long position = journalPosition.getAsLong();
+    long size = store.size();
+    if (position == snapshotPosition && size == snapshotSize) {
+      return false;
+    }
+    long start = System.nanoTime();
+    Path file = PaymentSnapshot.write(directory, store, position, clock);
+    snapshotPosition = position;
+    snapshotSize = size;
+    LOG.info("Snapshotted about {} payments to {} in {} ms", size, file,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return true;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    try {
+      if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("Payment snapshot still running on close");
+        return;
+      }
+      snapshot();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.repository.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length integers, seven bits a byte with the high bit set on all bytes but the last.
+ * Signed values are zig-zag encoded first so that small negative values stay short.
+ */
+final class Varints {
+
+  private Varints() {
+  }
+
+  static void write(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) (value | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  static void writeSigned(ByteBuffer buffer, long value) {
+    write(buffer, (value << 1) ^ (value >> 63));
+  }
+
+  static long read(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  static long readSigned(ByteBuffer buffer) {
+    long value = read(buffer);
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
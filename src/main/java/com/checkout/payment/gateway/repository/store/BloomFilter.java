@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.repository.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Blocked bloom filter over payment id hashes: every id sets {@value #HASHES} bits within a
+ * single 512 bit block, so that a lookup misses the cache once rather than once per bit. With
+ * {@value #BITS_PER_ENTRY} bits per id about one lookup in a thousand of an absent id is a false
+ * positive. Ids may be added concurrently, bits are set atomically.
+ */
+final class BloomFilter {
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private static final int BITS_PER_ENTRY = 16;
+  private static final int HASHES = 8;
+  private static final int BLOCK_BITS = 512;
+  private static final int WORDS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+
+  private final long[] words;
+  private final int blocks;
+
+  BloomFilter(int entries) {
+    long bits = (long) entries * BITS_PER_ENTRY;
+    this.blocks = (int) Math.max(1, (bits + BLOCK_BITS - 1) / BLOCK_BITS);
+    this.words = new long[blocks * WORDS_PER_BLOCK];
+  }
+
+  /**
+   * @param hash {@link StoreSupport#hash} of the id
+   */
+  void add(long hash) {
+    int block = block(hash) * WORDS_PER_BLOCK;
+    long bits = StoreSupport.mix(hash);
+    int bit = (int) bits;
+    int step = (int) (bits >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++, bit += step) {
+      WORDS.getAndBitwiseOr(words, block + ((bit & (BLOCK_BITS - 1)) >>> 6), 1L << bit);
+    }
+  }
+
+  boolean mightContain(long hash) {
+    int block = block(hash) * WORDS_PER_BLOCK;
+    long bits = StoreSupport.mix(hash);
+    int bit = (int) bits;
+    int step = (int) (bits >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++, bit += step) {
+      long word = (long) WORDS.getAcquire(words, block + ((bit & (BLOCK_BITS - 1)) >>> 6));
+      if ((word & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int block(long hash) {
+    return (int) (((hash >>> 32) * blocks) >>> 32);
+  }
+}
@@ -0,0 +1,315 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Immutable file of payments sorted by id, in blocks of a page of fixed-size records so that
+ * finding a payment reads a single block.
+ * <p>
+ * Records are the {@link PaymentEncoding} form of a payment behind its id. The first id of every
+ * block is kept in memory as a sparse index, along with a {@link BloomFilter} of the ids, so
+ * that a lookup of an id the segment does not hold seldom touches the disk. The file is mapped
+ * read-only: a mapping stays valid once the segment is merged away and its file deleted, so
+ * readers that still hold it need no coordination.
+ */
+final class ColdSegment {
+
+  static final int RECORD_SIZE = 37;
+  static final int BLOCK_SIZE = 4096;
+  static final int RECORDS_PER_BLOCK = BLOCK_SIZE / RECORD_SIZE;
+  // mappings are limited to 2 GiB
+  private static final int BLOCKS_PER_REGION = 1 << 18;
+  private static final int BLOCKS_PER_WRITE = 64;
+
+  private final Path file;
+  private final int level;
+  private final int count;
+  private final MappedByteBuffer[] regions;
+  private final long[] firstMostSignificantBits;
+  private final long[] firstLeastSignificantBits;
+  private final BloomFilter bloom;
+
+  private ColdSegment(Path file, int level, int count, MappedByteBuffer[] regions,
+      long[] firstMostSignificantBits, long[] firstLeastSignificantBits, BloomFilter bloom) {
+    this.file = file;
+    this.level = level;
+    this.count = count;
+    this.regions = regions;
+    this.firstMostSignificantBits = firstMostSignificantBits;
+    this.firstLeastSignificantBits = firstLeastSignificantBits;
+    this.bloom = bloom;
+  }
+
+  /**
+   * Writes the payments of a store, which must not change meanwhile, as a segment of level 0.
+   */
+  static ColdSegment write(Path file, PaymentStore payments) {
+    Payment[] sorted = new Payment[payments.size()];
+    int[] size = new int[1];
+    payments.forEach(payment -> sorted[size[0]++] = payment);
+    Arrays.sort(sorted, 0, size[0], Comparator.comparing(Payment::getId));
+    Writer writer = new Writer(file, 0, size[0]);
+    try {
+      for (int i = 0; i < size[0]; i++) {
+        writer.add(sorted[i]);
+      }
+      return writer.finish();
+    } catch (RuntimeException e) {
+      writer.abandon(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Merges segments, which hold distinct ids, into one of the given level.
+   */
+  static ColdSegment merge(Path file, int level, List<ColdSegment> segments) {
+    int total = 0;
+    for (ColdSegment segment : segments) {
+      total = Math.addExact(total, segment.count);
+    }
+    Writer writer = new Writer(file, level, total);
+    try {
+      int[] next = new int[segments.size()];
+      for (int written = 0; written < total; written++) {
+        int smallest = -1;
+        for (int s = 0; s < next.length; s++) {
+          if (next[s] < segments.get(s).count && (smallest < 0
+              || segments.get(s).compareAt(next[s], segments.get(smallest), next[smallest]) < 0)) {
+            smallest = s;
+          }
+        }
+        ColdSegment segment = segments.get(smallest);
+        writer.add(segment.region(next[smallest]), offset(next[smallest]));
+        next[smallest]++;
+      }
+      return writer.finish();
+    } catch (RuntimeException e) {
+      writer.abandon(e);
+      throw e;
+    }
+  }
+
+  int level() {
+    return level;
+  }
+
+  int size() {
+    return count;
+  }
+
+  boolean mightContain(long hash) {
+    return bloom.mightContain(hash);
+  }
+
+  /**
+   * Reads the block the id would be in, call only when {@link #mightContain} the id.
+   */
+  Payment read(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+    int low = 0;
+    int high = firstMostSignificantBits.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (compare(firstMostSignificantBits[mid], firstLeastSignificantBits[mid], msb, lsb) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int block = high;
+    if (block < 0) {
+      return null;
+    }
+    low = block * RECORDS_PER_BLOCK;
+    high = Math.min(count, low + RECORDS_PER_BLOCK) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      ByteBuffer region = region(mid);
+      int offset = offset(mid);
+      int cmp = compare(region.getLong(offset), region.getLong(offset + 8), msb, lsb);
+      if (cmp == 0) {
+        return decode(region, offset);
+      } else if (cmp < 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return null;
+  }
+
+  void forEach(Consumer<Payment> action) {
+    for (int i = 0; i < count; i++) {
+      action.accept(decode(region(i), offset(i)));
+    }
+  }
+
+  void delete() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // mapped files cannot be deleted on every platform, the directory is cleared on close
+    }
+  }
+
+  private int compareAt(int record, ColdSegment other, int otherRecord) {
+    ByteBuffer region = region(record);
+    int offset = offset(record);
+    ByteBuffer otherRegion = other.region(otherRecord);
+    int otherOffset = offset(otherRecord);
+    return compare(region.getLong(offset), region.getLong(offset + 8),
+        otherRegion.getLong(otherOffset), otherRegion.getLong(otherOffset + 8));
+  }
+
+  private ByteBuffer region(int record) {
+    return regions[record / RECORDS_PER_BLOCK / BLOCKS_PER_REGION];
+  }
+
+  private static int offset(int record) {
+    int block = record / RECORDS_PER_BLOCK;
+    return (block % BLOCKS_PER_REGION) * BLOCK_SIZE + (record % RECORDS_PER_BLOCK) * RECORD_SIZE;
+  }
+
+  private static Payment decode(ByteBuffer region, int offset) {
+    return PaymentEncoding.decode(new UUID(region.getLong(offset), region.getLong(offset + 8)),
+        region.get(offset + 16), region.getShort(offset + 17), region.getInt(offset + 19),
+        region.getChar(offset + 23), region.getInt(offset + 25), region.getLong(offset + 29));
+  }
+
+  /**
+   * Orders ids as {@link UUID#compareTo} does.
+   */
+  private static int compare(long msb, long lsb, long otherMsb, long otherLsb) {
+    int cmp = Long.compare(msb, otherMsb);
+    return cmp != 0 ? cmp : Long.compare(lsb, otherLsb);
+  }
+
+  /**
+   * Writes records in id order {@value #BLOCKS_PER_WRITE} blocks at a time, then maps the file.
+   */
+  private static final class Writer {
+
+    private final Path file;
+    private final int level;
+    private final FileChannel channel;
+    private final ByteBuffer blocks = ByteBuffer.allocateDirect(BLOCKS_PER_WRITE * BLOCK_SIZE);
+    private final long[] firstMostSignificantBits;
+    private final long[] firstLeastSignificantBits;
+    private final BloomFilter bloom;
+    private int count;
+
+    Writer(Path file, int level, int expected) {
+      this.file = file;
+      this.level = level;
+      int blocks = (expected + RECORDS_PER_BLOCK - 1) / RECORDS_PER_BLOCK;
+      this.firstMostSignificantBits = new long[blocks];
+      this.firstLeastSignificantBits = new long[blocks];
+      this.bloom = new BloomFilter(expected);
+      try {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot create cold segment " + file, e);
+      }
+    }
+
+    void add(Payment payment) {
+      int offset = next(payment.getId().getMostSignificantBits(),
+          payment.getId().getLeastSignificantBits());
+      blocks.putLong(offset, payment.getId().getMostSignificantBits())
+          .putLong(offset + 8, payment.getId().getLeastSignificantBits())
+          .put(offset + 16, PaymentEncoding.encodeStatus(payment.getPaymentStatus()))
+          .putShort(offset + 17, PaymentEncoding.encodeCurrency(payment.getCurrency()))
+          .putInt(offset + 19, PaymentEncoding.encodeCard(payment.getCardNumber()))
+          .putChar(offset + 23, PaymentEncoding.encodeExpiry(payment.getExpiryMonth(),
+              payment.getExpiryYear()))
+          .putInt(offset + 25, payment.getAmount())
+          .putLong(offset + 29, PaymentEncoding.encodeCreatedAt(payment.getCreatedAt()));
+    }
+
+    void add(ByteBuffer source, int sourceOffset) {
+      int offset = next(source.getLong(sourceOffset), source.getLong(sourceOffset + 8));
+      blocks.put(offset, source, sourceOffset, RECORD_SIZE);
+    }
+
+    ColdSegment finish() {
+      try {
+        if (count > 0) {
+          flush(((count - 1) / RECORDS_PER_BLOCK) % BLOCKS_PER_WRITE + 1);
+        }
+        long length = channel.size();
+        MappedByteBuffer[] regions =
+            new MappedByteBuffer[(int) ((length / BLOCK_SIZE + BLOCKS_PER_REGION - 1)
+                / BLOCKS_PER_REGION)];
+        for (int i = 0; i < regions.length; i++) {
+          long position = (long) i * BLOCKS_PER_REGION * BLOCK_SIZE;
+          regions[i] = channel.map(MapMode.READ_ONLY, position,
+              Math.min(length - position, (long) BLOCKS_PER_REGION * BLOCK_SIZE));
+        }
+        channel.close();
+        return new ColdSegment(file, level, count, regions, firstMostSignificantBits,
+            firstLeastSignificantBits, bloom);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot write cold segment " + file, e);
+      }
+    }
+
+    /**
+     * Closes and deletes the file of a segment that failed, so that it takes no disk space.
+     */
+    void abandon(RuntimeException failure) {
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        failure.addSuppressed(e);
+      }
+    }
+
+    /**
+     * @return offset in the buffer of the next record, writing the buffer out first when full
+     */
+    private int next(long msb, long lsb) {
+      int slot = count % RECORDS_PER_BLOCK;
+      int block = count / RECORDS_PER_BLOCK;
+      if (slot == 0) {
+        if (count > 0 && block % BLOCKS_PER_WRITE == 0) {
+          flush(BLOCKS_PER_WRITE);
+        }
+        firstMostSignificantBits[block] = msb;
+        firstLeastSignificantBits[block] = lsb;
+      }
+      bloom.add(StoreSupport.mix(msb ^ lsb));
+      count++;
+      return (block % BLOCKS_PER_WRITE) * BLOCK_SIZE + slot * RECORD_SIZE;
+    }
+
+    private void flush(int used) {
+      try {
+        // blocks are written whole so that every block starts on a page
+        blocks.clear().limit(used * BLOCK_SIZE);
+        while (blocks.hasRemaining()) {
+          channel.write(blocks);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot write cold segment " + file, e);
+      }
+    }
+  }
+}
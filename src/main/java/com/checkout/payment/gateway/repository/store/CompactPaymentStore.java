@@ -0,0 +1,310 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Payment store that keeps records in parallel primitive arrays instead of object graphs.
+ * <p>
+ * A record takes 37 bytes before table slack: the id as two longs and the remaining fields in the
+ * {@link PaymentEncoding} form. The {@link Payment} is rebuilt on lookup, so only payments that
+ * are actually read are allocated.
+ * <p>
+ * Each segment is an open-addressing table guarded by a {@link StampedLock}: lookups read under an
+ * optimistic stamp and only take the read lock if a write raced with them.
+ * <p>
+ * Currencies are stored as their ISO index and therefore read back in upper case.
+ */
+public class CompactPaymentStore implements PaymentStore {
+
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  public CompactPaymentStore() {
+    this(Runtime.getRuntime().availableProcessors() * 4);
+  }
+
+  /**
+   * @param concurrencyLevel expected number of concurrent writers, rounded up to a power of two
+   *                         (at least 16) to give the number of segments
+   */
+  public CompactPaymentStore(int concurrencyLevel) {
+    int segmentBits = StoreSupport.segmentBits(concurrencyLevel);
+    this.segmentShift = 64 - segmentBits;
+    this.segments = new Segment[1 << segmentBits];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  @Override
+  public Payment get(UUID id) {
+    long hash = StoreSupport.hash(id);
+    return segmentFor(hash).get(id, hash);
+  }
+
+  @Override
+  public Payment putIfAbsent(Payment payment) {
+    UUID id = payment.getId();
+    if (id == null) {
+      throw new IllegalArgumentException("Payment id must not be null");
+    }
+    long hash = StoreSupport.hash(id);
+    return segmentFor(hash).putIfAbsent(id, hash,
+        PaymentEncoding.encodeStatus(payment.getPaymentStatus()),
+        PaymentEncoding.encodeCurrency(payment.getCurrency()),
+        PaymentEncoding.encodeCard(payment.getCardNumber()),
+        PaymentEncoding.encodeExpiry(payment.getExpiryMonth(), payment.getExpiryYear()),
+        payment.getAmount(), PaymentEncoding.encodeCreatedAt(payment.getCreatedAt()));
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  @Override
+  public void ensureCapacity(int payments) {
+    int capacity = StoreSupport.segmentCapacity(payments, segments.length,
+        INITIAL_SEGMENT_CAPACITY);
+    for (Segment segment : segments) {
+      segment.ensureCapacity(capacity);
+    }
+  }
+
+  @Override
+  public void forEach(Consumer<Payment> action) {
+    for (Segment segment : segments) {
+      segment.forEach(action);
+    }
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> segmentShift)];
+  }
+
+  /**
+   * One generation of a segment's columns. Array references never change, a resize publishes a
+   * new table.
+   */
+  private static final class Table {
+
+    final long[] mostSignificantBits;
+    final long[] leastSignificantBits;
+    final byte[] status;
+    final short[] currency;
+    final int[] card;
+    final char[] expiry;
+    final int[] amount;
+    final long[] createdAt;
+    final int threshold;
+
+    Table(int capacity) {
+      mostSignificantBits = new long[capacity];
+      leastSignificantBits = new long[capacity];
+      status = new byte[capacity];
+      currency = new short[capacity];
+      card = new int[capacity];
+      expiry = new char[capacity];
+      amount = new int[capacity];
+      createdAt = new long[capacity];
+      threshold = capacity - (capacity >>> 2);
+    }
+
+    /**
+     * @return the slot holding the id, or the bitwise complement of the free slot where it
+     * belongs
+     */
+    int find(long msb, long lsb, long hash) {
+      int mask = status.length - 1;
+      for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+        if (status[i] == 0) {
+          return ~i;
+        }
+        if (mostSignificantBits[i] == msb && leastSignificantBits[i] == lsb) {
+          return i;
+        }
+      }
+    }
+
+    void set(int slot, long msb, long lsb, byte status, short currency, int card, char expiry,
+        int amount, long createdAt) {
+      mostSignificantBits[slot] = msb;
+      leastSignificantBits[slot] = lsb;
+      this.currency[slot] = currency;
+      this.card[slot] = card;
+      this.expiry[slot] = expiry;
+      this.amount[slot] = amount;
+      this.createdAt[slot] = createdAt;
+      this.status[slot] = status;
+    }
+
+    Payment decode(int slot, UUID id) {
+      return PaymentEncoding.decode(id, status[slot], currency[slot], card[slot],
+          expiry[slot], amount[slot], createdAt[slot]);
+    }
+  }
+
+  /**
+   * Slots of a table copied out for a scan.
+   */
+  private static final class Block {
+
+    static final int SLOTS = 256;
+
+    final long[] mostSignificantBits = new long[SLOTS];
+    final long[] leastSignificantBits = new long[SLOTS];
+    final byte[] status = new byte[SLOTS];
+    final short[] currency = new short[SLOTS];
+    final int[] card = new int[SLOTS];
+    final char[] expiry = new char[SLOTS];
+    final int[] amount = new int[SLOTS];
+    final long[] createdAt = new long[SLOTS];
+
+    void copy(Table t, int from, int length) {
+      System.arraycopy(t.mostSignificantBits, from, mostSignificantBits, 0, length);
+      System.arraycopy(t.leastSignificantBits, from, leastSignificantBits, 0, length);
+      System.arraycopy(t.status, from, status, 0, length);
+      System.arraycopy(t.currency, from, currency, 0, length);
+      System.arraycopy(t.card, from, card, 0, length);
+      System.arraycopy(t.expiry, from, expiry, 0, length);
+      System.arraycopy(t.amount, from, amount, 0, length);
+      System.arraycopy(t.createdAt, from, createdAt, 0, length);
+    }
+  }
+
+  private static final class Segment {
+
+    private final StampedLock lock = new StampedLock();
+    // guarded by lock, optimistic readers validate their stamp before trusting what they read
+    private Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+    private volatile int size;
+
+    Payment get(UUID id, long hash) {
+      long msb = id.getMostSignificantBits();
+      long lsb = id.getLeastSignificantBits();
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        Table t = table;
+        int slot = t.find(msb, lsb, hash);
+        if (slot < 0) {
+          if (lock.validate(stamp)) {
+            return null;
+          }
+        } else {
+          byte status = t.status[slot];
+          short currency = t.currency[slot];
+          int card = t.card[slot];
+          char expiry = t.expiry[slot];
+          int amount = t.amount[slot];
+          long createdAt = t.createdAt[slot];
+          if (lock.validate(stamp)) {
+            return PaymentEncoding.decode(id, status, currency, card, expiry, amount, createdAt);
+          }
+        }
+      }
+      stamp = lock.readLock();
+      try {
+        Table t = table;
+        int slot = t.find(msb, lsb, hash);
+        return slot < 0 ? null : t.decode(slot, id);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Visits the payments of the table current when the scan starts, copying its slots a block
+     * at a time under an optimistic stamp so that writers are never held up by the scan. A
+     * block is copied again under the read lock only if a write raced with the copy, and
+     * payments are decoded and passed on once it is released.
+     */
+    void forEach(Consumer<Payment> action) {
+      Table t;
+      long stamp = lock.readLock();
+      try {
+        t = table;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+      Block block = new Block();
+      for (int from = 0; from < t.status.length; from += Block.SLOTS) {
+        int length = Math.min(Block.SLOTS, t.status.length - from);
+        stamp = lock.tryOptimisticRead();
+        block.copy(t, from, length);
+        if (!lock.validate(stamp)) {
+          stamp = lock.readLock();
+          try {
+            block.copy(t, from, length);
+          } finally {
+            lock.unlockRead(stamp);
+          }
+        }
+        for (int i = 0; i < length; i++) {
+          if (block.status[i] != 0) {
+            action.accept(PaymentEncoding.decode(
+                new UUID(block.mostSignificantBits[i], block.leastSignificantBits[i]),
+                block.status[i], block.currency[i], block.card[i], block.expiry[i],
+                block.amount[i], block.createdAt[i]));
+          }
+        }
+      }
+    }
+
+    Payment putIfAbsent(UUID id, long hash, byte status, short currency, int card, char expiry,
+        int amount, long createdAt) {
+      long msb = id.getMostSignificantBits();
+      long lsb = id.getLeastSignificantBits();
+      long stamp = lock.writeLock();
+      try {
+        Table t = table;
+        if (size + 1 > t.threshold) {
+          t = resize(t, t.status.length << 1);
+        }
+        int slot = t.find(msb, lsb, hash);
+        if (slot >= 0) {
+          return t.decode(slot, id);
+        }
+        t.set(~slot, msb, lsb, status, currency, card, expiry, amount, createdAt);
+        size = size + 1;
+        return null;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void ensureCapacity(int capacity) {
+      long stamp = lock.writeLock();
+      try {
+        if (table.status.length < capacity) {
+          resize(table, capacity);
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    private Table resize(Table t, int capacity) {
+      Table resized = new Table(capacity);
+      for (int i = 0; i < t.status.length; i++) {
+        if (t.status[i] != 0) {
+          long msb = t.mostSignificantBits[i];
+          long lsb = t.leastSignificantBits[i];
+          int slot = ~resized.find(msb, lsb, StoreSupport.mix(msb ^ lsb));
+          resized.set(slot, msb, lsb, t.status[i], t.currency[i], t.card[i], t.expiry[i],
+              t.amount[i], t.createdAt[i]);
+        }
+      }
+      table = resized;
+      return resized;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Primitive encoding of the payment fields shared by the compact store and the on-disk formats:
+ * the status as a byte, the currency as its {@link IsoCurrencies} index, the masked card number
+ * as its length and last four digits packed in an int, the expiry month and year packed in a
+ * char, and the creation time as epoch milliseconds.
+ */
+public final class PaymentEncoding {
+
+  private static final int LAST_FOUR = 4;
+  // requests for later years are rejected by PaymentRequestValidator
+  private static final int MAX_EXPIRY_YEAR = 0xFFF;
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final long NO_CREATION_TIME = Long.MIN_VALUE;
+
+  private PaymentEncoding() {
+  }
+
+  /**
+   * Status codes start at 1, 0 marks an empty slot.
+   */
+  public static byte encodeStatus(String status) {
+    for (PaymentStatus paymentStatus : STATUSES) {
+      if (paymentStatus.getName().equals(status)) {
+        return (byte) (paymentStatus.ordinal() + 1);
+      }
+    }
+    throw new IllegalArgumentException("Unknown payment status " + status);
+  }
+
+  public static String decodeStatus(byte status) {
+    return STATUSES[status - 1].getName();
+  }
+
+  public static short encodeCurrency(String currency) {
+    int index = IsoCurrencies.indexOf(currency);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown currency " + currency);
+    }
+    return (short) index;
+  }
+
+  public static String decodeCurrency(short currency) {
+    return IsoCurrencies.codeAt(currency);
+  }
+
+  /**
+   * Packs a masked card number as its length in the high half and its last four digits in the
+   * low half. Only the last four digits are kept, the rest is expected to be masked.
+   */
+  public static int encodeCard(String maskedCardNumber) {
+    if (maskedCardNumber == null || maskedCardNumber.length() < LAST_FOUR
+        || maskedCardNumber.length() > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Card number must be at least 4 digits");
+    }
+    int length = maskedCardNumber.length();
+    int lastFour = 0;
+    for (int i = length - LAST_FOUR; i < length; i++) {
+      char c = maskedCardNumber.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("Card number must end with 4 digits");
+      }
+      lastFour = lastFour * 10 + (c - '0');
+    }
+    return length << 16 | lastFour;
+  }
+
+  public static String decodeCard(int card) {
+    int length = card >>> 16;
+    int lastFour = card & 0xFFFF;
+    char[] chars = new char[length];
+    int masked = length - LAST_FOUR;
+    for (int i = 0; i < masked; i++) {
+      chars[i] = '*';
+    }
+    for (int i = length - 1; i >= masked; i--) {
+      chars[i] = (char) ('0' + lastFour % 10);
+      lastFour /= 10;
+    }
+    return new String(chars);
+  }
+
+  public static char encodeExpiry(int month, int year) {
+    if (month < 0 || month > 12 || year < 0 || year > MAX_EXPIRY_YEAR) {
+      throw new IllegalArgumentException("Expiry date " + month + "/" + year + " out of range");
+    }
+    return (char) (year << 4 | month);
+  }
+
+  public static int decodeExpiryMonth(char expiry) {
+    return expiry & 0xF;
+  }
+
+  public static int decodeExpiryYear(char expiry) {
+    return expiry >>> 4;
+  }
+
+  /**
+   * A missing creation time is encoded below any real one.
+   */
+  public static long encodeCreatedAt(Instant createdAt) {
+    return createdAt == null ? NO_CREATION_TIME : createdAt.toEpochMilli();
+  }
+
+  public static Instant decodeCreatedAt(long createdAt) {
+    return createdAt == NO_CREATION_TIME ? null : Instant.ofEpochMilli(createdAt);
+  }
+
+  public static Payment decode(UUID id, byte status, short currency, int card, char expiry,
+      int amount, long createdAt) {
+    Payment payment = new Payment(id, decodeStatus(status), decodeCard(card),
+        decodeExpiryMonth(expiry), decodeExpiryYear(expiry), decodeCurrency(currency), amount);
+    payment.setCreatedAt(decodeCreatedAt(createdAt));
+    return payment;
+  }
+}
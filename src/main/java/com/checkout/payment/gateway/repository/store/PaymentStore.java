@@ -0,0 +1,56 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine behind {@link com.checkout.payment.gateway.repository.PaymentsRepository}.
+ * Implementations must be safe for concurrent use. Payments are immutable once stored.
+ */
+public interface PaymentStore {
+
+  /**
+   * @return the payment stored under the id, or null if there is none
+   */
+  Payment get(UUID id);
+
+  /**
+   * Stores the payment unless a payment with the same id is already present.
+   *
+   * @return the payment previously stored under the id, or null if this payment was inserted
+   */
+  Payment putIfAbsent(Payment payment);
+
+  /**
+   * Stores each payment unless a payment with the same id is already present.
+   *
+   * @return for each payment in order, the payment previously stored under its id, or null if
+   * it was inserted
+   */
+  default List<Payment> putAllIfAbsent(List<Payment> payments) {
+    List<Payment> existing = new ArrayList<>(payments.size());
+    for (Payment payment : payments) {
+      existing.add(putIfAbsent(payment));
+    }
+    return existing;
+  }
+
+  int size();
+
+  /**
+   * Makes room for the given number of payments in all ahead of inserting them in bulk, so that
+   * the store does not grow a step at a time meanwhile.
+   */
+  default void ensureCapacity(int payments) {
+  }
+
+  /**
+   * Passes every stored payment to the action, in no particular order, without holding up
+   * writers. Every payment inserted before the call is seen, payments inserted meanwhile may or
+   * may not be.
+   */
+  void forEach(Consumer<Payment> action);
+}
@@ -0,0 +1,58 @@
+package com.checkout.payment.gateway.repository.store;
+
+import java.util.UUID;
+
+/**
+ * Hashing and sizing shared by the segmented stores.
+ */
+final class StoreSupport {
+
+  private static final int MIN_SEGMENT_BITS = 4;
+  private static final int MAX_SEGMENT_BITS = 16;
+
+  private StoreSupport() {
+  }
+
+  /**
+   * Mixes both halves of the id (murmur3 finalizer) so that time ordered or otherwise
+   * structured ids still spread evenly over segments and slots.
+   */
+  static long hash(UUID id) {
+    return mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+  }
+
+  static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * @return power of two table capacity at which a segment holds its share of the payments below
+   * the three quarters load factor, with some slack as shares are uneven
+   */
+  static int segmentCapacity(int payments, int segments, int initialCapacity) {
+    long share = (long) payments / segments;
+    long needed = share + (share >>> 3) + 1;
+    int capacity = initialCapacity;
+    while (capacity - (capacity >>> 2) < needed && capacity < 1 << 30) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * @return number of hash bits used to pick a segment, so that there are at least as many
+   * segments as the expected number of concurrent writers (and at least 16)
+   */
+  static int segmentBits(int concurrencyLevel) {
+    int segmentBits = MIN_SEGMENT_BITS;
+    while ((1 << segmentBits) < concurrencyLevel && segmentBits < MAX_SEGMENT_BITS) {
+      segmentBits++;
+    }
+    return segmentBits;
+  }
+}
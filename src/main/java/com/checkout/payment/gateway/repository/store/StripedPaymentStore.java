@@ -0,0 +1,170 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent payment store split into segments selected from the bits of the payment id.
+ * <p>
+ * Each segment is an open-addressing table. Lookups never lock: the table is published through
+ * a volatile reference and slots are written with release semantics, so a reader sees either a
+ * fully constructed payment or an empty slot. Inserts only lock the owning segment and probe the
+ * table once, returning the payment already stored under the same id if there is one.
+ * <p>
+ * Payments are keyed on {@link Payment#getId()} at insertion time, the id must not be changed
+ * afterwards.
+ */
+public class StripedPaymentStore implements PaymentStore {
+
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  public StripedPaymentStore() {
+    this(Runtime.getRuntime().availableProcessors() * 4);
+  }
+
+  /**
+   * @param concurrencyLevel expected number of concurrent writers, rounded up to a power of two
+   *                         (at least 16) to give the number of segments
+   */
+  public StripedPaymentStore(int concurrencyLevel) {
+    int segmentBits = StoreSupport.segmentBits(concurrencyLevel);
+    this.segmentShift = 64 - segmentBits;
+    this.segments = new Segment[1 << segmentBits];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  @Override
+  public Payment get(UUID id) {
+    long hash = StoreSupport.hash(id);
+    return segmentFor(hash).get(id, hash);
+  }
+
+  @Override
+  public Payment putIfAbsent(Payment payment) {
+    UUID id = payment.getId();
+    if (id == null) {
+      throw new IllegalArgumentException("Payment id must not be null");
+    }
+    long hash = StoreSupport.hash(id);
+    return segmentFor(hash).putIfAbsent(payment, hash);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  @Override
+  public void ensureCapacity(int payments) {
+    int capacity = StoreSupport.segmentCapacity(payments, segments.length,
+        INITIAL_SEGMENT_CAPACITY);
+    for (Segment segment : segments) {
+      segment.ensureCapacity(capacity);
+    }
+  }
+
+  @Override
+  public void forEach(Consumer<Payment> action) {
+    for (Segment segment : segments) {
+      AtomicReferenceArray<Payment> slots = segment.table;
+      for (int i = 0; i < slots.length(); i++) {
+        Payment payment = slots.getAcquire(i);
+        if (payment != null) {
+          action.accept(payment);
+        }
+      }
+    }
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> segmentShift)];
+  }
+
+  private static final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile AtomicReferenceArray<Payment> table =
+        new AtomicReferenceArray<>(INITIAL_SEGMENT_CAPACITY);
+    // written under lock, read without it by size()
+    private volatile int size;
+
+    Payment get(UUID id, long hash) {
+      AtomicReferenceArray<Payment> slots = table;
+      int mask = slots.length() - 1;
+      for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+        Payment payment = slots.getAcquire(i);
+        if (payment == null) {
+          return null;
+        }
+        if (id.equals(payment.getId())) {
+          return payment;
+        }
+      }
+    }
+
+    Payment putIfAbsent(Payment payment, long hash) {
+      lock.lock();
+      try {
+        AtomicReferenceArray<Payment> slots = table;
+        if (size + 1 > slots.length() - (slots.length() >>> 2)) {
+          slots = resize(slots, slots.length() << 1);
+        }
+        UUID id = payment.getId();
+        int mask = slots.length() - 1;
+        int i = (int) hash & mask;
+        for (Payment existing; (existing = slots.getPlain(i)) != null; i = (i + 1) & mask) {
+          if (id.equals(existing.getId())) {
+            return existing;
+          }
+        }
+        slots.setRelease(i, payment);
+        size = size + 1;
+        return null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void ensureCapacity(int capacity) {
+      lock.lock();
+      try {
+        if (table.length() < capacity) {
+          resize(table, capacity);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private AtomicReferenceArray<Payment> resize(AtomicReferenceArray<Payment> slots,
+        int capacity) {
+      AtomicReferenceArray<Payment> resized = new AtomicReferenceArray<>(capacity);
+      int mask = resized.length() - 1;
+      for (int j = 0; j < slots.length(); j++) {
+        Payment payment = slots.getPlain(j);
+        if (payment != null) {
+          int i = (int) StoreSupport.hash(payment.getId()) & mask;
+          while (resized.getPlain(i) != null) {
+            i = (i + 1) & mask;
+          }
+          resized.setPlain(i, payment);
+        }
+      }
+      // the volatile write publishes every slot copied above to lock-free readers
+      table = resized;
+      return resized;
+    }
+  }
+}
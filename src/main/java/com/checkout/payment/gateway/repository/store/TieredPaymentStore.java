@@ -0,0 +1,383 @@
+package com.checkout.payment.gateway.repository.store;
+
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Payment store that keeps recent payments in memory and moves older ones to segment files on
+ * local disk, so that only the payments of the hot tier are held on the heap. Every payment
+ * stored still takes a few bytes of heap here for bloom filters and block indexes, and its entry
+ * in the {@link com.checkout.payment.gateway.repository.index.PaymentIndex}, about 50 bytes:
+ * the heap grows with the number of payments, only far slower than with every payment in
+ * memory.
+ * <p>
+ * The hot tier is a series of generations, each an in-memory store. Payments are inserted into
+ * the active generation, which is sealed once it holds a quarter of the hot bound or has been
+ * active for a quarter of the hot age. A background thread writes the oldest sealed generation
+ * to a {@link ColdSegment} and drops it once the hot tier holds more than its bound or the
+ * generation was sealed more than the hot age ago. Segments are merged {@value #MERGE_FANOUT} of
+ * the same size at a time, so that there are a few per order of magnitude of payments.
+ * <p>
+ * Lookups go through the generations newest first and then the segments newest first. Every
+ * generation and segment has a bloom filter of its ids, so that ruling one out costs a single
+ * cache miss, and a segment ruled out costs no disk access: a payment in the cold tier takes one
+ * block read, and a false positive of a segment that does not hold it one more about once in a
+ * thousand segments. Inserts look for the id in the same way before inserting into the active
+ * generation, under a shared lock that sealing takes exclusively so that a sealed generation
+ * never changes.
+ * <p>
+ * A generation that cannot be written to disk stays in memory for as long as the store, outside
+ * the hot bound, so that the generations after it still move.
+ * <p>
+ * Segments live as long as the store: the directory is cleared when the store is created and
+ * closed, durability remains the journal's.
+ */
+public class TieredPaymentStore implements PaymentStore, Closeable {
+
+  static final int HOT_GENERATIONS = 4;
+  static final int MERGE_FANOUT = 4;
+  private static final Logger LOG = LoggerFactory.getLogger(TieredPaymentStore.class);
+  private static final String SUFFIX = ".segment";
+
+  private final Supplier<PaymentStore> generations;
+  private final Path directory;
+  private final int hotPayments;
+  private final int generationSize;
+  private final long hotAgeMillis;
+  private final long generationAgeMillis;
+  private final LongSupplier clock;
+  private final StampedLock lock = new StampedLock();
+  private final LongAdder coldReads = new LongAdder();
+  private final ScheduledExecutorService mover;
+  // replaced as a whole under the write lock, read without it
+  private volatile Tiers tiers;
+  private long segments;
+  // generations that could not be written to disk, only touched by maintain
+  private final Set<Generation> unmovable = new HashSet<>();
+  private int unmovablePayments;
+
+  /**
+   * @param generations creates the in-memory store of a new generation
+   * @param hotPayments payments kept in memory before the oldest are moved to disk
+   * @param hotAge      time after which payments are moved to disk however few there are
+   * @param clock       current time in epoch milliseconds
+   */
+  public TieredPaymentStore(Supplier<PaymentStore> generations, Path directory, int hotPayments,
+      Duration hotAge, LongSupplier clock) {
+    this.generations = generations;
+    this.directory = directory;
+    this.hotPayments = hotPayments;
+    this.generationSize = Math.max(1, hotPayments / HOT_GENERATIONS);
+    this.hotAgeMillis = hotAge.toMillis();
+    this.generationAgeMillis = Math.max(1, hotAgeMillis / HOT_GENERATIONS);
+    this.clock = clock;
+    clearDirectory();
+    this.tiers = new Tiers(newGeneration(), clock.getAsLong(), List.of(), List.of());
+    this.mover = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "payment-cold-tier");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = Math.max(1, generationAgeMillis / 4);
+    mover.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Payment get(UUID id) {
+    Tiers current = tiers;
+    Payment payment = current.active.payments.get(id);
+    return payment != null ? payment : findOlder(current, id);
+  }
+
+  @Override
+  public Payment putIfAbsent(Payment payment) {
+    UUID id = payment.getId();
+    if (id == null) {
+      throw new IllegalArgumentException("Payment id must not be null");
+    }
+    Generation active;
+    long stamp = lock.readLock();
+    try {
+      Tiers current = tiers;
+      Payment existing = findOlder(current, id);
+      if (existing != null) {
+        return existing;
+      }
+      active = current.active;
+      existing = active.payments.putIfAbsent(payment);
+      if (existing != null) {
+        return existing;
+      }
+      // before the generation can be sealed
+      active.ids.add(StoreSupport.hash(id));
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    if (active.payments.size() >= generationSize) {
+      seal(active);
+    }
+    return null;
+  }
+
+  @Override
+  public int size() {
+    Tiers current = tiers;
+    int size = hotSize(current);
+    for (ColdSegment segment : current.cold) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return payments held in memory
+   */
+  public int hotSize() {
+    return hotSize(tiers);
+  }
+
+  /**
+   * @return segment blocks read by lookups and inserts, including false positives
+   */
+  public long coldReads() {
+    return coldReads.sum();
+  }
+
+  @Override
+  public void ensureCapacity(int payments) {
+    tiers.active.payments.ensureCapacity(Math.min(payments, generationSize));
+  }
+
+  @Override
+  public void forEach(Consumer<Payment> action) {
+    Tiers current = tiers;
+    current.active.payments.forEach(action);
+    for (Generation generation : current.sealed) {
+      generation.payments.forEach(action);
+    }
+    for (ColdSegment segment : current.cold) {
+      segment.forEach(action);
+    }
+  }
+
+  @Override
+  public void close() {
+    mover.shutdown();
+    try {
+      if (!mover.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("Payments still moving to the cold tier on close");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    clearDirectory();
+  }
+
+  /**
+   * Seals the active generation if it is old enough, then moves generations beyond the hot
+   * bounds to disk and merges segments. Runs on the mover thread, or directly from tests.
+   */
+  synchronized void maintain() {
+    try {
+      long now = clock.getAsLong();
+      Tiers current = tiers;
+      if (current.active.payments.size() > 0
+          && now - current.activeSince >= generationAgeMillis) {
+        seal(current.active);
+      }
+      while (moveOldestGeneration(now)) {
+        mergeSegments();
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Cannot move payments to the cold tier in {}", directory, e);
+    }
+  }
+
+  private Payment findOlder(Tiers current, UUID id) {
+    long hash = StoreSupport.hash(id);
+    for (Generation generation : current.sealed) {
+      if (generation.ids.mightContain(hash)) {
+        Payment payment = generation.payments.get(id);
+        if (payment != null) {
+          return payment;
+        }
+      }
+    }
+    for (ColdSegment segment : current.cold) {
+      if (segment.mightContain(hash)) {
+        coldReads.increment();
+        Payment payment = segment.read(id);
+        if (payment != null) {
+          return payment;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void seal(Generation active) {
+    long stamp = lock.writeLock();
+    try {
+      Tiers current = tiers;
+      if (current.active != active) {
+        // sealed by another writer
+        return;
+      }
+      long now = clock.getAsLong();
+      List<Generation> sealed = new ArrayList<>(current.sealed.size() + 1);
+      sealed.add(active.seal(now));
+      sealed.addAll(current.sealed);
+      tiers = new Tiers(newGeneration(), now, List.copyOf(sealed), current.cold);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    try {
+      mover.execute(this::maintain);
+    } catch (RejectedExecutionException e) {
+      // closing, the generation stays in memory
+    }
+  }
+
+  /**
+   * @return whether the oldest generation that can be moved was beyond the hot bounds, and was
+   * moved to disk or failed to
+   */
+  private boolean moveOldestGeneration(long now) {
+    Tiers current = tiers;
+    Generation oldest = null;
+    for (int i = current.sealed.size() - 1; i >= 0 && oldest == null; i--) {
+      if (!unmovable.contains(current.sealed.get(i))) {
+        oldest = current.sealed.get(i);
+      }
+    }
+    if (oldest == null || hotSize(current) - unmovablePayments <= hotPayments
+        && now - oldest.sealedAt < hotAgeMillis) {
+      return false;
+    }
+    ColdSegment segment;
+    try {
+      segment = ColdSegment.write(nextFile(), oldest.payments);
+    } catch (RuntimeException e) {
+      unmovable.add(oldest);
+      unmovablePayments += oldest.payments.size();
+      LOG.error("Cannot move {} payments to the cold tier in {}, keeping them in memory",
+          oldest.payments.size(), directory, e);
+      return true;
+    }
+    Generation moved = oldest;
+    long stamp = lock.writeLock();
+    try {
+      current = tiers;
+      List<ColdSegment> cold = new ArrayList<>(current.cold.size() + 1);
+      cold.add(segment);
+      cold.addAll(current.cold);
+      tiers = new Tiers(current.active, current.activeSince,
+          current.sealed.stream().filter(generation -> generation != moved).toList(),
+          List.copyOf(cold));
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    return true;
+  }
+
+  /**
+   * Merges the newest segments while the newest {@value #MERGE_FANOUT} are of the same level.
+   * Levels then only grow from the newest segment to the oldest.
+   */
+  private void mergeSegments() {
+    while (true) {
+      List<ColdSegment> cold = tiers.cold;
+      if (cold.size() < MERGE_FANOUT) {
+        return;
+      }
+      List<ColdSegment> merged = cold.subList(0, MERGE_FANOUT);
+      int level = merged.get(0).level();
+      if (merged.stream().anyMatch(segment -> segment.level() != level)) {
+        return;
+      }
+      ColdSegment segment = ColdSegment.merge(nextFile(), level + 1, merged);
+      long stamp = lock.writeLock();
+      try {
+        Tiers current = tiers;
+        List<ColdSegment> replaced = new ArrayList<>(current.cold.size() - MERGE_FANOUT + 1);
+        replaced.add(segment);
+        // only this thread adds segments, the merged ones are still the newest
+        replaced.addAll(current.cold.subList(MERGE_FANOUT, current.cold.size()));
+        tiers = new Tiers(current.active, current.activeSince, current.sealed,
+            List.copyOf(replaced));
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+      merged.forEach(ColdSegment::delete);
+    }
+  }
+
+  private Path nextFile() {
+    return directory.resolve(String.format("payments-%020d%s", segments++, SUFFIX));
+  }
+
+  private void clearDirectory() {
+    try {
+      Files.createDirectories(directory);
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : files.filter(file -> file.toString().endsWith(SUFFIX)).toList()) {
+          Files.deleteIfExists(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot clear cold tier directory " + directory, e);
+    }
+  }
+
+  private Generation newGeneration() {
+    return new Generation(generations.get(), new BloomFilter(generationSize), 0);
+  }
+
+  private static int hotSize(Tiers tiers) {
+    int size = tiers.active.payments.size();
+    for (Generation generation : tiers.sealed) {
+      size += generation.payments.size();
+    }
+    return size;
+  }
+
+  /**
+   * @param sealedAt 0 for the active generation
+   */
+  private record Generation(PaymentStore payments, BloomFilter ids, long sealedAt) {
+
+    Generation seal(long now) {
+      return new Generation(payments, ids, now);
+    }
+  }
+
+  /**
+   * Generations and segments, newest first.
+   */
+  private record Tiers(Generation active, long activeSince, List<Generation> sealed,
+                       List<ColdSegment> cold) {
+
+  }
+}
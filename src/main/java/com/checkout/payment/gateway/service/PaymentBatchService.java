@@ -0,0 +1,354 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.configuration.BatchProperties;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.mapper.PaymentMapper;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.BatchPaymentResponse;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.util.PaymentUtil;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PaymentBatchService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentBatchService.class);
+
+  private final PaymentsRepository paymentsRepository;
+  private final PaymentUtil paymentUtil;
+  private final PaymentRequestValidator validator;
+  private final PaymentMetrics paymentMetrics;
+  private final PaymentStatistics paymentStatistics;
+  private final PaymentIdGenerator paymentIds;
+  private final BatchProperties batchProperties;
+  private final ObjectReader requestReader;
+  private final ObjectWriter resultWriter;
+
+  public PaymentBatchService(PaymentsRepository paymentsRepository, PaymentUtil paymentUtil,
+      PaymentRequestValidator validator, PaymentMetrics paymentMetrics,
+      PaymentStatistics paymentStatistics, PaymentIdGenerator paymentIds,
+      BatchProperties batchProperties, ObjectMapper objectMapper) {
+    this.paymentsRepository = paymentsRepository;
+    this.paymentUtil = paymentUtil;
+    this.validator = validator;
+    this.paymentMetrics = paymentMetrics;
+    this.paymentStatistics = paymentStatistics;
+    this.paymentIds = paymentIds;
+    this.batchProperties = batchProperties;
+    this.requestReader = objectMapper.readerFor(PostPaymentRequest.class);
+    this.resultWriter = objectMapper.writerFor(BatchPaymentResult.class);
+  }
+
+  /**
+   * Validates every payment of the batch, sends the valid ones to the bank with at most
+   * {@code payment.batch.max-concurrency} calls in flight and saves the processed payments in one
+   * repository operation. A payment that is invalid or fails at the bank does not fail the batch,
+   * it is reported in its own result.
+   *
+   * @param paymentRequests : payments in the order results are returned
+   * @return future BatchPaymentResponse, completed once every payment is processed
+   */
+  public CompletableFuture<BatchPaymentResponse> processBatch(List<PostPaymentRequest> paymentRequests) {
+    if (paymentRequests == null || paymentRequests.isEmpty()) {
+      throw new InvalidBatchException("Payment batch must contain at least one payment");
+    }
+    if (paymentRequests.size() > batchProperties.getMaxSize()) {
+      throw new InvalidBatchException("Payment batch must contain at most "
+          + batchProperties.getMaxSize() + " payments");
+    }
+    LOG.debug("Processing a batch of {} payments", paymentRequests.size());
+    BatchPaymentResult[] results = new BatchPaymentResult[paymentRequests.size()];
+    List<Integer> valid = new ArrayList<>(paymentRequests.size());
+    for (int i = 0; i < paymentRequests.size(); i++) {
+      Map<String, String> errors = validate(paymentRequests.get(i));
+      if (errors.isEmpty()) {
+        valid.add(i);
+      } else {
+        results[i] = result(i, HttpStatus.BAD_REQUEST);
+        results[i].setErrors(errors);
+      }
+    }
+    BankPaymentResponse[] bankResponses = new BankPaymentResponse[paymentRequests.size()];
+    return callBank(paymentRequests, valid, bankResponses, results)
+        .thenApply(done -> savePayments(paymentRequests, valid, bankResponses, results));
+  }
+
+  /**
+   * Processes payments read one record at a time from an NDJSON stream, writing an NDJSON
+   * result line for each as soon as it completes. Results come back in completion order, their
+   * index is the record's position in the stream.
+   * <p>
+   * Memory stays constant whatever the length of the stream: at most
+   * {@code payment.batch.stream-max-in-flight} payments are in flight, and no further record is
+   * read until one of them has been written back. A slow bank therefore slows the upload down
+   * through TCP flow control instead of piling payments up in the gateway. Results are written
+   * by the calling thread between records, never by the bank client threads.
+   *
+   * @param input  : NDJSON PostPaymentRequest records
+   * @param output : receives NDJSON BatchPaymentResult lines
+   */
+  public void processStream(InputStream input, OutputStream output) throws IOException {
+    int maxInFlight = batchProperties.getStreamMaxInFlight();
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    BlockingQueue<BatchPaymentResult> completed = new LinkedBlockingQueue<>();
+    int read = 0;
+    int written = 0;
+    try (MappingIterator<PostPaymentRequest> records = requestReader.readValues(input)) {
+      while (true) {
+        written += writeCompleted(completed, output, inFlight);
+        if (!inFlight.tryAcquire()) {
+          // every permit is held by a payment in flight, wait for one of them to complete
+          written += writeResult(awaitResult(completed), output, inFlight);
+          continue;
+        }
+        int index = read++;
+        PostPaymentRequest paymentRequest;
+        try {
+          if (!records.hasNextValue()) {
+            read--;
+            inFlight.release();
+            break;
+          }
+          paymentRequest = records.nextValue();
+        } catch (JsonParseException e) {
+          // the stream is no longer valid JSON, there is no next record to find
+          completed.add(malformed(index, "Malformed payment record: " + e.getOriginalMessage()));
+          break;
+        } catch (JsonMappingException e) {
+          completed.add(malformed(index, "Invalid payment record: " + e.getOriginalMessage()));
+          continue;
+        }
+        Map<String, String> errors = validate(paymentRequest);
+        if (!errors.isEmpty()) {
+          BatchPaymentResult result = result(index, HttpStatus.BAD_REQUEST);
+          result.setErrors(errors);
+          completed.add(result);
+          continue;
+        }
+        processPayment(index, paymentRequest).whenComplete((result, failure) -> completed.add(result));
+      }
+      while (written < read) {
+        written += writeResult(awaitResult(completed), output, inFlight);
+      }
+      output.flush();
+    }
+    LOG.debug("Processed a stream of {} payments", read);
+  }
+
+  private CompletableFuture<BatchPaymentResult> processPayment(int index,
+      PostPaymentRequest paymentRequest) {
+    CompletableFuture<BankPaymentResponse> call;
+    try {
+      call = paymentUtil.callBankApiAsync(paymentRequest);
+    } catch (RuntimeException e) {
+      call = CompletableFuture.failedFuture(e);
+    }
+    return call.handle((bankResponse, failure) -> {
+      if (failure != null) {
+        return failed(index, failure);
+      }
+      try {
+        long start = System.nanoTime();
+        Payment payment = PaymentMapper.MAPPER.mapToPayment(paymentRequest, bankResponse,
+            paymentIds);
+        long mapped = System.nanoTime();
+        paymentMetrics.recordMapping(mapped - start);
+        payment = paymentsRepository.save(payment).orElseThrow();
+        paymentMetrics.recordSave(System.nanoTime() - mapped);
+        BatchPaymentResult result = result(index, HttpStatus.CREATED);
+        result.setPayment(PaymentMapper.MAPPER.mapToPostPaymentResponse(payment));
+        paymentMetrics.recordOutcome(result.getPayment().getStatus(),
+            result.getPayment().getCurrency());
+        paymentStatistics.record(result.getPayment().getStatus(),
+            result.getPayment().getCurrency(), result.getPayment().getAmount());
+        return result;
+      } catch (RuntimeException e) {
+        return failed(index, e);
+      }
+    });
+  }
+
+  private int writeCompleted(BlockingQueue<BatchPaymentResult> completed, OutputStream output,
+      Semaphore inFlight) throws IOException {
+    int written = 0;
+    BatchPaymentResult result;
+    while ((result = completed.poll()) != null) {
+      written += writeResult(result, output, inFlight);
+    }
+    if (written > 0) {
+      output.flush();
+    }
+    return written;
+  }
+
+  private int writeResult(BatchPaymentResult result, OutputStream output, Semaphore inFlight)
+      throws IOException {
+    output.write(resultWriter.writeValueAsBytes(result));
+    output.write('\n');
+    inFlight.release();
+    return 1;
+  }
+
+  private static BatchPaymentResult awaitResult(BlockingQueue<BatchPaymentResult> completed)
+      throws IOException {
+    try {
+      return completed.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for payments in flight");
+    }
+  }
+
+  private static BatchPaymentResult malformed(int index, String message) {
+    BatchPaymentResult result = result(index, HttpStatus.BAD_REQUEST);
+    result.setMessage(message);
+    return result;
+  }
+
+  private Map<String, String> validate(PostPaymentRequest paymentRequest) {
+    if (paymentRequest == null) {
+      return Map.of("payment", "Payment must not be null");
+    }
+    return validator.validate(paymentRequest);
+  }
+
+  /**
+   * Calls the bank for the given positions, starting the next call as soon as one completes so
+   * that the concurrency limit is kept without a thread waiting on it. Calls that complete at
+   * once, such as rejections while the bank circuit is open, are handled in a loop rather than
+   * recursively.
+   */
+  private CompletableFuture<Void> callBank(List<PostPaymentRequest> paymentRequests,
+      List<Integer> positions, BankPaymentResponse[] bankResponses, BatchPaymentResult[] results) {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger remaining = new AtomicInteger(positions.size());
+    Runnable[] callNext = new Runnable[1];
+    callNext[0] = () -> {
+      int slot;
+      while ((slot = next.getAndIncrement()) < positions.size()) {
+        int position = positions.get(slot);
+        CompletableFuture<BankPaymentResponse> call;
+        try {
+          call = paymentUtil.callBankApiAsync(paymentRequests.get(position));
+        } catch (RuntimeException e) {
+          call = CompletableFuture.failedFuture(e);
+        }
+        BiConsumer<BankPaymentResponse, Throwable> onResponse = (bankResponse, failure) -> {
+          if (failure == null) {
+            bankResponses[position] = bankResponse;
+          } else {
+            results[position] = failed(position, failure);
+          }
+          if (remaining.decrementAndGet() == 0) {
+            done.complete(null);
+          }
+        };
+        if (!call.isDone()) {
+          call.whenComplete(onResponse).whenComplete((bankResponse, failure) -> callNext[0].run());
+          return;
+        }
+        call.whenComplete(onResponse);
+      }
+    };
+    if (positions.isEmpty()) {
+      done.complete(null);
+    }
+    int concurrency = Math.min(batchProperties.getMaxConcurrency(), positions.size());
+    for (int i = 0; i < concurrency; i++) {
+      callNext[0].run();
+    }
+    return done;
+  }
+
+  private BatchPaymentResponse savePayments(List<PostPaymentRequest> paymentRequests,
+      List<Integer> positions, BankPaymentResponse[] bankResponses, BatchPaymentResult[] results) {
+    List<Integer> processed = new ArrayList<>(positions.size());
+    List<Payment> payments = new ArrayList<>(positions.size());
+    for (int position : positions) {
+      if (bankResponses[position] != null) {
+        processed.add(position);
+        long start = System.nanoTime();
+        payments.add(PaymentMapper.MAPPER.mapToPayment(paymentRequests.get(position),
+            bankResponses[position], paymentIds));
+        paymentMetrics.recordMapping(System.nanoTime() - start);
+      }
+    }
+    long start = System.nanoTime();
+    List<Payment> stored = paymentsRepository.saveAll(payments);
+    paymentMetrics.recordSaveAll(System.nanoTime() - start);
+    for (int i = 0; i < processed.size(); i++) {
+      int position = processed.get(i);
+      PostPaymentResponse payment = PaymentMapper.MAPPER.mapToPostPaymentResponse(stored.get(i));
+      results[position] = result(position, HttpStatus.CREATED);
+      results[position].setPayment(payment);
+      paymentMetrics.recordOutcome(payment.getStatus(), payment.getCurrency());
+      paymentStatistics.record(payment.getStatus(), payment.getCurrency(), payment.getAmount());
+    }
+    BatchPaymentResponse response = new BatchPaymentResponse();
+    response.setResults(Arrays.asList(results));
+    response.setSucceeded(processed.size());
+    response.setFailed(results.length - processed.size());
+    return response;
+  }
+
+  private static BatchPaymentResult failed(int index, Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+    BatchPaymentResult result;
+    if (cause instanceof BankUnavailableException) {
+      result = result(index, HttpStatus.SERVICE_UNAVAILABLE);
+      result.setMessage(cause.getMessage());
+    } else if (cause instanceof EventProcessingException) {
+      // as CommonExceptionHandler answers a single payment
+      result = result(index, HttpStatus.NOT_FOUND);
+      result.setMessage(cause.getMessage());
+    } else {
+      LOG.warn("Bank call failed for payment {} of a batch", index, cause);
+      result = result(index, HttpStatus.BAD_GATEWAY);
+      result.setMessage("Bank call failed");
+    }
+    return result;
+  }
+
+  private static BatchPaymentResult result(int index, HttpStatus status) {
+    BatchPaymentResult result = new BatchPaymentResult();
+    result.setIndex(index);
+    result.setStatus(status.value());
+    return result;
+  }
+}
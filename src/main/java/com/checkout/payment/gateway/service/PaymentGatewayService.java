@@ -1,13 +1,47 @@
 package com.checkout.payment.gateway.service;
 
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.cache.SerializedPayment;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.IdempotencyKeyException;
+import com.checkout.payment.gateway.exception.InvalidSearchException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.idempotency.IdempotencyCache;
 import com.checkout.payment.gateway.mapper.PaymentMapper;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.RequestTiming;
+import com.checkout.payment.gateway.metrics.RequestTiming.Stage;
+import com.checkout.payment.gateway.model.CurrencyStats;
 import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.model.PaymentSearchRequest;
+import com.checkout.payment.gateway.model.PaymentSearchResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.StatusTotals;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.index.Page;
+import com.checkout.payment.gateway.repository.index.PaymentQuery;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.stats.PaymentStatistics.Totals;
+import com.checkout.payment.gateway.stats.StatsWindow;
 import com.checkout.payment.gateway.util.PaymentUtil;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -16,14 +50,42 @@ import org.springframework.stereotype.Service;
 public class PaymentGatewayService {
 
   private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayService.class);
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+  private static final int DEFAULT_SEARCH_LIMIT = 20;
+  private static final int MAX_SEARCH_LIMIT = 100;
+  private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
 
   private final PaymentsRepository paymentsRepository;
 
   private final PaymentUtil paymentUtil;
 
-  public PaymentGatewayService(PaymentsRepository paymentsRepository, PaymentUtil paymentUtil) {
+  private final IdempotencyCache<PostPaymentResponse> idempotencyCache;
+
+  private final PaymentResponseCache paymentResponseCache;
+
+  private final PaymentMetrics paymentMetrics;
+
+  private final PaymentStatistics paymentStatistics;
+
+  private final PaymentIdGenerator paymentIds;
+
+  // keys the fingerprints of idempotent requests, never leaves the process
+  private final SecretKeySpec fingerprintKey;
+
+  public PaymentGatewayService(PaymentsRepository paymentsRepository, PaymentUtil paymentUtil,
+      IdempotencyCache<PostPaymentResponse> idempotencyCache,
+      PaymentResponseCache paymentResponseCache, PaymentMetrics paymentMetrics,
+      PaymentStatistics paymentStatistics, PaymentIdGenerator paymentIds) {
     this.paymentsRepository = paymentsRepository;
     this.paymentUtil = paymentUtil;
+    this.idempotencyCache = idempotencyCache;
+    this.paymentResponseCache = paymentResponseCache;
+    this.paymentMetrics = paymentMetrics;
+    this.paymentStatistics = paymentStatistics;
+    this.paymentIds = paymentIds;
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    this.fingerprintKey = new SecretKeySpec(key, FINGERPRINT_ALGORITHM);
   }
 
   /**
@@ -33,11 +95,67 @@ public class PaymentGatewayService {
    */
   public GetPaymentResponse getPaymentById(UUID id) {
     LOG.debug("Requesting access to to payment with ID {}", id);
-    return paymentsRepository.findByPaymentId(id)
+    long start = System.nanoTime();
+    Optional<Payment> payment = paymentsRepository.findByPaymentId(id);
+    long nanos = System.nanoTime() - start;
+    paymentMetrics.recordFind(nanos);
+    RequestTiming.current().record(Stage.REPOSITORY, nanos);
+    return payment
         .map(PaymentMapper.MAPPER::mapToGetPaymentResponse)
         .orElseThrow(() -> new EventProcessingException("Payment with id " + id + " not found"));
   }
 
+  /**
+   * Same as {@link #getPaymentById(UUID)}, as the JSON of the response. A payment is mapped and
+   * serialized on its first read only, later reads get the cached bytes.
+   */
+  public SerializedPayment getSerializedPaymentById(UUID id) {
+    SerializedPayment cached = paymentResponseCache.get(id);
+    if (cached != null) {
+      return cached;
+    }
+    return paymentResponseCache.put(id, getPaymentById(id));
+  }
+
+  /**
+   * Searches stored payments, a page at a time in the order they were saved.
+   *
+   * @param searchRequest : criteria, all optional, and the cursor returned with the previous page
+   * @return PaymentSearchResponse with the cursor of the next page, if there may be one
+   */
+  public PaymentSearchResponse searchPayments(PaymentSearchRequest searchRequest) {
+    LOG.debug("Searching payments {}", searchRequest);
+    PaymentQuery query = toQuery(searchRequest);
+    long start = System.nanoTime();
+    Page<Payment> page = paymentsRepository.search(query);
+    paymentMetrics.recordSearch(System.nanoTime() - start);
+    PaymentSearchResponse response = new PaymentSearchResponse();
+    response.setPayments(page.items().stream()
+        .map(PaymentMapper.MAPPER::mapToGetPaymentResponse)
+        .toList());
+    response.setNextCursor(page.cursor() < 0 ? null : Integer.toString(page.cursor()));
+    return response;
+  }
+
+  /**
+   * Counts and amounts of the payments processed over the last minute, hour and day, by currency
+   * and status. Totals are kept up to date as payments are processed, payments are not read.
+   *
+   * @return PaymentStatsResponse
+   */
+  public PaymentStatsResponse getPaymentStats() {
+    Map<String, Map<String, CurrencyStats>> windows = new LinkedHashMap<>();
+    for (StatsWindow window : StatsWindow.values()) {
+      Map<String, CurrencyStats> currencies = new LinkedHashMap<>();
+      paymentStatistics.totals(window).forEach(
+          (currency, totals) -> currencies.put(currency, currencyStats(totals)));
+      windows.put(window.getLabel(), currencies);
+    }
+    PaymentStatsResponse response = new PaymentStatsResponse();
+    response.setWindows(windows);
+    return response;
+  }
+
   /**
    * Method for submitting the payment request to payment gateway and saving the payment details to repository.
    * Payment status is updated based on the response from the payment gateway
@@ -47,9 +165,172 @@ public class PaymentGatewayService {
    */
   public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest) {
     LOG.debug("Creating a new payment");
-    return paymentsRepository.save(PaymentMapper.MAPPER.mapToPayment(paymentRequest,paymentUtil.callBankApi(paymentRequest)))
+    RequestTiming timing = RequestTiming.current();
+    long start = System.nanoTime();
+    BankPaymentResponse bankResponse = paymentUtil.callBankApi(paymentRequest);
+    timing.record(Stage.BANK, System.nanoTime() - start);
+    return savePayment(paymentRequest, bankResponse, timing);
+  }
+
+  /**
+   * Same as {@link #processPayment(PostPaymentRequest)} without holding the calling thread while
+   * the bank processes the payment.
+   *
+   * @param paymentRequest : PostPaymentRequest send to the payment gateway
+   * @return future PostPaymentResponse, completed once the payment is saved
+   */
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(PostPaymentRequest paymentRequest) {
+    LOG.debug("Creating a new payment asynchronously");
+    // the bank answers on another thread, the timing of the request thread goes along
+    RequestTiming timing = RequestTiming.current();
+    long start = System.nanoTime();
+    return paymentUtil.callBankApiAsync(paymentRequest)
+        .thenApply(bankResponse -> {
+          timing.record(Stage.BANK, System.nanoTime() - start);
+          return savePayment(paymentRequest, bankResponse, timing);
+        });
+  }
+
+  /**
+   * Same as {@link #processPaymentAsync(PostPaymentRequest)}, processing the payment only once
+   * per idempotency key. A retry with the same key gets the stored response without the bank
+   * being called again, and a retry arriving while the first attempt is in flight waits for it.
+   *
+   * @param paymentRequest : PostPaymentRequest send to the payment gateway
+   * @param idempotencyKey : client chosen key, or null to process the payment unconditionally
+   * @return future PostPaymentResponse, completed once the payment is saved
+   */
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(PostPaymentRequest paymentRequest,
+      String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return processPaymentAsync(paymentRequest);
+    }
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+      throw new IdempotencyKeyException("Idempotency key must be between 1 and "
+          + MAX_IDEMPOTENCY_KEY_LENGTH + " characters long");
+    }
+    return idempotencyCache.computeIfAbsent(idempotencyKey, fingerprint(paymentRequest),
+        () -> processPaymentAsync(paymentRequest));
+  }
+
+  private static PaymentQuery toQuery(PaymentSearchRequest searchRequest) {
+    PaymentQuery query = new PaymentQuery();
+    if (searchRequest.getStatus() != null) {
+      query.setStatus(Arrays.stream(PaymentStatus.values())
+          .filter(status -> status.getName().equalsIgnoreCase(searchRequest.getStatus()))
+          .findFirst()
+          .orElseThrow(() -> new InvalidSearchException(
+              "Unknown payment status " + searchRequest.getStatus())));
+    }
+    if (searchRequest.getCurrency() != null && !IsoCurrencies.isValid(searchRequest.getCurrency())) {
+      throw new InvalidSearchException("Unknown currency " + searchRequest.getCurrency());
+    }
+    query.setCurrency(searchRequest.getCurrency());
+    query.setMinAmount(searchRequest.getMinAmount());
+    query.setMaxAmount(searchRequest.getMaxAmount());
+    // the card is indexed by its last four digits and expiry together
+    boolean hasCard = searchRequest.getCardNumberLastFour() != null;
+    if (hasCard && !searchRequest.getCardNumberLastFour().matches("\\d{4}")) {
+      throw new InvalidSearchException("Card number last four must be 4 digits");
+    }
+    if (hasCard != (searchRequest.getExpiryMonth() != null)
+        || hasCard != (searchRequest.getExpiryYear() != null)) {
+      throw new InvalidSearchException(
+          "Card number last four, expiry month and expiry year must be given together");
+    }
+    query.setCardNumberLastFour(searchRequest.getCardNumberLastFour());
+    query.setExpiryMonth(searchRequest.getExpiryMonth());
+    query.setExpiryYear(searchRequest.getExpiryYear());
+    query.setCreatedFrom(searchRequest.getCreatedFrom());
+    query.setCreatedTo(searchRequest.getCreatedTo());
+    int limit = searchRequest.getLimit() == null ? DEFAULT_SEARCH_LIMIT : searchRequest.getLimit();
+    if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+      throw new InvalidSearchException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+    }
+    query.setLimit(limit);
+    if (searchRequest.getCursor() != null) {
+      query.setAfter(parseCursor(searchRequest.getCursor()));
+    }
+    return query;
+  }
+
+  private static int parseCursor(String cursor) {
+    try {
+      int after = Integer.parseInt(cursor);
+      if (after >= 0) {
+        return after;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new InvalidSearchException("Malformed cursor " + cursor);
+  }
+
+  private static CurrencyStats currencyStats(Map<PaymentStatus, Totals> totals) {
+    CurrencyStats stats = new CurrencyStats();
+    Map<String, StatusTotals> statuses = new LinkedHashMap<>();
+    totals.forEach((status, total) -> {
+      statuses.put(status.getName(), new StatusTotals(total.count(), total.amount()));
+      stats.setCount(stats.getCount() + total.count());
+      stats.setAmount(stats.getAmount() + total.amount());
+    });
+    stats.setStatuses(statuses);
+    // rejected payments never reach the bank, they do not count against its authorizations
+    long authorized = totals.get(PaymentStatus.AUTHORIZED).count();
+    long answered = authorized + totals.get(PaymentStatus.DECLINED).count();
+    stats.setAuthorizationRate(answered == 0 ? null : (double) authorized / answered);
+    return stats;
+  }
+
+  /**
+   * HMAC-SHA256 of the payment fields under a key generated at startup, each field length
+   * prefixed so that no two different requests are encoded alike. The CVV is left out, nothing
+   * derived from it is kept once the payment is authorized, and the key keeps the card number
+   * from being recovered by hashing every candidate.
+   */
+  private byte[] fingerprint(PostPaymentRequest paymentRequest) {
+    Mac mac;
+    try {
+      mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+      mac.init(fingerprintKey);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(FINGERPRINT_ALGORITHM + " is not available", e);
+    }
+    ByteBuffer numbers = ByteBuffer.allocate(3 * Integer.BYTES)
+        .putInt(paymentRequest.getExpiryMonth())
+        .putInt(paymentRequest.getExpiryYear())
+        .putInt(paymentRequest.getAmount());
+    mac.update(numbers.array());
+    for (String field : new String[] {paymentRequest.getCardNumber(),
+        paymentRequest.getCurrency()}) {
+      byte[] bytes = field == null ? null : field.getBytes(StandardCharsets.UTF_8);
+      mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes == null ? -1 : bytes.length)
+          .array());
+      if (bytes != null) {
+        mac.update(bytes);
+      }
+    }
+    return mac.doFinal();
+  }
+
+  private PostPaymentResponse savePayment(PostPaymentRequest paymentRequest,
+      BankPaymentResponse bankResponse, RequestTiming timing) {
+    long start = System.nanoTime();
+    Payment payment = PaymentMapper.MAPPER.mapToPayment(paymentRequest, bankResponse,
+        paymentIds);
+    long mapped = System.nanoTime();
+    paymentMetrics.recordMapping(mapped - start);
+    timing.record(Stage.MAPPING, mapped - start);
+    Optional<Payment> saved = paymentsRepository.save(payment);
+    long saveNanos = System.nanoTime() - mapped;
+    paymentMetrics.recordSave(saveNanos);
+    timing.record(Stage.REPOSITORY, saveNanos);
+    PostPaymentResponse response = saved
         .map(PaymentMapper.MAPPER::mapToPostPaymentResponse)
         .orElseThrow(() -> new EventProcessingException("Payment not created"));
+    paymentMetrics.recordOutcome(response.getStatus(), response.getCurrency());
+    paymentStatistics.record(response.getStatus(), response.getCurrency(), response.getAmount());
+    return response;
   }
 
 }
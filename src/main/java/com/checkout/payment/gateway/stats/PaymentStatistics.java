@@ -0,0 +1,165 @@
+package com.checkout.payment.gateway.stats;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts and summed amounts of processed payments by currency and status over each
+ * {@link StatsWindow}, updated as payments complete so that reading them never scans the
+ * repository.
+ * <p>
+ * A window is a ring of time buckets, and a bucket holds a {@link LongAdder} per currency and
+ * status, created the first time a payment in that currency lands in the bucket. Adders spread
+ * concurrent updates over per-thread cells, so payments completing together do not contend on a
+ * shared counter. A bucket whose time has passed is replaced by a fresh one rather than cleared:
+ * a write never waits for a reset, and a read sums the buckets still in the window, whatever the
+ * number of payments they counted.
+ * <p>
+ * A window is as precise as its buckets, it covers the current, partial bucket and the ones
+ * before it. Totals are read without stopping writers, a payment being recorded may already be
+ * counted without its amount.
+ */
+public class PaymentStatistics {
+
+  private static final StatsWindow[] WINDOWS = StatsWindow.values();
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+  private final Map<StatsWindow, AtomicReferenceArray<Bucket>> rings =
+      new EnumMap<>(StatsWindow.class);
+  private final LongSupplier clock;
+
+  /**
+   * @param clock current time in epoch milliseconds, which buckets are aligned on
+   */
+  public PaymentStatistics(LongSupplier clock) {
+    this.clock = clock;
+    for (StatsWindow window : WINDOWS) {
+      rings.put(window, new AtomicReferenceArray<>(window.buckets()));
+    }
+  }
+
+  /**
+   * Adds a processed payment to every window. Payments in a currency that is not an ISO code
+   * are not counted.
+   */
+  public void record(PaymentStatus status, String currency, int amount) {
+    int currencyIndex = IsoCurrencies.indexOf(currency);
+    if (status == null || currencyIndex < 0) {
+      return;
+    }
+    long now = clock.getAsLong();
+    for (StatsWindow window : WINDOWS) {
+      Counters counters = bucket(window, now / window.bucketMillis()).counters(currencyIndex);
+      counters.counts[status.ordinal()].increment();
+      counters.amounts[status.ordinal()].add(amount);
+    }
+  }
+
+  /**
+   * @return totals of the window by status, for each currency with payments in it in
+   * alphabetical order
+   */
+  public Map<String, Map<PaymentStatus, Totals>> totals(StatsWindow window) {
+    long epoch = clock.getAsLong() / window.bucketMillis();
+    AtomicReferenceArray<Bucket> ring = rings.get(window);
+    long[] counts = new long[IsoCurrencies.size() * STATUSES.length];
+    long[] amounts = new long[counts.length];
+    for (int slot = 0; slot < ring.length(); slot++) {
+      Bucket bucket = ring.get(slot);
+      if (bucket == null || bucket.epoch <= epoch - window.buckets() || bucket.epoch > epoch) {
+        continue;
+      }
+      for (int currency = 0; currency < IsoCurrencies.size(); currency++) {
+        Counters counters = bucket.byCurrency.get(currency);
+        if (counters == null) {
+          continue;
+        }
+        for (int status = 0; status < STATUSES.length; status++) {
+          counts[currency * STATUSES.length + status] += counters.counts[status].sum();
+          amounts[currency * STATUSES.length + status] += counters.amounts[status].sum();
+        }
+      }
+    }
+
+    Map<String, Map<PaymentStatus, Totals>> totals = new LinkedHashMap<>();
+    for (int currency = 0; currency < IsoCurrencies.size(); currency++) {
+      Map<PaymentStatus, Totals> byStatus = new EnumMap<>(PaymentStatus.class);
+      long count = 0;
+      for (PaymentStatus status : STATUSES) {
+        int i = currency * STATUSES.length + status.ordinal();
+        byStatus.put(status, new Totals(counts[i], amounts[i]));
+        count += counts[i];
+      }
+      if (count > 0) {
+        totals.put(IsoCurrencies.codeAt(currency), byStatus);
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * @return the bucket of the ring for the epoch, replacing the one of an earlier epoch
+   */
+  private Bucket bucket(StatsWindow window, long epoch) {
+    AtomicReferenceArray<Bucket> ring = rings.get(window);
+    int slot = (int) (epoch % window.buckets());
+    Bucket bucket = ring.get(slot);
+    while (bucket == null || bucket.epoch < epoch) {
+      Bucket fresh = new Bucket(epoch);
+      Bucket witness = ring.compareAndExchange(slot, bucket, fresh);
+      if (witness == bucket) {
+        return fresh;
+      }
+      bucket = witness;
+    }
+    // a writer that stalled past a whole window counts in the newer bucket
+    return bucket;
+  }
+
+  public record Totals(long count, long amount) {
+
+  }
+
+  private static final class Bucket {
+
+    private final long epoch;
+    private final AtomicReferenceArray<Counters> byCurrency =
+        new AtomicReferenceArray<>(IsoCurrencies.size());
+
+    Bucket(long epoch) {
+      this.epoch = epoch;
+    }
+
+    Counters counters(int currency) {
+      Counters counters = byCurrency.get(currency);
+      if (counters == null) {
+        Counters fresh = new Counters();
+        counters = byCurrency.compareAndExchange(currency, null, fresh);
+        if (counters == null) {
+          counters = fresh;
+        }
+      }
+      return counters;
+    }
+  }
+
+  private static final class Counters {
+
+    private final LongAdder[] counts = adders();
+    private final LongAdder[] amounts = adders();
+
+    private static LongAdder[] adders() {
+      LongAdder[] adders = new LongAdder[STATUSES.length];
+      for (int i = 0; i < adders.length; i++) {
+        adders[i] = new LongAdder();
+      }
+      return adders;
+    }
+  }
+}
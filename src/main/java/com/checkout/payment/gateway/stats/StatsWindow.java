@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.stats;
+
+import java.time.Duration;
+
+/**
+ * The rolling windows payments are aggregated over, each as a ring of time buckets.
+ */
+public enum StatsWindow {
+  LAST_MINUTE("1m", Duration.ofSeconds(1), 60),
+  LAST_HOUR("1h", Duration.ofMinutes(1), 60),
+  LAST_DAY("24h", Duration.ofMinutes(15), 96);
+
+  private final String label;
+  private final long bucketMillis;
+  private final int buckets;
+
+  StatsWindow(String label, Duration bucket, int buckets) {
+    this.label = label;
+    this.bucketMillis = bucket.toMillis();
+    this.buckets = buckets;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  long bucketMillis() {
+    return bucketMillis;
+  }
+
+  int buckets() {
+    return buckets;
+  }
+}
@@ -1,14 +1,26 @@
 package com.checkout.payment.gateway.util;
 
+import com.checkout.payment.gateway.bank.BankCallGuard;
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.bank.BankRequestSender;
+import com.checkout.payment.gateway.configuration.BankProperties;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
@@ -16,32 +28,108 @@ import org.springframework.web.client.RestTemplate;
 @Component
 public class PaymentUtil {
 
-  private static final String PAYMENT_GATEWAY_URL = "http://localhost:8080/payments";
   private static final String EXCEPTION_MESSAGE = "Bank payment service unavailable";
   private final RestTemplate restTemplate;
+  private final BankRequestSender bankRequestSender;
+  private final ObjectMapper objectMapper;
+  // decodes bank responses straight from the response bytes into BankPaymentResponse
+  private final ObjectReader bankResponseReader;
+  private final BankProperties bankProperties;
+  private final BankCallGuard bankCallGuard;
+  private final PaymentMetrics paymentMetrics;
 
   @Autowired
-  private PaymentUtil(RestTemplate restTemplate) {
+  private PaymentUtil(RestTemplate restTemplate, BankRequestSender bankRequestSender,
+      ObjectMapper objectMapper, BankProperties bankProperties, BankCallGuard bankCallGuard,
+      PaymentMetrics paymentMetrics) {
     this.restTemplate = restTemplate;
+    this.bankRequestSender = bankRequestSender;
+    this.objectMapper = objectMapper;
+    this.bankResponseReader = objectMapper.readerFor(BankPaymentResponse.class);
+    this.bankProperties = bankProperties;
+    this.bankCallGuard = bankCallGuard;
+    this.paymentMetrics = paymentMetrics;
   }
 
   /**
    * Method for calling bank simulator Returns whether the payment is authorized or not
    *
    * @return boolean
+   * @throws BankUnavailableException without calling the bank when the bank circuit is open or
+   *                                  too many calls are in flight
    */
-  public JsonNode callBankApi(PostPaymentRequest paymentRequest) throws EventProcessingException {
+  public BankPaymentResponse callBankApi(PostPaymentRequest paymentRequest)
+      throws EventProcessingException {
+    return bankCallGuard.execute(() -> postToBank(paymentRequest));
+  }
+
+  private BankPaymentResponse postToBank(PostPaymentRequest paymentRequest) {
+    long start = System.nanoTime();
+    boolean succeeded = false;
     try {
       HttpHeaders headers = new HttpHeaders();
       HttpEntity<PostPaymentRequest> entity = new HttpEntity<>(paymentRequest, headers);
 
-      ResponseEntity<String> response = restTemplate.postForEntity(PAYMENT_GATEWAY_URL, entity, String.class);
-      String jsonBody = response.getBody();
-      ObjectMapper mapper = new ObjectMapper();
+      // the response is decoded as it is read from the connection
+      BankPaymentResponse response = restTemplate.execute(bankProperties.getUrl(), HttpMethod.POST,
+          restTemplate.httpEntityCallback(entity, BankPaymentResponse.class),
+          this::readBankResponse);
+      bankRequestSender.recordBlockingCall(System.nanoTime() - start);
+      succeeded = true;
+      return response;
+    } catch (HttpServerErrorException.ServiceUnavailable e) {
+      throw new EventProcessingException(EXCEPTION_MESSAGE);
+    } finally {
+      paymentMetrics.recordBankCall(System.nanoTime() - start, succeeded);
+    }
+  }
+
+  private BankPaymentResponse readBankResponse(ClientHttpResponse response) throws IOException {
+    try {
+      return bankResponseReader.readValue(response.getBody());
+    } catch (JsonProcessingException e) {
+      throw new EventProcessingException(EXCEPTION_MESSAGE);
+    }
+  }
+
+  /**
+   * Calls the bank without blocking the calling thread. The future completes on a bank client
+   * thread once the response has arrived, exceptionally with {@link EventProcessingException}
+   * when the bank is unavailable. The timeout follows the latencies the bank has recently shown,
+   * and slow calls are hedged when enabled, see {@link BankRequestSender}. This holds with
+   * virtual threads enabled as well: a call that parks no thread gains nothing from them.
+   */
+  public CompletableFuture<BankPaymentResponse> callBankApiAsync(
+      PostPaymentRequest paymentRequest) {
+    return bankCallGuard.executeAsync(() -> sendToBank(paymentRequest));
+  }
 
-      return mapper.readTree(jsonBody);
-    } catch (JsonProcessingException | HttpServerErrorException.ServiceUnavailable e) {
+  private CompletableFuture<BankPaymentResponse> sendToBank(PostPaymentRequest paymentRequest) {
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(paymentRequest);
+    } catch (JsonProcessingException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    long start = System.nanoTime();
+    return bankRequestSender.send(bankProperties.getUrl(), body).thenApply(this::readBankResponse)
+        .whenComplete((response, error) ->
+            paymentMetrics.recordBankCall(System.nanoTime() - start, error == null));
+  }
+
+  private BankPaymentResponse readBankResponse(HttpResponse<byte[]> response) {
+    if (response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+      throw new EventProcessingException(EXCEPTION_MESSAGE);
+    }
+    if (response.statusCode() / 100 != 2) {
+      throw new IllegalStateException("Bank responded with status " + response.statusCode());
+    }
+    try {
+      return bankResponseReader.readValue(response.body());
+    } catch (JsonProcessingException e) {
       throw new EventProcessingException(EXCEPTION_MESSAGE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
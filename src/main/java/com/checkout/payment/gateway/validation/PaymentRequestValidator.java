@@ -0,0 +1,188 @@
+package com.checkout.payment.gateway.validation;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.RequestTiming;
+import com.checkout.payment.gateway.metrics.RequestTiming.Stage;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.validation.currency.IsoCurrencies;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+/**
+ * Validates a {@link PostPaymentRequest} against the constraints declared on it, without going
+ * through bean validation.
+ * <p>
+ * The checks are written out by hand so that a valid request is validated without allocating:
+ * digits are checked by scanning characters rather than with a regular expression, currencies
+ * are looked up in {@link IsoCurrencies}, and the current month is kept as a single number that
+ * is only recomputed once the month has ended. The messages and field names are those bean
+ * validation reports, so callers see the same field-error map. Where a field breaks several
+ * constraints only the first one declared on it is reported.
+ */
+@Component
+public class PaymentRequestValidator implements Validator {
+
+  static final String NOT_NULL = "must not be null";
+  static final String CARD_NUMBER_SIZE = "Card number must be between 14 and 19 characters long";
+  static final String CARD_NUMBER_DIGITS = "Card number must contain only numeric characters";
+  static final String MONTH_MIN = "Month must be at least 01";
+  static final String MONTH_MAX = "Month must be at most 12";
+  static final String YEAR_MAX = "Year must be at most 4095";
+  static final String EXPIRY_IN_PAST =
+      "Card expiry date(expiry_month + expiry_year) must be in the future";
+  static final String CURRENCY_INVALID = "is not valid";
+  static final String AMOUNT_MIN = "Amount is Required; Amount must be at least 1";
+  static final String CVV_SIZE = "CVV must be between 3 and 4 characters long";
+  static final String CVV_DIGITS = "CVV must contain only numeric characters";
+
+  private static final String ERROR_CODE = "invalid";
+  // the latest year stored payments can hold, see PaymentEncoding
+  private static final int MAX_EXPIRY_YEAR = 4095;
+
+  private final Clock clock;
+  private final PaymentMetrics paymentMetrics;
+  private volatile CurrentMonth currentMonth;
+
+  @Autowired
+  public PaymentRequestValidator(PaymentMetrics paymentMetrics) {
+    this(Clock.systemDefaultZone(), paymentMetrics);
+  }
+
+  PaymentRequestValidator(Clock clock, PaymentMetrics paymentMetrics) {
+    this.clock = clock;
+    this.paymentMetrics = paymentMetrics;
+    this.currentMonth = CurrentMonth.at(clock);
+  }
+
+  /**
+   * @return errors by field name, empty when the request is valid
+   */
+  public Map<String, String> validate(PostPaymentRequest request) {
+    long start = System.nanoTime();
+    Map<String, String> errors = check(request);
+    long nanos = System.nanoTime() - start;
+    paymentMetrics.recordValidation(nanos);
+    RequestTiming.current().record(Stage.VALIDATION, nanos);
+    return errors;
+  }
+
+  private Map<String, String> check(PostPaymentRequest request) {
+    Map<String, String> errors = null;
+
+    String cardNumber = request.getCardNumber();
+    if (cardNumber == null) {
+      errors = add(errors, "cardNumber", NOT_NULL);
+    } else if (cardNumber.length() < 14 || cardNumber.length() > 19) {
+      errors = add(errors, "cardNumber", CARD_NUMBER_SIZE);
+    } else if (!isDigits(cardNumber)) {
+      errors = add(errors, "cardNumber", CARD_NUMBER_DIGITS);
+    }
+
+    int month = request.getExpiryMonth();
+    if (month < 1) {
+      errors = add(errors, "expiryMonth", MONTH_MIN);
+    } else if (month > 12) {
+      errors = add(errors, "expiryMonth", MONTH_MAX);
+    } else if (!isInFuture(request.getExpiryYear(), month)) {
+      errors = add(errors, "expiryDate", EXPIRY_IN_PAST);
+    }
+    if (request.getExpiryYear() > MAX_EXPIRY_YEAR) {
+      errors = add(errors, "expiryYear", YEAR_MAX);
+    }
+
+    if (!IsoCurrencies.isValid(request.getCurrency())) {
+      errors = add(errors, "currency", CURRENCY_INVALID);
+    }
+
+    if (request.getAmount() < 1) {
+      errors = add(errors, "amount", AMOUNT_MIN);
+    }
+
+    String cvv = request.getCvv();
+    if (cvv == null) {
+      errors = add(errors, "cvv", NOT_NULL);
+    } else if (cvv.length() < 3 || cvv.length() > 4) {
+      errors = add(errors, "cvv", CVV_SIZE);
+    } else if (!isDigits(cvv)) {
+      errors = add(errors, "cvv", CVV_DIGITS);
+    }
+
+    return errors == null ? Collections.emptyMap() : errors;
+  }
+
+  @Override
+  public boolean supports(Class<?> clazz) {
+    return PostPaymentRequest.class.isAssignableFrom(clazz);
+  }
+
+  /**
+   * Reports the errors as field errors, so that an invalid {@code @Valid} request body is
+   * rejected the same way as with bean validation.
+   */
+  @Override
+  public void validate(Object target, Errors errors) {
+    validate((PostPaymentRequest) target)
+        .forEach((field, message) -> errors.rejectValue(field, ERROR_CODE, message));
+  }
+
+  private boolean isInFuture(int year, int month) {
+    CurrentMonth now = currentMonth;
+    long millis = clock.millis();
+    if (millis >= now.endMillis) {
+      now = CurrentMonth.at(clock);
+      currentMonth = now;
+    }
+    return monthNumber(year, month) > now.number;
+  }
+
+  private static boolean isDigits(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Map<String, String> add(Map<String, String> errors, String field,
+      String message) {
+    if (errors == null) {
+      errors = new LinkedHashMap<>();
+    }
+    errors.put(field, message);
+    return errors;
+  }
+
+  private static long monthNumber(long year, int month) {
+    return year * 12 + month - 1;
+  }
+
+  /**
+   * The current month as a number, and the instant it ends at.
+   */
+  private static final class CurrentMonth {
+
+    private final long number;
+    private final long endMillis;
+
+    private CurrentMonth(long number, long endMillis) {
+      this.number = number;
+      this.endMillis = endMillis;
+    }
+
+    private static CurrentMonth at(Clock clock) {
+      YearMonth now = YearMonth.now(clock);
+      long end = now.plusMonths(1).atDay(1).atStartOfDay(clock.getZone()).toInstant()
+          .toEpochMilli();
+      return new CurrentMonth(monthNumber(now.getYear(), now.getMonthValue()), end);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.validation.currency;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+/**
+ * Immutable table of the ISO 4217 codes known to the JDK, built once at class load.
+ * <p>
+ * A three letter code maps directly to a slot of a 26^3 entry table, so a lookup is a few
+ * arithmetic operations with no allocation. Codes are matched case-insensitively and numbered by
+ * their position in alphabetical order, which gives stores a stable short index per currency.
+ */
+public final class IsoCurrencies {
+
+  private static final int LETTERS = 26;
+
+  private static final String[] CODES = Currency.getAvailableCurrencies().stream()
+      .map(Currency::getCurrencyCode)
+      .sorted()
+      .toArray(String[]::new);
+
+  private static final short[] INDEX_BY_KEY = new short[LETTERS * LETTERS * LETTERS];
+
+  static {
+    Arrays.fill(INDEX_BY_KEY, (short) -1);
+    for (short i = 0; i < CODES.length; i++) {
+      INDEX_BY_KEY[key(CODES[i])] = i;
+    }
+  }
+
+  private IsoCurrencies() {
+  }
+
+  /**
+   * @return the index of the currency code, ignoring case, or -1 if it is not an ISO code
+   */
+  public static int indexOf(CharSequence code) {
+    if (code == null || code.length() != 3) {
+      return -1;
+    }
+    int key = key(code);
+    return key < 0 ? -1 : INDEX_BY_KEY[key];
+  }
+
+  public static boolean isValid(CharSequence code) {
+    return indexOf(code) >= 0;
+  }
+
+  /**
+   * @return the upper case code stored at the index returned by {@link #indexOf(CharSequence)}
+   */
+  public static String codeAt(int index) {
+    return CODES[index];
+  }
+
+  public static int size() {
+    return CODES.length;
+  }
+
+  private static int key(CharSequence code) {
+    int key = 0;
+    for (int i = 0; i < 3; i++) {
+      int letter = code.charAt(i) - 'A';
+      if (letter >= 32) {
+        // lower case letters sit 32 code points above upper case
+        letter -= 32;
+      }
+      if (letter < 0 || letter >= LETTERS) {
+        return -1;
+      }
+      key = key * LETTERS + letter;
+    }
+    return key;
+  }
+}
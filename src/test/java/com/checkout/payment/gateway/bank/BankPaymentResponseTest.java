@@ -0,0 +1,65 @@
+package com.checkout.payment.gateway.bank;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BankPaymentResponseTest {
+
+  private final ObjectReader reader = new ObjectMapper().readerFor(BankPaymentResponse.class);
+
+  @Test
+  void authorizedResponseCarriesAuthorizationCode() throws IOException {
+    UUID code = UUID.randomUUID();
+
+    BankPaymentResponse response = read(
+        "{\"authorized\": true, \"authorization_code\": \"" + code + "\"}");
+
+    assertTrue(response.authorized());
+    assertEquals(code, response.authorizationCode());
+  }
+
+  @Test
+  void authorizationCodeIsReadFromStreamInAnyCase() throws IOException {
+    UUID code = UUID.fromString("083d3cbb-5db5-4995-89f6-9f339e7e5660");
+    byte[] body = ("{\"authorization_code\": \"" + code.toString().toUpperCase()
+        + "\", \"authorized\": true}").getBytes(StandardCharsets.UTF_8);
+
+    BankPaymentResponse response = reader.readValue(new ByteArrayInputStream(body));
+
+    assertEquals(new BankPaymentResponse(true, code), response);
+  }
+
+  @Test
+  void declinedResponseHasNoAuthorizationCode() throws IOException {
+    BankPaymentResponse response = read(
+        "{\"authorized\": false, \"authorization_code\": \"\", \"reason\": {\"code\": 51}}");
+
+    assertFalse(response.authorized());
+    assertNull(response.authorizationCode());
+  }
+
+  @Test
+  void malformedAuthorizationCodeIsRejected() {
+    assertThrows(JsonProcessingException.class,
+        () -> read("{\"authorized\": true, \"authorization_code\": \"not-a-uuid\"}"));
+    assertThrows(JsonProcessingException.class, () -> read(
+        "{\"authorized\": true, \"authorization_code\": \"083d3cbb-5db5-4995-89f6-9f339e7e566g\"}"));
+    assertThrows(JsonProcessingException.class, () -> read("[true]"));
+  }
+
+  private BankPaymentResponse read(String json) throws IOException {
+    return reader.readValue(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
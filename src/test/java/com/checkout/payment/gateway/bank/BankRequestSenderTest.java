@@ -0,0 +1,205 @@
+package com.checkout.payment.gateway.bank;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class BankRequestSenderTest {
+
+  private static final byte[] BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+  private static HttpServer bank;
+  private static ExecutorService bankThreads;
+  private static URI bankUrl;
+  private static final Queue<String> idempotencyKeys = new ConcurrentLinkedQueue<>();
+  // latency of the next requests, a long tail unless a test sets otherwise
+  private static volatile long[] delaysMillis;
+  private static final AtomicInteger requests = new AtomicInteger();
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+
+  @BeforeAll
+  static void startBank() throws IOException {
+    bankThreads = Executors.newCachedThreadPool();
+    bank = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+    bank.setExecutor(bankThreads);
+    bank.createContext("/payments", exchange -> {
+      try {
+        exchange.getRequestBody().readAllBytes();
+        String idempotencyKey = exchange.getRequestHeaders()
+            .getFirst(BankRequestSender.IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey != null) {
+          idempotencyKeys.add(idempotencyKey);
+        }
+        long[] delays = delaysMillis;
+        Thread.sleep(delays[Math.min(requests.getAndIncrement(), delays.length - 1)]);
+        byte[] response = "{\"authorized\": true}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(response);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        exchange.close();
+      }
+    });
+    bank.start();
+    bankUrl = URI.create("http://localhost:" + bank.getAddress().getPort() + "/payments");
+  }
+
+  @AfterAll
+  static void stopBank() {
+    bank.stop(0);
+    bankThreads.shutdownNow();
+  }
+
+  @BeforeEach
+  void resetBank() {
+    idempotencyKeys.clear();
+    requests.set(0);
+  }
+
+  @Test
+  void slowCallIsHedgedWithSameIdempotencyKey() throws Exception {
+    BankLatencyTracker tracker = tracker(true, 100);
+    for (int i = 0; i < 10; i++) {
+      tracker.record(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+    // a pooled connection makes sure the first request reaches the bank before the hedge
+    delaysMillis = new long[] {0};
+    client.send(HttpRequest.newBuilder(bankUrl).POST(BodyPublishers.ofByteArray(BODY)).build(),
+        HttpResponse.BodyHandlers.discarding());
+    resetBank();
+    delaysMillis = new long[] {3_000, 0};
+
+    long start = System.nanoTime();
+    HttpResponse<byte[]> response = new BankRequestSender(client, tracker).send(bankUrl, BODY)
+        .get(2, TimeUnit.SECONDS);
+
+    assertEquals(200, response.statusCode());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    assertEquals(1, tracker.getHedgedCalls());
+    assertEquals(1, tracker.getHedgeWins());
+    assertEquals(2, idempotencyKeys.size());
+    assertEquals(1, idempotencyKeys.stream().distinct().count());
+  }
+
+  @Test
+  void hedgesAreBoundedByBudget() throws Exception {
+    BankLatencyTracker tracker = tracker(true, 10);
+    for (int i = 0; i < 10; i++) {
+      tracker.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    delaysMillis = new long[] {20};
+    BankRequestSender sender = new BankRequestSender(client, tracker);
+    for (int i = 0; i < 50; i++) {
+      sender.send(bankUrl, BODY).get(5, TimeUnit.SECONDS);
+    }
+    assertTrue(tracker.getHedgedCalls() <= 5, "hedged " + tracker.getHedgedCalls());
+  }
+
+  @Test
+  void timeoutFollowsObservedLatency() {
+    BankLatencyTracker tracker = tracker(false, 10);
+    assertEquals(Duration.ofSeconds(10), tracker.requestTimeout());
+    for (int i = 0; i < 10; i++) {
+      tracker.record(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    // p99 of 100 ms, reported as its bucket's upper bound, times three
+    long timeout = tracker.requestTimeout().toMillis();
+    assertTrue(timeout >= 300 && timeout <= 350, "timeout " + timeout);
+    for (int i = 0; i < 1000; i++) {
+      tracker.record(TimeUnit.SECONDS.toNanos(60));
+    }
+    assertEquals(Duration.ofSeconds(10), tracker.requestTimeout());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void reportsTailLatencyWithAndWithoutHedging() throws Exception {
+    int calls = 4_000;
+    run("no hedging", tracker(false, 10, 200), calls);
+    run("hedging", tracker(true, 10, 200), calls);
+  }
+
+  private void run(String name, BankLatencyTracker tracker, int calls) throws Exception {
+    BankRequestSender sender = new BankRequestSender(client, tracker);
+    // the same long tail for both runs: 90% in 5 ms, 8% in 30 ms, 2% stalled for 400 ms
+    Random random = new Random(42);
+    long[] delays = new long[calls * 2];
+    for (int i = 0; i < delays.length; i++) {
+      int roll = random.nextInt(100);
+      delays[i] = roll < 90 ? 5 : roll < 98 ? 30 : 400;
+    }
+    delaysMillis = delays;
+    requests.set(0);
+    Semaphore concurrency = new Semaphore(32);
+    long[] latencies = new long[calls];
+    AtomicInteger failures = new AtomicInteger();
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+    for (int i = 0; i < calls; i++) {
+      concurrency.acquire();
+      int call = i;
+      long start = System.nanoTime();
+      futures.add(sender.send(bankUrl, BODY).whenComplete((response, failure) -> {
+        latencies[call] = System.nanoTime() - start;
+        if (failure != null) {
+          failures.incrementAndGet();
+        }
+        concurrency.release();
+      }));
+    }
+    for (CompletableFuture<?> future : futures) {
+      future.handle((response, failure) -> null).get(5, TimeUnit.MINUTES);
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%-10s p50 %4d ms, p99 %4d ms, p99.9 %4d ms, hedged %.1f%% of calls, "
+            + "%d hedges answered first, %d failed%n", name,
+        TimeUnit.NANOSECONDS.toMillis(latencies[calls / 2]),
+        TimeUnit.NANOSECONDS.toMillis(latencies[calls * 99 / 100]),
+        TimeUnit.NANOSECONDS.toMillis(latencies[calls * 999 / 1000]),
+        tracker.getHedgedCalls() * 100.0 / calls, tracker.getHedgeWins(), failures.get());
+  }
+
+  private static BankLatencyTracker tracker(boolean hedging, int maxHedgePercent) {
+    return tracker(hedging, maxHedgePercent, 10);
+  }
+
+  private static BankLatencyTracker tracker(boolean hedging, int maxHedgePercent,
+      long minSamples) {
+    return new BankLatencyTracker(
+        new LatencyHistogram(TimeUnit.SECONDS.toNanos(60), System::nanoTime), true, 99, 3,
+        Duration.ofMillis(250), Duration.ofSeconds(10), minSamples, hedging, 95, maxHedgePercent);
+  }
+}
@@ -0,0 +1,143 @@
+package com.checkout.payment.gateway.bank;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.bank.CircuitBreaker.State;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", 50, 10, 4,
+      Duration.ofSeconds(5), 2, clock::get);
+
+  @Test
+  void opensOnceFailureRateReachesThreshold() {
+    call(true);
+    call(true);
+    call(false);
+    // three calls are below the minimum, the rate is not evaluated yet
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    call(false);
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(permitted());
+    assertEquals(1, circuitBreaker.getRejectedCalls());
+  }
+
+  @Test
+  void staysClosedBelowThreshold() {
+    for (int i = 0; i < 30; i++) {
+      call(i % 3 == 2);
+    }
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    assertEquals(40f, circuitBreaker.getFailureRate());
+  }
+
+  @Test
+  void closesAfterSuccessfulProbes() {
+    open();
+    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+    long first = circuitBreaker.tryAcquirePermission();
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    long second = circuitBreaker.tryAcquirePermission();
+    assertNotEquals(CircuitBreaker.NOT_PERMITTED, second);
+    // only as many probes as needed to decide are let through
+    assertFalse(permitted());
+    circuitBreaker.onSuccess(first);
+    circuitBreaker.onSuccess(second);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    assertEquals(-1f, circuitBreaker.getFailureRate());
+    assertEquals(1, circuitBreaker.getTransitionCounts().get(State.CLOSED));
+  }
+
+  @Test
+  void reopensWhenProbeFails() {
+    open();
+    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+    circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission());
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(permitted());
+    assertEquals(2, circuitBreaker.getTransitionCounts().get(State.OPEN));
+    assertEquals(1, circuitBreaker.getTransitionCounts().get(State.HALF_OPEN));
+  }
+
+  @Test
+  void lateOutcomeOfCallPermittedBeforeOpeningIsNotTakenForProbe() {
+    long slow = circuitBreaker.tryAcquirePermission();
+    open();
+    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+    long probe = circuitBreaker.tryAcquirePermission();
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+    // the slow call fails after the circuit went half open, the probe decides
+    circuitBreaker.onFailure(slow);
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    circuitBreaker.onSuccess(slow);
+    circuitBreaker.onSuccess(probe);
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    circuitBreaker.onSuccess(circuitBreaker.tryAcquirePermission());
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void guardRejectsWithoutCallingBank() {
+    BankCallGuard guard = new BankCallGuard(circuitBreaker, new Bulkhead(10));
+    open();
+    AtomicInteger calls = new AtomicInteger();
+
+    BankUnavailableException ex = assertThrows(BankUnavailableException.class,
+        () -> guard.execute(calls::incrementAndGet));
+    assertEquals(BankCallGuard.CIRCUIT_OPEN_MESSAGE, ex.getMessage());
+    CompletableFuture<Integer> future = guard.executeAsync(
+        () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+    CompletionException async = assertThrows(CompletionException.class, future::join);
+    assertTrue(async.getCause() instanceof BankUnavailableException);
+    assertEquals(0, calls.get());
+    assertEquals(0, guard.getBulkhead().getActiveCalls());
+  }
+
+  @Test
+  void guardRejectsWhenBulkheadIsFull() {
+    BankCallGuard guard = new BankCallGuard(circuitBreaker, new Bulkhead(1));
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    guard.executeAsync(() -> inFlight);
+
+    BankUnavailableException ex = assertThrows(BankUnavailableException.class,
+        () -> guard.execute(() -> "second"));
+    assertEquals(BankCallGuard.BULKHEAD_FULL_MESSAGE, ex.getMessage());
+    inFlight.complete("first");
+    assertEquals("third", guard.execute(() -> "third"));
+    assertEquals(1, guard.getBulkhead().getRejectedCalls());
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+    assertEquals(State.OPEN, circuitBreaker.getState());
+  }
+
+  private void call(boolean failure) {
+    long permission = circuitBreaker.tryAcquirePermission();
+    assertNotEquals(CircuitBreaker.NOT_PERMITTED, permission);
+    if (failure) {
+      circuitBreaker.onFailure(permission);
+    } else {
+      circuitBreaker.onSuccess(permission);
+    }
+  }
+
+  private boolean permitted() {
+    return circuitBreaker.tryAcquirePermission() != CircuitBreaker.NOT_PERMITTED;
+  }
+}
@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.bank.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BankSimulatorTest {
+
+  private static final String PAYMENT = "{\"card_number\": \"%s\", \"expiry_date\": \"04/2030\","
+      + " \"currency\": \"GBP\", \"amount\": 100, \"cvv\": \"123\"}";
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private BankSimulator simulator;
+
+  @AfterEach
+  void stopSimulator() {
+    if (simulator != null) {
+      simulator.stop();
+    }
+  }
+
+  @Test
+  void answersFollowTheCardNumber() throws Exception {
+    start(0);
+
+    HttpResponse<String> authorized = post(String.format(PAYMENT, "2222405343248877"));
+    JsonNode body = objectMapper.readTree(authorized.body());
+    assertEquals(200, authorized.statusCode());
+    assertTrue(body.get("authorized").asBoolean());
+    UUID.fromString(body.get("authorization_code").asText());
+
+    HttpResponse<String> declined = post(String.format(PAYMENT, "2222405343248112"));
+    assertEquals(200, declined.statusCode());
+    assertEquals("{\"authorized\": false, \"authorization_code\": \"\"}", declined.body());
+
+    assertEquals(503, post(String.format(PAYMENT, "2222405343248110")).statusCode());
+    assertEquals(400, post("{\"card_number\": \"2222405343248877\", \"amount\": 100}")
+        .statusCode());
+    assertEquals(400, post("not json").statusCode());
+  }
+
+  @Test
+  void failuresAreInjectedWhateverTheCard() throws Exception {
+    start(1);
+
+    assertEquals(503, post(String.format(PAYMENT, "2222405343248877")).statusCode());
+  }
+
+  @Test
+  void latencyProfilesHaveTheirShape() {
+    Random random = new Random(7);
+    long[] lognormal = sample(LatencyProfile.lognormal(Duration.ofMillis(50), 0.5), random);
+    long[] bimodal = sample(LatencyProfile.bimodal(Duration.ofMillis(10), Duration.ofSeconds(1),
+        0.1, 0.1), random);
+
+    assertEquals(50, lognormal[lognormal.length / 2] / 1_000_000.0, 2);
+    // the 99th percentile of a lognormal is its median times e^(2.326 sigma)
+    assertEquals(50 * Math.exp(2.326 * 0.5), lognormal[lognormal.length * 99 / 100] / 1e6, 10);
+    assertEquals(10, bimodal[bimodal.length / 2] / 1_000_000.0, 1);
+    assertEquals(0.1, Arrays.stream(bimodal).filter(nanos -> nanos > 500_000_000).count()
+        / (double) bimodal.length, 0.01);
+    assertEquals(20_000_000, LatencyProfile.fixed(Duration.ofMillis(20)).nextNanos(random));
+  }
+
+  private void start(double failureRate) throws Exception {
+    simulator = new BankSimulator(0, 4, LatencyProfile.fixed(Duration.ZERO), failureRate);
+    simulator.start();
+  }
+
+  private HttpResponse<String> post(String body) throws Exception {
+    return client.send(HttpRequest.newBuilder(
+            URI.create("http://localhost:" + simulator.getPort() + "/payments"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static long[] sample(LatencyProfile profile, Random random) {
+    long[] samples = new long[20_000];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = profile.nextNanos(random);
+    }
+    Arrays.sort(samples);
+    return samples;
+  }
+}
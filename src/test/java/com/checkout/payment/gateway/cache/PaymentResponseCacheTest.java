@@ -0,0 +1,78 @@
+package com.checkout.payment.gateway.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class PaymentResponseCacheTest {
+
+  private final PaymentResponseCache cache = new PaymentResponseCache(new ObjectMapper(), 2);
+
+  @Test
+  void firstCachedPaymentIsKept() {
+    GetPaymentResponse payment = payment(PaymentStatus.AUTHORIZED);
+    assertNull(cache.get(payment.getId()));
+
+    SerializedPayment cached = cache.put(payment.getId(), payment);
+
+    assertSame(cached, cache.put(payment.getId(), payment));
+    assertSame(cached, cache.get(payment.getId()));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void longestCachedPaymentsAreEvictedFirst() {
+    GetPaymentResponse first = payment(PaymentStatus.AUTHORIZED);
+    GetPaymentResponse second = payment(PaymentStatus.DECLINED);
+    GetPaymentResponse third = payment(PaymentStatus.AUTHORIZED);
+
+    cache.put(first.getId(), first);
+    cache.put(second.getId(), second);
+    cache.put(third.getId(), third);
+
+    assertNull(cache.get(first.getId()));
+    assertNotNull(cache.get(second.getId()));
+    assertNotNull(cache.get(third.getId()));
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  void etagIsStrongAndFollowsTheBytes() {
+    GetPaymentResponse payment = payment(PaymentStatus.AUTHORIZED);
+    String etag = cache.put(payment.getId(), payment).getEtag();
+    payment.setStatus(PaymentStatus.DECLINED);
+
+    assertTrue(etag.matches("\"[0-9a-f]{16}\""), etag);
+    assertEquals(etag, new PaymentResponseCache(new ObjectMapper(), 0)
+        .put(payment.getId(), payment(payment.getId(), PaymentStatus.AUTHORIZED)).getEtag());
+    assertNotEquals(etag, new PaymentResponseCache(new ObjectMapper(), 0)
+        .put(payment.getId(), payment).getEtag());
+  }
+
+  private static GetPaymentResponse payment(PaymentStatus status) {
+    return payment(UUID.randomUUID(), status);
+  }
+
+  private static GetPaymentResponse payment(UUID id, PaymentStatus status) {
+    GetPaymentResponse payment = new GetPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(status);
+    payment.setCardNumberLastFour("4444");
+    payment.setExpiryMonth("01");
+    payment.setExpiryYear("2030");
+    payment.setCurrency("GBP");
+    payment.setAmount(100);
+    return payment;
+  }
+}
@@ -0,0 +1,120 @@
+package com.checkout.payment.gateway.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Compares blocking bank calls on Tomcat's default 200 thread platform pool with one virtual
+ * thread per call, at increasing numbers of concurrent payments against a bank with a fixed
+ * 50 ms latency.
+ */
+@Tag("benchmark")
+class VirtualThreadThroughputTest {
+
+  private static final int PLATFORM_THREADS = 200;
+  private static final int BANK_DELAY_MILLIS = 50;
+  private static final int CALLS = 4_000;
+  private static final int[] CONCURRENCY = {50, 200, 800};
+
+  private static HttpServer bank;
+  private static ExecutorService bankThreads;
+  private static URI bankUrl;
+  private final RestTemplate restTemplate = new RestTemplate();
+
+  @BeforeAll
+  static void startBank() throws IOException {
+    bankThreads = Executors.newCachedThreadPool();
+    bank = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+    bank.setExecutor(bankThreads);
+    bank.createContext("/payments", exchange -> {
+      try {
+        exchange.getRequestBody().readAllBytes();
+        Thread.sleep(BANK_DELAY_MILLIS);
+        byte[] response = "{\"authorized\": false, \"authorization_code\": \"\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(response);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        exchange.close();
+      }
+    });
+    bank.start();
+    bankUrl = URI.create("http://localhost:" + bank.getAddress().getPort() + "/payments");
+  }
+
+  @AfterAll
+  static void stopBank() {
+    bank.stop(0);
+    bankThreads.shutdownNow();
+  }
+
+  @Test
+  void comparesPlatformAndVirtualThreads() throws Exception {
+    for (int concurrency : CONCURRENCY) {
+      run("platform", concurrency, () -> Executors.newFixedThreadPool(PLATFORM_THREADS));
+      if (VirtualThreads.isAvailable()) {
+        run("virtual", concurrency, () -> VirtualThreads.newThreadPerTaskExecutor("bench-"));
+      } else {
+        System.out.printf("virtual  concurrency %4d: skipped, running on Java %s%n", concurrency,
+            Runtime.version().feature());
+      }
+    }
+  }
+
+  private void run(String name, int concurrency, Supplier<ExecutorService> executorFactory)
+      throws InterruptedException {
+    ExecutorService executor = executorFactory.get();
+    Semaphore clients = new Semaphore(concurrency);
+    CountDownLatch done = new CountDownLatch(CALLS);
+    AtomicInteger failures = new AtomicInteger();
+    long[] latencies = new long[CALLS];
+    long start = System.nanoTime();
+    for (int i = 0; i < CALLS; i++) {
+      clients.acquire();
+      int call = i;
+      long submitted = System.nanoTime();
+      executor.execute(() -> {
+        try {
+          restTemplate.postForEntity(bankUrl, "{}", String.class);
+        } catch (RuntimeException e) {
+          failures.incrementAndGet();
+        } finally {
+          latencies[call] = System.nanoTime() - submitted;
+          clients.release();
+          done.countDown();
+        }
+      });
+    }
+    done.await(5, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+    Arrays.sort(latencies);
+    System.out.printf("%-8s concurrency %4d: %6.0f calls/s, p99 %4d ms%n", name, concurrency,
+        CALLS * 1e9 / elapsed, TimeUnit.NANOSECONDS.toMillis(latencies[CALLS * 99 / 100]));
+    assertEquals(0, failures.get());
+  }
+}
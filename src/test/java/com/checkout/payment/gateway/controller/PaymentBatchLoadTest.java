@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Compares submitting payments one {@code POST /payments} at a time with a single
+ * {@code POST /payments/batch}, against a bank with a fixed 20 ms latency.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class PaymentBatchLoadTest {
+
+  private static final int PAYMENTS = 200;
+  private static final long BANK_DELAY_MILLIS = 20;
+  private static final String PAYMENT = """
+      {"card_number": "2222405343248877", "expiry_month": 12, "expiry_year": 2030,
+       "currency": "GBP", "amount": 10, "cvv": "123"}
+      """;
+
+  private static final ExecutorService bankThreads = Executors.newCachedThreadPool();
+  private static final HttpServer bank = bank();
+
+  @LocalServerPort
+  private int port;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @DynamicPropertySource
+  static void bankUrl(DynamicPropertyRegistry registry) {
+    registry.add("payment.bank.url",
+        () -> "http://localhost:" + bank.getAddress().getPort() + "/payments");
+  }
+
+  @AfterAll
+  static void stopBank() {
+    bank.stop(0);
+    bankThreads.shutdownNow();
+  }
+
+  @Test
+  void batchIsFasterThanSequentialPayments() throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < PAYMENTS; i++) {
+      assertEquals(201, post("/payments", PAYMENT).statusCode());
+    }
+    long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    StringJoiner batch = new StringJoiner(",", "[", "]");
+    for (int i = 0; i < PAYMENTS; i++) {
+      batch.add(PAYMENT);
+    }
+    start = System.nanoTime();
+    HttpResponse<String> response = post("/payments/batch", batch.toString());
+    long batchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertEquals(200, response.statusCode());
+    assertTrue(response.body().contains("\"succeeded\":" + PAYMENTS));
+
+    System.out.printf("%d payments with a %d ms bank: sequential %d ms (%.0f payments/s), "
+            + "one batch %d ms (%.0f payments/s)%n", PAYMENTS, BANK_DELAY_MILLIS,
+        sequentialMillis, PAYMENTS * 1000.0 / sequentialMillis, batchMillis,
+        PAYMENTS * 1000.0 / batchMillis);
+    assertTrue(batchMillis < sequentialMillis);
+  }
+
+  private HttpResponse<String> post(String path, String body) throws Exception {
+    return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static HttpServer bank() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+      server.setExecutor(bankThreads);
+      server.createContext("/payments", exchange -> {
+        try {
+          exchange.getRequestBody().readAllBytes();
+          Thread.sleep(BANK_DELAY_MILLIS);
+          byte[] response = ("{\"authorized\": true, \"authorization_code\": \"" + UUID.randomUUID() + "\"}")
+              .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, response.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          exchange.close();
+        }
+      });
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,37 +1,94 @@
 package com.checkout.payment.gateway.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.cache.SerializedPayment;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.IdempotencyKeyException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.exception.InvalidSearchException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.RequestTiming;
+import com.checkout.payment.gateway.metrics.ServerTimingFilter;
+import com.checkout.payment.gateway.model.BatchPaymentResponse;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.CurrencyStats;
 import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.model.PaymentSearchResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.StatusTotals;
+import com.checkout.payment.gateway.service.PaymentBatchService;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
 
 @WebMvcTest(PaymentGatewayController.class)
+@Import({PaymentRequestValidator.class, PaymentMetrics.class, SimpleMeterRegistry.class})
 class PaymentGatewayControllerTest {
 
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WebApplicationContext context;
+
+  private static final String VALID_PAYMENT = """
+      {"card_number": "2222405343248877", "expiry_month": "12", "expiry_year": "2030",
+       "currency": "GBP", "amount": 10, "cvv": "123"}
+      """;
+
   @MockBean
   private PaymentGatewayService paymentService;
 
+  @MockBean
+  private PaymentBatchService paymentBatchService;
+
   @Test
   void shouldReturnPayment() throws Exception {
     GetPaymentResponse payment = new GetPaymentResponse();
@@ -44,17 +101,43 @@ class PaymentGatewayControllerTest {
     payment.setExpiryYear("2024");
     payment.setCardNumberLastFour("4444");
 
-    when(paymentService.getPaymentById(paymentId)).thenReturn(payment);
+    when(paymentService.getSerializedPaymentById(paymentId)).thenReturn(serialized(payment));
 
     mockMvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
         .andExpect(status().isOk())
         .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(payment.getStatus().getName()));
   }
 
+  @Test
+  void whenPaymentIsUnchangedSinceETagThen304IsReturned() throws Exception {
+    GetPaymentResponse payment = new GetPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.DECLINED);
+    SerializedPayment serialized = serialized(payment);
+    when(paymentService.getSerializedPaymentById(payment.getId())).thenReturn(serialized);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, serialized.getEtag()))
+        .andExpect(content().bytes(serialized.getJson()));
+    mockMvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, serialized.getEtag()))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, serialized.getEtag()))
+        .andExpect(content().bytes(new byte[0]));
+    mockMvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"0000000000000000\""))
+        .andExpect(status().isOk());
+  }
+
+  private SerializedPayment serialized(GetPaymentResponse payment) {
+    return new PaymentResponseCache(objectMapper, 1).put(payment.getId(), payment);
+  }
+
   @Test
   void whenPaymentWithIdDoesNotExistThen404IsReturned() throws Exception {
     UUID paymentId = UUID.randomUUID();
-    given(paymentService.getPaymentById(paymentId)).willThrow(
+    given(paymentService.getSerializedPaymentById(paymentId)).willThrow(
         new EventProcessingException("Payment with id " + paymentId + " not found"));
 
     mockMvc.perform(MockMvcRequestBuilders.get("/payment/" + paymentId))
@@ -62,6 +145,66 @@ class PaymentGatewayControllerTest {
         .andExpect(jsonPath("$.message").value("Payment with id " + paymentId + " not found"));
   }
 
+  @Test
+  void searchBindsCriteriaAndReturnsNextCursor() throws Exception {
+    GetPaymentResponse payment = new GetPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.DECLINED);
+    payment.setCurrency("GBP");
+    PaymentSearchResponse response = new PaymentSearchResponse();
+    response.setPayments(List.of(payment));
+    response.setNextCursor("41");
+    given(paymentService.searchPayments(argThat(request -> "declined".equals(request.getStatus())
+        && "GBP".equals(request.getCurrency()) && request.getMinAmount() == 100
+        && "8877".equals(request.getCardNumberLastFour()) && request.getExpiryMonth() == 4
+        && Instant.parse("2026-01-01T00:00:00Z").equals(request.getCreatedFrom())
+        && "7".equals(request.getCursor()) && request.getLimit() == 1)))
+        .willReturn(response);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "declined")
+            .param("currency", "GBP")
+            .param("minAmount", "100")
+            .param("cardNumberLastFour", "8877")
+            .param("expiryMonth", "4")
+            .param("expiryYear", "2030")
+            .param("createdFrom", "2026-01-01T00:00:00Z")
+            .param("cursor", "7")
+            .param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments[0].id").value(payment.getId().toString()))
+        .andExpect(jsonPath("$.payments[0].status").value("Declined"))
+        .andExpect(jsonPath("$.nextCursor").value("41"));
+  }
+
+  @Test
+  void statsAreReturnedByWindowAndCurrency() throws Exception {
+    CurrencyStats gbp = new CurrencyStats();
+    gbp.setCount(4);
+    gbp.setAmount(1000);
+    gbp.setStatuses(Map.of("Authorized", new StatusTotals(3, 900)));
+    gbp.setAuthorizationRate(0.75);
+    PaymentStatsResponse response = new PaymentStatsResponse();
+    response.setWindows(Map.of("1m", Map.of("GBP", gbp)));
+    given(paymentService.getPaymentStats()).willReturn(response);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/payments/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.windows['1m'].GBP.count").value(4))
+        .andExpect(jsonPath("$.windows['1m'].GBP.statuses.Authorized.amount").value(900))
+        .andExpect(jsonPath("$.windows['1m'].GBP.authorizationRate").value(0.75));
+  }
+
+  @Test
+  void whenSearchCriteriaAreInvalidThen400IsReturned() throws Exception {
+    given(paymentService.searchPayments(any())).willThrow(
+        new InvalidSearchException("Unknown payment status Pending"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/payments").param("status", "Pending"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown payment status Pending"));
+  }
+
   @Test
   void processPayment_Authorized() throws Exception {
     String requestJson = """
@@ -85,10 +228,14 @@ class PaymentGatewayControllerTest {
     postPaymentResponse.setExpiryYear("2024");
     postPaymentResponse.setCardNumberLastFour("4444");
 
-    when(paymentService.processPayment(any(PostPaymentRequest.class))).thenReturn(
-        postPaymentResponse);
-    mockMvc.perform(MockMvcRequestBuilders.post("/payments").contentType(MediaType.APPLICATION_JSON)
+    when(paymentService.processPaymentAsync(any(PostPaymentRequest.class), isNull())).thenReturn(
+        CompletableFuture.completedFuture(postPaymentResponse));
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
             .content(requestJson))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isCreated())
         .andExpect(MockMvcResultMatchers.jsonPath("$.status")
             .value(postPaymentResponse.getStatus().getName()));
@@ -118,10 +265,14 @@ class PaymentGatewayControllerTest {
     postPaymentResponse.setExpiryYear("2024");
     postPaymentResponse.setCardNumberLastFour("4444");
 
-    when(paymentService.processPayment(any(PostPaymentRequest.class))).thenReturn(
-        postPaymentResponse);
-    mockMvc.perform(MockMvcRequestBuilders.post("/payments").contentType(MediaType.APPLICATION_JSON)
+    when(paymentService.processPaymentAsync(any(PostPaymentRequest.class), isNull())).thenReturn(
+        CompletableFuture.completedFuture(postPaymentResponse));
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
             .content(requestJson))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isCreated())
         .andExpect(MockMvcResultMatchers.jsonPath("$.status")
             .value(postPaymentResponse.getStatus().getName()));
@@ -210,6 +361,27 @@ class PaymentGatewayControllerTest {
             content().string(org.hamcrest.Matchers.containsString("Month must be at most 12")));
   }
 
+  @Test
+  void whenExpiryYearCannotBeStored_thenReturns400() throws Exception {
+    String requestJson = """
+            {
+              "card_number": "2222405343242222",
+              "expiry_month": "12",
+              "expiry_year": "5000",
+              "currency": "GBP",
+              "amount": 10,
+              "cvv": "123"
+            }
+        """;
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestJson))
+        .andExpect(status().isBadRequest())
+        .andExpect(
+            content().string(org.hamcrest.Matchers.containsString("Year must be at most 4095")));
+  }
+
   @Test
   void whenExpiryMonthLessThan1_thenReturns400() throws Exception {
     String requestJson = """
@@ -374,4 +546,186 @@ class PaymentGatewayControllerTest {
         .andExpect(status().isBadRequest())
         .andExpect(content().string(org.hamcrest.Matchers.containsString("is not valid")));
   }
+
+  @Test
+  void whenBankIsUnavailableThen503IsReturned() throws Exception {
+    String requestJson = """
+            {
+              "card_number": "2222405343248877",
+              "expiry_month": "12",
+              "expiry_year": "2026",
+              "currency": "GBP",
+              "amount": 10,
+              "cvv": "123"
+            }
+        """;
+
+    when(paymentService.processPaymentAsync(any(PostPaymentRequest.class), isNull())).thenReturn(
+        CompletableFuture.failedFuture(new BankUnavailableException("Bank circuit is open")));
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestJson))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.message").value("Bank circuit is open"));
+  }
+
+  @Test
+  void processBatch_ResultsPerPayment() throws Exception {
+    String requestJson = """
+            [
+              {
+                "card_number": "2222405343248877",
+                "expiry_month": "12",
+                "expiry_year": "2026",
+                "currency": "GBP",
+                "amount": 10,
+                "cvv": "123"
+              },
+              {
+                "card_number": "22",
+                "expiry_month": "12",
+                "expiry_year": "2026",
+                "currency": "GBP",
+                "amount": 10,
+                "cvv": "123"
+              }
+            ]
+        """;
+
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    BatchPaymentResult created = new BatchPaymentResult();
+    created.setIndex(0);
+    created.setStatus(201);
+    created.setPayment(payment);
+    BatchPaymentResult rejected = new BatchPaymentResult();
+    rejected.setIndex(1);
+    rejected.setStatus(400);
+    rejected.setErrors(Map.of("cardNumber", "Card number must be between 14 and 19 characters long"));
+    BatchPaymentResponse batchResponse = new BatchPaymentResponse();
+    batchResponse.setSucceeded(1);
+    batchResponse.setFailed(1);
+    batchResponse.setResults(List.of(created, rejected));
+
+    when(paymentBatchService.processBatch(anyList())).thenReturn(
+        CompletableFuture.completedFuture(batchResponse));
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestJson))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.succeeded").value(1))
+        .andExpect(jsonPath("$.results[0].payment.status").value("Authorized"))
+        .andExpect(jsonPath("$.results[0].errors").doesNotExist())
+        .andExpect(jsonPath("$.results[1].status").value(400))
+        .andExpect(jsonPath("$.results[1].errors.cardNumber").exists());
+  }
+
+  @Test
+  void whenBatchIsEmptyThen400IsReturned() throws Exception {
+    given(paymentBatchService.processBatch(anyList())).willThrow(
+        new InvalidBatchException("Payment batch must contain at least one payment"));
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/payments/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Payment batch must contain at least one payment"));
+  }
+
+  @Test
+  void processStream_WritesResultLines() throws Exception {
+    doAnswer(invocation -> {
+      InputStream input = invocation.getArgument(0);
+      OutputStream output = invocation.getArgument(1);
+      long records = new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().count();
+      for (int i = 0; i < records; i++) {
+        output.write(("{\"index\":" + i + ",\"status\":201}\n").getBytes(StandardCharsets.UTF_8));
+      }
+      return null;
+    }).when(paymentBatchService).processStream(any(InputStream.class), any(OutputStream.class));
+
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments/stream")
+            .contentType("application/x-ndjson")
+            .content("{\"amount\": 1}\n{\"amount\": 2}\n"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    // the upload may take as long as the stream timeout
+    assertEquals(Duration.ofHours(1).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string("{\"index\":0,\"status\":201}\n{\"index\":1,\"status\":201}\n"));
+  }
+
+  @Test
+  void idempotencyKeyIsPassedToService() throws Exception {
+    PostPaymentResponse postPaymentResponse = new PostPaymentResponse();
+    postPaymentResponse.setId(UUID.randomUUID());
+    postPaymentResponse.setStatus(PaymentStatus.AUTHORIZED);
+    when(paymentService.processPaymentAsync(any(PostPaymentRequest.class), eq("retry-1")))
+        .thenReturn(CompletableFuture.completedFuture(postPaymentResponse));
+
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header("Idempotency-Key", "retry-1")
+            .content(VALID_PAYMENT))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    // a single payment keeps the default timeout
+    assertNotEquals(Duration.ofHours(1).toMillis(),
+        result.getRequest().getAsyncContext().getTimeout());
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.id").value(postPaymentResponse.getId().toString()));
+  }
+
+  @Test
+  void whenIdempotencyKeyIsReusedForDifferentPaymentThen422IsReturned() throws Exception {
+    given(paymentService.processPaymentAsync(any(PostPaymentRequest.class), eq("retry-1")))
+        .willThrow(new IdempotencyKeyException(
+            "Idempotency key retry-1 was already used for a different payment"));
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header("Idempotency-Key", "retry-1")
+            .content(VALID_PAYMENT))
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.message")
+            .value("Idempotency key retry-1 was already used for a different payment"));
+  }
+
+  @Test
+  void serverTimingIsReportedOnErrorResponses() throws Exception {
+    MockMvc timed = MockMvcBuilders.webAppContextSetup(context)
+        .addFilters(new ServerTimingFilter(1.0, false))
+        .build();
+    UUID paymentId = UUID.randomUUID();
+    given(paymentService.getSerializedPaymentById(paymentId)).willThrow(
+        new EventProcessingException("Payment with id " + paymentId + " not found"));
+    when(paymentService.processPaymentAsync(any(PostPaymentRequest.class), isNull())).thenReturn(
+        CompletableFuture.failedFuture(new BankUnavailableException("Bank circuit is open")));
+
+    timed.perform(MockMvcRequestBuilders.get("/payment/" + paymentId))
+        .andExpect(status().isNotFound())
+        .andExpect(header().string(RequestTiming.SERVER_TIMING,
+            org.hamcrest.Matchers.startsWith("total;dur=")));
+    // the bank answers after the request thread is released, the timing is reported on dispatch
+    MvcResult result = timed.perform(MockMvcRequestBuilders.post("/payments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(VALID_PAYMENT))
+        .andExpect(request().asyncStarted())
+        .andExpect(header().doesNotExist(RequestTiming.SERVER_TIMING))
+        .andReturn();
+    timed.perform(asyncDispatch(result))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string(RequestTiming.SERVER_TIMING,
+            org.hamcrest.Matchers.containsString("total;dur=")));
+  }
 }
@@ -0,0 +1,122 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Drives many concurrent payments through a gateway with a small Tomcat pool against a slow
+ * bank, to show that in-flight payments are not bounded by the number of worker threads.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "server.tomcat.threads.max=4")
+class PaymentGatewayLoadTest {
+
+  private static final int TOMCAT_THREADS = 4;
+  private static final int CONCURRENT_PAYMENTS = 200;
+  private static final long BANK_DELAY_MILLIS = 500;
+
+  private static final AtomicInteger inFlight = new AtomicInteger();
+  private static final AtomicInteger maxInFlight = new AtomicInteger();
+  private static final ExecutorService bankThreads = Executors.newCachedThreadPool();
+  private static final HttpServer bank = slowBank();
+
+  @LocalServerPort
+  private int port;
+
+  @DynamicPropertySource
+  static void bankUrl(DynamicPropertyRegistry registry) {
+    registry.add("payment.bank.url",
+        () -> "http://localhost:" + bank.getAddress().getPort() + "/payments");
+  }
+
+  @AfterAll
+  static void stopBank() {
+    bank.stop(0);
+    bankThreads.shutdownNow();
+  }
+
+  @Test
+  void inFlightPaymentsAreNotLimitedByWorkerThreads() throws Exception {
+    HttpClient client = HttpClient.newHttpClient();
+    String body = """
+        {"card_number": "2222405343248877", "expiry_month": 12, "expiry_year": 2030,
+         "currency": "GBP", "amount": 10, "cvv": "123"}
+        """;
+    long start = System.nanoTime();
+    List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+    for (int i = 0; i < CONCURRENT_PAYMENTS; i++) {
+      responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(body))
+          .build(), HttpResponse.BodyHandlers.ofString()));
+    }
+    for (CompletableFuture<HttpResponse<String>> response : responses) {
+      assertEquals(201, response.get(1, TimeUnit.MINUTES).statusCode());
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    long blockingEstimate = CONCURRENT_PAYMENTS / TOMCAT_THREADS * BANK_DELAY_MILLIS;
+    System.out.printf("%d payments with a %d ms bank took %d ms, peak %d in flight at the bank "
+            + "with %d worker threads (a thread per payment would need at least %d ms)%n",
+        CONCURRENT_PAYMENTS, BANK_DELAY_MILLIS, elapsed, maxInFlight.get(), TOMCAT_THREADS,
+        blockingEstimate);
+    assertTrue(maxInFlight.get() > TOMCAT_THREADS);
+    assertTrue(elapsed < blockingEstimate);
+  }
+
+  private static HttpServer slowBank() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+      server.setExecutor(bankThreads);
+      server.createContext("/payments", exchange -> {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+          exchange.getRequestBody().readAllBytes();
+          Thread.sleep(BANK_DELAY_MILLIS);
+          byte[] response = ("{\"authorized\": true, \"authorization_code\": \"" + UUID.randomUUID() + "\"}")
+              .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, response.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          inFlight.decrementAndGet();
+          exchange.close();
+        }
+      });
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
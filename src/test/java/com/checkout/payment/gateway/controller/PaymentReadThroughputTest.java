@@ -0,0 +1,88 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Measures how many payment lookups per second the gateway serves end to end, over HTTP, for a
+ * fixed number of clients. Lookups do not call the bank, so the rate mostly reflects the
+ * request handling and response serialization of the gateway itself.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class PaymentReadThroughputTest {
+
+  private static final int CLIENTS = 8;
+  private static final int PAYMENTS = 10_000;
+  private static final long WARM_UP_SECONDS = 5;
+  private static final long MEASURE_SECONDS = 10;
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private PaymentsRepository paymentsRepository;
+
+  @Test
+  void lookupsPerSecond() throws Exception {
+    List<URI> urls = new ArrayList<>();
+    for (int i = 0; i < PAYMENTS; i++) {
+      UUID id = UUID.randomUUID();
+      paymentsRepository.save(new Payment(id, PaymentStatus.AUTHORIZED.getName(),
+          "************8877", 1 + i % 12, 2030, "GBP", 100 + i));
+      urls.add(URI.create("http://localhost:" + port + "/payment/" + id));
+    }
+    HttpClient client = HttpClient.newHttpClient();
+
+    run(client, urls, WARM_UP_SECONDS);
+    long lookups = run(client, urls, MEASURE_SECONDS);
+
+    System.out.printf("%d clients served %d lookups/s%n", CLIENTS, lookups / MEASURE_SECONDS);
+  }
+
+  private static long run(HttpClient client, List<URI> urls, long seconds) throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Future<Long>> counts = new ArrayList<>();
+    for (int c = 0; c < CLIENTS; c++) {
+      counts.add(clients.submit(() -> {
+        long count = 0;
+        while (System.nanoTime() < end) {
+          URI url = urls.get(ThreadLocalRandom.current().nextInt(urls.size()));
+          HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(url).build(),
+              HttpResponse.BodyHandlers.ofByteArray());
+          assertEquals(200, response.statusCode());
+          count++;
+        }
+        return count;
+      }));
+    }
+    long total = 0;
+    for (Future<Long> count : counts) {
+      total += count.get();
+    }
+    clients.shutdown();
+    return total;
+  }
+}
@@ -0,0 +1,72 @@
+package com.checkout.payment.gateway.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdGeneratorTest {
+
+  private final AtomicLong now = new AtomicLong(1_767_225_600_000L);
+  private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(now::get);
+
+  @Test
+  void idsAreVersion7AndCarryTheirGenerationTime() {
+    UUID id = generator.next();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertEquals(now.get(), TimeOrderedIdGenerator.timestampOf(id));
+    assertEquals(-1, TimeOrderedIdGenerator.timestampOf(UUID.randomUUID()));
+  }
+
+  @Test
+  void idsOfAThreadIncreaseEvenWithinAMillisecondOrWhenTheClockGoesBack() {
+    UUID previous = generator.next();
+    // more ids than the counter holds in one millisecond
+    for (int i = 0; i < 20_000; i++) {
+      if (i == 10_000) {
+        now.addAndGet(-5);
+      }
+      UUID id = generator.next();
+      assertTrue(id.compareTo(previous) > 0, id + " after " + previous);
+      previous = id;
+    }
+    now.addAndGet(1_000);
+    UUID later = generator.next();
+    assertTrue(later.compareTo(previous) > 0);
+    assertEquals(now.get(), TimeOrderedIdGenerator.timestampOf(later));
+  }
+
+  @Test
+  void concurrentThreadsGenerateDistinctIds() throws Exception {
+    int threads = 8;
+    int perThread = 100_000;
+    Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          ids.add(generator.next());
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(1, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+
+    assertEquals(threads * perThread, ids.size());
+  }
+}
@@ -0,0 +1,91 @@
+package com.checkout.payment.gateway.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyCacheTest {
+
+  private static final byte[] FINGERPRINT = {1, 2, 3};
+
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final IdempotencyCache<String> cache = new IdempotencyCache<>(100, 3, clock::get);
+
+  @Test
+  void retryWaitsForRequestInFlight() {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    CompletableFuture<String> first = cache.computeIfAbsent("a", FINGERPRINT, () -> inFlight);
+    CompletableFuture<String> retry = cache.computeIfAbsent("a", FINGERPRINT, this::request);
+
+    assertEquals(0, requests.get());
+    inFlight.complete("done");
+    assertEquals("done", first.join());
+    assertEquals("done", retry.join());
+    assertEquals(1, cache.getHits());
+    assertEquals(0.5, cache.getHitRate());
+  }
+
+  @Test
+  void entriesExpireAfterTtl() {
+    assertEquals("1", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    clock.addAndGet(99);
+    assertEquals("1", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    clock.addAndGet(1);
+    assertEquals("2", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  void oldestEntriesAreEvictedBeyondMaxEntries() {
+    for (String key : new String[] {"a", "b", "c", "d"}) {
+      cache.computeIfAbsent(key, FINGERPRINT, this::request).join();
+    }
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getEvictions());
+    // "a" was the oldest, it is requested again
+    assertEquals("5", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    assertEquals("3", cache.computeIfAbsent("c", FINGERPRINT, this::request).join());
+  }
+
+  @Test
+  void keyReusedForDifferentRequestIsRejected() {
+    assertEquals("1", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    assertThrows(IdempotencyKeyException.class,
+        () -> cache.computeIfAbsent("a", new byte[] {1, 2, 4}, this::request));
+    // equal content in another array is the same request
+    assertEquals("1", cache.computeIfAbsent("a", FINGERPRINT.clone(), this::request).join());
+  }
+
+  @Test
+  void failedRequestIsNotRemembered() {
+    CompletableFuture<String> failed = cache.computeIfAbsent("a", FINGERPRINT,
+        () -> CompletableFuture.failedFuture(new IllegalStateException("bank down")));
+    assertThrows(CompletionException.class, failed::join);
+
+    assertEquals("1", cache.computeIfAbsent("a", FINGERPRINT, this::request).join());
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  void cancellingOneCallerDoesNotAffectOthers() {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    CompletableFuture<String> first = cache.computeIfAbsent("a", FINGERPRINT, () -> inFlight);
+    CompletableFuture<String> retry = cache.computeIfAbsent("a", FINGERPRINT, this::request);
+    first.cancel(true);
+    inFlight.complete("done");
+    assertTrue(first.isCancelled());
+    assertEquals("done", retry.join());
+  }
+
+  private CompletableFuture<String> request() {
+    return CompletableFuture.completedFuture(String.valueOf(requests.incrementAndGet()));
+  }
+}
@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PaymentMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final PaymentMetrics paymentMetrics = new PaymentMetrics(registry);
+
+  @Test
+  void stagesAreTimed() {
+    paymentMetrics.recordValidation(1_000);
+    paymentMetrics.recordBankCall(TimeUnit.MILLISECONDS.toNanos(40), true);
+    paymentMetrics.recordBankCall(TimeUnit.MILLISECONDS.toNanos(60), false);
+    paymentMetrics.recordSave(2_000);
+    paymentMetrics.recordSave(3_000);
+
+    assertEquals(1, registry.get(PaymentMetrics.VALIDATION).timer().count());
+    assertEquals(40, registry.get(PaymentMetrics.BANK_CALL).tag("outcome", "success").timer()
+        .totalTime(TimeUnit.MILLISECONDS));
+    assertEquals(1, registry.get(PaymentMetrics.BANK_CALL).tag("outcome", "failure").timer()
+        .count());
+    assertEquals(5_000, registry.get(PaymentMetrics.REPOSITORY).tag("operation", "save").timer()
+        .totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(0, registry.get(PaymentMetrics.REPOSITORY).tag("operation", "find").timer()
+        .count());
+  }
+
+  @Test
+  void outcomesAreCountedByStatusAndCurrency() {
+    paymentMetrics.recordOutcome(PaymentStatus.AUTHORIZED, "GBP");
+    paymentMetrics.recordOutcome(PaymentStatus.AUTHORIZED, "gbp");
+    paymentMetrics.recordOutcome(PaymentStatus.DECLINED, "GBP");
+    paymentMetrics.recordOutcome(PaymentStatus.DECLINED, "ZZZ");
+    paymentMetrics.recordOutcome(null, "USD");
+
+    assertEquals(2, registry.get(PaymentMetrics.OUTCOMES)
+        .tags("status", PaymentStatus.AUTHORIZED.getName(), "currency", "GBP").counter().count());
+    assertEquals(1, registry.get(PaymentMetrics.OUTCOMES)
+        .tags("status", PaymentStatus.DECLINED.getName(), "currency", "GBP").counter().count());
+    assertEquals(2, registry.find(PaymentMetrics.OUTCOMES).counters().size());
+    assertNull(registry.find(PaymentMetrics.OUTCOMES).tag("currency", "USD").counter());
+  }
+
+  @Test
+  void errorsAreCountedByException() {
+    paymentMetrics.recordError(new BankUnavailableException("open"));
+    paymentMetrics.recordError(new BankUnavailableException("open"));
+
+    assertEquals(2, registry.get(PaymentMetrics.ERRORS)
+        .tag("exception", "BankUnavailableException").counter().count());
+  }
+}
@@ -0,0 +1,65 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.metrics.RequestTiming.Stage;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class RequestTimingTest {
+
+  @Test
+  void serverTimingListsRecordedStagesInMilliseconds() {
+    RequestTiming timing = new RequestTiming(System.nanoTime(), true, false);
+    timing.record(Stage.VALIDATION, 12_345);
+    timing.record(Stage.BANK, 41_503_999);
+    timing.record(Stage.REPOSITORY, 1_000);
+    timing.record(Stage.REPOSITORY, 9_000);
+
+    String serverTiming = timing.finish(201);
+
+    assertTrue(Pattern.matches("validation;dur=0\\.012, bank;dur=41\\.503, "
+        + "repository;dur=0\\.010, total;dur=\\d+\\.\\d{3}", serverTiming), serverTiming);
+  }
+
+  @Test
+  void unsampledRequestsRecordNothing() {
+    assertSame(RequestTiming.NONE, RequestTiming.current());
+    RequestTiming.NONE.record(Stage.BANK, 1_000);
+    assertFalse(RequestTiming.NONE.isSampled());
+  }
+
+  @Test
+  void filterOpensTimingForRequestThread() throws Exception {
+    RequestTiming seen = timingSeenBy(new ServerTimingFilter(1.0, false));
+
+    assertTrue(seen.isSampled());
+    assertSame(RequestTiming.NONE, RequestTiming.current());
+  }
+
+  @Test
+  void filterSkipsRequestsOutsideSample() throws Exception {
+    assertSame(RequestTiming.NONE, timingSeenBy(new ServerTimingFilter(0.0, false)));
+  }
+
+  private static RequestTiming timingSeenBy(ServerTimingFilter filter) throws Exception {
+    AtomicReference<RequestTiming> seen = new AtomicReference<>();
+    filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+        new MockFilterChain(new HttpServlet() {
+          @Override
+          protected void service(HttpServletRequest request, HttpServletResponse response) {
+            seen.set(RequestTiming.current());
+          }
+        }));
+    return seen.get();
+  }
+}
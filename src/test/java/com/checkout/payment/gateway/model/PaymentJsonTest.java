@@ -0,0 +1,100 @@
+package com.checkout.payment.gateway.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class PaymentJsonTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  // serializes and deserializes the models from their bean properties, as before they had their
+  // own serializers
+  private final ObjectMapper beanMapper = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+        @Override
+        public Object findSerializer(Annotated annotated) {
+          return annotated.getRawType() == PaymentStatus.class
+              ? super.findSerializer(annotated) : null;
+        }
+
+        @Override
+        public Object findDeserializer(Annotated annotated) {
+          return null;
+        }
+      });
+
+  @Test
+  void responsesAreWrittenAsBeanSerializationWritesThem() throws Exception {
+    GetPaymentResponse getResponse = new GetPaymentResponse();
+    getResponse.setId(UUID.fromString("083d3cbb-5db5-4995-89f6-9f339e7e5660"));
+    getResponse.setStatus(PaymentStatus.AUTHORIZED);
+    getResponse.setCardNumberLastFour("8877");
+    getResponse.setExpiryMonth("04");
+    getResponse.setExpiryYear("2030");
+    getResponse.setCurrency("GBP");
+    getResponse.setAmount(1050);
+    PostPaymentResponse postResponse = new PostPaymentResponse();
+    postResponse.setId(UUID.randomUUID());
+    postResponse.setStatus(PaymentStatus.DECLINED);
+    postResponse.setCardNumberLastFour("0427");
+    postResponse.setExpiryMonth("12");
+    postResponse.setExpiryYear("2031");
+    postResponse.setCurrency("usd\"é");
+    postResponse.setAmount(-1);
+
+    assertInstanceOf(BeanSerializer.class,
+        beanMapper.getSerializerProviderInstance().findValueSerializer(GetPaymentResponse.class));
+    for (Object response : List.of(getResponse, postResponse, new GetPaymentResponse(),
+        new PostPaymentResponse())) {
+      assertArrayEquals(beanMapper.writeValueAsBytes(response),
+          objectMapper.writeValueAsBytes(response), response.toString());
+    }
+  }
+
+  @Test
+  void requestsAreReadAsBeanDeserializationReadsThem() throws Exception {
+    List<String> bodies = List.of(
+        "{\"card_number\": \"2222405343248877\", \"expiry_month\": 4, \"expiry_year\": 2030,"
+            + " \"currency\": \"GBP\", \"amount\": 1050, \"cvv\": \"123\"}",
+        "{\"card_number\": \"2222405343248877\", \"expiry_month\": \"12\", \"expiry_year\": \"2026\","
+            + " \"currency\": \"GBP\", \"amount\": 10.7, \"cvv\": 123}",
+        "{\"card_number\": null, \"expiry_month\": null, \"amount\": 5, \"expiry_date\": \"4/2030\","
+            + " \"extra\": {\"nested\": [1, 2]}}",
+        "{}");
+
+    for (String body : bodies) {
+      assertEquals(beanMapper.readValue(body, PostPaymentRequest.class).toString(),
+          objectMapper.readValue(body, PostPaymentRequest.class).toString(), body);
+    }
+  }
+
+  @Test
+  void requestErrorsNameTheField() {
+    JsonMappingException error = assertThrows(JsonMappingException.class,
+        () -> objectMapper.readValue("{\"amount\": \"ten\"}", PostPaymentRequest.class));
+    assertEquals("amount", error.getPath().get(0).getFieldName());
+
+    error = assertThrows(JsonMappingException.class,
+        () -> objectMapper.readValue("{\"amount\": 3000000000}", PostPaymentRequest.class));
+    assertEquals("amount", error.getPath().get(0).getFieldName());
+
+    error = assertThrows(JsonMappingException.class, () -> new ObjectMapper()
+        .readValue("{\"expiry_date\": \"4/2030\"}", PostPaymentRequest.class));
+    assertEquals("expiry_date", error.getPath().get(0).getFieldName());
+    assertEquals(1, error.getPath().size());
+  }
+}
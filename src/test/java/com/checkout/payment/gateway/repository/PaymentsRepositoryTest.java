@@ -0,0 +1,305 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedIdGenerator;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.index.Page;
+import com.checkout.payment.gateway.repository.index.PaymentQuery;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PaymentsRepositoryTest {
+
+  private static final int THREADS = 8;
+
+  @Test
+  void saveReturnsExistingPaymentForDuplicateId() {
+    PaymentsRepository repository = new PaymentsRepository(new StripedPaymentStore());
+    UUID id = UUID.randomUUID();
+    Payment first = payment(id);
+
+    assertSame(first, repository.save(first).orElseThrow());
+    assertSame(first, repository.save(payment(id)).orElseThrow());
+    assertSame(first, repository.findByPaymentId(id).orElseThrow());
+    assertTrue(repository.findByPaymentId(UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  void savedAndAlreadyStoredPaymentsAreSearchableInCreationOrder() {
+    Instant now = Instant.parse("2026-03-01T10:15:30.123456Z");
+    StripedPaymentStore store = new StripedPaymentStore();
+    Payment older = payment(UUID.randomUUID());
+    older.setCreatedAt(now.minusSeconds(60));
+    Payment oldest = payment(UUID.randomUUID());
+    oldest.setCreatedAt(now.minusSeconds(120));
+    store.putIfAbsent(older);
+    store.putIfAbsent(oldest);
+    PaymentsRepository repository = new PaymentsRepository(store,
+        Clock.fixed(now, ZoneOffset.UTC));
+
+    Payment saved = repository.save(payment(UUID.randomUUID())).orElseThrow();
+    List<Payment> batch = repository.saveAll(List.of(payment(UUID.randomUUID())));
+    repository.save(payment(saved.getId()));
+
+    assertEquals(Instant.parse("2026-03-01T10:15:30.123Z"), saved.getCreatedAt());
+    PaymentQuery query = new PaymentQuery();
+    query.setCurrency("GBP");
+    query.setLimit(3);
+    Page<Payment> first = repository.search(query);
+    assertEquals(List.of(oldest, older, saved), first.items());
+    query.setAfter(first.cursor());
+    Page<Payment> second = repository.search(query);
+    assertEquals(batch, second.items());
+    assertEquals(-1, second.cursor());
+
+    query = new PaymentQuery();
+    query.setCreatedFrom(now.minusSeconds(90));
+    assertEquals(List.of(older, saved, batch.get(0)), repository.search(query).items());
+  }
+
+  @Test
+  void paymentsStoredWithoutCreationTimeAreIndexedAtTheTimeOfTheirId() {
+    Instant now = Instant.parse("2026-03-01T10:15:30.123Z");
+    StripedPaymentStore store = new StripedPaymentStore();
+    Payment timeOrdered = payment(
+        new TimeOrderedIdGenerator(() -> now.minusSeconds(30).toEpochMilli()).next());
+    Payment random = payment(UUID.randomUUID());
+    store.putIfAbsent(timeOrdered);
+    store.putIfAbsent(random);
+    PaymentsRepository repository = new PaymentsRepository(store,
+        Clock.fixed(now, ZoneOffset.UTC));
+
+    PaymentQuery query = new PaymentQuery();
+    query.setCreatedFrom(now.minusSeconds(60));
+    assertEquals(List.of(timeOrdered), repository.search(query).items());
+    assertEquals(now.minusSeconds(30), timeOrdered.getCreatedAt());
+  }
+
+  @Test
+  void concurrentWritersDoNotLoseOrDuplicatePayments() throws Exception {
+    PaymentsRepository repository = new PaymentsRepository(new StripedPaymentStore());
+    int perThread = 50_000;
+    UUID[] shared = new UUID[1_000];
+    for (int i = 0; i < shared.length; i++) {
+      shared[i] = UUID.randomUUID();
+    }
+
+    List<List<Payment>> saved = runConcurrently(THREADS, thread -> {
+      List<Payment> mine = new ArrayList<>(perThread);
+      for (int i = 0; i < perThread; i++) {
+        Payment payment = payment(UUID.randomUUID());
+        repository.save(payment);
+        mine.add(payment);
+        // every thread races on the same ids, all of them must agree on a single winner
+        Payment contended = repository.save(payment(shared[i % shared.length])).orElseThrow();
+        assertSame(contended, repository.findByPaymentId(contended.getId()).orElseThrow());
+      }
+      return mine;
+    });
+
+    for (List<Payment> payments : saved) {
+      for (Payment payment : payments) {
+        assertSame(payment, repository.findByPaymentId(payment.getId()).orElseThrow());
+      }
+    }
+    for (UUID id : shared) {
+      assertTrue(repository.findByPaymentId(id).isPresent());
+    }
+  }
+
+  @Test
+  void concurrentSavesAreSearchableInCreationOrder() throws Exception {
+    // every save is a millisecond after the previous one and its store write takes a random time
+    PaymentStore store = new SlowPaymentStore(new StripedPaymentStore());
+    PaymentsRepository repository = new PaymentsRepository(store, new TickingClock());
+    int perThread = 500;
+
+    runConcurrently(THREADS, thread -> {
+      for (int i = 0; i < perThread; i++) {
+        if (i % 10 == 0) {
+          repository.saveAll(List.of(payment(UUID.randomUUID()), payment(UUID.randomUUID())));
+        } else {
+          repository.save(payment(UUID.randomUUID()));
+        }
+      }
+      return null;
+    });
+
+    PaymentQuery query = new PaymentQuery();
+    query.setLimit(100);
+    Set<UUID> seen = new HashSet<>();
+    Instant previous = Instant.MIN;
+    Page<Payment> page;
+    do {
+      page = repository.search(query);
+      for (Payment payment : page.items()) {
+        assertTrue(seen.add(payment.getId()));
+        assertTrue(!payment.getCreatedAt().isBefore(previous),
+            () -> payment.getCreatedAt() + " indexed after a later payment");
+        previous = payment.getCreatedAt();
+      }
+      query.setAfter(page.cursor());
+    } while (page.cursor() >= 0);
+    assertEquals(store.size(), seen.size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void mixedReadWriteThroughputScalesWithThreads() throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+    double singleThreaded = throughput(1);
+    System.out.printf("PaymentsRepository 1 thread: %.0f ops/s%n", singleThreaded);
+    for (int threads = 2; threads <= Math.max(2, cores); threads <<= 1) {
+      double ops = throughput(threads);
+      System.out.printf("PaymentsRepository %d threads: %.0f ops/s (x%.2f)%n", threads, ops,
+          ops / singleThreaded);
+      if (threads <= cores) {
+        // lock-free reads and striped writes must not collapse when threads are added
+        assertTrue(ops > singleThreaded, "throughput dropped at " + threads + " threads");
+      }
+    }
+  }
+
+  /**
+   * Runs 90% lookups and 10% inserts against a pre-populated repository.
+   */
+  private static double throughput(int threads) throws Exception {
+    PaymentsRepository repository = new PaymentsRepository(new StripedPaymentStore());
+    UUID[] ids = new UUID[100_000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      repository.save(payment(ids[i]));
+    }
+    int operations = 2_000_000;
+    long start = System.nanoTime();
+    runConcurrently(threads, thread -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < operations; i++) {
+        if (random.nextInt(10) == 0) {
+          repository.save(payment(UUID.randomUUID()));
+        } else {
+          repository.findByPaymentId(ids[random.nextInt(ids.length)]);
+        }
+      }
+      return null;
+    });
+    return (double) operations * threads / (System.nanoTime() - start) * TimeUnit.SECONDS.toNanos(1);
+  }
+
+  private static <T> List<T> runConcurrently(int threads, ThreadTask<T> task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<T>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        Callable<T> callable = () -> {
+          start.await();
+          return task.run(thread);
+        };
+        futures.add(executor.submit(callable));
+      }
+      start.countDown();
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : futures) {
+        results.add(future.get(2, TimeUnit.MINUTES));
+      }
+      assertEquals(threads, results.size());
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Payment payment(UUID id) {
+    return new Payment(id, PaymentStatus.AUTHORIZED.getName(), "************4444", 12, 2030, "GBP",
+        100);
+  }
+
+  private interface ThreadTask<T> {
+
+    T run(int thread) throws Exception;
+  }
+
+  private static final class TickingClock extends Clock {
+
+    private final AtomicLong millis = new AtomicLong(Instant.parse("2026-03-01T10:15:30Z")
+        .toEpochMilli());
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis.incrementAndGet());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private record SlowPaymentStore(PaymentStore delegate) implements PaymentStore {
+
+    @Override
+    public Payment get(UUID id) {
+      return delegate.get(id);
+    }
+
+    @Override
+    public Payment putIfAbsent(Payment payment) {
+      pause();
+      return delegate.putIfAbsent(payment);
+    }
+
+    @Override
+    public List<Payment> putAllIfAbsent(List<Payment> payments) {
+      pause();
+      return delegate.putAllIfAbsent(payments);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Payment> action) {
+      delegate.forEach(action);
+    }
+
+    private static void pause() {
+      if (ThreadLocalRandom.current().nextInt(4) == 0) {
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(100_000));
+      }
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.checkout.payment.gateway.repository.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PaymentIndexTest {
+
+  private static final String[] CURRENCIES = {"GBP", "USD", "EUR", "JPY"};
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  @Test
+  void pagesThroughExactlyThePaymentsMatchingEachQuery() {
+    Random random = new Random(42);
+    List<Payment> payments = new ArrayList<>();
+    PaymentIndex index = new PaymentIndex();
+    for (int i = 0; i < 20_000; i++) {
+      Payment payment = randomPayment(random, i);
+      payments.add(payment);
+      index.add(payment);
+    }
+
+    for (int q = 0; q < 300; q++) {
+      PaymentQuery query = randomQuery(random);
+      query.setLimit(1 + random.nextInt(50));
+      List<UUID> expected = payments.stream().filter(matcher(query)).map(Payment::getId).toList();
+
+      List<UUID> found = new ArrayList<>();
+      for (int pages = 0; ; pages++) {
+        assertTrue(pages <= expected.size() / query.getLimit() + 1, "too many pages");
+        Page<UUID> page = index.search(query);
+        assertTrue(page.items().size() <= query.getLimit());
+        found.addAll(page.items());
+        if (page.cursor() < 0) {
+          break;
+        }
+        query.setAfter(page.cursor());
+      }
+      assertEquals(expected, found, "query " + q);
+    }
+  }
+
+  @Test
+  void paymentsPassedInAnyOrderAreIndexedOldestFirst() {
+    Random random = new Random(11);
+    List<Payment> payments = new ArrayList<>();
+    // more than a chunk of columns, with creation times shared by several payments
+    for (int i = 0; i < 150_000; i++) {
+      Payment payment = randomPayment(random, i);
+      if (payment.getCreatedAt() != null) {
+        payment.setCreatedAt(START.plusSeconds(random.nextInt(10_000)));
+      }
+      payments.add(payment);
+    }
+    PaymentIndex loaded = new PaymentIndex();
+    loaded.addInCreationOrder(payments::forEach);
+
+    // the order add would have been called in, ties keeping the order they were passed in
+    List<Payment> sorted = new ArrayList<>(payments);
+    sorted.sort(Comparator.comparing(Payment::getCreatedAt,
+        Comparator.nullsFirst(Comparator.naturalOrder())));
+    PaymentIndex added = new PaymentIndex();
+    sorted.forEach(added::add);
+    for (int q = 0; q < 50; q++) {
+      PaymentQuery query = q == 0 ? new PaymentQuery() : randomQuery(random);
+      query.setLimit(payments.size());
+      assertEquals(added.search(query), loaded.search(query), "query " + q);
+    }
+  }
+
+  @Test
+  void unknownOrContradictoryCriteriaMatchNothing() {
+    PaymentIndex index = new PaymentIndex();
+    index.add(payment(UUID.randomUUID(), "GBP", 100, START));
+
+    PaymentQuery query = new PaymentQuery();
+    query.setCurrency("ZZZ");
+    assertTrue(index.search(query).items().isEmpty());
+
+    query = new PaymentQuery();
+    query.setMinAmount(200);
+    query.setMaxAmount(100);
+    assertTrue(index.search(query).items().isEmpty());
+
+    query = new PaymentQuery();
+    query.setCreatedFrom(START);
+    query.setCreatedTo(START);
+    assertTrue(index.search(query).items().isEmpty());
+
+    assertEquals(1, index.search(new PaymentQuery()).items().size());
+  }
+
+  @Test
+  void searchesSeeOnlyFullyIndexedPaymentsWhileWritersAdd() throws Exception {
+    PaymentIndex index = new PaymentIndex();
+    Map<UUID, Integer> amounts = new ConcurrentHashMap<>();
+    int total = 200_000;
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> writer = executor.submit(() -> {
+        for (int i = 0; i < total; i++) {
+          Payment payment = payment(UUID.randomUUID(), "GBP", i % 1000, START.plusMillis(i));
+          amounts.put(payment.getId(), payment.getAmount());
+          index.add(payment);
+        }
+      });
+      PaymentQuery query = new PaymentQuery();
+      query.setCurrency("GBP");
+      query.setMinAmount(999);
+      query.setLimit(100);
+      while (!writer.isDone()) {
+        // a payment read before it is fully indexed would show another id or amount
+        for (UUID id : index.search(query).items()) {
+          assertEquals(999, amounts.get(id));
+        }
+      }
+      writer.get(1, TimeUnit.MINUTES);
+    } finally {
+      executor.shutdownNow();
+    }
+    PaymentQuery query = new PaymentQuery();
+    query.setMinAmount(999);
+    query.setLimit(1000);
+    assertEquals(total / 1000, index.search(query).items().size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void reportsMemoryPerPayment() {
+    Random random = new Random(7);
+    int count = 2_000_000;
+    Runtime runtime = Runtime.getRuntime();
+    long before = usedHeap(runtime);
+    PaymentIndex index = new PaymentIndex();
+    Payment payment = payment(null, "GBP", 0, START);
+    for (int i = 0; i < count; i++) {
+      // the index copies what it needs, one payment object can be reused
+      payment.setId(new UUID(random.nextLong(), random.nextLong()));
+      payment.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+      payment.setAmount(random.nextInt(1_000_000));
+      payment.setCreatedAt(START.plusMillis(i));
+      index.add(payment);
+    }
+    long measured = usedHeap(runtime) - before;
+
+    System.out.printf("PaymentIndex %d payments: %.1f bytes/payment estimated,"
+            + " %.1f bytes/payment measured%n", count, (double) index.memoryBytes() / count,
+        (double) measured / count);
+    assertEquals(count, index.size());
+  }
+
+  private static long usedHeap(Runtime runtime) {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static Payment randomPayment(Random random, int i) {
+    Payment payment = payment(UUID.randomUUID(), CURRENCIES[random.nextInt(CURRENCIES.length)],
+        random.nextInt(100) == 0 ? random.nextInt(20) : random.nextInt(100_000),
+        // mostly in order, as when payments are saved concurrently
+        START.plusSeconds(i).minusMillis(random.nextInt(3000)));
+    payment.setPaymentStatus(
+        PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)].getName());
+    payment.setCardNumber("************" + (1000 + random.nextInt(20)));
+    payment.setExpiryMonth(1 + random.nextInt(2));
+    if (random.nextInt(50) == 0) {
+      payment.setCreatedAt(null);
+    }
+    return payment;
+  }
+
+  private static PaymentQuery randomQuery(Random random) {
+    PaymentQuery query = new PaymentQuery();
+    if (random.nextInt(3) == 0) {
+      query.setStatus(PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)]);
+    }
+    if (random.nextInt(3) == 0) {
+      query.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)].toLowerCase());
+    }
+    if (random.nextInt(3) == 0) {
+      query.setMinAmount(random.nextInt(100_000));
+    }
+    if (random.nextInt(3) == 0) {
+      int from = query.getMinAmount() == null ? 0 : query.getMinAmount();
+      query.setMaxAmount(from + random.nextInt(2000));
+    }
+    if (random.nextInt(3) == 0) {
+      query.setCardNumberLastFour(Integer.toString(1000 + random.nextInt(20)));
+      query.setExpiryMonth(1 + random.nextInt(2));
+      query.setExpiryYear(2030);
+    }
+    if (random.nextInt(3) == 0) {
+      query.setCreatedFrom(START.plusSeconds(random.nextInt(20_000)));
+    }
+    if (random.nextInt(3) == 0) {
+      query.setCreatedTo(START.plusSeconds(random.nextInt(20_000)));
+    }
+    return query;
+  }
+
+  /**
+   * The query evaluated directly against a payment.
+   */
+  private static Predicate<Payment> matcher(PaymentQuery query) {
+    return payment -> (query.getStatus() == null
+        || query.getStatus().getName().equals(payment.getPaymentStatus()))
+        && (query.getCurrency() == null || query.getCurrency().equalsIgnoreCase(payment.getCurrency()))
+        && (query.getMinAmount() == null || payment.getAmount() >= query.getMinAmount())
+        && (query.getMaxAmount() == null || payment.getAmount() <= query.getMaxAmount())
+        && (query.getCardNumberLastFour() == null
+        || payment.getCardNumber().endsWith(query.getCardNumberLastFour())
+        && payment.getExpiryMonth() == query.getExpiryMonth()
+        && payment.getExpiryYear() == query.getExpiryYear())
+        && (query.getCreatedFrom() == null || payment.getCreatedAt() != null
+        && !payment.getCreatedAt().isBefore(query.getCreatedFrom()))
+        && (query.getCreatedTo() == null || payment.getCreatedAt() == null
+        || payment.getCreatedAt().isBefore(query.getCreatedTo()));
+  }
+
+  private static Payment payment(UUID id, String currency, int amount, Instant createdAt) {
+    Payment payment = new Payment(id, PaymentStatus.AUTHORIZED.getName(), "************8877", 4,
+        2030, currency, amount);
+    payment.setCreatedAt(createdAt);
+    return payment;
+  }
+}
@@ -0,0 +1,212 @@
+package com.checkout.payment.gateway.repository.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.CompactPaymentStore;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JdbcPaymentStoreTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void paymentsAreReadBackAfterReopening() {
+    Payment stored = payment(UUID.randomUUID(), 12345);
+    stored.setCreatedAt(Instant.parse("2026-05-04T03:02:01.123Z"));
+    Payment withoutCreatedAt = payment(UUID.randomUUID(), 1);
+    try (JdbcPaymentStore store = open(100)) {
+      assertNull(store.putIfAbsent(stored));
+      assertNull(store.putIfAbsent(withoutCreatedAt));
+      assertEquals(12345, store.putIfAbsent(payment(stored.getId(), -1)).getAmount());
+    }
+
+    try (JdbcPaymentStore store = open(100)) {
+      Payment payment = store.get(stored.getId());
+      assertEquals(stored.getId(), payment.getId());
+      assertEquals(stored.getPaymentStatus(), payment.getPaymentStatus());
+      assertEquals(stored.getCardNumber(), payment.getCardNumber());
+      assertEquals(stored.getExpiryMonth(), payment.getExpiryMonth());
+      assertEquals(stored.getExpiryYear(), payment.getExpiryYear());
+      assertEquals(stored.getCurrency(), payment.getCurrency());
+      assertEquals(stored.getAmount(), payment.getAmount());
+      assertEquals(stored.getCreatedAt(), payment.getCreatedAt());
+      assertNull(store.get(withoutCreatedAt.getId()).getCreatedAt());
+      assertNull(store.get(UUID.randomUUID()));
+      assertEquals(2, store.size());
+    }
+  }
+
+  @Test
+  void concurrentSavesAreCoalescedIntoBatches() throws Exception {
+    int threads = 8;
+    int perThread = 500;
+    UUID[] ids = new UUID[perThread];
+    Arrays.setAll(ids, i -> UUID.randomUUID());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (JdbcPaymentStore store = open(100)) {
+      List<Future<Integer>> inserted = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int amount = t;
+        // every thread saves the same ids, each is inserted by one of them only
+        inserted.add(executor.submit(() -> {
+          int count = 0;
+          for (UUID id : ids) {
+            if (store.putIfAbsent(payment(id, amount)) == null) {
+              count++;
+            }
+          }
+          return count;
+        }));
+      }
+      int total = 0;
+      for (Future<Integer> future : inserted) {
+        total += future.get();
+      }
+
+      assertEquals(perThread, total);
+      assertEquals(perThread, store.size());
+      assertTrue(store.batchCount() < threads * perThread,
+          () -> store.batchCount() + " batches");
+      Set<UUID> visited = new HashSet<>();
+      store.forEach(payment -> assertTrue(visited.add(payment.getId())));
+      assertEquals(Set.of(ids), visited);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void savedTogetherPaymentsAreSentInOneBatch() {
+    try (JdbcPaymentStore store = open(100)) {
+      Payment taken = payment(UUID.randomUUID(), 1);
+      store.putIfAbsent(taken);
+      Payment first = payment(UUID.randomUUID(), 2);
+      long batches = store.batchCount();
+
+      List<Payment> existing = store.putAllIfAbsent(List.of(first, payment(taken.getId(), 3),
+          payment(first.getId(), 4), payment(UUID.randomUUID(), 5)));
+
+      assertEquals(batches + 1, store.batchCount());
+      assertNull(existing.get(0));
+      assertEquals(1, existing.get(1).getAmount());
+      assertEquals(2, existing.get(2).getAmount());
+      assertNull(existing.get(3));
+      assertEquals(3, store.size());
+    }
+  }
+
+  @Test
+  void rejectsPaymentsTheTableCannotHold() {
+    try (JdbcPaymentStore store = open(100)) {
+      Payment tooLong = new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(),
+          "*".repeat(40), 4, 2030, "GBP", 1);
+      Payment valid = payment(UUID.randomUUID(), 1);
+
+      assertThrows(IllegalStateException.class, () -> store.putIfAbsent(tooLong));
+      assertNull(store.putIfAbsent(valid));
+      assertEquals(1, store.size());
+    }
+  }
+
+  /**
+   * Insert throughput from concurrent savers and lookup latency of the jdbc store against the
+   * compact in-memory store, both holding the same payments.
+   */
+  @Test
+  @Tag("benchmark")
+  void reportsInsertThroughputAndLookupLatency() throws Exception {
+    int payments = 200_000;
+    try (JdbcPaymentStore jdbc = open(1_000)) {
+      report("compact", new CompactPaymentStore(), payments);
+      report("jdbc", jdbc, payments);
+      System.out.printf("jdbc: %.1f payments per batch%n", (double) payments / jdbc.batchCount());
+
+      // the batch endpoints save their payments together
+      long start = System.nanoTime();
+      for (int i = 0; i < payments; i += 1_000) {
+        List<Payment> batch = new ArrayList<>(1_000);
+        for (int j = 0; j < 1_000; j++) {
+          batch.add(payment(UUID.randomUUID(), i + j));
+        }
+        jdbc.putAllIfAbsent(batch);
+      }
+      System.out.printf("jdbc: %.0f inserts/s saved 1000 at a time%n",
+          payments * 1e9 / (System.nanoTime() - start));
+    }
+  }
+
+  private static void report(String name, PaymentStore store, int payments) throws Exception {
+    int threads = 16;
+    UUID[] ids = new UUID[payments];
+    Arrays.setAll(ids, i -> UUID.randomUUID());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> savers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int first = t;
+        savers.add(executor.submit(() -> {
+          for (int i = first; i < payments; i += threads) {
+            store.putIfAbsent(payment(ids[i], i));
+          }
+        }));
+      }
+      for (Future<?> saver : savers) {
+        saver.get();
+      }
+      long insertNanos = System.nanoTime() - start;
+
+      int lookups = 100_000;
+      long[] latencies = new long[lookups];
+      for (int i = 0; i < lookups; i++) {
+        UUID id = ids[ThreadLocalRandom.current().nextInt(payments)];
+        long lookup = System.nanoTime();
+        Payment payment = store.get(id);
+        latencies[i] = System.nanoTime() - lookup;
+        assertEquals(id, payment.getId());
+      }
+      Arrays.sort(latencies);
+      System.out.printf("%s: %.0f inserts/s from %d threads, lookups median %.1f us,"
+              + " p99 %.1f us%n", name, payments * 1e9 / insertNanos, threads,
+          latencies[lookups / 2] / 1e3, latencies[lookups * 99 / 100] / 1e3);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private JdbcPaymentStore open(int maxBatchSize) {
+    HikariConfig pool = new HikariConfig();
+    pool.setJdbcUrl("jdbc:h2:file:" + directory.resolve("payments"));
+    pool.setUsername("sa");
+    pool.setMaximumPoolSize(4);
+    return new JdbcPaymentStore(new HikariDataSource(pool), maxBatchSize);
+  }
+
+  private static Payment payment(UUID id, int amount) {
+    return new Payment(id, PaymentStatus.AUTHORIZED.getName(), "************4444", 4, 2030, "GBP",
+        amount);
+  }
+}
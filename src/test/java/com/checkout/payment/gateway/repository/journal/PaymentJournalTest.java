@@ -0,0 +1,267 @@
+package com.checkout.payment.gateway.repository.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.CompactPaymentStore;
+import com.checkout.payment.gateway.repository.store.PaymentEncoding;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PaymentJournalTest {
+
+  private static final long SMALL_SEGMENT = PaymentJournal.HEADER_SIZE + 100L * PaymentJournal.RECORD_SIZE;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void paymentsAreRecoveredAfterRestart() {
+    List<Payment> saved = new ArrayList<>();
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      for (int i = 0; i < 250; i++) {
+        Payment payment = payment(i);
+        store.putIfAbsent(payment);
+        // duplicates are not journaled a second time
+        store.putIfAbsent(payment);
+        saved.add(payment);
+      }
+    }
+
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      assertEquals(saved.size(), store.size());
+      for (Payment payment : saved) {
+        Payment recovered = store.get(payment.getId());
+        assertEquals(payment.getAmount(), recovered.getAmount());
+        assertEquals(payment.getCardNumber(), recovered.getCardNumber());
+        assertEquals(payment.getPaymentStatus(), recovered.getPaymentStatus());
+        assertEquals(payment.getCreatedAt(), recovered.getCreatedAt());
+      }
+    }
+  }
+
+  @Test
+  void batchIsJournaledWithOneForce() {
+    List<Payment> batch = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      batch.add(payment(i));
+    }
+    Payment duplicate = batch.get(0);
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      store.putIfAbsent(duplicate);
+      List<Payment> existing = store.putAllIfAbsent(batch);
+      assertEquals(duplicate, existing.get(0));
+      assertNull(existing.get(1));
+    }
+    PaymentJournal journal = PaymentJournal.open(directory, FsyncPolicy.PER_WRITE,
+        Duration.ofMillis(10), SMALL_SEGMENT);
+    List<Payment> batchOfTwo = List.of(payment(1), payment(2));
+    long forces = journal.forceCount();
+    journal.appendAll(batchOfTwo);
+    assertEquals(forces + 1, journal.forceCount());
+    assertEquals(152, journal.size());
+    journal.close();
+  }
+
+  @Test
+  void replayStartsFromTheGivenPositionAcrossSegments() {
+    List<Payment> saved = new ArrayList<>();
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      for (int i = 0; i < 250; i++) {
+        saved.add(payment(i));
+        store.putIfAbsent(saved.get(i));
+      }
+      assertEquals(250, store.journalSize());
+    }
+
+    try (JournaledPaymentStore store = new JournaledPaymentStore(new StripedPaymentStore(),
+        PaymentJournal.open(directory, FsyncPolicy.PER_WRITE, Duration.ofMillis(10),
+            SMALL_SEGMENT), 130)) {
+      assertEquals(120, store.size());
+      assertNull(store.get(saved.get(129).getId()));
+      assertNotNull(store.get(saved.get(130).getId()));
+      assertNotNull(store.get(saved.get(249).getId()));
+    }
+  }
+
+  @Test
+  void paymentThatCannotBeJournaledIsNotStored() {
+    Payment unencodable = payment(1);
+    unencodable.setExpiryYear(5000);
+    List<Payment> batch = List.of(payment(2), unencodable);
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(unencodable));
+      assertThrows(IllegalArgumentException.class, () -> store.putAllIfAbsent(batch));
+
+      assertNull(store.get(unencodable.getId()));
+      assertNull(store.get(batch.get(0).getId()));
+      assertEquals(0, store.journalSize());
+      // a retry is journaled rather than taken for an existing payment
+      unencodable.setExpiryYear(2030);
+      assertNull(store.putIfAbsent(unencodable));
+      assertEquals(1, store.journalSize());
+    }
+
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      assertEquals(1, store.size());
+      assertNotNull(store.get(unencodable.getId()));
+    }
+  }
+
+  @Test
+  void tornRecordAtTailIsDiscardedAndOverwritten() throws IOException {
+    Payment last = payment(2);
+    try (JournaledPaymentStore store = open(FsyncPolicy.OS)) {
+      store.putIfAbsent(payment(0));
+      store.putIfAbsent(payment(1));
+      store.putIfAbsent(last);
+    }
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.findFirst().orElseThrow();
+    }
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}),
+          PaymentJournal.HEADER_SIZE + 2L * PaymentJournal.RECORD_SIZE + 20);
+    }
+
+    Payment replacement = payment(3);
+    try (JournaledPaymentStore store = open(FsyncPolicy.OS)) {
+      assertEquals(2, store.size());
+      assertNull(store.get(last.getId()));
+      store.putIfAbsent(replacement);
+    }
+    try (JournaledPaymentStore store = open(FsyncPolicy.OS)) {
+      assertEquals(3, store.size());
+      assertNotNull(store.get(replacement.getId()));
+    }
+  }
+
+  @Test
+  void segmentsWithoutCreationTimesAreReplayedAndFollowedByCurrentOnes() throws IOException {
+    int recordsPerSegment = 5;
+    List<Payment> legacy = List.of(payment(0), payment(1));
+    try (FileChannel channel = FileChannel.open(
+        directory.resolve("payments-00000000000000000000.journal"), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer segment = ByteBuffer.allocate(
+          PaymentJournal.HEADER_SIZE + recordsPerSegment * PaymentJournal.V1_RECORD_SIZE);
+      segment.putInt(0, 0x50474a4c).putInt(4, 1).putInt(8, PaymentJournal.V1_RECORD_SIZE)
+          .putInt(12, recordsPerSegment);
+      for (int i = 0; i < legacy.size(); i++) {
+        writeVersion1Record(segment,
+            PaymentJournal.HEADER_SIZE + i * PaymentJournal.V1_RECORD_SIZE, legacy.get(i));
+      }
+      channel.write(segment);
+    }
+
+    List<Payment> current = new ArrayList<>();
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      assertEquals(2, store.size());
+      assertEquals(legacy.get(1).getAmount(), store.get(legacy.get(1).getId()).getAmount());
+      assertNull(store.get(legacy.get(1).getId()).getCreatedAt());
+      for (int i = 2; i < 7; i++) {
+        current.add(payment(i));
+        store.putIfAbsent(current.get(current.size() - 1));
+      }
+    }
+
+    try (JournaledPaymentStore store = open(FsyncPolicy.PER_WRITE)) {
+      assertEquals(7, store.size());
+      // the first segment keeps its format until it is full
+      assertNull(store.get(current.get(2).getId()).getCreatedAt());
+      assertEquals(current.get(3).getCreatedAt(), store.get(current.get(3).getId()).getCreatedAt());
+      assertEquals(current.get(4).getAmount(), store.get(current.get(4).getId()).getAmount());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  @Tag("benchmark")
+  void reportsWriteThroughputAndRecoveryTime(FsyncPolicy policy) throws Exception {
+    int threads = 16;
+    int perThread = policy == FsyncPolicy.PER_WRITE ? 2_000 : 100_000;
+    PaymentJournal journal = PaymentJournal.open(directory, policy, Duration.ofMillis(10),
+        64L * 1024 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          journal.append(payment(i));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(5, TimeUnit.MINUTES);
+    }
+    long writeNanos = System.nanoTime() - start;
+    executor.shutdown();
+    journal.close();
+    long appends = (long) threads * perThread;
+    System.out.printf("%s: %d appends at %.0f/s with %d forces%n", policy, appends,
+        appends * 1e9 / writeNanos, journal.forceCount());
+
+    start = System.nanoTime();
+    try (JournaledPaymentStore store = new JournaledPaymentStore(new CompactPaymentStore(),
+        PaymentJournal.open(directory, policy, Duration.ofMillis(10), 64L * 1024 * 1024))) {
+      System.out.printf("%s: recovered %d payments in %d ms%n", policy, store.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      assertEquals(appends, store.size());
+    }
+  }
+
+  private JournaledPaymentStore open(FsyncPolicy policy) {
+    return new JournaledPaymentStore(new StripedPaymentStore(),
+        PaymentJournal.open(directory, policy, Duration.ofMillis(10), SMALL_SEGMENT));
+  }
+
+  private static Payment payment(int amount) {
+    PaymentStatus status = amount % 2 == 0 ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED;
+    Payment payment = new Payment(UUID.randomUUID(), status.getName(),
+        "************" + (1000 + amount % 9000), 12, 2030, "GBP", amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_767_225_600_000L + amount));
+    return payment;
+  }
+
+  private static void writeVersion1Record(ByteBuffer segment, int offset, Payment payment) {
+    ByteBuffer record = ByteBuffer.allocate(PaymentJournal.V1_RECORD_SIZE)
+        .putLong(0, payment.getId().getMostSignificantBits())
+        .putLong(8, payment.getId().getLeastSignificantBits())
+        .put(16, PaymentEncoding.encodeStatus(payment.getPaymentStatus()))
+        .putShort(17, PaymentEncoding.encodeCurrency(payment.getCurrency()))
+        .putInt(19, PaymentEncoding.encodeCard(payment.getCardNumber()))
+        .putChar(23, PaymentEncoding.encodeExpiry(payment.getExpiryMonth(), payment.getExpiryYear()))
+        .putInt(25, payment.getAmount());
+    CRC32C crc = new CRC32C();
+    crc.update(record.array(), 0, 32);
+    record.putInt(32, (int) crc.getValue());
+    segment.put(offset, record.array());
+  }
+}
@@ -0,0 +1,206 @@
+package com.checkout.payment.gateway.repository.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.journal.FsyncPolicy;
+import com.checkout.payment.gateway.repository.journal.JournaledPaymentStore;
+import com.checkout.payment.gateway.repository.journal.PaymentJournal;
+import com.checkout.payment.gateway.repository.store.CompactPaymentStore;
+import com.checkout.payment.gateway.repository.store.PaymentStore;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PaymentSnapshotTest {
+
+  private static final String[] CURRENCIES = {"GBP", "EUR", "USD", "JPY", "CHF"};
+  private static final long START = 1_767_225_600_000L;
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void paymentsAreRestoredAcrossChunks(boolean compact) {
+    Supplier<PaymentStore> stores = compact ? CompactPaymentStore::new : StripedPaymentStore::new;
+    Random random = new Random(1);
+    List<Payment> saved = new ArrayList<>();
+    for (int i = 0; i < PaymentSnapshot.CHUNK_SIZE + 1000; i++) {
+      saved.add(payment(random, i));
+    }
+    saved.get(7).setCreatedAt(null);
+    saved.get(8).setAmount(Integer.MAX_VALUE);
+    PaymentStore store = stores.get();
+    saved.forEach(store::putIfAbsent);
+
+    PaymentSnapshot.write(directory, store, 42, () -> START);
+    PaymentStore restored = stores.get();
+    PaymentSnapshot.Loaded loaded = PaymentSnapshot.loadLatest(directory, restored).orElseThrow();
+
+    assertEquals(saved.size(), loaded.payments());
+    assertEquals(42, loaded.journalPosition());
+    assertEquals(saved.size(), restored.size());
+    for (Payment payment : saved) {
+      Payment copy = restored.get(payment.getId());
+      assertEquals(payment.getPaymentStatus(), copy.getPaymentStatus());
+      assertEquals(payment.getCardNumber(), copy.getCardNumber());
+      assertEquals(payment.getExpiryMonth(), copy.getExpiryMonth());
+      assertEquals(payment.getExpiryYear(), copy.getExpiryYear());
+      assertEquals(payment.getCurrency(), copy.getCurrency());
+      assertEquals(payment.getAmount(), copy.getAmount());
+      assertEquals(payment.getCreatedAt(), copy.getCreatedAt());
+    }
+  }
+
+  @Test
+  void latestSnapshotReplacesEarlierOnesAndNoneIsEmpty() throws IOException {
+    assertTrue(PaymentSnapshot.loadLatest(directory, new StripedPaymentStore()).isEmpty());
+    PaymentStore store = new StripedPaymentStore();
+    store.putIfAbsent(payment(new Random(1), 1));
+    PaymentSnapshot.write(directory, store, 1, () -> START);
+    store.putIfAbsent(payment(new Random(2), 2));
+    Path latest = PaymentSnapshot.write(directory, store, 2, () -> START + 1);
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(List.of(latest), files.toList());
+    }
+    PaymentStore restored = new StripedPaymentStore();
+    assertEquals(2, PaymentSnapshot.loadLatest(directory, restored).orElseThrow().payments());
+    assertEquals(2, restored.size());
+  }
+
+  @Test
+  void corruptChunkIsRejected() throws IOException {
+    PaymentStore store = new CompactPaymentStore();
+    for (int i = 0; i < 100; i++) {
+      store.putIfAbsent(payment(new Random(i), i));
+    }
+    Path file = PaymentSnapshot.write(directory, store, 0, () -> START);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), PaymentSnapshot.HEADER_SIZE + 10);
+    }
+
+    assertThrows(IllegalStateException.class,
+        () -> PaymentSnapshot.loadLatest(directory, new CompactPaymentStore()));
+  }
+
+  @Test
+  void failedSnapshotLeavesNoFileBehind() throws IOException {
+    PaymentStore store = new StripedPaymentStore();
+    Payment unencodable = payment(new Random(1), 1);
+    unencodable.setExpiryYear(5000);
+    store.putIfAbsent(unencodable);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> PaymentSnapshot.write(directory, store, 0, () -> START));
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(List.of(), files.toList());
+    }
+  }
+
+  @Test
+  void snapshotAndJournalTailRestoreEveryPayment() {
+    Path journalDirectory = directory.resolve("journal");
+    Path snapshots = directory.resolve("snapshots");
+    List<Payment> saved = new ArrayList<>();
+    Random random = new Random(1);
+    try (JournaledPaymentStore store = journaled(new CompactPaymentStore(), journalDirectory, 0)) {
+      for (int i = 0; i < 500; i++) {
+        saved.add(payment(random, i));
+        store.putIfAbsent(saved.get(i));
+      }
+      PaymentSnapshotter snapshotter = new PaymentSnapshotter(snapshots, store,
+          store::journalSize, Duration.ofHours(1), () -> START);
+      assertTrue(snapshotter.snapshot());
+      assertFalse(snapshotter.snapshot());
+      snapshotter.close();
+      for (int i = 500; i < 700; i++) {
+        saved.add(payment(random, i));
+        store.putIfAbsent(saved.get(i));
+      }
+    }
+
+    PaymentStore restored = new CompactPaymentStore();
+    PaymentSnapshot.Loaded loaded = PaymentSnapshot.loadLatest(snapshots, restored).orElseThrow();
+    assertEquals(500, loaded.journalPosition());
+    assertNull(restored.get(saved.get(500).getId()));
+    try (JournaledPaymentStore store = journaled(restored, journalDirectory,
+        loaded.journalPosition())) {
+      assertEquals(saved.size(), store.size());
+      for (Payment payment : saved) {
+        assertEquals(payment.getAmount(), store.get(payment.getId()).getAmount());
+      }
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  void reportsSnapshotSizeAndLoadTime() throws IOException {
+    int payments = Integer.getInteger("snapshot.benchmark.payments", 5_000_000);
+    PaymentStore store = new CompactPaymentStore();
+    Random random = new Random(1);
+    for (int i = 0; i < payments; i++) {
+      store.putIfAbsent(payment(random, i));
+    }
+
+    long start = System.nanoTime();
+    Path file = PaymentSnapshot.write(directory, store, 0, System::currentTimeMillis);
+    long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    long bytes = Files.size(file);
+    store = null;
+
+    PaymentStore restored = new CompactPaymentStore();
+    start = System.nanoTime();
+    PaymentSnapshot.loadLatest(directory, restored);
+    long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    System.out.printf("%d payments: %d bytes (%.1f per payment), written in %d ms, loaded in %d"
+            + " ms on %d cores%n", payments, bytes, (double) bytes / payments, writeMillis,
+        loadMillis, Runtime.getRuntime().availableProcessors());
+    assertEquals(payments, restored.size());
+  }
+
+  private static JournaledPaymentStore journaled(PaymentStore store, Path journalDirectory,
+      long replayFrom) {
+    return new JournaledPaymentStore(store, PaymentJournal.open(journalDirectory,
+        FsyncPolicy.OS, Duration.ofMillis(10), 64L * 1024 * 1024), replayFrom);
+  }
+
+  /**
+   * A payment saved about every 10 ms, with the amounts, cards and statuses of card traffic.
+   */
+  private static Payment payment(Random random, int sequence) {
+    int status = random.nextInt(100);
+    Payment payment = new Payment(new UUID(random.nextLong(), random.nextLong()),
+        (status < 90 ? PaymentStatus.AUTHORIZED
+            : status < 99 ? PaymentStatus.DECLINED : PaymentStatus.REJECTED).getName(),
+        String.format("************%04d", random.nextInt(10_000)), 1 + random.nextInt(12),
+        2026 + random.nextInt(10), CURRENCIES[random.nextInt(CURRENCIES.length)],
+        (int) Math.exp(4 + 3 * random.nextDouble() * random.nextDouble() * 3));
+    payment.setCreatedAt(Instant.ofEpochMilli(START + sequence * 10L + random.nextInt(10)));
+    return payment;
+  }
+}
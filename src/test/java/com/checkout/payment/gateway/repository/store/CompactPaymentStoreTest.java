@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.repository.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class CompactPaymentStoreTest {
+
+  @Test
+  void storedPaymentIsRebuiltWithSameValues() {
+    CompactPaymentStore store = new CompactPaymentStore();
+    UUID id = UUID.randomUUID();
+    Payment stored = new Payment(id, PaymentStatus.DECLINED.getName(), "***************0427", 3,
+        2031, "JPY", 12345);
+    stored.setCreatedAt(Instant.parse("2026-05-04T03:02:01.123Z"));
+    store.putIfAbsent(stored);
+
+    Payment payment = store.get(id);
+    assertEquals(id, payment.getId());
+    assertEquals(PaymentStatus.DECLINED.getName(), payment.getPaymentStatus());
+    assertEquals("***************0427", payment.getCardNumber());
+    assertEquals(3, payment.getExpiryMonth());
+    assertEquals(2031, payment.getExpiryYear());
+    assertEquals("JPY", payment.getCurrency());
+    assertEquals(12345, payment.getAmount());
+    assertEquals(stored.getCreatedAt(), payment.getCreatedAt());
+    assertNull(store.get(UUID.randomUUID()));
+  }
+
+  @Test
+  void duplicateIdReturnsStoredPaymentAcrossResizes() {
+    CompactPaymentStore store = new CompactPaymentStore(1);
+    UUID[] ids = new UUID[10_000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      assertNull(store.putIfAbsent(payment(ids[i], i)));
+    }
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(i, store.putIfAbsent(payment(ids[i], -1)).getAmount());
+      assertEquals(i, store.get(ids[i]).getAmount());
+    }
+    assertEquals(ids.length, store.size());
+  }
+
+  @Test
+  void paymentsStayReachableWhenCapacityIsMadeAhead() {
+    CompactPaymentStore store = new CompactPaymentStore(1);
+    UUID[] ids = new UUID[1_000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      store.putIfAbsent(payment(ids[i], i));
+    }
+    store.ensureCapacity(100_000);
+    // smaller than what is held, nothing shrinks
+    store.ensureCapacity(10);
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(i, store.get(ids[i]).getAmount());
+    }
+    assertEquals(ids.length, store.size());
+  }
+
+  @Test
+  void rejectsValuesThatCannotBeEncoded() {
+    CompactPaymentStore store = new CompactPaymentStore();
+    assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(
+        new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(), "************4444", 1,
+            2030, "XYZ", 1)));
+    assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(
+        new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(), "****************", 1,
+            2030, "GBP", 1)));
+  }
+
+  @Test
+  @Tag("benchmark")
+  void reportsBytesPerPayment() {
+    int payments = 500_000;
+    double striped = bytesPerPayment(StripedPaymentStore::new, payments);
+    double compact = bytesPerPayment(CompactPaymentStore::new, payments);
+    System.out.printf("Striped store: %.1f bytes per payment%n", striped);
+    System.out.printf("Compact store: %.1f bytes per payment%n", compact);
+    assertTrue(compact < striped);
+  }
+
+  /**
+   * Retained heap of a store filled with payments as the service builds them: a fresh id, card
+   * and currency string per payment and a shared status constant.
+   */
+  private static double bytesPerPayment(Supplier<PaymentStore> factory, int payments) {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long before = usedHeapAfterGc(memory);
+    PaymentStore store = factory.get();
+    for (int i = 0; i < payments; i++) {
+      store.putIfAbsent(new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(),
+          "************" + (1000 + i % 9000), 12, 2030, new String("GBP"), i));
+    }
+    long after = usedHeapAfterGc(memory);
+    assertEquals(payments, store.size());
+    return (double) (after - before) / payments;
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private static Payment payment(UUID id, int amount) {
+    return new Payment(id, PaymentStatus.AUTHORIZED.getName(), "************4444", 12, 2030, "GBP",
+        amount);
+  }
+}
@@ -0,0 +1,221 @@
+package com.checkout.payment.gateway.repository.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TieredPaymentStoreTest {
+
+  private static final long START = 1_767_225_600_000L;
+
+  @TempDir
+  Path directory;
+
+  private final AtomicLong clock = new AtomicLong(START);
+
+  @Test
+  void paymentsBeyondTheHotBoundAreReadFromDisk() {
+    List<Payment> saved = new ArrayList<>();
+    try (TieredPaymentStore store = new TieredPaymentStore(CompactPaymentStore::new, directory,
+        1_000, Duration.ofDays(1), clock::get)) {
+      for (int i = 0; i < 20_000; i++) {
+        saved.add(payment(UUID.randomUUID(), i));
+        assertNull(store.putIfAbsent(saved.get(i)));
+        if (i % 250 == 0) {
+          store.maintain();
+        }
+      }
+      store.maintain();
+
+      assertTrue(store.hotSize() <= 1_000, () -> store.hotSize() + " payments in memory");
+      assertEquals(saved.size(), store.size());
+      // 250 payment generations, merged four by four
+      assertTrue(segments() < 20, () -> segments() + " segments");
+      long reads = store.coldReads();
+      for (Payment payment : saved) {
+        Payment stored = store.get(payment.getId());
+        assertEquals(payment.getAmount(), stored.getAmount());
+        assertEquals(payment.getCardNumber(), stored.getCardNumber());
+        assertEquals(payment.getCreatedAt(), stored.getCreatedAt());
+      }
+      assertTrue(store.coldReads() - reads < saved.size() * 1.01);
+      assertEquals(saved.get(0).getAmount(),
+          store.putIfAbsent(payment(saved.get(0).getId(), -1)).getAmount());
+      assertNull(store.get(UUID.randomUUID()));
+
+      Set<UUID> visited = new HashSet<>();
+      store.forEach(payment -> assertTrue(visited.add(payment.getId())));
+      assertEquals(saved.size(), visited.size());
+    }
+    assertEquals(0, segments());
+  }
+
+  @Test
+  void paymentsOlderThanTheHotAgeMoveToDisk() {
+    try (TieredPaymentStore store = new TieredPaymentStore(StripedPaymentStore::new, directory,
+        1_000, Duration.ofHours(4), clock::get)) {
+      Payment payment = payment(UUID.randomUUID(), 1);
+      store.putIfAbsent(payment);
+      clock.addAndGet(Duration.ofHours(1).toMillis());
+      store.maintain();
+      assertEquals(1, store.hotSize());
+
+      clock.addAndGet(Duration.ofHours(4).toMillis());
+      store.maintain();
+      assertEquals(0, store.hotSize());
+      assertEquals(1, store.size());
+      assertEquals(payment.getAmount(), store.get(payment.getId()).getAmount());
+    }
+  }
+
+  @Test
+  void generationThatCannotBeWrittenStaysInMemoryWithoutHoldingBackTheOthers() {
+    Payment unencodable = payment(UUID.randomUUID(), 1);
+    unencodable.setExpiryYear(5000);
+    PaymentStore generation = new StripedPaymentStore();
+    generation.putIfAbsent(unencodable);
+    Path file = directory.resolve("failed.segment");
+    assertThrows(IllegalArgumentException.class, () -> ColdSegment.write(file, generation));
+    assertFalse(Files.exists(file));
+
+    try (TieredPaymentStore store = new TieredPaymentStore(StripedPaymentStore::new, directory,
+        100, Duration.ofDays(1), clock::get)) {
+      store.putIfAbsent(unencodable);
+      for (int i = 0; i < 1_000; i++) {
+        store.putIfAbsent(payment(UUID.randomUUID(), i));
+      }
+      store.maintain();
+
+      assertTrue(store.hotSize() <= 100 + 2 * 100 / TieredPaymentStore.HOT_GENERATIONS,
+          "hot payments: " + store.hotSize());
+      assertEquals(1_001, store.size());
+      assertEquals(5000, store.get(unencodable.getId()).getExpiryYear());
+    }
+  }
+
+  @Test
+  void lookupsOfPaymentsInTheHotTierDoNotReadTheDisk() {
+    try (TieredPaymentStore store = new TieredPaymentStore(CompactPaymentStore::new, directory,
+        100, Duration.ofDays(1), clock::get)) {
+      Payment hot = payment(UUID.randomUUID(), 1);
+      for (int i = 0; i < 1_000; i++) {
+        store.putIfAbsent(payment(UUID.randomUUID(), i));
+      }
+      store.maintain();
+      store.putIfAbsent(hot);
+      long reads = store.coldReads();
+      assertEquals(hot.getAmount(), store.get(hot.getId()).getAmount());
+      assertEquals(reads, store.coldReads());
+      assertNull(store.get(new UUID(0, 0)));
+    }
+  }
+
+  /**
+   * Run with {@code -Dtier.benchmark.payments=100000000 -Xmx2g} for the full size.
+   */
+  @Test
+  @Tag("benchmark")
+  void reportsHeapUsageAndColdReadLatency() {
+    int payments = Integer.getInteger("tier.benchmark.payments", 20_000_000);
+    int hotPayments = 4_000_000;
+    int samples = 100_000;
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    long before = memory.getHeapMemoryUsage().getUsed();
+    try (TieredPaymentStore store = new TieredPaymentStore(CompactPaymentStore::new, directory,
+        hotPayments, Duration.ofDays(1), System::currentTimeMillis)) {
+      Random random = new Random(1);
+      UUID[] sample = new UUID[samples];
+      long start = System.nanoTime();
+      for (int i = 0; i < payments; i++) {
+        UUID id = new UUID(random.nextLong(), random.nextLong());
+        if (i % (payments / samples) == 0 && i / (payments / samples) < samples) {
+          sample[i / (payments / samples)] = id;
+        }
+        store.putIfAbsent(payment(id, i));
+      }
+      store.maintain();
+      long insertNanos = System.nanoTime() - start;
+      System.gc();
+      long heap = memory.getHeapMemoryUsage().getUsed() - before;
+
+      // the hot tier holds the most recent payments, sample those saved before them
+      int cold = (int) ((long) samples * (payments - hotPayments) / payments);
+      long[] latencies = new long[cold];
+      long reads = store.coldReads();
+      for (int i = 0; i < cold; i++) {
+        long lookup = System.nanoTime();
+        Payment payment = store.get(sample[i]);
+        latencies[i] = System.nanoTime() - lookup;
+        assertEquals(sample[i], payment.getId());
+      }
+      long coldReads = store.coldReads() - reads;
+      reads = store.coldReads();
+      for (int i = 0; i < cold; i++) {
+        assertNull(store.get(new UUID(random.nextLong(), random.nextLong())));
+      }
+      long falsePositives = store.coldReads() - reads;
+      Arrays.sort(latencies);
+
+      System.out.printf("%d payments inserted in %d s, %d in memory, %d segments%n", payments,
+          insertNanos / 1_000_000_000, store.hotSize(), segments());
+      System.out.printf("heap %d MB, %.1f bytes per payment%n", heap >> 20,
+          (double) heap / payments);
+      System.out.printf("cold lookups: median %d us, p99 %d us, %.3f block reads per lookup,"
+              + " %.4f per lookup of an absent id%n", latencies[cold / 2] / 1_000,
+          latencies[cold * 99 / 100] / 1_000, (double) coldReads / cold,
+          (double) falsePositives / cold);
+      assertEquals(payments, store.size());
+
+      // the repository indexes every payment on the heap, whichever tier holds it
+      start = System.nanoTime();
+      PaymentsRepository repository = new PaymentsRepository(store);
+      long loadNanos = System.nanoTime() - start;
+      System.gc();
+      long repositoryHeap = memory.getHeapMemoryUsage().getUsed() - before;
+      System.out.printf("repository loaded in %d s, heap %d MB, %.1f bytes per payment%n",
+          loadNanos / 1_000_000_000, repositoryHeap >> 20, (double) repositoryHeap / payments);
+      assertTrue(repository.findByPaymentId(sample[0]).isPresent());
+    }
+  }
+
+  private long segments() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static Payment payment(UUID id, int amount) {
+    Payment payment = new Payment(id, PaymentStatus.AUTHORIZED.getName(),
+        String.format("************%04d", Math.abs(amount) % 10_000), 4, 2030, "GBP", amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(START + amount));
+    return payment;
+  }
+}
@@ -0,0 +1,313 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.configuration.BatchProperties;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.BatchPaymentResponse;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.util.PaymentUtil;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PaymentBatchServiceTest {
+
+  private static final String PAYMENT_JSON = "{\"card_number\": \"%s\", \"expiry_month\": 12, "
+      + "\"expiry_year\": 2030, \"currency\": \"GBP\", \"amount\": %s, \"cvv\": \"123\"}";
+  private static final PaymentMetrics METRICS = new PaymentMetrics(new SimpleMeterRegistry());
+  private static final PaymentStatistics STATISTICS =
+      new PaymentStatistics(System::currentTimeMillis);
+  private static final PaymentRequestValidator VALIDATOR = new PaymentRequestValidator(METRICS);
+
+  private final PaymentUtil paymentUtil = mock(PaymentUtil.class);
+  private final PaymentsRepository paymentsRepository =
+      new PaymentsRepository(new StripedPaymentStore());
+  private final BatchProperties properties = new BatchProperties();
+  private final PaymentBatchService batchService =
+      new PaymentBatchService(paymentsRepository, paymentUtil, VALIDATOR, METRICS,
+          STATISTICS, PaymentIdGenerator.RANDOM, properties, new ObjectMapper());
+
+  @Test
+  void reportsEachPaymentInOrder() throws Exception {
+    PostPaymentRequest authorized = request("2222405343248877");
+    PostPaymentRequest invalid = request("22");
+    PostPaymentRequest unavailable = request("2222405343248112");
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(invocation -> {
+      PostPaymentRequest request = invocation.getArgument(0);
+      return request == unavailable
+          ? CompletableFuture.failedFuture(new BankUnavailableException("Bank circuit is open"))
+          : CompletableFuture.completedFuture(bankResponse(true));
+    });
+
+    BatchPaymentResponse response = batchService.processBatch(
+        List.of(authorized, invalid, unavailable)).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, response.getSucceeded());
+    assertEquals(2, response.getFailed());
+    List<BatchPaymentResult> results = response.getResults();
+    assertEquals(201, results.get(0).getStatus());
+    assertNotNull(paymentsRepository.findByPaymentId(results.get(0).getPayment().getId())
+        .orElse(null));
+    assertEquals(400, results.get(1).getStatus());
+    assertTrue(results.get(1).getErrors().containsKey("cardNumber"));
+    assertEquals(503, results.get(2).getStatus());
+    assertEquals("Bank circuit is open", results.get(2).getMessage());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i, results.get(i).getIndex());
+    }
+  }
+
+  @Test
+  void bankErrorIsReportedWithTheStatusOfASinglePayment() throws Exception {
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenReturn(
+        CompletableFuture.failedFuture(new EventProcessingException("Bank response is invalid")));
+
+    BatchPaymentResponse response = batchService.processBatch(
+        List.of(request("2222405343248877"))).get(5, TimeUnit.SECONDS);
+
+    BatchPaymentResult result = response.getResults().get(0);
+    assertEquals(404, result.getStatus());
+    assertEquals("Bank response is invalid", result.getMessage());
+    assertEquals(1, response.getFailed());
+  }
+
+  @Test
+  void bankCallsAreBoundedByMaxConcurrency() throws Exception {
+    properties.setMaxConcurrency(4);
+    List<CompletableFuture<BankPaymentResponse>> pending = Collections.synchronizedList(new ArrayList<>());
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(invocation -> {
+      CompletableFuture<BankPaymentResponse> call = new CompletableFuture<>();
+      pending.add(call);
+      return call;
+    });
+    List<PostPaymentRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      requests.add(request("2222405343248877"));
+    }
+
+    CompletableFuture<BatchPaymentResponse> batch = batchService.processBatch(requests);
+    int completed = 0;
+    while (completed < requests.size()) {
+      assertTrue(pending.size() - completed <= 4, "in flight " + (pending.size() - completed));
+      pending.get(completed++).complete(bankResponse(completed % 2 == 0));
+    }
+
+    BatchPaymentResponse response = batch.get(5, TimeUnit.SECONDS);
+    assertEquals(20, response.getSucceeded());
+    assertTrue(paymentsRepository.findByPaymentId(
+        response.getResults().get(19).getPayment().getId()).isPresent());
+  }
+
+  @Test
+  void batchesAboveMaxSizeAreRejected() {
+    properties.setMaxSize(2);
+    List<PostPaymentRequest> requests = List.of(request("2222405343248877"),
+        request("2222405343248877"), request("2222405343248877"));
+    assertThrows(InvalidBatchException.class, () -> batchService.processBatch(requests));
+    assertThrows(InvalidBatchException.class, () -> batchService.processBatch(List.of()));
+  }
+
+  @Test
+  void streamWritesOneResultPerRecord() throws Exception {
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(bankResponse(true)));
+    String stream = String.join("\n",
+        PAYMENT_JSON.formatted("2222405343248877", "10"),
+        PAYMENT_JSON.formatted("22", "10"),
+        PAYMENT_JSON.formatted("2222405343248877", "\"ten\""),
+        PAYMENT_JSON.formatted("2222405343248877", "20"));
+
+    Map<Integer, JsonNode> results = stream(stream);
+
+    assertEquals(4, results.size());
+    assertEquals(201, results.get(0).path("status").asInt());
+    assertEquals(400, results.get(1).path("status").asInt());
+    assertTrue(results.get(1).path("errors").has("cardNumber"));
+    assertEquals(400, results.get(2).path("status").asInt());
+    assertTrue(results.get(2).path("message").asText().startsWith("Invalid payment record"));
+    assertEquals(20, results.get(3).path("payment").path("amount").asInt());
+  }
+
+  @Test
+  void streamStopsAtMalformedJson() throws Exception {
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(bankResponse(true)));
+    String stream = PAYMENT_JSON.formatted("2222405343248877", "10") + "\n{\"card_number\": ]\n"
+        + PAYMENT_JSON.formatted("2222405343248877", "10");
+
+    Map<Integer, JsonNode> results = stream(stream);
+
+    assertEquals(2, results.size());
+    assertEquals(201, results.get(0).path("status").asInt());
+    assertTrue(results.get(1).path("message").asText().startsWith("Malformed payment record"));
+  }
+
+  @Test
+  void streamStopsReadingWhilePaymentsAreInFlight() throws Exception {
+    properties.setStreamMaxInFlight(4);
+    BlockingQueue<CompletableFuture<BankPaymentResponse>> pending = new LinkedBlockingQueue<>();
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(invocation -> {
+      CompletableFuture<BankPaymentResponse> call = new CompletableFuture<>();
+      pending.add(call);
+      return call;
+    });
+    int records = 40;
+    StringBuilder stream = new StringBuilder();
+    for (int i = 0; i < records; i++) {
+      stream.append(PAYMENT_JSON.formatted("2222405343248877", "10")).append('\n');
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    CompletableFuture<Void> processing = CompletableFuture.runAsync(() -> {
+      try {
+        batchService.processStream(
+            new ByteArrayInputStream(stream.toString().getBytes(StandardCharsets.UTF_8)), output);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+
+    for (int completed = 0; completed < records; completed++) {
+      CompletableFuture<BankPaymentResponse> call = pending.poll(5, TimeUnit.SECONDS);
+      assertNotNull(call);
+      // the next bank call waits for this result, even though the whole upload is available
+      Thread.sleep(1);
+      assertTrue(pending.size() < 4, "in flight " + (pending.size() + 1));
+      call.complete(bankResponse(true));
+    }
+    processing.get(5, TimeUnit.SECONDS);
+    assertEquals(records, output.toString(StandardCharsets.UTF_8).lines().count());
+  }
+
+  /**
+   * Streams a million payments and samples the live heap after a collection every 100 000
+   * results. Neither the upload nor the results may be held in memory, so the live heap must stay
+   * far below the size of the file.
+   */
+  @Test
+  @Tag("benchmark")
+  void streamsMillionRecordsInBoundedHeap(@TempDir Path directory) throws Exception {
+    int records = 1_000_000;
+    Path file = directory.resolve("payments.ndjson");
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      for (int i = 0; i < records; i++) {
+        writer.write(PAYMENT_JSON.formatted("2222405343248877", String.valueOf(1 + i % 1000)));
+        writer.newLine();
+      }
+    }
+    PaymentUtil bank = mock(PaymentUtil.class, withSettings().stubOnly());
+    when(bank.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(bankResponse(true)));
+    // payments are not kept, the store's own footprint is measured elsewhere
+    PaymentsRepository repository = mock(PaymentsRepository.class, withSettings().stubOnly());
+    when(repository.save(any(Payment.class))).thenAnswer(
+        invocation -> Optional.of(invocation.getArgument(0)));
+    PaymentBatchService service = new PaymentBatchService(repository, bank, VALIDATOR, METRICS,
+        STATISTICS, PaymentIdGenerator.RANDOM, properties, new ObjectMapper());
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    long baseline = memory.getHeapMemoryUsage().getUsed();
+    long[] peak = new long[1];
+    long[] lines = new long[1];
+    OutputStream results = new OutputStream() {
+      @Override
+      public void write(int b) {
+        if (b == '\n' && ++lines[0] % 100_000 == 0) {
+          System.gc();
+          peak[0] = Math.max(peak[0], memory.getHeapMemoryUsage().getUsed() - baseline);
+        }
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+          write(b[i]);
+        }
+      }
+    };
+    long start = System.nanoTime();
+    try (InputStream input = Files.newInputStream(file)) {
+      service.processStream(input, results);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("streamed %d payments (%d MB) in %d ms, %.0f payments/s, "
+            + "live heap grew by at most %d KB%n", records, Files.size(file) >> 20,
+        TimeUnit.NANOSECONDS.toMillis(elapsed), records * 1e9 / elapsed, peak[0] >> 10);
+    assertEquals(records, lines[0]);
+    assertTrue(peak[0] < Files.size(file) / 10);
+  }
+
+  private Map<Integer, JsonNode> stream(String ndjson) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    batchService.processStream(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+        output);
+    ObjectMapper mapper = new ObjectMapper();
+    Map<Integer, JsonNode> results = new HashMap<>();
+    for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+      JsonNode result = mapper.readTree(line);
+      results.put(result.path("index").asInt(), result);
+    }
+    return results;
+  }
+
+  private static PostPaymentRequest request(String cardNumber) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("GBP");
+    request.setAmount(10);
+    request.setCvv("123");
+    return request;
+  }
+
+  private static BankPaymentResponse bankResponse(boolean authorized) {
+    return new BankPaymentResponse(authorized, authorized ? UUID.randomUUID() : null);
+  }
+}
@@ -1,29 +1,63 @@
 package com.checkout.payment.gateway.service;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.checkout.payment.gateway.bank.BankPaymentResponse;
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.cache.SerializedPayment;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.IdempotencyKeyException;
+import com.checkout.payment.gateway.exception.InvalidSearchException;
+import com.checkout.payment.gateway.id.TimeOrderedIdGenerator;
+import com.checkout.payment.gateway.idempotency.IdempotencyCache;
 import com.checkout.payment.gateway.mapper.PaymentMapper;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.CurrencyStats;
 import com.checkout.payment.gateway.model.GetPaymentResponse;
+import com.checkout.payment.gateway.model.PaymentSearchRequest;
+import com.checkout.payment.gateway.model.PaymentSearchResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
 import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.index.Page;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
 import com.checkout.payment.gateway.util.PaymentUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +72,20 @@ class PaymentGatewayServiceTest {
   @Mock
   private PaymentsRepository paymentsRepository;
 
+  @Spy
+  private PaymentResponseCache paymentResponseCache = new PaymentResponseCache(new ObjectMapper(),
+      100);
+
+  @Spy
+  private PaymentMetrics paymentMetrics = new PaymentMetrics(new SimpleMeterRegistry());
+
+  @Spy
+  private PaymentStatistics paymentStatistics = new PaymentStatistics(System::currentTimeMillis);
+
+  @Spy
+  private TimeOrderedIdGenerator idGenerator =
+      new TimeOrderedIdGenerator(System::currentTimeMillis);
+
   @InjectMocks
   private PaymentGatewayService paymentGatewayService;
 
@@ -53,6 +101,63 @@ class PaymentGatewayServiceTest {
   }
 
 
+  @Test
+  void serializedPaymentIsMappedOnFirstReadOnly() throws Exception {
+    UUID paymentId = UUID.randomUUID();
+    when(paymentsRepository.findByPaymentId(paymentId)).thenReturn(Optional.of(new Payment(
+        paymentId, PaymentStatus.AUTHORIZED.getName(), "************4444", 1, 2030, "GBP", 100)));
+
+    SerializedPayment first = paymentGatewayService.getSerializedPaymentById(paymentId);
+    SerializedPayment second = paymentGatewayService.getSerializedPaymentById(paymentId);
+
+    assertSame(first, second);
+    verify(paymentsRepository, times(1)).findByPaymentId(paymentId);
+    GetPaymentResponse response = paymentGatewayService.getPaymentById(paymentId);
+    assertEquals(new ObjectMapper().writeValueAsString(response),
+        new String(first.getJson(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void searchTranslatesCriteriaAndCursors() {
+    Payment payment = new Payment(UUID.randomUUID(), PaymentStatus.DECLINED.getName(),
+        "************4444", 1, 2030, "GBP", 100);
+    when(paymentsRepository.search(argThat(query -> query.getStatus() == PaymentStatus.DECLINED
+        && "4444".equals(query.getCardNumberLastFour()) && query.getExpiryYear() == 2030
+        && query.getAfter() == 12 && query.getLimit() == 20)))
+        .thenReturn(new Page<>(List.of(payment), 13));
+    PaymentSearchRequest request = new PaymentSearchRequest();
+    request.setStatus("DECLINED");
+    request.setCardNumberLastFour("4444");
+    request.setExpiryMonth(1);
+    request.setExpiryYear(2030);
+    request.setCursor("12");
+
+    PaymentSearchResponse response = paymentGatewayService.searchPayments(request);
+
+    assertEquals(payment.getId(), response.getPayments().get(0).getId());
+    assertEquals("13", response.getNextCursor());
+  }
+
+  @Test
+  void malformedSearchCriteriaAreRejected() {
+    List<Consumer<PaymentSearchRequest>> malformed = List.of(
+        request -> request.setStatus("Pending"),
+        request -> request.setCurrency("ZZZ"),
+        request -> request.setCardNumberLastFour("4444"),
+        request -> request.setExpiryMonth(1),
+        request -> request.setLimit(0),
+        request -> request.setLimit(101),
+        request -> request.setCursor("-1"),
+        request -> request.setCursor("next"));
+
+    for (Consumer<PaymentSearchRequest> criterion : malformed) {
+      PaymentSearchRequest request = new PaymentSearchRequest();
+      criterion.accept(request);
+      assertThrows(InvalidSearchException.class,
+          () -> paymentGatewayService.searchPayments(request), request.toString());
+    }
+  }
+
   @Test
   void testPaymentIdNotFoundThrowsException() {
     UUID unknownId = UUID.randomUUID();
@@ -74,8 +179,8 @@ class PaymentGatewayServiceTest {
     postPaymentRequest.setCardNumber("1111222233334444");
     postPaymentRequest.setCvv("123");
 
-    ObjectMapper objectMapper = new ObjectMapper();
-    JsonNode mockNode = objectMapper.readTree("{\"authorized\":true, \"authorization_code\":\"083d3cbb-5db5-4995-89f6-9f339e7e5660\"}");
+    BankPaymentResponse mockNode = new BankPaymentResponse(true,
+        UUID.fromString("083d3cbb-5db5-4995-89f6-9f339e7e5660"));
     when(paymentUtil.callBankApi(any(PostPaymentRequest.class))).thenReturn(mockNode);
     Payment paymentRequest =new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(),
         "************4444", 01, 2030, "GBP", 100);
@@ -85,6 +190,150 @@ class PaymentGatewayServiceTest {
 
   }
 
+  @Test
+  void processPaymentAsyncTestSuccess() throws Exception {
+
+    PostPaymentRequest postPaymentRequest = new PostPaymentRequest();
+    postPaymentRequest.setAmount(10);
+    postPaymentRequest.setCurrency("USD");
+    postPaymentRequest.setExpiryMonth(12);
+    postPaymentRequest.setExpiryYear(2024);
+    postPaymentRequest.setCardNumber("1111222233334444");
+    postPaymentRequest.setCvv("123");
+
+    BankPaymentResponse mockNode = new BankPaymentResponse(false, null);
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenReturn(
+        CompletableFuture.completedFuture(mockNode));
+    when(paymentsRepository.save(any(Payment.class))).thenAnswer(
+        invocation -> Optional.of(invocation.getArgument(0)));
+    PostPaymentResponse postPaymentResponse = paymentGatewayService.processPaymentAsync(postPaymentRequest).get();
+    assertEquals(PaymentStatus.DECLINED, postPaymentResponse.getStatus());
+    assertEquals("************4444", postPaymentResponse.getCardNumberLastFour());
+
+  }
+
+  @Test
+  void processedPaymentsAreTotalledByWindowAndCurrency() {
+    when(paymentUtil.callBankApi(any(PostPaymentRequest.class))).thenReturn(
+        new BankPaymentResponse(true, UUID.randomUUID()),
+        new BankPaymentResponse(true, UUID.randomUUID()),
+        new BankPaymentResponse(false, null));
+    when(paymentsRepository.save(any(Payment.class))).thenAnswer(
+        invocation -> Optional.of(invocation.getArgument(0)));
+    paymentGatewayService.processPayment(paymentRequest(100));
+    paymentGatewayService.processPayment(paymentRequest(50));
+    paymentGatewayService.processPayment(paymentRequest(30));
+
+    PaymentStatsResponse stats = paymentGatewayService.getPaymentStats();
+
+    assertEquals(List.of("1m", "1h", "24h"), List.copyOf(stats.getWindows().keySet()));
+    for (Map<String, CurrencyStats> window : stats.getWindows().values()) {
+      CurrencyStats gbp = window.get("GBP");
+      assertEquals(3, gbp.getCount());
+      assertEquals(180, gbp.getAmount());
+      assertEquals(150, gbp.getStatuses().get("Authorized").getAmount());
+      assertEquals(1, gbp.getStatuses().get("Declined").getCount());
+      assertEquals(0, gbp.getStatuses().get("Rejected").getCount());
+      assertEquals(2.0 / 3, gbp.getAuthorizationRate(), 1e-9);
+      assertEquals(Set.of("GBP"), window.keySet());
+    }
+  }
+
+  @Test
+  void authorizationCodeBecomesPaymentId() throws Exception {
+    PostPaymentRequest postPaymentRequest = new PostPaymentRequest();
+    postPaymentRequest.setAmount(10);
+    postPaymentRequest.setCurrency("USD");
+    postPaymentRequest.setExpiryMonth(12);
+    postPaymentRequest.setExpiryYear(2030);
+    postPaymentRequest.setCardNumber("1111222233334444");
+    postPaymentRequest.setCvv("123");
+    UUID authorizationCode = UUID.randomUUID();
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenReturn(
+        CompletableFuture.completedFuture(new BankPaymentResponse(true, authorizationCode)));
+    when(paymentsRepository.save(any(Payment.class))).thenAnswer(
+        invocation -> Optional.of(invocation.getArgument(0)));
+
+    PostPaymentResponse postPaymentResponse =
+        paymentGatewayService.processPaymentAsync(postPaymentRequest).get();
+
+    assertEquals(authorizationCode, postPaymentResponse.getId());
+  }
+
+  @Test
+  void retryStormCallsBankOncePerKey() throws Exception {
+    IdempotencyCache<PostPaymentResponse> cache = new IdempotencyCache<>(
+        TimeUnit.HOURS.toNanos(1), 1000, System::nanoTime);
+    PaymentGatewayService service = new PaymentGatewayService(
+        new PaymentsRepository(new StripedPaymentStore()), paymentUtil, cache, paymentResponseCache,
+        paymentMetrics, paymentStatistics, idGenerator);
+    AtomicInteger bankCalls = new AtomicInteger();
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenAnswer(invocation -> {
+      bankCalls.incrementAndGet();
+      // slow enough for most retries to arrive while the first attempt is in flight
+      return CompletableFuture.supplyAsync(
+          () -> new BankPaymentResponse(true, UUID.randomUUID()),
+          CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+    });
+    int keys = 20;
+    int retries = 50;
+    ExecutorService clients = Executors.newFixedThreadPool(16);
+    List<Future<PostPaymentResponse>> responses = new ArrayList<>();
+    for (int retry = 0; retry < retries; retry++) {
+      for (int key = 0; key < keys; key++) {
+        String idempotencyKey = "payment-" + key;
+        PostPaymentRequest request = paymentRequest(10 + key);
+        responses.add(clients.submit(() -> service.processPaymentAsync(request, idempotencyKey)
+            .get(5, TimeUnit.SECONDS)));
+      }
+    }
+    Set<UUID> paymentIds = new HashSet<>();
+    for (Future<PostPaymentResponse> response : responses) {
+      paymentIds.add(response.get(10, TimeUnit.SECONDS).getId());
+    }
+    clients.shutdown();
+
+    assertEquals(keys, bankCalls.get());
+    assertEquals(keys, paymentIds.size());
+    assertEquals(keys * (retries - 1), cache.getHits());
+  }
+
+  @Test
+  void idempotencyKeyReusedForDifferentPaymentIsRejected() {
+    IdempotencyCache<PostPaymentResponse> cache = new IdempotencyCache<>(
+        TimeUnit.HOURS.toNanos(1), 1000, System::nanoTime);
+    PaymentGatewayService service = new PaymentGatewayService(paymentsRepository, paymentUtil, cache,
+        paymentResponseCache, paymentMetrics, paymentStatistics, idGenerator);
+    when(paymentUtil.callBankApiAsync(any(PostPaymentRequest.class))).thenReturn(
+        new CompletableFuture<>());
+
+    service.processPaymentAsync(paymentRequest(10), "key");
+    assertThrows(IdempotencyKeyException.class,
+        () -> service.processPaymentAsync(paymentRequest(11), "key"));
+    // same Objects.hash of the fields as the first payment
+    PostPaymentRequest colliding = paymentRequest(11);
+    colliding.setCvv("113");
+    assertThrows(IdempotencyKeyException.class,
+        () -> service.processPaymentAsync(colliding, "key"));
+    // the CVV is not part of the fingerprint, a retry that differs by it alone is the same payment
+    PostPaymentRequest otherCvv = paymentRequest(10);
+    otherCvv.setCvv("999");
+    assertDoesNotThrow(() -> service.processPaymentAsync(otherCvv, "key"));
+    assertThrows(IdempotencyKeyException.class,
+        () -> service.processPaymentAsync(paymentRequest(10), "k".repeat(256)));
+  }
+
+  private static PostPaymentRequest paymentRequest(int amount) {
+    PostPaymentRequest postPaymentRequest = new PostPaymentRequest();
+    postPaymentRequest.setAmount(amount);
+    postPaymentRequest.setCurrency("GBP");
+    postPaymentRequest.setExpiryMonth(12);
+    postPaymentRequest.setExpiryYear(2030);
+    postPaymentRequest.setCardNumber("1111222233334444");
+    postPaymentRequest.setCvv("123");
+    return postPaymentRequest;
+  }
+
   @Test
   void processPaymentTestFailure() throws JsonProcessingException {
 
@@ -94,8 +343,8 @@ class PaymentGatewayServiceTest {
     postPaymentRequest.setExpiryYear(2024);
     postPaymentRequest.setCardNumber("1111222233334444");
     postPaymentRequest.setCvv("123");
-    ObjectMapper objectMapper = new ObjectMapper();
-    JsonNode mockNode = objectMapper.readTree("{\"authorized\":true, \"authorization_code\":\"083d3cbb-5db5-4995-89f6-9f339e7e5660\"}");
+    BankPaymentResponse mockNode = new BankPaymentResponse(true,
+        UUID.fromString("083d3cbb-5db5-4995-89f6-9f339e7e5660"));
     when(paymentUtil.callBankApi(any(PostPaymentRequest.class))).thenReturn(mockNode);
 
     Exception ex = assertThrows(EventProcessingException.class, () ->
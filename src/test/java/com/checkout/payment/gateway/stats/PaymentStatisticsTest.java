@@ -0,0 +1,178 @@
+package com.checkout.payment.gateway.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.entity.Payment;
+import com.checkout.payment.gateway.repository.store.StripedPaymentStore;
+import com.checkout.payment.gateway.stats.PaymentStatistics.Totals;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PaymentStatisticsTest {
+
+  private static final String[] CURRENCIES = {"GBP", "USD", "EUR", "JPY"};
+
+  private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+  private final PaymentStatistics statistics = new PaymentStatistics(now::get);
+
+  @Test
+  void paymentsLeaveEachWindowOnceTheyAreOlderThanIt() {
+    statistics.record(PaymentStatus.AUTHORIZED, "gbp", 100);
+    statistics.record(PaymentStatus.DECLINED, "GBP", 40);
+    statistics.record(PaymentStatus.AUTHORIZED, "ZZZ", 100);
+    statistics.record(null, "GBP", 100);
+
+    Map<PaymentStatus, Totals> gbp = statistics.totals(StatsWindow.LAST_MINUTE).get("GBP");
+    assertEquals(new Totals(1, 100), gbp.get(PaymentStatus.AUTHORIZED));
+    assertEquals(new Totals(1, 40), gbp.get(PaymentStatus.DECLINED));
+    assertEquals(new Totals(0, 0), gbp.get(PaymentStatus.REJECTED));
+    assertEquals(Set.of("GBP"), statistics.totals(StatsWindow.LAST_DAY).keySet());
+
+    advance(Duration.ofSeconds(59));
+    statistics.record(PaymentStatus.AUTHORIZED, "USD", 7);
+    assertEquals(Set.of("GBP", "USD"), statistics.totals(StatsWindow.LAST_MINUTE).keySet());
+    advance(Duration.ofSeconds(1));
+    assertEquals(Set.of("USD"), statistics.totals(StatsWindow.LAST_MINUTE).keySet());
+    assertEquals(Set.of("GBP", "USD"), statistics.totals(StatsWindow.LAST_HOUR).keySet());
+
+    advance(Duration.ofHours(1));
+    assertTrue(statistics.totals(StatsWindow.LAST_MINUTE).isEmpty());
+    assertTrue(statistics.totals(StatsWindow.LAST_HOUR).isEmpty());
+    assertEquals(new Totals(1, 100),
+        statistics.totals(StatsWindow.LAST_DAY).get("GBP").get(PaymentStatus.AUTHORIZED));
+
+    // the bucket of the first payments is reused, without them
+    advance(Duration.ofHours(23));
+    statistics.record(PaymentStatus.REJECTED, "GBP", 5);
+    assertEquals(Map.of(PaymentStatus.AUTHORIZED, new Totals(0, 0),
+            PaymentStatus.DECLINED, new Totals(0, 0), PaymentStatus.REJECTED, new Totals(1, 5)),
+        statistics.totals(StatsWindow.LAST_DAY).get("GBP"));
+  }
+
+  @Test
+  void concurrentPaymentsAreAllCounted() throws Exception {
+    int threads = 8;
+    int perThread = 50_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> writers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      writers.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < perThread; i++) {
+          statistics.record(PaymentStatus.values()[i % 3], CURRENCIES[i % CURRENCIES.length], i);
+          if (i % 1000 == 0) {
+            // writers cross bucket boundaries together
+            now.addAndGet(10);
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> writer : writers) {
+      writer.get(1, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+
+    long count = 0;
+    long amount = 0;
+    for (Map<PaymentStatus, Totals> currency : statistics.totals(StatsWindow.LAST_HOUR).values()) {
+      for (Totals totals : currency.values()) {
+        count += totals.count();
+        amount += totals.amount();
+      }
+    }
+    assertEquals((long) threads * perThread, count);
+    assertEquals((long) threads * perThread * (perThread - 1) / 2, amount);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void recordingAddsLittleToConcurrentSaves() throws Exception {
+    int threads = 8;
+    int perThread = 200_000;
+    PaymentStatistics wallClock = new PaymentStatistics(System::currentTimeMillis);
+    // warm up both paths before measuring
+    saveConcurrently(threads, perThread / 4, null);
+    saveConcurrently(threads, perThread / 4, wallClock);
+
+    long saveOnly = saveConcurrently(threads, perThread, null);
+    long saveAndRecord = saveConcurrently(threads, perThread, wallClock);
+    long recordOnly = recordConcurrently(wallClock, threads, perThread);
+
+    long payments = (long) threads * perThread;
+    System.out.printf("PaymentStatistics %d threads: save %.0f ns/payment, save and record"
+            + " %.0f ns/payment, record alone %.0f ns/payment%n", threads,
+        (double) saveOnly / payments, (double) saveAndRecord / payments,
+        (double) recordOnly / payments);
+    assertTrue(recordOnly < saveOnly, "recording costs more than saving");
+  }
+
+  private static long saveConcurrently(int threads, int perThread, PaymentStatistics statistics)
+      throws Exception {
+    PaymentsRepository repository = new PaymentsRepository(new StripedPaymentStore());
+    return concurrently(threads, () -> {
+      for (int i = 0; i < perThread; i++) {
+        Payment payment = new Payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED.getName(),
+            "************8877", 4, 2030, CURRENCIES[i & 3], 100 + i);
+        repository.save(payment);
+        if (statistics != null) {
+          statistics.record(PaymentStatus.AUTHORIZED, payment.getCurrency(), payment.getAmount());
+        }
+      }
+    });
+  }
+
+  private static long recordConcurrently(PaymentStatistics statistics, int threads,
+      int perThread) throws Exception {
+    return concurrently(threads, () -> {
+      for (int i = 0; i < perThread; i++) {
+        statistics.record(PaymentStatus.AUTHORIZED, CURRENCIES[i & 3], 100 + i);
+      }
+    });
+  }
+
+  /**
+   * @return nanoseconds for every thread to run the task
+   */
+  private static long concurrently(int threads, Runnable task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        task.run();
+        return null;
+      }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(5, TimeUnit.MINUTES);
+    }
+    long elapsed = System.nanoTime() - begin;
+    executor.shutdown();
+    return elapsed;
+  }
+
+  private void advance(Duration duration) {
+    now.addAndGet(duration.toMillis());
+  }
+}
@@ -0,0 +1,136 @@
+package com.checkout.payment.gateway.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class PaymentRequestValidatorTest {
+
+  private static final Validator BEAN_VALIDATOR =
+      Validation.buildDefaultValidatorFactory().getValidator();
+
+  private final PaymentMetrics paymentMetrics = new PaymentMetrics(new SimpleMeterRegistry());
+  private final PaymentRequestValidator validator = new PaymentRequestValidator(paymentMetrics);
+
+  @Test
+  void reportsSameFieldErrorsAsBeanValidation() {
+    List<Consumer<PostPaymentRequest>> changes = List.of(
+        request -> { },
+        request -> request.setCardNumber(null),
+        request -> request.setCardNumber("2222405343"),
+        request -> request.setCardNumber("22224053432488771234"),
+        request -> request.setCardNumber("2222405abc42222"),
+        request -> request.setCardNumber("２２２２４０５３４３２４８８７７"),
+        request -> request.setExpiryMonth(0),
+        request -> request.setExpiryMonth(13),
+        request -> request.setExpiryYear(2001),
+        request -> request.setExpiryYear(5000),
+        request -> request.setCurrency(null),
+        request -> request.setCurrency("usd"),
+        request -> request.setCurrency("XYZ"),
+        request -> request.setCurrency("US"),
+        request -> request.setAmount(0),
+        request -> request.setCvv(null),
+        request -> request.setCvv("12"),
+        request -> request.setCvv("12345"),
+        request -> request.setCvv("12a"),
+        request -> {
+          request.setCardNumber(null);
+          request.setExpiryYear(2001);
+          request.setCurrency("ZZZ");
+          request.setAmount(-5);
+          request.setCvv("1b3");
+        });
+
+    for (Consumer<PostPaymentRequest> change : changes) {
+      PostPaymentRequest request = validRequest();
+      change.accept(request);
+      assertEquals(beanValidationErrors(request), validator.validate(request), request.toString());
+    }
+  }
+
+  @Test
+  void validRequestHasNoErrors() {
+    assertTrue(validator.validate(validRequest()).isEmpty());
+  }
+
+  @Test
+  void currentMonthFollowsClockAcrossRollover() {
+    MutableClock clock = new MutableClock(
+        LocalDateTime.of(2030, 4, 30, 23, 59).toInstant(ZoneOffset.UTC));
+    PaymentRequestValidator validator = new PaymentRequestValidator(clock, paymentMetrics);
+    PostPaymentRequest request = validRequest();
+    request.setExpiryMonth(5);
+    request.setExpiryYear(2030);
+
+    assertTrue(validator.validate(request).isEmpty());
+
+    clock.instant = LocalDateTime.of(2030, 5, 1, 0, 0).toInstant(ZoneOffset.UTC);
+    assertEquals(Map.of("expiryDate", PaymentRequestValidator.EXPIRY_IN_PAST),
+        validator.validate(request));
+  }
+
+  private static Map<String, String> beanValidationErrors(PostPaymentRequest request) {
+    // class level errors without a property are not field errors, and are left out of the
+    // response by the exception handler
+    Map<String, String> errors = new HashMap<>();
+    for (ConstraintViolation<PostPaymentRequest> violation : BEAN_VALIDATOR.validate(request)) {
+      String field = violation.getPropertyPath().toString();
+      if (!field.isEmpty()) {
+        errors.put(field, violation.getMessage());
+      }
+    }
+    return errors;
+  }
+
+  private static PostPaymentRequest validRequest() {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("2222405343248877");
+    request.setExpiryMonth(4);
+    request.setExpiryYear(2035);
+    request.setCurrency("GBP");
+    request.setAmount(100);
+    request.setCvv("123");
+    return request;
+  }
+
+  private static final class MutableClock extends Clock {
+
+    private volatile Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}